@@ -0,0 +1,6 @@
+import { createApp } from 'vue'
+import './style.css'
+import 'animate.css'
+import ListBenchmark from './components/ListBenchmark.vue'
+
+createApp(ListBenchmark).mount('#app')
@@ -0,0 +1,57 @@
+import axios from "axios";
+
+const MAGIC = 'ZPRV'
+
+/** Decoded previews kept for cards that scroll back into view, least recently used dropped first */
+const MAX_CACHED_PREVIEWS = 500
+
+const textDecoder = new TextDecoder()
+const previews = new Map()
+
+/***************************************************************
+ * Decode a waveform preview (see WaveformPreview)
+ * Returns {durationSeconds, points, channels: [{label, low, high, minMax}]}
+ * minMax holds min and max per point as bytes, value = low + byte / 255 * (high - low)
+ */
+export function decodePreview(buffer) {
+    const view = new DataView(buffer)
+    const magic = String.fromCharCode(...new Uint8Array(buffer, 0, 4))
+    if (magic !== MAGIC) {
+        throw new Error(`Not a waveform preview, magic: ${magic}`)
+    }
+    const channelCount = view.getUint16(6, true)
+    const points = view.getUint16(8, true)
+    const durationSeconds = view.getFloat32(12, true)
+
+    let offset = 16
+    const channels = []
+    for (let c = 0; c < channelCount; c++) {
+        const low = view.getFloat32(offset, true)
+        const high = view.getFloat32(offset + 4, true)
+        const labelLength = view.getUint8(offset + 8)
+        const label = textDecoder.decode(new Uint8Array(buffer, offset + 9, labelLength))
+        offset += 9 + labelLength
+        channels.push({label, low, high, minMax: new Uint8Array(buffer, offset, 2 * points)})
+        offset += 2 * points
+    }
+    return {durationSeconds, points, channels}
+}
+
+/***************************************************************
+ * Fetch and decode a preview; the versioned URL is cached by the browser for a year
+ */
+export async function fetchPreview(url) {
+    const cached = previews.get(url)
+    if (cached) {
+        previews.delete(url)
+        previews.set(url, cached)
+        return cached
+    }
+    const response = await axios.get(url, {responseType: 'arraybuffer', timeout: 10000})
+    const preview = decodePreview(response.data)
+    previews.set(url, preview)
+    if (previews.size > MAX_CACHED_PREVIEWS) {
+        previews.delete(previews.keys().next().value)
+    }
+    return preview
+}
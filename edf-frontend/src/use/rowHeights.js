@@ -0,0 +1,89 @@
+/***************************************************************
+ * Row heights of a virtual list in a Fenwick (binary indexed) tree.
+ *
+ * Rows start with an estimated height and are corrected when they are
+ * measured; the offset of a row and the row at an offset are found in
+ * O(log n), so the list stays fast with 100k rows of varying height.
+ * The list can grow and shrink without losing the measured heights.
+ */
+export class RowHeights {
+
+    constructor(count, estimate) {
+        this.count = count
+        this.heights = new Float64Array(count).fill(estimate)
+        this.tree = new Float64Array(count + 1)
+        // linear time build: every node passes its sum on to its parent
+        for (let i = 1; i <= count; i++) {
+            this.tree[i] += estimate
+            const parent = i + (i & -i)
+            if (parent <= count) {
+                this.tree[parent] += this.tree[i]
+            }
+        }
+    }
+
+    /**
+     * Changes the number of rows; rows kept keep their heights, new rows start
+     * with the estimate. Growing appends in O(log n) per row into arrays of
+     * doubled capacity, shrinking keeps the nodes of the rows left.
+     */
+    resize(count, estimate) {
+        if (count > this.heights.length) {
+            const capacity = Math.max(count, 2 * this.heights.length)
+            const heights = new Float64Array(capacity)
+            heights.set(this.heights.subarray(0, this.count))
+            const tree = new Float64Array(capacity + 1)
+            tree.set(this.tree.subarray(0, this.count + 1))
+            this.heights = heights
+            this.tree = tree
+        }
+        for (let i = this.count + 1; i <= count; i++) {
+            // node i covers the rows after i - lowbit(i), the ones before it are in place already
+            this.heights[i - 1] = estimate
+            this.count = i - 1
+            this.tree[i] = estimate + this.offsetOf(i - 1) - this.offsetOf(i - (i & -i))
+        }
+        this.count = count
+    }
+
+    /** Sets the height of a row, returns the change */
+    set(index, height) {
+        const delta = height - this.heights[index]
+        if (delta === 0) {
+            return 0
+        }
+        this.heights[index] = height
+        for (let i = index + 1; i <= this.count; i += i & -i) {
+            this.tree[i] += delta
+        }
+        return delta
+    }
+
+    /** Offset of the top of a row: the sum of the heights before it */
+    offsetOf(index) {
+        let sum = 0
+        for (let i = Math.min(index, this.count); i > 0; i -= i & -i) {
+            sum += this.tree[i]
+        }
+        return sum
+    }
+
+    /** Height of all rows */
+    get total() {
+        return this.offsetOf(this.count)
+    }
+
+    /** Index of the row containing an offset, clamped to the rows */
+    indexAt(offset) {
+        let index = 0
+        let remaining = offset
+        for (let step = 1 << Math.floor(Math.log2(Math.max(1, this.count))); step > 0; step >>= 1) {
+            const next = index + step
+            if (next <= this.count && this.tree[next] <= remaining) {
+                index = next
+                remaining -= this.tree[next]
+            }
+        }
+        return Math.min(index, Math.max(0, this.count - 1))
+    }
+}
@@ -0,0 +1,81 @@
+import axios from "axios";
+
+export const SIGNAL_FLOAT32 = 'application/vnd.zeto.signal.f32'
+export const SIGNAL_INT16 = 'application/vnd.zeto.signal.i16'
+
+const MAGIC = 'ZSIG'
+const SAMPLE_TYPE_FLOAT32 = 1
+const SAMPLE_TYPE_INT16 = 2
+
+const textDecoder = new TextDecoder()
+
+/***************************************************************
+ * Decode a packed signal window (see PackedSignalHttpMessageConverter)
+ * Returns {fromRecord, toRecord, startSeconds, channels: [{label, unit, sampleRate, samples}]}
+ * float32 samples are views on the response buffer, no copy is made
+ */
+export function decodeSignal(buffer) {
+    const view = new DataView(buffer)
+    const magic = String.fromCharCode(...new Uint8Array(buffer, 0, 4))
+    if (magic !== MAGIC) {
+        throw new Error(`Not a packed signal, magic: ${magic}`)
+    }
+    const sampleType = view.getUint8(5)
+    const channelCount = view.getUint16(6, true)
+    const fromRecord = view.getInt32(8, true)
+    const toRecord = view.getInt32(12, true)
+    const startSeconds = view.getFloat64(16, true)
+
+    let offset = 24
+    const descriptors = []
+    for (let c = 0; c < channelCount; c++) {
+        const sampleRate = view.getFloat64(offset, true)
+        const scale = view.getFloat64(offset + 8, true)
+        const physicalOffset = view.getFloat64(offset + 16, true)
+        const sampleCount = view.getUint32(offset + 24, true)
+        offset += 28
+        const labelLength = view.getUint16(offset, true)
+        const label = textDecoder.decode(new Uint8Array(buffer, offset + 2, labelLength))
+        offset += 2 + labelLength
+        const unitLength = view.getUint16(offset, true)
+        const unit = textDecoder.decode(new Uint8Array(buffer, offset + 2, unitLength))
+        offset += 2 + unitLength
+        descriptors.push({label, unit, sampleRate, scale, physicalOffset, sampleCount})
+    }
+    offset = align4(offset)
+
+    const channels = descriptors.map(({label, unit, sampleRate, scale, physicalOffset, sampleCount}) => {
+        let samples
+        if (sampleType === SAMPLE_TYPE_FLOAT32) {
+            samples = new Float32Array(buffer, offset, sampleCount)
+            offset = align4(offset + sampleCount * 4)
+        } else if (sampleType === SAMPLE_TYPE_INT16) {
+            const raw = new Int16Array(buffer, offset, sampleCount)
+            samples = new Float32Array(sampleCount)
+            for (let i = 0; i < sampleCount; i++) {
+                samples[i] = raw[i] * scale + physicalOffset
+            }
+            offset = align4(offset + sampleCount * 2)
+        } else {
+            throw new Error(`Unknown sample type: ${sampleType}`)
+        }
+        return {label, unit, sampleRate, samples}
+    })
+
+    return {fromRecord, toRecord, startSeconds, channels}
+}
+
+/***************************************************************
+ * Fetch a signal window in packed binary format and decode it
+ */
+export async function fetchSignal(apiBaseUrl, fileName, params = {}, format = SIGNAL_FLOAT32) {
+    const response = await axios.get(`${apiBaseUrl}/${encodeURIComponent(fileName)}/signals`, {
+        params,
+        paramsSerializer: {indexes: null},
+        responseType: 'arraybuffer',
+        headers: {Accept: format}
+    })
+    return decodeSignal(response.data)
+}
+
+const align4 = (offset) => (offset + 3) & ~3
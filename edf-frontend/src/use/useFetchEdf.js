@@ -1,63 +1,266 @@
-import {computed, ref} from "vue";
+import {ref, shallowRef} from "vue";
 import axios from "axios";
 
+/** Files per page request */
+export const PAGE_SIZE = 100
+
+/** Pages kept in memory, the pages farthest from the viewed range are dropped first */
+const MAX_PAGES = 50
+
+/** Responses kept for revalidation, least recently used dropped first */
+const MAX_CACHED_RESPONSES = 2 * MAX_PAGES
+
+/** Milliseconds between refreshes while the backend is still scanning after its start */
+const SCAN_POLL_INTERVAL = 2000
+
 
 export function useFetchEdf(apiBaseUrl) {
 
-    const files = ref([])
+    const summary = ref({total: 0, valid: 0, invalid: 0, scanComplete: true, scanDiscovered: 0, scanParsed: 0, scanRejected: 0, scanFailure: null})
+    const total = ref(0)
     const loading = ref(false)
     const fetched = ref(false)
     const error = ref(null)
 
+    // loaded pages by page index, the revision makes readers of fileAt() reactive
+    const pages = new Map()
+    const pending = new Set()
+    const revision = shallowRef(0)
+    const cache = createResponseCache()
+    let sorted = false
+    let generation = 0
+    let controller = new AbortController()
+    // list range [from, to) last requested by the view, refreshed while the backend scans
+    let viewed = [0, PAGE_SIZE]
+    let pollTimer = null
+
+
+    /***************************************************************
+     * File at a list index, undefined while its page is not loaded
+     */
+    const fileAt = (index) => {
+        revision.value // tracked, readers re-render when a page arrives
+        return pages.get(Math.floor(index / PAGE_SIZE))?.[index % PAGE_SIZE]
+    }
+
+    /***************************************************************
+     * Load the pages of the list range [from, to) that are missing
+     */
+    const ensureRange = (from, to) => {
+        viewed = [from, to]
+        const first = Math.max(0, Math.floor(from / PAGE_SIZE))
+        const last = Math.min(Math.ceil(total.value / PAGE_SIZE), Math.ceil(to / PAGE_SIZE))
+        for (let page = first; page < last; page++) {
+            if (!pages.has(page) && !pending.has(page)) {
+                loadPage(page, generation)
+            }
+        }
+        evict(first, last)
+    }
+
+    const loadPage = async (page, requested) => {
+        pending.add(page)
+        try {
+            const data = await requestPage(page)
+            if (requested === generation) {
+                showPage(page, data)
+            }
+        } catch (err) {
+            if (requested === generation && !axios.isCancel(err)) {
+                error.value = errorMessage(err)
+            }
+        } finally {
+            if (requested === generation) {
+                pending.delete(page)
+            }
+        }
+    }
+
+    const requestPage = (page) =>
+        cache.get(`${apiBaseUrl}/page?offset=${page * PAGE_SIZE}&limit=${PAGE_SIZE}&sorted=${sorted}`,
+            controller.signal)
+
+    // an unchanged page keeps its array, so nothing is re-rendered
+    const showPage = (page, data) => {
+        total.value = data.total
+        if (pages.get(page) !== data.items) {
+            pages.set(page, data.items)
+            revision.value++
+        }
+    }
+
+    const evict = (first, last) => {
+        if (pages.size <= MAX_PAGES) {
+            return
+        }
+        const distance = (page) => page < first ? first - page : page - last
+        const farthest = [...pages.keys()].sort((a, b) => distance(b) - distance(a))
+        farthest.slice(0, pages.size - MAX_PAGES).forEach(page => pages.delete(page))
+    }
 
     /***************************************************************
-     * Perform Fetch request to backend
+     * Cancel the requests of the previous list, then load the summary and the first page
      */
-    const performFetch = async (url, httpMethod = "GET") => {
+    const reload = async () => {
+        const requested = ++generation
+        clearTimeout(pollTimer)
+        controller.abort()
+        controller = new AbortController()
+        pages.clear()
+        pending.clear()
         loading.value = true
         fetched.value = false
         error.value = null
 
-        // ONLY for test, wait a bit before starting the fetch, to see spinner
-        //TODO delete in production
-        await delay();
-
         try {
-            const response = await axios.request({url,  method: httpMethod, timeout: 10000})
-            files.value = response.data
+            const [summaryData, firstPage] = await Promise.all([
+                cache.get(`${apiBaseUrl}/summary`, controller.signal),
+                requestPage(0)
+            ])
+            if (requested !== generation) {
+                return
+            }
+            summary.value = summaryData
+            showPage(0, firstPage)
+            pollWhileScanning(requested)
         } catch (err) {
+            if (axios.isCancel(err)) {
+                return
+            }
             console.log('Backend error response:', err)
-            error.value = err.response?.data?.detail || err.message
+            error.value = errorMessage(err)
         } finally {
-            loading.value = false
-            fetched.value = true
+            if (requested === generation) {
+                loading.value = false
+                fetched.value = true
+            }
+        }
+    }
+
+    /***************************************************************
+     * While the backend lists files as it parses them after its start,
+     * refresh the summary and the viewed pages until the scan is complete or failed
+     */
+    const pollWhileScanning = (requested) => {
+        if (summary.value.scanComplete === false && !summary.value.scanFailure && requested === generation) {
+            pollTimer = setTimeout(() => refresh(requested), SCAN_POLL_INTERVAL)
+        }
+    }
+
+    const refresh = async (requested) => {
+        try {
+            const summaryData = await cache.get(`${apiBaseUrl}/summary`, controller.signal)
+            if (requested !== generation) {
+                return
+            }
+            summary.value = summaryData
+            total.value = summaryData.total
+            // revalidate the viewed pages, the others are loaded again when scrolled to
+            const [from, to] = viewed
+            const first = Math.floor(from / PAGE_SIZE)
+            const last = Math.ceil(to / PAGE_SIZE)
+            for (const page of [...pages.keys()]) {
+                if (page < first || page >= last) {
+                    pages.delete(page)
+                } else if (!pending.has(page)) {
+                    loadPage(page, requested)
+                }
+            }
+            ensureRange(from, to)
+        } catch (err) {
+            if (!axios.isCancel(err)) {
+                console.log('Scan progress error:', err)
+            }
         }
+        pollWhileScanning(requested)
     }
 
     /***************************************************************
-     * Fetch GET request to backend
+     * Fetch the list from the backend, in original or recording date order
      */
     const fetchFiles = async (options = {}) => {
-        const {sorted = false} = options;
-        const url = sorted ? `${apiBaseUrl}/sorted` : apiBaseUrl
-        await performFetch(`${url}?t=${Date.now()}`, 'GET')
+        sorted = options.sorted ?? false
+        await reload()
     }
 
     /***************************************************************
-     * Rescan POST request to backend
+     * Rescan POST request to backend, the list itself is then paged
      */
     const rescanFiles = async (options = {}) => {
-        const {sorted = false} = options;
-        const url = `${apiBaseUrl}/rescan?sorted=${sorted}`;
-        await performFetch(url, 'POST')
+        sorted = options.sorted ?? false
+        loading.value = true
+        error.value = null
+        try {
+            await axios.post(`${apiBaseUrl}/rescan`, null,
+                {timeout: 10000, headers: {Prefer: 'return=minimal'}})
+        } catch (err) {
+            // 429: the source was scanned moments ago, that list is current
+            if (err.response?.status !== 429) {
+                console.log('Backend error response:', err)
+                error.value = errorMessage(err)
+                loading.value = false
+                return
+            }
+            console.log(`Rescan limited, retry after ${err.response.headers['retry-after']} s`)
+        }
+        await reload()
     }
 
-    return {files, loading, fetched, error, fetchFiles, rescanFiles }
+    return {summary, total, loading, fetched, error, fileAt, ensureRange, fetchFiles, rescanFiles}
 }
 
 /***************************************************************
- * Delay for test purposes
+ * Conditional GET requests with a client-side cache keyed by URL.
+ *
+ * A cached response is revalidated with If-None-Match; the backend
+ * answers 304 while the list version (its ETag) is unchanged, and the
+ * cached data is returned as is. Changed pages are diffed by fileId:
+ * files that did not change keep their object, so only changed cards
+ * re-render.
  */
-const delay = async () => {
-    await new Promise(resolve => setTimeout(resolve, 1200))
+export function createResponseCache(maxEntries = MAX_CACHED_RESPONSES) {
+    // insertion order is the recency order
+    const entries = new Map()
+
+    const get = async (url, signal) => {
+        const cached = entries.get(url)
+        const response = await axios.get(url, {
+            timeout: 10000,
+            signal,
+            headers: cached ? {'If-None-Match': cached.etag} : {},
+            validateStatus: status => (status >= 200 && status < 300) || status === 304
+        })
+        let data = cached?.data
+        if (response.status !== 304) {
+            data = cached ? reuseUnchanged(cached.data, response.data) : response.data
+        }
+        entries.delete(url)
+        if (response.headers.etag) {
+            entries.set(url, {etag: response.headers.etag, data})
+            if (entries.size > maxEntries) {
+                entries.delete(entries.keys().next().value)
+            }
+        }
+        return data
+    }
+
+    return {get}
 }
+
+/***************************************************************
+ * Keeps the objects of the previous response for files that did not change
+ */
+export function reuseUnchanged(previous, next) {
+    if (Array.isArray(previous?.items) && Array.isArray(next?.items)) {
+        const known = new Map(previous.items.map(file => [file.fileId, file]))
+        const items = next.items.map(file => {
+            const old = known.get(file.fileId)
+            return old && JSON.stringify(old) === JSON.stringify(file) ? old : file
+        })
+        const unchanged = items.length === previous.items.length && items.every((file, i) => file === previous.items[i])
+        return {...next, items: unchanged ? previous.items : items}
+    }
+    return JSON.stringify(previous) === JSON.stringify(next) ? previous : next
+}
+
+const errorMessage = (err) => err.response?.data?.detail || err.message
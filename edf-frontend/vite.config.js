@@ -1,5 +1,6 @@
 import { defineConfig } from 'vite'
 import vue from '@vitejs/plugin-vue'
+import { fileURLToPath } from 'node:url'
 
 
 // Environment-based backend URL
@@ -8,6 +9,15 @@ const backendUrl = process.env.VITE_BACKEND_URL || 'http://localhost:8080'
 export default defineConfig({
     plugins: [vue()],
     base: './',
+    build: {
+        rollupOptions: {
+            // the list benchmark is a second page, served at /benchmark.html
+            input: {
+                main: fileURLToPath(new URL('./index.html', import.meta.url)),
+                benchmark: fileURLToPath(new URL('./benchmark.html', import.meta.url))
+            }
+        }
+    },
     server: {
         port: 5173,
         strictPort: true,
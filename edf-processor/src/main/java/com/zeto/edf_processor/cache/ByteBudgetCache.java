@@ -0,0 +1,319 @@
+package com.zeto.edf_processor.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe LRU cache bounded by the total size of its values in bytes.
+ *
+ * <p><b>Features:</b></p>
+ * <ul>
+ *   <li>Strict byte budget: least recently used entries are evicted as soon as
+ *       the weighed size of all values exceeds the budget</li>
+ *   <li>Single-flight loading: concurrent misses for the same key run the loader
+ *       once, the other callers wait for its result</li>
+ *   <li>Hit, miss, load, eviction and rejection counters, published to Micrometer</li>
+ *   <li>Memory accounting of the values and the entries, see {@link #memoryUsage()}</li>
+ * </ul>
+ *
+ * <p>Values larger than the whole budget are returned to the caller but not cached, as are
+ * all values while the {@link MemoryPressure} rejects loads.</p>
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Slf4j
+public class ByteBudgetCache<K, V> implements MeterBinder {
+
+    /** Estimated heap size of the map entry and the key of a cached value, e.g. a block key and its fingerprint */
+    static final long ENTRY_OVERHEAD_BYTES = 112;
+
+    private final String name;
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final MemoryPressure pressure;
+
+    /** Access ordered map, the eldest entry is the least recently used one */
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private long currentBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Creates a cache that never rejects values for memory pressure.
+     *
+     * @param name     name of the cache, used as metric tag
+     * @param maxBytes byte budget of all cached values
+     * @param weigher  size of a value in bytes
+     */
+    public ByteBudgetCache(String name, long maxBytes, ToLongFunction<V> weigher) {
+        this(name, maxBytes, weigher, new MemoryPressure());
+    }
+
+    /**
+     * @param name     name of the cache, used as metric tag
+     * @param maxBytes byte budget of all cached values
+     * @param weigher  size of a value in bytes
+     * @param pressure values are not cached while it rejects loads
+     */
+    public ByteBudgetCache(String name, long maxBytes, ToLongFunction<V> weigher, MemoryPressure pressure) {
+        this.name = name;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.pressure = pressure;
+    }
+
+    /**
+     * Returns the cached value of the key, loading it on a miss.
+     *
+     * @param key    cache key
+     * @param loader computes the value of a missing key, called at most once per concurrent miss
+     * @return cached or freshly loaded value
+     */
+    public V get(K key, Function<K, V> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<V> ownLoad = new CompletableFuture<>();
+        CompletableFuture<V> runningLoad = loading.putIfAbsent(key, ownLoad);
+        if (runningLoad != null) {
+            return join(runningLoad);
+        }
+
+        try {
+            // a load of the same key may have finished between the lookup and the registration
+            V value = peek(key);
+            if (value != null) {
+                ownLoad.complete(value);
+                return value;
+            }
+            value = loader.apply(key);
+            loads.increment();
+            put(key, value);
+            ownLoad.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            ownLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, ownLoad);
+        }
+    }
+
+    /**
+     * Returns the cached value of the key without loading it.
+     *
+     * @param key cache key
+     * @return the value, or {@code null} if it is not cached
+     */
+    public V getIfPresent(K key) {
+        lock.lock();
+        try {
+            V value = entries.get(key);
+            if (value != null) {
+                hits.increment();
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private V peek(K key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a value, evicting least recently used entries to stay within the budget.
+     *
+     * @param key   cache key
+     * @param value value to cache
+     */
+    public void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxBytes) {
+            log.debug("Cache {}: value of {} bytes exceeds the budget, not cached", name, weight);
+            return;
+        }
+        if (pressure.rejectsLoads()) {
+            rejections.increment();
+            log.debug("Cache {}: value of {} bytes not cached under memory pressure", name, weight);
+            return;
+        }
+        lock.lock();
+        try {
+            V previous = entries.put(key, value);
+            if (previous != null) {
+                currentBytes -= weigher.applyAsLong(previous);
+            }
+            currentBytes += weight;
+            evictTo(maxBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries whose key matches the predicate.
+     *
+     * @param predicate selects the keys to remove
+     * @return number of removed entries
+     */
+    public int invalidateIf(Predicate<K> predicate) {
+        lock.lock();
+        try {
+            int removed = 0;
+            Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, V> entry = iterator.next();
+                if (predicate.test(entry.getKey())) {
+                    currentBytes -= weigher.applyAsLong(entry.getValue());
+                    iterator.remove();
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void invalidateAll() {
+        invalidateIf(key -> true);
+    }
+
+    /**
+     * Evicts least recently used entries until the cache holds at most the given number of bytes.
+     *
+     * @param bytes target size in bytes
+     */
+    public void trimTo(long bytes) {
+        lock.lock();
+        try {
+            evictTo(bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evicts the least recently used half of the cached bytes.
+     *
+     * @return weighed bytes evicted
+     */
+    public long releaseHalf() {
+        lock.lock();
+        try {
+            long before = currentBytes;
+            evictTo(before / 2);
+            return before - currentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the accounted memory of the cache: the weighed values and an estimate of the
+     * entry and key of every value.
+     *
+     * @return usage of kind {@link MemoryUsage.Kind#DECODED}, limited by the byte budget
+     */
+    public MemoryUsage memoryUsage() {
+        lock.lock();
+        try {
+            return new MemoryUsage(name, MemoryUsage.Kind.DECODED, entries.size(),
+                    currentBytes + entries.size() * ENTRY_OVERHEAD_BYTES, maxBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return current statistics
+     */
+    public CacheStats stats() {
+        lock.lock();
+        try {
+            return new CacheStats(name, entries.size(), currentBytes, maxBytes,
+                    hits.sum(), misses.sum(), loads.sum(), evictions.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(@NotNull MeterRegistry registry) {
+        FunctionCounter.builder("edf.cache.requests", hits, LongAdder::sum)
+                .tag("cache", name).tag("result", "hit").register(registry);
+        FunctionCounter.builder("edf.cache.requests", misses, LongAdder::sum)
+                .tag("cache", name).tag("result", "miss").register(registry);
+        FunctionCounter.builder("edf.cache.loads", loads, LongAdder::sum)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("edf.cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("edf.cache.rejections", rejections, LongAdder::sum)
+                .tag("cache", name).register(registry);
+        Gauge.builder("edf.cache.size", this, cache -> cache.stats().bytes())
+                .tag("cache", name).baseUnit("bytes").register(registry);
+        Gauge.builder("edf.cache.entries", this, cache -> cache.stats().entries())
+                .tag("cache", name).register(registry);
+    }
+
+    private void evictTo(long bytes) {
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (currentBytes > bytes && eldest.hasNext()) {
+            Map.Entry<K, V> entry = eldest.next();
+            currentBytes -= weigher.applyAsLong(entry.getValue());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
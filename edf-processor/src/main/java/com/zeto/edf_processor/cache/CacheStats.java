@@ -0,0 +1,23 @@
+package com.zeto.edf_processor.cache;
+
+/**
+ * Snapshot of the counters of a {@link ByteBudgetCache}.
+ *
+ * @param name      name of the cache
+ * @param entries   number of cached entries
+ * @param bytes     weighed size of all cached values
+ * @param maxBytes  byte budget of the cache
+ * @param hits      number of lookups answered from the cache
+ * @param misses    number of lookups not found in the cache
+ * @param loads     number of values loaded, coalesced misses load only once
+ * @param evictions number of entries evicted to stay within the budget
+ */
+public record CacheStats(String name,
+                         long entries,
+                         long bytes,
+                         long maxBytes,
+                         long hits,
+                         long misses,
+                         long loads,
+                         long evictions) {
+}
@@ -0,0 +1,29 @@
+package com.zeto.edf_processor.cache;
+
+import java.util.List;
+
+/**
+ * A component holding cached structures whose memory is accounted by the memory guard.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see MemoryUsage
+ */
+public interface MemoryAccounted {
+
+    /**
+     * Returns the current footprint of the cached structures of the component.
+     *
+     * @return one usage per structure, the names are fixed for the lifetime of the component
+     */
+    List<MemoryUsage> memoryUsage();
+
+    /**
+     * Releases memory that can be rebuilt on demand, called while the heap is above its eviction mark.
+     *
+     * @return estimated bytes released, 0 if the component holds nothing that can be rebuilt
+     */
+    default long releaseMemory() {
+        return 0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.zeto.edf_processor.cache;
+
+import com.zeto.edf_processor.cache.MemoryPressure.Level;
+
+import java.util.List;
+
+/**
+ * Snapshot of the accounted memory and the high-water marks of the heap.
+ *
+ * @param budgetBytes        budget the marks are fractions of, the maximum heap by default
+ * @param evictAboveBytes    heap usage above which caches are trimmed
+ * @param rejectAboveBytes   heap usage above which new loads are rejected
+ * @param heapUsedBytes      heap usage compared with the marks: the accounted heap structures or,
+ *                           if larger, the heap still in use after the last garbage collection
+ * @param accountedHeapBytes sum of the accounted structures on the heap
+ * @param mappedBytes        sum of the accounted memory-mapped regions
+ * @param level              pressure level of the heap usage
+ * @param components         accounted structures
+ */
+public record MemoryFootprint(long budgetBytes,
+                              long evictAboveBytes,
+                              long rejectAboveBytes,
+                              long heapUsedBytes,
+                              long accountedHeapBytes,
+                              long mappedBytes,
+                              Level level,
+                              List<MemoryUsage> components) {
+}
@@ -0,0 +1,46 @@
+package com.zeto.edf_processor.cache;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Current memory pressure, set by the memory guard and read by everything that loads new data.
+ *
+ * <p>While loads are rejected, caches return freshly loaded values without keeping them and
+ * scans do not list files that were not listed before. A pressure that is never updated stays
+ * {@link Level#NORMAL}.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Component
+public class MemoryPressure {
+
+    /**
+     * Pressure levels, from the high-water marks of the heap.
+     */
+    public enum Level {
+        /** Below the eviction mark */
+        NORMAL,
+        /** Above the eviction mark, caches are trimmed */
+        EVICT,
+        /** Above the rejection mark, new data is not kept */
+        REJECT
+    }
+
+    private volatile Level level = Level.NORMAL;
+
+    public Level level() {
+        return level;
+    }
+
+    public void update(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Whether new data must not be kept in memory.
+     */
+    public boolean rejectsLoads() {
+        return level == Level.REJECT;
+    }
+}
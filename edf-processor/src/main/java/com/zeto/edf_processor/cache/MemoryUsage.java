@@ -0,0 +1,34 @@
+package com.zeto.edf_processor.cache;
+
+/**
+ * Accounted memory of one cached structure.
+ *
+ * @param name       name of the structure, used as metric tag
+ * @param kind       what the structure holds, mapped regions live outside the heap
+ * @param entries    number of entries
+ * @param bytes      estimated size of the entries in bytes
+ * @param limitBytes byte budget of the structure, 0 if it is only bounded by the archive
+ */
+public record MemoryUsage(String name, Kind kind, long entries, long bytes, long limitBytes) {
+
+    /**
+     * What a structure holds.
+     */
+    public enum Kind {
+        /** Parsed headers of the listed files */
+        METADATA,
+        /** Lookup structures next to the metadata, e.g. remembered failures and content hashes */
+        INDEX,
+        /** Decoded samples and results computed from them, rebuilt on demand */
+        DECODED,
+        /** Memory-mapped files, outside the heap */
+        MAPPED;
+
+        /**
+         * Whether the structure lives on the heap and counts against its high-water marks.
+         */
+        public boolean onHeap() {
+            return this != MAPPED;
+        }
+    }
+}
@@ -1,14 +1,26 @@
 package com.zeto.edf_processor.config;
 
 import com.zeto.edf_processor.repository.EdfInMemoryRepository;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -23,12 +35,103 @@ import java.nio.file.Paths;
  * Path to project root
  * edf.edf-app-dir = ${user.dir}/..
  *
- * Directory contains edf files in project root
+ * Directory contains edf files in project root, used when no other source roots are configured
  * edf.edf-source = data/edf
+ *
+ * Several source roots, relative to the app dir or absolute, each with
+ * include/exclude globs (relative to the root) and a directory depth limit,
+ * e.g. an archive sharded as site/year/month/
+ * edf.sources[0].path = /mnt/archive1
+ * edf.sources[0].include = site-?/20??/**.edf
+ * edf.sources[0].exclude = tmp/**
+ * edf.sources[0].max-depth = 4
+ *
+ * Threads of the parallel directory crawler, defaults to the number of processors
+ * edf.scan.parallelism = 8
+ *
+ * Scan the source roots in the background after startup, listing files as they are parsed,
+ * false scans before the application serves requests
+ * edf.scan.background = true
+ *
+ * Time the parse of one file may take before it is cancelled, and the memory it may allocate
+ * for the data records (estimated from the header before reading); larger files are listed from their header
+ * edf.scan.parse-timeout = 30s
+ * edf.scan.max-parse-bytes = 1GB
+ *
+ * Minimum time between the end of a scan and the next rescan request, 0 disables the limit
+ * edf.scan.min-interval = 10s
+ *
+ * Content hash deduplication: copies of a recording are parsed once and listed as aliases.
+ * The hash covers the header and sampled blocks of the data records, or every byte
+ * edf.dedup.enabled = true
+ * edf.dedup.full-hash = false
+ * edf.dedup.sample-blocks = 8
+ *
+ * Maximum number of data records returned by one signal request
+ * edf.signal.max-records-per-request = 600
+ *
+ * I/O buffer of one EDF export, for the input and for the output records; bounds the memory of every export
+ * edf.export.buffer-bytes = 1MB
+ *
+ * Byte budget of the decoded signal block cache and records per block
+ * edf.cache.max-bytes = 256MB
+ * edf.cache.block-records = 16
+ *
+ * Band power analysis: Welch segment length, fork/join threads (defaults to the number of processors)
+ * and result cache budget
+ * edf.spectrum.segment-seconds = 2
+ * edf.spectrum.parallelism = 8
+ * edf.spectrum.cache-max-bytes = 32MB
+ *
+ * Connectivity matrices: default and maximum window, coherence segment length,
+ * fork/join threads and result cache budget
+ * edf.connectivity.window-seconds = 30
+ * edf.connectivity.max-window-seconds = 600
+ * edf.connectivity.segment-seconds = 2
+ * edf.connectivity.parallelism = 8
+ * edf.connectivity.cache-max-bytes = 16MB
+ *
+ * Epoch feature store: directory of the column files (relative to the app dir), epoch length,
+ * Welch segment length of the band powers and fork/join threads building a table
+ * edf.features.dir = features
+ * edf.features.epoch-seconds = 30
+ * edf.features.segment-seconds = 2
+ * edf.features.parallelism = 2
+ * edf.features.max-open-tables = 256
+ *
+ * Upper bound of the signal filtered before (and for zero-phase after) a window to let filter transients
+ * decay; the warm-up is the settling time of the filter chain, 57 s for a 0.1 Hz high-pass
+ * edf.filter.max-warmup-seconds = 120
+ *
+ * Montages: derived channels as [label=]expression, or an average reference
+ * edf.montages.double-banana.derivations = Fp1-F7,F7-T3,T3-T5,T5-O1
+ * edf.montages.average.average-reference = true
+ *
+ * Signal quality analysis after ingest: threads, queued files, records per read and artifact threshold
+ * edf.quality.enabled = true
+ * edf.quality.parallelism = 2
+ * edf.quality.queue-capacity = 10000
+ * edf.quality.chunk-records = 16
+ * edf.quality.artifact-microvolts = 500
+ *
+ * Batch detection jobs: result directory (relative to the app dir), fork/join threads,
+ * concurrent file reads and records per unit of work and checkpoint
+ * edf.jobs.dir = jobs
+ * edf.jobs.parallelism = 2
+ * edf.jobs.max-concurrent-reads = 2
+ * edf.jobs.chunk-records = 60
+ *
+ * High-water marks of the heap as fractions of the memory budget (the maximum heap if not set):
+ * above the eviction mark the caches are trimmed, above the rejection mark new data is not kept;
+ * checked every check-interval; the eviction mark must be below the rejection mark, which is at most 1
+ * edf.memory.budget = 2GB
+ * edf.memory.evict-above = 0.75
+ * edf.memory.reject-above = 0.9
+ * edf.memory.check-interval = 5s
  * </pre>
  *
  * <p><b>Validation:</b> The application validates the directory exists and
- * is readable during startup in {@link EdfInMemoryRepository}.</p>
+ * is readable during the first scan in {@link EdfInMemoryRepository}.</p>
  *
  * @author Peter Kormos
  * @version 1.0
@@ -44,6 +147,47 @@ public class EdfProcessorProperties {
     @NotBlank(message = "EDF source directory must be configured")
     private String edfSource;
 
+    @Valid
+    private List<Source> sources = new ArrayList<>();
+
+    @Valid
+    private final Scan scan = new Scan();
+
+    @Valid
+    private final Dedup dedup = new Dedup();
+
+    @Valid
+    private final Signal signal = new Signal();
+
+    @Valid
+    private final Export export = new Export();
+
+    @Valid
+    private final Cache cache = new Cache();
+
+    @Valid
+    private final Spectrum spectrum = new Spectrum();
+
+    @Valid
+    private final Connectivity connectivity = new Connectivity();
+
+    @Valid
+    private final Features features = new Features();
+
+    @Valid
+    private final Filter filter = new Filter();
+
+    private Map<String, Montage> montages = new LinkedHashMap<>();
+
+    @Valid
+    private final Quality quality = new Quality();
+
+    @Valid
+    private final Jobs jobs = new Jobs();
+
+    @Valid
+    private final Memory memory = new Memory();
+
     // return the String of Absolute Path to directory containing the  edf files
     public String getEdfSourceDirectory() {
         return getEdfSourcePath().toString();
@@ -56,4 +200,258 @@ public class EdfProcessorProperties {
     public Path getEdfSourcePath() {
         return Paths.get(edfAppDir, edfSource).toAbsolutePath().normalize();
     }
+
+    /**
+     * Returns the configured source roots, or the single {@code edf-source} directory
+     * with default patterns if no roots are configured.
+     */
+    public List<Source> getSourceRoots() {
+        if (!sources.isEmpty()) {
+            return sources;
+        }
+        Source source = new Source();
+        source.setPath(edfSource);
+        return List.of(source);
+    }
+
+    /**
+     * Resolves the path of a source root against the app dir, absolute paths are kept.
+     */
+    public Path resolveSourcePath(Source source) {
+        return Paths.get(edfAppDir).resolve(source.getPath()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Resolves the directory of the detection jobs against the app dir, absolute paths are kept.
+     */
+    public Path getJobsPath() {
+        return Paths.get(edfAppDir).resolve(jobs.getDir()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Resolves the directory of the epoch feature store against the app dir, absolute paths are kept.
+     */
+    public Path getFeaturesPath() {
+        return Paths.get(edfAppDir).resolve(features.getDir()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * A directory tree scanned for EDF files.
+     */
+    @Data
+    public static class Source {
+        @NotBlank(message = "Path of an EDF source root must be configured")
+        private String path;
+
+        /** Glob patterns of the files to load, relative to the root; empty loads every *.edf file */
+        private List<String> include = new ArrayList<>();
+
+        /** Glob patterns of files and directories to skip, relative to the root */
+        private List<String> exclude = new ArrayList<>();
+
+        /** Maximum directory depth of a loaded file, 1 loads only the files directly in the root */
+        @Min(value = 1, message = "Depth limit of an EDF source root must be at least 1")
+        private int maxDepth = 8;
+    }
+
+    /**
+     * Sizing and scheduling of the directory scan.
+     */
+    @Data
+    public static class Scan {
+        @Min(value = 1, message = "At least one scan thread is required")
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        private boolean background = true;
+
+        @NotNull(message = "Parse timeout must be configured")
+        private Duration parseTimeout = Duration.ofSeconds(30);
+
+        @NotNull(message = "Parse memory limit must be configured")
+        private DataSize maxParseBytes = DataSize.ofGigabytes(1);
+
+        @NotNull(message = "Minimum rescan interval must be configured")
+        private Duration minInterval = Duration.ofSeconds(10);
+    }
+
+    /**
+     * Settings of the content hash deduplication of the scan.
+     */
+    @Data
+    public static class Dedup {
+        private boolean enabled = true;
+
+        /** Hash every byte instead of the header and the sampled blocks */
+        private boolean fullHash;
+
+        @Min(value = 2, message = "At least two blocks of a file must be sampled for its content hash")
+        private int sampleBlocks = 8;
+    }
+
+    /**
+     * Limits of the signal endpoints.
+     */
+    @Data
+    public static class Signal {
+        @Min(value = 1, message = "At least one record must be allowed per signal request")
+        private int maxRecordsPerRequest = 600;
+    }
+
+    /**
+     * Sizing of the EDF exports.
+     */
+    @Data
+    public static class Export {
+        /** Buffer of the input and of the output records of one export, holding at least one record each */
+        private DataSize bufferBytes = DataSize.ofMegabytes(1);
+    }
+
+    /**
+     * Sizing of the decoded signal block cache.
+     */
+    @Data
+    public static class Cache {
+        private DataSize maxBytes = DataSize.ofMegabytes(256);
+
+        @Min(value = 1, message = "A cached block must contain at least one record")
+        private int blockRecords = 16;
+    }
+
+    /**
+     * Settings of the spectral band power analysis.
+     */
+    @Data
+    public static class Spectrum {
+        @Positive(message = "Welch segment length must be positive")
+        private double segmentSeconds = 2;
+
+        @Min(value = 1, message = "At least one spectrum thread is required")
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        private DataSize cacheMaxBytes = DataSize.ofMegabytes(32);
+    }
+
+    /**
+     * Settings of the channel connectivity analysis.
+     */
+    @Data
+    public static class Connectivity {
+        @Positive(message = "Connectivity window must be positive")
+        private double windowSeconds = 30;
+
+        @Positive(message = "Maximum connectivity window must be positive")
+        private double maxWindowSeconds = 600;
+
+        @Positive(message = "Coherence segment length must be positive")
+        private double segmentSeconds = 2;
+
+        @Min(value = 1, message = "At least one connectivity thread is required")
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        private DataSize cacheMaxBytes = DataSize.ofMegabytes(16);
+    }
+
+    /**
+     * Settings of the epoch feature store.
+     */
+    @Data
+    public static class Features {
+        @NotBlank(message = "Directory of the feature store must be configured")
+        private String dir = "features";
+
+        @Positive(message = "Feature epoch length must be positive")
+        private double epochSeconds = 30;
+
+        @Positive(message = "Feature Welch segment length must be positive")
+        private double segmentSeconds = 2;
+
+        @Min(value = 1, message = "At least one feature thread is required")
+        private int parallelism = 2;
+
+        @Min(value = 1, message = "At least one feature table must be kept open")
+        private int maxOpenTables = 256;
+    }
+
+    /**
+     * Settings of the signal filters.
+     */
+    @Data
+    public static class Filter {
+        @PositiveOrZero(message = "Filter warm-up must not be negative")
+        private double maxWarmupSeconds = 120;
+    }
+
+    /**
+     * Settings of the signal quality analysis run after ingest.
+     */
+    @Data
+    public static class Quality {
+        private boolean enabled = true;
+
+        @Min(value = 1, message = "At least one quality analysis thread is required")
+        private int parallelism = 2;
+
+        @Min(value = 1, message = "The quality analysis queue must hold at least one file")
+        private int queueCapacity = 10_000;
+
+        @Min(value = 1, message = "A quality analysis chunk must contain at least one record")
+        private int chunkRecords = 16;
+
+        @Positive(message = "Artifact threshold must be positive")
+        private double artifactMicrovolts = 500;
+    }
+
+    /**
+     * Settings of the batch detection jobs.
+     */
+    @Data
+    public static class Jobs {
+        @NotBlank(message = "Directory of the detection jobs must be configured")
+        private String dir = "jobs";
+
+        @Min(value = 1, message = "At least one detection job thread is required")
+        private int parallelism = 2;
+
+        @Min(value = 1, message = "At least one concurrent read must be allowed for detection jobs")
+        private int maxConcurrentReads = 2;
+
+        @Min(value = 1, message = "A detection job unit must contain at least one record")
+        private int chunkRecords = 60;
+    }
+
+    /**
+     * High-water marks of the accounted memory.
+     */
+    @Data
+    public static class Memory {
+        /** Budget the marks are fractions of, the maximum heap if not set */
+        private DataSize budget;
+
+        @Positive(message = "Eviction mark must be positive")
+        private double evictAbove = 0.75;
+
+        @Positive(message = "Rejection mark must be positive")
+        private double rejectAbove = 0.9;
+
+        @NotNull(message = "Interval of the memory checks must be configured")
+        private Duration checkInterval = Duration.ofSeconds(5);
+
+        /** Caches are trimmed before loads are rejected, and loads are rejected within the budget */
+        @AssertTrue(message = "Memory marks must satisfy evict-above < reject-above <= 1")
+        public boolean isMarksOrdered() {
+            return evictAbove < rejectAbove && rejectAbove <= 1;
+        }
+    }
+
+    /**
+     * A montage: derived channels as linear combinations of the channels of a recording.
+     */
+    @Data
+    public static class Montage {
+        /** Derivations as [label=]expression, e.g. Fp1-F7 or Cz-Lap=Cz-0.25*C3-0.25*C4-0.25*Fz-0.25*Pz */
+        private List<String> derivations = new ArrayList<>();
+
+        /** Re-references the listed channels (all signal channels if none) to their average */
+        private boolean averageReference;
+    }
 }
@@ -0,0 +1,49 @@
+package com.zeto.edf_processor.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Registers the binary response encodings negotiated through the {@code Accept} header.
+ *
+ * <p>Besides JSON, every endpoint can answer in {@code application/cbor} and
+ * {@code application/x-jackson-smile}. Both use the Spring Boot configured
+ * {@link Jackson2ObjectMapperBuilder}, so they serialize exactly the same
+ * properties as the JSON encoding. Signal windows can additionally be written
+ * in the packed formats of {@link PackedSignalHttpMessageConverter}.</p>
+ *
+ * <p>Spring Boot adds {@code HttpMessageConverter} beans to the MVC converters,
+ * replacing the defaults of the same type. The packed converters are appended
+ * after all others, so JSON stays the default for {@code Accept: *&#47;*}.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Configuration
+public class HttpCodecConfig implements WebMvcConfigurer {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(PackedSignalHttpMessageConverter.float32());
+        converters.add(PackedSignalHttpMessageConverter.int16());
+    }
+}
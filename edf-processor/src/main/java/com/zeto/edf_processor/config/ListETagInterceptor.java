@@ -0,0 +1,45 @@
+package com.zeto.edf_processor.config;
+
+import com.zeto.edf_processor.service.EdfListVersion;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Conditional GET of the file list endpoints.
+ *
+ * <p>Responses carry the {@link EdfListVersion} as {@code ETag} and {@code Cache-Control: no-cache},
+ * so clients revalidate every time. A request whose {@code If-None-Match} holds the current tag is
+ * answered with {@code 304 Not Modified} before the controller runs, so the list is neither
+ * mapped nor serialized.</p>
+ *
+ * <p>The tag is weak and the same for the JSON and the CBOR encoding of a list, so responses
+ * carry {@code Vary: Accept}: a shared cache keeps the encodings apart and never answers a
+ * request for one with the other.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ListETagInterceptor implements HandlerInterceptor {
+
+    private final EdfListVersion listVersion;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        // sets the ETag header, and the status 304 if it matches
+        return !new ServletWebRequest(request, response).checkNotModified(listVersion.etag());
+    }
+}
@@ -0,0 +1,178 @@
+package com.zeto.edf_processor.config;
+
+import com.zeto.edf_processor.dto.SignalChannelDto;
+import com.zeto.edf_processor.dto.SignalDto;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes {@link SignalDto}s in a dense, little-endian packed binary format.
+ *
+ * <p>Two variants are negotiated through the {@code Accept} header:</p>
+ * <ul>
+ *   <li>{@code application/vnd.zeto.signal.f32} - physical values as float32</li>
+ *   <li>{@code application/vnd.zeto.signal.i16} - digital values as int16,
+ *       {@code physical = raw * scale + offset}</li>
+ * </ul>
+ *
+ * <p><b>Layout (all numbers little-endian):</b></p>
+ * <pre>
+ * offset  size  field
+ *  0      4     magic "ZSIG"
+ *  4      1     version (1)
+ *  5      1     sample type (1 = float32, 2 = int16)
+ *  6      2     channel count (u16)
+ *  8      4     fromRecord (i32)
+ *  12     4     toRecord (i32)
+ *  16     8     startSeconds (f64)
+ *  24     ...   per channel: sampleRate f64, scale f64, offset f64, sampleCount u32,
+ *               label length u16 + UTF-8 label, unit length u16 + UTF-8 unit
+ *  ...    0-3   padding to a multiple of 4 bytes
+ *  ...    ...   per channel: sampleCount samples, padded to a multiple of 4 bytes
+ * </pre>
+ *
+ * <p>Samples decode as {@code physical = raw * scale + offset}; float32 blocks
+ * carry a scale of 1 and an offset of 0. An int16 channel without a physical range
+ * (scale 0) carries a scale of 1, its samples are zeros. The padding keeps every sample block
+ * aligned, so clients can view the blocks as typed arrays without copying.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public class PackedSignalHttpMessageConverter extends AbstractHttpMessageConverter<SignalDto> {
+
+    public static final MediaType FLOAT32 = MediaType.parseMediaType("application/vnd.zeto.signal.f32");
+    public static final MediaType INT16 = MediaType.parseMediaType("application/vnd.zeto.signal.i16");
+
+    static final byte[] MAGIC = {'Z', 'S', 'I', 'G'};
+    static final byte VERSION = 1;
+    static final byte SAMPLE_TYPE_FLOAT32 = 1;
+    static final byte SAMPLE_TYPE_INT16 = 2;
+
+    /** Size of the chunks the sample blocks are streamed in */
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final byte sampleType;
+
+    private PackedSignalHttpMessageConverter(MediaType mediaType, byte sampleType) {
+        super(mediaType);
+        this.sampleType = sampleType;
+    }
+
+    public static PackedSignalHttpMessageConverter float32() {
+        return new PackedSignalHttpMessageConverter(FLOAT32, SAMPLE_TYPE_FLOAT32);
+    }
+
+    public static PackedSignalHttpMessageConverter int16() {
+        return new PackedSignalHttpMessageConverter(INT16, SAMPLE_TYPE_INT16);
+    }
+
+    @Override
+    protected boolean supports(@NotNull Class<?> clazz) {
+        return SignalDto.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected @NotNull SignalDto readInternal(@NotNull Class<? extends SignalDto> clazz, @NotNull HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Packed signals are write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(SignalDto signal, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        out.write(header(signal));
+
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (SignalChannelDto channel : signal.getChannels()) {
+            float[] samples = channel.getSamples();
+            for (float sample : samples) {
+                if (chunk.remaining() < Float.BYTES) {
+                    flush(chunk, out);
+                }
+                if (sampleType == SAMPLE_TYPE_FLOAT32) {
+                    chunk.putFloat(sample);
+                } else {
+                    chunk.putShort(quantize(sample, channel.getScale(), channel.getOffset()));
+                }
+            }
+            // keep the next block aligned to 4 bytes
+            while (chunk.position() % 4 != 0) {
+                chunk.put((byte) 0);
+            }
+        }
+        flush(chunk, out);
+    }
+
+    private byte[] header(SignalDto signal) {
+        int size = 24;
+        for (SignalChannelDto channel : signal.getChannels()) {
+            size += 3 * Double.BYTES + Integer.BYTES
+                    + Short.BYTES + utf8(channel.getLabel()).length
+                    + Short.BYTES + utf8(channel.getUnit()).length;
+        }
+        size = align4(size);
+
+        ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC)
+              .put(VERSION)
+              .put(sampleType)
+              .putShort((short) signal.getChannels().size())
+              .putInt(signal.getFromRecord())
+              .putInt(signal.getToRecord())
+              .putDouble(signal.getStartSeconds());
+        for (SignalChannelDto channel : signal.getChannels()) {
+            byte[] label = utf8(channel.getLabel());
+            byte[] unit = utf8(channel.getUnit());
+            header.putDouble(channel.getSampleRate())
+                  .putDouble(sampleType == SAMPLE_TYPE_FLOAT32 ? 1.0 : packedScale(channel.getScale()))
+                  .putDouble(sampleType == SAMPLE_TYPE_FLOAT32 ? 0.0 : channel.getOffset())
+                  .putInt(channel.getSamples().length)
+                  .putShort((short) label.length).put(label)
+                  .putShort((short) unit.length).put(unit);
+        }
+        return header.array();
+    }
+
+    /**
+     * Converts a physical value back to the digital value of the channel calibration.
+     */
+    static short quantize(float physical, double scale, double offset) {
+        long digital = Math.round((physical - offset) / packedScale(scale));
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, digital));
+    }
+
+    /**
+     * Scale written for an int16 channel, 1 for a channel whose physical range is empty.
+     */
+    static double packedScale(double scale) {
+        return scale == 0 || !Double.isFinite(scale) ? 1.0 : scale;
+    }
+
+    private static void flush(ByteBuffer chunk, OutputStream out) throws IOException {
+        out.write(chunk.array(), 0, chunk.position());
+        chunk.clear();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int align4(int size) {
+        return (size + 3) & ~3;
+    }
+}
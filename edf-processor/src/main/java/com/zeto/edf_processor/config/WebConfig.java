@@ -4,6 +4,7 @@ package com.zeto.edf_processor.config;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
@@ -11,6 +12,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class WebConfig implements WebMvcConfigurer {
 
     private final CorsProperties corsProperties;
+    private final ListETagInterceptor listETagInterceptor;
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
@@ -18,6 +20,13 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOrigins(corsProperties.getAllowedOrigins())
                 .allowCredentials(corsProperties.isAllowCredentials())
                 .allowedMethods(corsProperties.getAllowedMethods())
-                .allowedHeaders("*");
+                .allowedHeaders("*")
+                .exposedHeaders("ETag", "Preference-Applied", "Retry-After", "EDF-Scan-Complete", "EDF-Scan-Progress");
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(listETagInterceptor)
+                .addPathPatterns("/api/edfs", "/api/edfs/sorted", "/api/edfs/page", "/api/edfs/summary");
     }
 }
@@ -0,0 +1,105 @@
+package com.zeto.edf_processor.controller;
+
+import com.zeto.edf_processor.dto.DetectionJobDto;
+import com.zeto.edf_processor.dto.DetectionJobRequest;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.service.DetectionJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * REST controller for batch spike/event detection jobs over the loaded recordings.
+ *
+ * <p>Jobs run in the background: {@code POST} answers {@code 202 Accepted} with the job,
+ * its progress is polled with {@code GET}, the detections are downloaded as CSV while
+ * the job runs or after it finished.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see DetectionJobService
+ */
+@RestController
+@RequestMapping("/api/jobs/detections")
+@RequiredArgsConstructor
+@Slf4j
+public class DetectionJobController {
+
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private final DetectionJobService detectionJobService;
+
+    /**
+     * Starts a detection job.
+     *
+     * @param request detector settings and files
+     * @return the queued job, with its URL in the {@code Location} header
+     * @throws InvalidSignalRequestException, if a setting is not valid
+     * @throws EdfDataNotFoundException, if a requested file is not loaded
+     */
+    @PostMapping
+    public ResponseEntity<DetectionJobDto> submit(@RequestBody DetectionJobRequest request) {
+        log.debug("Submitting detection job {}", request);
+        DetectionJobDto job = detectionJobService.submit(request);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    /**
+     * Lists all detection jobs, newest first.
+     */
+    @GetMapping
+    public List<DetectionJobDto> list() {
+        return detectionJobService.list();
+    }
+
+    /**
+     * Returns state, progress and throughput of a job.
+     *
+     * @param id job identifier
+     * @throws EdfDataNotFoundException, if the job does not exist
+     */
+    @GetMapping("/{id}")
+    public DetectionJobDto status(@PathVariable String id) {
+        return detectionJobService.status(id);
+    }
+
+    /**
+     * Cancels a job, the detections found so far are kept.
+     *
+     * @param id job identifier
+     * @throws EdfDataNotFoundException, if the job does not exist
+     */
+    @DeleteMapping("/{id}")
+    public DetectionJobDto cancel(@PathVariable String id) {
+        log.debug("Cancelling detection job {}", id);
+        return detectionJobService.cancel(id);
+    }
+
+    /**
+     * Downloads the detections of a job as CSV ({@code file,channel,seconds,value}).
+     *
+     * @param id job identifier
+     * @throws EdfDataNotFoundException, if the job does not exist
+     */
+    @GetMapping("/{id}/detections")
+    public ResponseEntity<Resource> detections(@PathVariable String id) {
+        FileSystemResource detections = new FileSystemResource(detectionJobService.detectionsFile(id));
+        return ResponseEntity.ok()
+                .contentType(CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("detections-%s.csv".formatted(id)).build().toString())
+                .body(detections);
+    }
+}
@@ -0,0 +1,69 @@
+package com.zeto.edf_processor.controller;
+
+import com.zeto.edf_processor.dto.EdfDto;
+import com.zeto.edf_processor.dto.MemoryFootprintDto;
+import com.zeto.edf_processor.dto.MemoryMapper;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.EdfSourceNotFoundException;
+import com.zeto.edf_processor.exceptions.RescanRateLimitedException;
+import com.zeto.edf_processor.service.EdfService;
+import com.zeto.edf_processor.service.MemoryGuard;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST controller for administrative operations on the loaded EDF files.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/api/admin/edfs")
+@RequiredArgsConstructor
+@Slf4j
+public class EdfAdminController {
+
+    private final EdfService edfService;
+
+    private final MemoryGuard memoryGuard;
+
+    private final MemoryMapper memoryMapper;
+
+    /**
+     * Forces a new parse attempt of files remembered as invalid and rescans the sources.
+     *
+     * <p>Invalid files are remembered by their size and modification time and skipped by
+     * rescans until they change; this endpoint drops that memory.</p>
+     *
+     * @param fileName name of the invalid file to retry, required:false, all invalid files by default
+     * @return List of all EDF files after rescanning the directory
+     * @throws EdfDataNotFoundException, if the given file is not a remembered invalid file
+     * @throws EdfSourceNotFoundException, if the configured directory does not exist
+     * @throws RescanRateLimitedException, 429 within {@code edf.scan.min-interval} after the last scan
+     */
+    @PostMapping("/invalid/retry")
+    public List<EdfDto> retryInvalid(@RequestParam(required = false) String fileName) {
+        log.debug("Retrying invalid EDF files: {}", fileName != null ? fileName : "all");
+        return edfService.retryInvalid(fileName);
+    }
+
+    /**
+     * Reports the accounted memory of the repository and the caches and the high-water marks of the heap.
+     *
+     * <p>Measures the structures now; eviction and rejection are left to the periodic checks, see
+     * {@link MemoryGuard}. The same values are published as {@code edf.memory.*} metrics.</p>
+     *
+     * @return budget, marks, heap usage, pressure level and the footprint of every cached structure
+     */
+    @GetMapping("/memory")
+    public MemoryFootprintDto getMemory() {
+        return memoryMapper.toDto(memoryGuard.measure());
+    }
+}
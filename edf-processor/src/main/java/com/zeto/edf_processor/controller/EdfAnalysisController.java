@@ -0,0 +1,154 @@
+package com.zeto.edf_processor.controller;
+
+import com.zeto.edf_processor.dto.AmplitudeStatisticsDto;
+import com.zeto.edf_processor.dto.ConnectivityDto;
+import com.zeto.edf_processor.dto.FeaturesDto;
+import com.zeto.edf_processor.dto.SpectrumDto;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.service.EdfAmplitudeService;
+import com.zeto.edf_processor.service.EdfConnectivityService;
+import com.zeto.edf_processor.service.EdfFeatureService;
+import com.zeto.edf_processor.service.EdfSpectrumService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST controller for analyses computed from the signal data of EDF files.
+ *
+ * <p>Results are computed on first request and cached by file version and parameters;
+ * epoch features are kept in a persistent store.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/api/edfs")
+@RequiredArgsConstructor
+@Slf4j
+public class EdfAnalysisController {
+
+    private final EdfSpectrumService edfSpectrumService;
+
+    private final EdfConnectivityService edfConnectivityService;
+
+    private final EdfFeatureService edfFeatureService;
+
+    private final EdfAmplitudeService edfAmplitudeService;
+
+    /**
+     * Computes the power of frequency bands for every epoch and channel of an EDF file.
+     *
+     * @param fileName name of the EDF file
+     * @param epoch    epoch length in seconds, a whole multiple of the record duration, defaultValue:30
+     * @param bands    bands as name:low-high, required:false, delta/theta/alpha/beta by default
+     * @param channels channel labels, required:false, all signal channels by default
+     * @return band powers per channel, epoch and band
+     * @throws EdfDataNotFoundException, if the file is not loaded
+     * @throws InvalidSignalRequestException, if the file is invalid or a parameter is not valid
+     */
+    @GetMapping("/{fileName}/spectrum")
+    public SpectrumDto getSpectrum(@PathVariable String fileName,
+                                   @RequestParam(defaultValue = "30") double epoch,
+                                   @RequestParam(required = false) List<String> bands,
+                                   @RequestParam(required = false) List<String> channels) {
+        log.debug("Computing band powers of {}", fileName);
+        return edfSpectrumService.spectrum(fileName, epoch, bands, channels);
+    }
+
+    /**
+     * Computes the correlation or coherence matrix of the channels of an EDF file over a time window.
+     *
+     * @param fileName name of the EDF file
+     * @param from     start of the window in seconds, defaultValue:0
+     * @param to       end of the window in seconds, required:false, edf.connectivity.window-seconds after from by default
+     * @param method   correlation or coherence, defaultValue:correlation
+     * @param band     coherence band as name:low-high or an EEG band name, required:false, 0.5-30 Hz by default
+     * @param channels channel labels of one sample rate, required:false, all signal channels of the most frequent rate by default
+     * @return symmetric matrix over the channels
+     * @throws EdfDataNotFoundException, if the file is not loaded
+     * @throws InvalidSignalRequestException, if the file is invalid or a parameter is not valid
+     */
+    @GetMapping("/{fileName}/connectivity")
+    public ConnectivityDto getConnectivity(@PathVariable String fileName,
+                                           @RequestParam(defaultValue = "0") double from,
+                                           @RequestParam(required = false) Double to,
+                                           @RequestParam(defaultValue = "correlation") String method,
+                                           @RequestParam(required = false) String band,
+                                           @RequestParam(required = false) List<String> channels) {
+        log.debug("Computing {} matrix of {}", method, fileName);
+        return edfConnectivityService.connectivity(fileName, from, to, method, band, channels);
+    }
+
+    /**
+     * Returns per-epoch features of an EDF file from the feature store.
+     *
+     * <p>The feature table of a file version is built on the first request; later requests
+     * only copy the selected columns.</p>
+     *
+     * @param fileName  name of the EDF file
+     * @param channels  channel labels, required:false, all signal channels by default
+     * @param features  feature keys (delta, theta, alpha, beta, variance, zeroCrossingRate, lineLength), required:false, all by default
+     * @param fromEpoch first epoch (inclusive), defaultValue:0
+     * @param toEpoch   last epoch (exclusive), required:false, the last epoch of the file by default
+     * @return values per selected channel, feature and epoch
+     * @throws EdfDataNotFoundException, if the file is not loaded
+     * @throws InvalidSignalRequestException, if the file is invalid or a parameter is not valid
+     */
+    @GetMapping("/{fileName}/features")
+    public FeaturesDto getFeatures(@PathVariable String fileName,
+                                   @RequestParam(required = false) List<String> channels,
+                                   @RequestParam(required = false) List<String> features,
+                                   @RequestParam(defaultValue = "0") int fromEpoch,
+                                   @RequestParam(required = false) Integer toEpoch) {
+        log.debug("Reading epoch features of {}", fileName);
+        return edfFeatureService.features(fileName, channels, features, fromEpoch, toEpoch);
+    }
+
+    /**
+     * Returns amplitude percentiles of the channels of an EDF file.
+     *
+     * <p>Percentiles are read from histograms over the digital range filled in the background
+     * after the file is loaded, in buckets of 32 digital steps.</p>
+     *
+     * @param fileName    name of the EDF file
+     * @param channels    channel labels, required:false, all signal channels by default
+     * @param percentiles percentiles between 0 and 100, required:false, 1,50,99 by default
+     * @param histogram   include the histograms, defaultValue:false
+     * @return percentiles per channel in the physical unit
+     * @throws EdfDataNotFoundException, if the file is not loaded
+     * @throws InvalidSignalRequestException, if the file is invalid or a parameter is not valid
+     */
+    @GetMapping("/{fileName}/amplitudes")
+    public AmplitudeStatisticsDto getAmplitudes(@PathVariable String fileName,
+                                                @RequestParam(required = false) List<String> channels,
+                                                @RequestParam(required = false) List<Double> percentiles,
+                                                @RequestParam(defaultValue = "false") boolean histogram) {
+        log.debug("Reading amplitude percentiles of {}", fileName);
+        return edfAmplitudeService.recording(fileName, channels, percentiles, histogram);
+    }
+
+    /**
+     * Returns amplitude percentiles merged over all analysed EDF files, per channel label and calibration.
+     *
+     * @param channels    channel labels, required:false, all labels by default
+     * @param percentiles percentiles between 0 and 100, required:false, 1,50,99 by default
+     * @param histogram   include the merged histograms, defaultValue:false
+     * @return merged percentiles per channel in the physical unit
+     * @throws InvalidSignalRequestException, if a percentile is not valid
+     */
+    @GetMapping("/amplitudes")
+    public AmplitudeStatisticsDto getArchiveAmplitudes(@RequestParam(required = false) List<String> channels,
+                                                       @RequestParam(required = false) List<Double> percentiles,
+                                                       @RequestParam(defaultValue = "false") boolean histogram) {
+        log.debug("Reading archive-wide amplitude percentiles");
+        return edfAmplitudeService.archive(channels, percentiles, histogram);
+    }
+}
@@ -1,13 +1,28 @@
 package com.zeto.edf_processor.controller;
 
+import com.zeto.edf_processor.dsp.WaveformPreview;
 import com.zeto.edf_processor.dto.EdfDto;
+import com.zeto.edf_processor.dto.EdfPageDto;
+import com.zeto.edf_processor.dto.EdfSummaryDto;
+import com.zeto.edf_processor.dto.SignalDto;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
 import com.zeto.edf_processor.exceptions.EdfSourceNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidRequestException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.RecordingPreview;
+import com.zeto.edf_processor.model.ScanProgress;
+import com.zeto.edf_processor.service.EdfPreviewService;
 import com.zeto.edf_processor.service.EdfService;
+import com.zeto.edf_processor.service.EdfSignalService;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,7 +33,8 @@ import java.util.Optional;
  * from a directory which is predefined as configuration property.
  * It serves as the main entry point for frontend applications.</p>
  *
- * <p>All endpoints return data in JSON format through {@link EdfDto} objects.</p>
+ * <p>All endpoints return data in JSON format through {@link EdfDto} objects by default,
+ * the compact binary encodings CBOR and Smile are available through content negotiation.</p>
  *
  * <p>Errors are returned in RFC-7807 format.</p>
  * @author Peter Kormos
@@ -30,14 +46,27 @@ import java.util.Optional;
 @Slf4j
 public class EdfController {
 
+    /** Response header of the list endpoints: {@code true} once the list is the result of a finished scan */
+    public static final String SCAN_COMPLETE_HEADER = "EDF-Scan-Complete";
+
+    /** Response header of the list endpoints: parsed and discovered files of the scan, e.g. {@code 52100/104213} */
+    public static final String SCAN_PROGRESS_HEADER = "EDF-Scan-Progress";
+
     private final EdfService edfService;
 
+    private final EdfSignalService edfSignalService;
+
+    private final EdfPreviewService edfPreviewService;
+
     /**
      * Retrieves all EDF files from the configured directory.
      *
      * <p>Returns both valid and invalid EDF files. Invalid files are marked
      * with appropriate error messages in the response.</p>
      *
+     * <p>While the first scan after startup runs, the list holds the files parsed so far, newest
+     * first; the headers {@code EDF-Scan-Complete} and {@code EDF-Scan-Progress} report the progress.</p>
+     *
      * <p><b>Example response:</b></p>
      * <pre>
      * [
@@ -59,22 +88,54 @@ public class EdfController {
      * @return List of all EDF files as DTOs({@link EdfDto}) , including both valid and invalid files
      */
     @GetMapping
-    public List<EdfDto> getAllEdfs() {
+    public ResponseEntity<List<EdfDto>> getAllEdfs() {
         log.debug("Fetching all EDF files");
-        return edfService.listEdfs();
+        ScanProgress progress = edfService.scanProgress();
+        return withScanProgress(progress, edfService.listEdfs());
     }
 
     /**
      * Retrieves all EDF files from the configured directory sorted by the recording date
      *
      * <p>Returns both valid and invalid EDF files. Invalid files are placed at the end of the list and marked
-     * with appropriate error messages in the response.</p>
+     * with appropriate error messages in the response. The scan progress is reported as by {@link #getAllEdfs()}.</p>
      * @return List of all EDF files as DTOs({@link EdfDto}) sorted by the recording date, including both valid and invalid files
      */
     @GetMapping("/sorted")
-    public List<EdfDto> getAllEdfsSortedByRecordingDate() {
+    public ResponseEntity<List<EdfDto>> getAllEdfsSortedByRecordingDate() {
         log.debug("Fetching all EDF files sorted by Recording Date");
-        return edfService.listEdfsSortedByRecordingDate();
+        ScanProgress progress = edfService.scanProgress();
+        return withScanProgress(progress, edfService.listEdfsSortedByRecordingDate());
+    }
+
+    /**
+     * Retrieves one page of the EDF files, for clients that load the list while scrolling.
+     *
+     * @param offset index of the first file, defaultValue:0
+     * @param limit  maximum number of files, 1 to 1000, defaultValue:100
+     * @param sorted order by recording date, defaultValue:false
+     * @return the files of the page, the total number of files and whether the scan is complete
+     * @throws InvalidRequestException, if offset or limit is out of range
+     */
+    @GetMapping("/page")
+    public EdfPageDto getPage(@RequestParam(defaultValue = "0") int offset,
+                              @RequestParam(defaultValue = "100") int limit,
+                              @RequestParam(defaultValue = "false") boolean sorted) {
+        log.debug("Fetching EDF files [{}, +{})", offset, limit);
+        return edfService.page(offset, limit, sorted);
+    }
+
+    /**
+     * Counts the loaded EDF files without listing them.
+     *
+     * <p>Also reports the recording hours of the valid files by patient, recording month and
+     * channel set; the totals are maintained as files are listed, not computed per request.</p>
+     *
+     * @return total, valid and invalid counts, the grouped recording hours and the progress of the scan
+     */
+    @GetMapping("/summary")
+    public EdfSummaryDto getSummary() {
+        return edfService.summary();
     }
 
     /**
@@ -84,18 +145,100 @@ public class EdfController {
      * reloading all EDF files from disk. This is useful when files have been
      * added, removed, or modified in the directory.</p>
      *
+     * <p>With the request header {@code Prefer: return=minimal} (RFC 7240) the list is not
+     * returned: the response is {@code 204 No Content}, clients then fetch the summary and pages.</p>
+     *
      * <p><b>Note:</b> This operation clears the in-memory cache and reloads
      * all files.</p>
      *
      * @param sorted list shall be sorted by recording date, required:false, defaultValue:false
-     * @return List of all EDF files after rescanning the directory
+     * @param prefer RFC 7240 preferences, required:false
+     * @return List of all EDF files after rescanning the directory, none for return=minimal
      * @throws EdfSourceNotFoundException, if the configured directory does not exist
      */
     @PostMapping("/rescan")
-    public List<EdfDto> rescanSource(@RequestParam(defaultValue = "false") boolean sorted) {
+    public ResponseEntity<List<EdfDto>> rescanSource(@RequestParam(defaultValue = "false") boolean sorted,
+                                                     @RequestHeader(value = "Prefer", required = false) String prefer) {
         log.debug("Rescanning EDF source directory");
-        List<EdfDto> edfDtos = edfService.rescan(sorted);
-        return edfDtos;
+        if (prefer != null && prefer.replace(" ", "").contains("return=minimal")) {
+            edfService.reload();
+            return ResponseEntity.noContent().header("Preference-Applied", "return=minimal").build();
+        }
+        return ResponseEntity.ok(edfService.rescan(sorted));
     }
 
+    /**
+     * Reads the decoded samples of a range of data records of an EDF file.
+     *
+     * <p>The response encoding is negotiated through the {@code Accept} header:
+     * JSON, CBOR ({@code application/cbor}), Smile ({@code application/x-jackson-smile})
+     * or the packed binary formats {@code application/vnd.zeto.signal.f32} and
+     * {@code application/vnd.zeto.signal.i16}.</p>
+     *
+     * <p>Filters ({@code highpass:f}, {@code lowpass:f}, {@code bandpass:low-high}, {@code notch:f})
+     * are applied on the server as a biquad cascade.</p>
+     *
+     * <p>A montage ({@code double-banana}, {@code average}, ... as configured under {@code edf.montages})
+     * derives the returned channels from the channels of the recording; filters apply to the derived channels.</p>
+     *
+     * <p>{@code rate} resamples every channel to a common sample rate with a polyphase FIR filter.</p>
+     *
+     * @param fileName   name of the EDF file
+     * @param fromRecord first data record (inclusive), defaultValue:0
+     * @param toRecord   last data record (exclusive), required:false
+     * @param channels   channel labels to read, required:false, all signal channels by default
+     * @param filter     filter chain applied in order, e.g. bandpass:0.5-70,notch:50, required:false
+     * @param zeroPhase  filter forward and backward without phase shift, defaultValue:false
+     * @param montage    name of a configured montage, required:false
+     * @param rate       sample rate in Hz to resample every channel to, required:false
+     * @return decoded signal window
+     * @throws EdfDataNotFoundException, if the file is not loaded
+     * @throws InvalidSignalRequestException, if the file is invalid or the range or channels are not valid
+     */
+    @GetMapping("/{fileName}/signals")
+    public SignalDto getSignals(@PathVariable String fileName,
+                                @RequestParam(defaultValue = "0") int fromRecord,
+                                @RequestParam(required = false) Integer toRecord,
+                                @RequestParam(required = false) List<String> channels,
+                                @RequestParam(required = false) List<String> filter,
+                                @RequestParam(defaultValue = "false") boolean zeroPhase,
+                                @RequestParam(required = false) String montage,
+                                @RequestParam(required = false) Double rate) {
+        log.debug("Reading signals of {}", fileName);
+        return edfSignalService.readSignals(fileName, fromRecord, toRecord, channels, filter, zeroPhase, montage, rate);
+    }
+
+    /**
+     * Returns the waveform preview of an EDF file: about 200 min/max points per signal channel.
+     *
+     * <p>The URL listed as {@code previewUrl} carries the file version in {@code v}; such a
+     * response never changes and is cached for a year. Without a current version the
+     * response has to be revalidated, its {@code ETag} is derived from the file version.</p>
+     *
+     * @param fileName name of the EDF file
+     * @param version  version of the file the client expects, required:false
+     * @return the encoded preview, see {@link WaveformPreview}
+     * @throws EdfDataNotFoundException, if the file is not loaded
+     * @throws InvalidSignalRequestException, if the file is invalid
+     */
+    @GetMapping("/{fileName}/preview")
+    public ResponseEntity<byte[]> getPreview(@PathVariable String fileName,
+                                             @RequestParam(name = "v", required = false) String version) {
+        RecordingPreview preview = edfPreviewService.preview(fileName);
+        CacheControl cacheControl = preview.fingerprint().version().equals(version)
+                ? CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+                : CacheControl.noCache();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(WaveformPreview.MEDIA_TYPE))
+                .cacheControl(cacheControl)
+                .eTag(preview.fingerprint().etag("preview"))
+                .body(preview.data());
+    }
+
+    private static ResponseEntity<List<EdfDto>> withScanProgress(ScanProgress progress, List<EdfDto> edfs) {
+        return ResponseEntity.ok()
+                .header(SCAN_COMPLETE_HEADER, Boolean.toString(progress.complete()))
+                .header(SCAN_PROGRESS_HEADER, "%d/%d".formatted(progress.parsed(), progress.discovered()))
+                .body(edfs);
+    }
 }
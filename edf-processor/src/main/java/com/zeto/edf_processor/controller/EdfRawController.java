@@ -0,0 +1,224 @@
+package com.zeto.edf_processor.controller;
+
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.service.EdfExport;
+import com.zeto.edf_processor.service.EdfExportService;
+import com.zeto.edf_processor.service.EdfRawService;
+import com.zeto.edf_processor.service.RawEdfContent;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * REST controller serving the original bytes of EDF files, and EDF files exported from them.
+ *
+ * <p>Supports conditional and partial requests:</p>
+ * <ul>
+ *   <li>{@code ETag} and {@code Last-Modified} are derived from the file fingerprint,
+ *       {@code If-None-Match} / {@code If-Modified-Since} answer {@code 304 Not Modified}</li>
+ *   <li>A single {@code Range} is answered with {@code 206 Partial Content}, an
+ *       unsatisfiable one with {@code 416}; multiple or malformed ranges are ignored and
+ *       the whole content is sent</li>
+ *   <li>{@code If-Range} only honours the range if the entity tag or date still matches</li>
+ * </ul>
+ *
+ * <p>File regions are sent with zero-copy I/O: through Tomcat's sendfile support when
+ * the connector offers it, otherwise with {@link FileChannel#transferTo}. Exports are
+ * streamed while they are written, see {@link EdfExportService}.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see EdfRawService
+ */
+@RestController
+@RequestMapping("/api/edfs")
+@RequiredArgsConstructor
+@Slf4j
+public class EdfRawController {
+
+    /** Request attributes of Tomcat's sendfile support */
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final MediaType EDF_MEDIA_TYPE = MediaType.APPLICATION_OCTET_STREAM;
+
+    private final EdfRawService edfRawService;
+
+    private final EdfExportService edfExportService;
+
+    /**
+     * Downloads the original EDF file, or a record-aligned slice of it as a valid EDF file.
+     *
+     * @param fileName   name of the EDF file
+     * @param fromRecord first data record of the slice (inclusive), required:false
+     * @param toRecord   last data record of the slice (exclusive), required:false
+     * @throws EdfDataNotFoundException, if the file is not loaded
+     * @throws InvalidSignalRequestException, if a slice of an invalid file or an invalid range is requested
+     */
+    @GetMapping("/{fileName}/raw")
+    public void getRaw(@PathVariable String fileName,
+                       @RequestParam(required = false) Integer fromRecord,
+                       @RequestParam(required = false) Integer toRecord,
+                       HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        log.debug("Raw download of {}", fileName);
+        RawEdfContent content = edfRawService.prepare(fileName, fromRecord, toRecord);
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        if (webRequest.checkNotModified(content.etag(), content.fingerprint().lastModified())) {
+            return;
+        }
+
+        long contentLength = content.contentLength();
+        long start = 0;
+        long end = contentLength;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        HttpRange requested = range != null && isRangeApplicable(request, content) ? singleRange(range) : null;
+        if (requested != null) {
+            start = requested.getRangeStart(contentLength);
+            end = requested.getRangeEnd(contentLength) + 1;
+            if (start >= contentLength) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes %d-%d/%d".formatted(start, end - 1, contentLength));
+        }
+
+        response.setContentType(EDF_MEDIA_TYPE.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(content.fileName()).build().toString());
+        response.setContentLengthLong(end - start);
+        write(content, start, end, request, response);
+    }
+
+    /**
+     * Exports a time window of a recording as a new EDF/EDF+ file, with a subset of the channels.
+     *
+     * <p>The window is widened to whole data records; the name of the file holds the exported window,
+     * e.g. {@code patient001_600-1200s.edf}.</p>
+     *
+     * @param fileName    name of the EDF file
+     * @param from        start of the window in seconds from the start of the recording, defaultValue:0
+     * @param to          end of the window in seconds, required:false, the end of the recording by default
+     * @param channels    labels of the exported signal channels, required:false, all signal channels by default
+     * @param annotations keep the EDF+ annotations of the window, defaultValue:true
+     * @throws EdfDataNotFoundException, if the file is not loaded
+     * @throws InvalidSignalRequestException, if the file is invalid or discontinuous, or the window or channels are not valid
+     */
+    @GetMapping("/{fileName}/export")
+    public void getExport(@PathVariable String fileName,
+                          @RequestParam(defaultValue = "0") double from,
+                          @RequestParam(required = false) Double to,
+                          @RequestParam(required = false) List<String> channels,
+                          @RequestParam(defaultValue = "true") boolean annotations,
+                          HttpServletResponse response) throws IOException {
+        log.debug("Export of {} [{}, {}) s", fileName, from, to);
+        EdfExport export = edfExportService.prepare(fileName, from, to, channels, annotations);
+
+        response.setContentType(EDF_MEDIA_TYPE.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(export.fileName()).build().toString());
+        response.setContentLengthLong(export.contentLength());
+        OutputStream out = response.getOutputStream();
+        edfExportService.write(export, Channels.newChannel(out));
+        out.flush();
+    }
+
+    /**
+     * Parses a {@code Range} header that asks for a single byte range.
+     *
+     * @param range value of the header
+     * @return the range, or {@code null} if the header is malformed or asks for several ranges,
+     *         both of which are ignored as RFC 9110 allows
+     */
+    static HttpRange singleRange(String range) {
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring malformed Range header '{}': {}", range, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Evaluates {@code If-Range}: the range applies if the header is absent or still
+     * matches the current entity tag or modification date.
+     */
+    private static boolean isRangeApplicable(HttpServletRequest request, RawEdfContent content) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(content.etag());
+        }
+        long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+        return ifRangeDate / 1000 == content.fingerprint().lastModified() / 1000;
+    }
+
+    /**
+     * Writes the bytes {@code [start, end)} of the content: the header part from memory,
+     * the file part with zero-copy I/O.
+     */
+    private static void write(RawEdfContent content, long start, long end,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] header = content.header();
+        long fileStart = content.position() + Math.max(0, start - header.length);
+        long fileEnd = content.position() + Math.max(0, end - header.length);
+
+        if (start >= header.length && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // the container sends the file region after the handler returns
+            request.setAttribute(SENDFILE_FILENAME, content.filePath().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, fileStart);
+            request.setAttribute(SENDFILE_END, fileEnd);
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        if (start < header.length) {
+            out.write(header, (int) start, (int) (Math.min(end, header.length) - start));
+        }
+        if (fileEnd > fileStart) {
+            WritableByteChannel target = Channels.newChannel(out);
+            try (FileChannel fileChannel = FileChannel.open(content.filePath(), StandardOpenOption.READ)) {
+                long position = fileStart;
+                while (position < fileEnd) {
+                    long transferred = fileChannel.transferTo(position, fileEnd - position, target);
+                    if (transferred <= 0) {
+                        throw new IOException("File %s ended before byte %d".formatted(content.fileName(), fileEnd));
+                    }
+                    position += transferred;
+                }
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,172 @@
+package com.zeto.edf_processor.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable fixed-bucket histogram of the digital sample values of a channel.
+ *
+ * <p>The 16-bit digital range is split into {@value #BUCKETS} buckets of
+ * {@value #BUCKET_WIDTH} steps, the same for every channel and file, so histograms
+ * of channels with the same calibration can be merged by adding counts. Quantiles
+ * are interpolated linearly within a bucket.</p>
+ *
+ * <p>A histogram is filled by a {@link Builder} in one pass and stored compacted:
+ * only the buckets between the lowest and highest occupied one are kept, which is a
+ * few hundred buckets for typical EEG, whatever the length of the recording.
+ * Histograms are immutable and thread-safe.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class AmplitudeHistogram {
+
+    /** Digital steps per bucket */
+    public static final int BUCKET_WIDTH = 32;
+
+    /** Buckets over the 16-bit digital range */
+    public static final int BUCKETS = (1 << 16) / BUCKET_WIDTH;
+
+    /** Empty histogram, the identity of {@link #merge} */
+    public static final AmplitudeHistogram EMPTY = new AmplitudeHistogram(0, new long[0], 0);
+
+    /** Bucket of {@code counts[0]} */
+    private final int firstBucket;
+    private final long[] counts;
+    private final long total;
+
+    private AmplitudeHistogram(int firstBucket, long[] counts, long total) {
+        this.firstBucket = firstBucket;
+        this.counts = counts;
+        this.total = total;
+    }
+
+    /**
+     * Number of samples in the histogram.
+     */
+    public long count() {
+        return total;
+    }
+
+    /**
+     * Lowest digital value of the first occupied bucket.
+     */
+    public int firstValue() {
+        return Short.MIN_VALUE + firstBucket * BUCKET_WIDTH;
+    }
+
+    /**
+     * Counts of the buckets from {@link #firstValue()} on, {@value #BUCKET_WIDTH} digital steps each.
+     */
+    public long[] counts() {
+        return counts.clone();
+    }
+
+    /**
+     * Digital value below which the share {@code q} of the samples lie.
+     *
+     * @param q quantile between 0 and 1
+     * @return interpolated digital value, {@code NaN} for an empty histogram
+     */
+    public double quantile(double q) {
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double rank = Math.max(0, Math.min(1, q)) * total;
+        long below = 0;
+        for (int i = 0; i < counts.length; i++) {
+            long count = counts[i];
+            if (count > 0 && below + count >= rank) {
+                double fraction = (rank - below) / count;
+                return firstValue() + (i + fraction) * BUCKET_WIDTH;
+            }
+            below += count;
+        }
+        return firstValue() + (double) counts.length * BUCKET_WIDTH;
+    }
+
+    /**
+     * Returns the histogram of the samples of both histograms.
+     */
+    public AmplitudeHistogram merge(AmplitudeHistogram other) {
+        if (other.total == 0) {
+            return this;
+        }
+        if (total == 0) {
+            return other;
+        }
+        int first = Math.min(firstBucket, other.firstBucket);
+        int end = Math.max(firstBucket + counts.length, other.firstBucket + other.counts.length);
+        long[] merged = new long[end - first];
+        for (int i = 0; i < counts.length; i++) {
+            merged[firstBucket - first + i] += counts[i];
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            merged[other.firstBucket - first + i] += other.counts[i];
+        }
+        return new AmplitudeHistogram(first, merged, total + other.total);
+    }
+
+    /**
+     * Approximate heap size in bytes.
+     */
+    public long sizeInBytes() {
+        return 48L + (long) counts.length * Long.BYTES;
+    }
+
+    /**
+     * Accumulates the samples of one channel; not thread-safe.
+     */
+    public static final class Builder {
+
+        private final double scale;
+        private final double offset;
+        private final long[] counts = new long[BUCKETS];
+        private long total;
+
+        /**
+         * @param scale  physical units per digital step of the channel
+         * @param offset physical value of digital zero
+         */
+        public Builder(double scale, double offset) {
+            this.scale = scale;
+            this.offset = offset;
+        }
+
+        /**
+         * Adds one digital value, values beyond the 16-bit range count to the edge buckets.
+         */
+        public void add(int digital) {
+            int clamped = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, digital));
+            counts[(clamped - Short.MIN_VALUE) / BUCKET_WIDTH]++;
+            total++;
+        }
+
+        /**
+         * Adds physical samples, quantized back to the digital values they were decoded from.
+         */
+        public void addPhysical(float[] samples, int from, int to) {
+            double inverseScale = 1 / scale;
+            for (int i = from; i < to; i++) {
+                add((int) Math.round((samples[i] - offset) * inverseScale));
+            }
+        }
+
+        /**
+         * Returns the compacted histogram of the samples added so far.
+         */
+        public AmplitudeHistogram build() {
+            int first = 0;
+            while (first < BUCKETS && counts[first] == 0) {
+                first++;
+            }
+            if (first == BUCKETS) {
+                return EMPTY;
+            }
+            int last = BUCKETS - 1;
+            while (counts[last] == 0) {
+                last--;
+            }
+            return new AmplitudeHistogram(first, Arrays.copyOfRange(counts, first, last + 1), total);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.zeto.edf_processor.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Cascade of second-order IIR sections (biquads) in transposed direct form II.
+ *
+ * <p>The cascade keeps the delay state of every section between calls, so a signal
+ * can be filtered chunk by chunk, e.g. data record by data record, with the same
+ * result as in one pass. Samples are filtered in place on primitive arrays; the
+ * state is kept in double precision.</p>
+ *
+ * <p>Instances are not thread-safe, every channel needs its own cascade, see {@link #copy()}.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class BiquadCascade {
+
+    private final double[] b0;
+    private final double[] b1;
+    private final double[] b2;
+    private final double[] a1;
+    private final double[] a2;
+    private final double[] z1;
+    private final double[] z2;
+
+    /**
+     * @param sections normalized coefficients {@code {b0, b1, b2, a1, a2}} of each section ({@code a0 = 1})
+     */
+    public BiquadCascade(double[]... sections) {
+        int n = sections.length;
+        b0 = new double[n];
+        b1 = new double[n];
+        b2 = new double[n];
+        a1 = new double[n];
+        a2 = new double[n];
+        z1 = new double[n];
+        z2 = new double[n];
+        for (int i = 0; i < n; i++) {
+            b0[i] = sections[i][0];
+            b1[i] = sections[i][1];
+            b2[i] = sections[i][2];
+            a1[i] = sections[i][3];
+            a2[i] = sections[i][4];
+        }
+    }
+
+    /**
+     * Returns a cascade with the same coefficients and a cleared state.
+     */
+    public BiquadCascade copy() {
+        double[][] sections = new double[b0.length][];
+        for (int i = 0; i < b0.length; i++) {
+            sections[i] = new double[]{b0[i], b1[i], b2[i], a1[i], a2[i]};
+        }
+        return new BiquadCascade(sections);
+    }
+
+    public int sections() {
+        return b0.length;
+    }
+
+    /**
+     * Clears the delay state.
+     */
+    public void reset() {
+        Arrays.fill(z1, 0);
+        Arrays.fill(z2, 0);
+    }
+
+    /**
+     * Primes the delay state for a constant input, so a signal starting at this
+     * level does not produce a step response.
+     *
+     * @param level input level
+     */
+    public void prime(double level) {
+        double x = level;
+        for (int s = 0; s < b0.length; s++) {
+            // steady state of y = H(1) * x for section s
+            double gain = (b0[s] + b1[s] + b2[s]) / (1 + a1[s] + a2[s]);
+            double y = gain * x;
+            z2[s] = b2[s] * x - a2[s] * y;
+            z1[s] = b1[s] * x - a1[s] * y + z2[s];
+            x = y;
+        }
+    }
+
+    /**
+     * Filters {@code samples[from, to)} forward, in place.
+     */
+    public void process(float[] samples, int from, int to) {
+        for (int s = 0; s < b0.length; s++) {
+            double sb0 = b0[s], sb1 = b1[s], sb2 = b2[s], sa1 = a1[s], sa2 = a2[s];
+            double s1 = z1[s], s2 = z2[s];
+            for (int i = from; i < to; i++) {
+                double x = samples[i];
+                double y = sb0 * x + s1;
+                s1 = sb1 * x - sa1 * y + s2;
+                s2 = sb2 * x - sa2 * y;
+                samples[i] = (float) y;
+            }
+            z1[s] = s1;
+            z2[s] = s2;
+        }
+    }
+
+    /**
+     * Filters {@code samples[from, to)} backward (from the last sample to the first), in place.
+     */
+    public void processReverse(float[] samples, int from, int to) {
+        for (int s = 0; s < b0.length; s++) {
+            double sb0 = b0[s], sb1 = b1[s], sb2 = b2[s], sa1 = a1[s], sa2 = a2[s];
+            double s1 = z1[s], s2 = z2[s];
+            for (int i = to - 1; i >= from; i--) {
+                double x = samples[i];
+                double y = sb0 * x + s1;
+                s1 = sb1 * x - sa1 * y + s2;
+                s2 = sb2 * x - sa2 * y;
+                samples[i] = (float) y;
+            }
+            z1[s] = s1;
+            z2[s] = s2;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.zeto.edf_processor.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Magnitude-squared coherence of channel pairs, averaged over a frequency band.
+ *
+ * <p>Welch's method with a Hann window and 50 % overlap: every channel is
+ * {@link #transform transformed} once into the spectra of its segments, restricted to
+ * the bins of the band. The coherence of a pair then only multiplies stored spectra,</p>
+ * <pre>
+ *   C(f) = |sum Sx(f) * conj(Sy(f))|^2 / (sum |Sx(f)|^2 * sum |Sy(f)|^2)
+ * </pre>
+ * <p>summed over segments, and is averaged over the bins of the band. With a single
+ * segment the coherence is always 1, so windows must span several segments.</p>
+ *
+ * <p>The estimator is immutable and thread-safe; the scratch memory of a pair is
+ * supplied by a per-thread {@link Workspace}.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class CoherenceEstimator {
+
+    private final Fft fft;
+    private final double[] window;
+    private final int lowBin;
+    private final int highBin;
+
+    /**
+     * @param segmentSize samples per segment, a power of two
+     * @param sampleRate  sample rate in Hz
+     * @param band        band the coherence is averaged over
+     * @throws IllegalArgumentException if no frequency bin falls into the band
+     */
+    public CoherenceEstimator(int segmentSize, double sampleRate, FrequencyBand band) {
+        this.fft = new Fft(segmentSize);
+        this.window = new double[segmentSize];
+        for (int i = 0; i < segmentSize; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / segmentSize);
+        }
+        double binWidth = sampleRate / segmentSize;
+        this.lowBin = Math.max(1, (int) Math.ceil(band.low() / binWidth));
+        this.highBin = Math.min(segmentSize / 2 + 1, (int) Math.ceil(band.high() / binWidth));
+        if (highBin <= lowBin) {
+            throw new IllegalArgumentException("No frequency bin of %.3f Hz width lies in band %s (%s-%s Hz)"
+                    .formatted(binWidth, band.name(), band.low(), band.high()));
+        }
+    }
+
+    public int segmentSize() {
+        return fft.size();
+    }
+
+    /**
+     * Number of frequency bins in the band.
+     */
+    public int bins() {
+        return highBin - lowBin;
+    }
+
+    /**
+     * Computes the band-limited spectra of the segments of {@code samples[from, to)}.
+     * Signals shorter than one segment are zero padded.
+     */
+    public Spectra transform(float[] samples, int from, int to) {
+        int n = fft.size();
+        int step = n / 2;
+        int bins = bins();
+        int segments = Math.max(1, (to - from - n) / step + 1);
+        Spectra spectra = new Spectra(segments, bins);
+        double[] re = new double[n];
+        double[] im = new double[n];
+        for (int segment = 0; segment < segments; segment++) {
+            int start = from + segment * step;
+            int length = Math.min(n, to - start);
+            double mean = 0;
+            for (int i = 0; i < length; i++) {
+                mean += samples[start + i];
+            }
+            mean /= length;
+            for (int i = 0; i < n; i++) {
+                re[i] = i < length ? (samples[start + i] - mean) * window[i] : 0;
+                im[i] = 0;
+            }
+            fft.transform(re, im);
+            int offset = segment * bins;
+            for (int k = 0; k < bins; k++) {
+                double r = re[lowBin + k];
+                double i = im[lowBin + k];
+                spectra.re[offset + k] = (float) r;
+                spectra.im[offset + k] = (float) i;
+                spectra.power[k] += r * r + i * i;
+            }
+        }
+        return spectra;
+    }
+
+    /**
+     * Mean magnitude-squared coherence of two channels over the bins of the band,
+     * between 0 and 1. A bin in which either channel has no power contributes 0.
+     */
+    public double coherence(Spectra x, Spectra y, Workspace workspace) {
+        int bins = bins();
+        float[] crossRe = workspace.crossRe;
+        float[] crossIm = workspace.crossIm;
+        Arrays.fill(crossRe, 0);
+        Arrays.fill(crossIm, 0);
+        for (int segment = 0, offset = 0; segment < x.segments; segment++, offset += bins) {
+            for (int k = 0; k < bins; k++) {
+                float xr = x.re[offset + k];
+                float xi = x.im[offset + k];
+                float yr = y.re[offset + k];
+                float yi = y.im[offset + k];
+                crossRe[k] += xr * yr + xi * yi;
+                crossIm[k] += xi * yr - xr * yi;
+            }
+        }
+        double sum = 0;
+        for (int k = 0; k < bins; k++) {
+            double denominator = x.power[k] * y.power[k];
+            if (denominator > 0) {
+                double cr = crossRe[k];
+                double ci = crossIm[k];
+                sum += Math.min(1, (cr * cr + ci * ci) / denominator);
+            }
+        }
+        return sum / bins;
+    }
+
+    /**
+     * Creates the scratch buffers of one thread.
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(bins());
+    }
+
+    /**
+     * Band-limited spectra of the segments of one channel, {@code [segment * bins + bin]},
+     * and the power per bin summed over segments.
+     */
+    public static final class Spectra {
+        private final int segments;
+        private final float[] re;
+        private final float[] im;
+        private final double[] power;
+
+        private Spectra(int segments, int bins) {
+            this.segments = segments;
+            this.re = new float[segments * bins];
+            this.im = new float[segments * bins];
+            this.power = new double[bins];
+        }
+
+        public int segments() {
+            return segments;
+        }
+    }
+
+    /**
+     * Scratch buffers of one thread: the cross spectrum of a pair.
+     */
+    public static final class Workspace {
+        private final float[] crossRe;
+        private final float[] crossIm;
+
+        private Workspace(int bins) {
+            this.crossRe = new float[bins];
+            this.crossIm = new float[bins];
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.zeto.edf_processor.dsp;
+
+import com.zeto.edf_processor.model.EpochFeature;
+
+import java.util.List;
+
+/**
+ * Computes the {@link EpochFeature}s of one channel and epoch.
+ *
+ * <p>Band powers come from a Welch PSD ({@link WelchPsd}); variance, zero crossing rate
+ * and line length are single passes over the samples. The extractor is immutable and
+ * thread-safe; the PSD scratch memory is supplied by a per-thread {@link WelchPsd.Workspace}.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class EpochFeatureExtractor {
+
+    private final WelchPsd psd;
+    private final double sampleRate;
+    private final List<EpochFeature> features;
+
+    /**
+     * @param psd        Welch estimator of the sample rate of the channel
+     * @param sampleRate sample rate in Hz
+     * @param features   features to compute, in output order
+     */
+    public EpochFeatureExtractor(WelchPsd psd, double sampleRate, List<EpochFeature> features) {
+        this.psd = psd;
+        this.sampleRate = sampleRate;
+        this.features = List.copyOf(features);
+    }
+
+    public WelchPsd.Workspace newWorkspace() {
+        return psd.newWorkspace();
+    }
+
+    /**
+     * Computes the features of {@code samples[from, to)}.
+     *
+     * @param out receives the value of {@code features.get(i)} at {@code out[i]}
+     */
+    public void extract(float[] samples, int from, int to, WelchPsd.Workspace workspace, float[] out) {
+        int n = to - from;
+        double sum = 0;
+        double lineLength = 0;
+        for (int i = from; i < to; i++) {
+            sum += samples[i];
+            if (i > from) {
+                lineLength += Math.abs(samples[i] - samples[i - 1]);
+            }
+        }
+        double mean = n > 0 ? sum / n : 0;
+        double sumOfSquares = 0;
+        int crossings = 0;
+        boolean above = n > 0 && samples[from] >= mean;
+        for (int i = from; i < to; i++) {
+            double d = samples[i] - mean;
+            sumOfSquares += d * d;
+            if (d >= 0 != above) {
+                crossings++;
+                above = !above;
+            }
+        }
+        boolean needsPsd = features.stream().anyMatch(feature -> feature.band() != null);
+        if (needsPsd) {
+            psd.estimate(samples, from, to, workspace);
+        }
+
+        for (int f = 0; f < features.size(); f++) {
+            EpochFeature feature = features.get(f);
+            out[f] = (float) switch (feature) {
+                case VARIANCE -> n > 0 ? sumOfSquares / n : 0;
+                case ZERO_CROSSING_RATE -> n > 0 ? crossings * sampleRate / n : 0;
+                case LINE_LENGTH -> lineLength;
+                default -> psd.bandPower(workspace, feature.band().low(), feature.band().high());
+            };
+        }
+    }
+}
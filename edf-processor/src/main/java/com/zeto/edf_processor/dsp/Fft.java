@@ -0,0 +1,88 @@
+package com.zeto.edf_processor.dsp;
+
+/**
+ * Precomputed plan of an in-place radix-2 complex FFT.
+ *
+ * <p>The plan holds the twiddle factors and the bit-reversal permutation of one
+ * transform size. It is immutable and can be shared between threads; the
+ * transform itself works on caller-owned arrays and allocates nothing.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class Fft {
+
+    private final int size;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] bitReversed;
+
+    /**
+     * @param size transform size, a power of two
+     */
+    public Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        }
+        this.size = size;
+        this.cos = new double[size / 2];
+        this.sin = new double[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cos[i] = Math.cos(-2 * Math.PI * i / size);
+            sin[i] = Math.sin(-2 * Math.PI * i / size);
+        }
+        int bits = Integer.numberOfTrailingZeros(size);
+        this.bitReversed = new int[size];
+        for (int i = 0; i < size; i++) {
+            bitReversed[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap size in bytes: the twiddle factors and the permutation.
+     */
+    public long sizeInBytes() {
+        return 32L + 2 * (16L + (long) size / 2 * Double.BYTES) + 16L + (long) size * Integer.BYTES;
+    }
+
+    /**
+     * Transforms {@code re + i*im} in place (forward transform, no scaling).
+     *
+     * @param re real parts, length {@link #size()}
+     * @param im imaginary parts, length {@link #size()}
+     */
+    public void transform(double[] re, double[] im) {
+        for (int i = 0; i < size; i++) {
+            int j = bitReversed[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int half = 1; half < size; half <<= 1) {
+            int step = size / (half << 1);
+            for (int start = 0; start < size; start += half << 1) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = wr * re[b] - wi * im[b];
+                    double ti = wr * im[b] + wi * re[b];
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.zeto.edf_processor.dsp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One stage of a filter chain, parsed from {@code type:frequency} or {@code bandpass:low-high}.
+ *
+ * <p><b>Supported stages:</b></p>
+ * <ul>
+ *   <li>{@code highpass:0.5} - 4th order Butterworth high-pass</li>
+ *   <li>{@code lowpass:70} - 4th order Butterworth low-pass</li>
+ *   <li>{@code bandpass:0.5-70} - high-pass followed by low-pass</li>
+ *   <li>{@code notch:50} - second order notch with Q = 30</li>
+ * </ul>
+ *
+ * <p>Coefficients follow the biquad formulas of R. Bristow-Johnson's audio EQ cookbook.</p>
+ *
+ * @param type stage type
+ * @param low  cutoff (high-pass, notch, lower band edge) in Hz
+ * @param high cutoff (low-pass, upper band edge) in Hz
+ */
+public record FilterSpec(Type type, double low, double high) {
+
+    public enum Type { HIGHPASS, LOWPASS, BANDPASS, NOTCH }
+
+    /** Q factors of the two sections of a 4th order Butterworth filter */
+    private static final double[] BUTTERWORTH_4_Q = {1 / (2 * Math.cos(Math.PI / 8)), 1 / (2 * Math.cos(3 * Math.PI / 8))};
+    private static final double NOTCH_Q = 30;
+
+    /** Fraction of its initial amplitude a transient decays to before the filter counts as settled */
+    private static final double SETTLED = 1e-6;
+
+    private static final Pattern FORMAT = Pattern.compile("(\\w+):(\\d+(?:\\.\\d+)?)(?:-(\\d+(?:\\.\\d+)?))?");
+
+    /**
+     * Parses one stage.
+     *
+     * @param value stage definition, e.g. {@code notch:50}
+     * @return parsed stage
+     * @throws IllegalArgumentException if the definition is malformed
+     */
+    public static FilterSpec parse(String value) {
+        Matcher matcher = FORMAT.matcher(value.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Filter must be given as type:frequency or bandpass:low-high, found '%s'".formatted(value));
+        }
+        Type type;
+        try {
+            type = Type.valueOf(matcher.group(1).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown filter type '%s'".formatted(matcher.group(1)));
+        }
+        double first = Double.parseDouble(matcher.group(2));
+        boolean range = matcher.group(3) != null;
+        if ((type == Type.BANDPASS) != range) {
+            throw new IllegalArgumentException(type == Type.BANDPASS
+                    ? "Bandpass needs a range low-high, found '%s'".formatted(value)
+                    : "Only bandpass takes a range, found '%s'".formatted(value));
+        }
+        if (first <= 0) {
+            throw new IllegalArgumentException("Filter frequency must be positive, found '%s'".formatted(value));
+        }
+        return switch (type) {
+            case LOWPASS -> new FilterSpec(type, 0, first);
+            case BANDPASS -> {
+                double second = Double.parseDouble(matcher.group(3));
+                if (second <= first) {
+                    throw new IllegalArgumentException("Lower edge must be below the upper edge, found '%s'".formatted(value));
+                }
+                yield new FilterSpec(type, first, second);
+            }
+            default -> new FilterSpec(type, first, 0);
+        };
+    }
+
+    /**
+     * Lowest frequency shaped by the stage, which determines how long its transient lasts.
+     */
+    public double lowestFrequency() {
+        return type == Type.LOWPASS ? high : low;
+    }
+
+    /**
+     * Time the transient of the stage takes to decay to {@code 1e-6} of its initial amplitude.
+     *
+     * <p>The slowest pole of the stage sits at {@link #lowestFrequency()} and decays as
+     * {@code exp(-ζ·2π·f·t)}, with the damping ζ of the Butterworth section with the highest Q,
+     * or {@code 1 / 2Q} for the notch. A 0.5 Hz high-pass settles in about 11.5 s, a 0.1 Hz one in 57 s.</p>
+     *
+     * @return settling time in seconds
+     */
+    public double settlingSeconds() {
+        double q = type == Type.NOTCH ? NOTCH_Q : BUTTERWORTH_4_Q[1];
+        double damping = 1 / (2 * q);
+        return Math.log(1 / SETTLED) / (damping * 2 * Math.PI * lowestFrequency());
+    }
+
+    /**
+     * Time a chain takes to settle: every stage starts on the transient of the stage before, so the
+     * settling times add up.
+     *
+     * @param stages filter chain
+     * @return settling time in seconds, 0 for an empty chain
+     */
+    public static double settlingSeconds(List<FilterSpec> stages) {
+        return stages.stream().mapToDouble(FilterSpec::settlingSeconds).sum();
+    }
+
+    /**
+     * Designs the biquad sections of a chain of stages for a sample rate.
+     *
+     * @param stages     filter chain, applied in order
+     * @param sampleRate sample rate in Hz
+     * @return cascade with a cleared state
+     * @throws IllegalArgumentException if a frequency is not below the Nyquist frequency
+     */
+    public static BiquadCascade design(List<FilterSpec> stages, double sampleRate) {
+        List<double[]> sections = new ArrayList<>();
+        for (FilterSpec stage : stages) {
+            switch (stage.type) {
+                case HIGHPASS -> butterworth(sections, false, stage.low, sampleRate);
+                case LOWPASS -> butterworth(sections, true, stage.high, sampleRate);
+                case BANDPASS -> {
+                    butterworth(sections, false, stage.low, sampleRate);
+                    butterworth(sections, true, stage.high, sampleRate);
+                }
+                case NOTCH -> sections.add(notch(stage.low, sampleRate));
+            }
+        }
+        return new BiquadCascade(sections.toArray(double[][]::new));
+    }
+
+    private static void butterworth(List<double[]> sections, boolean lowpass, double frequency, double sampleRate) {
+        for (double q : BUTTERWORTH_4_Q) {
+            double w0 = omega(frequency, sampleRate);
+            double cos = Math.cos(w0);
+            double alpha = Math.sin(w0) / (2 * q);
+            double b1 = lowpass ? 1 - cos : -(1 + cos);
+            double b0 = lowpass ? (1 - cos) / 2 : (1 + cos) / 2;
+            sections.add(normalize(b0, b1, b0, 1 + alpha, -2 * cos, 1 - alpha));
+        }
+    }
+
+    private static double[] notch(double frequency, double sampleRate) {
+        double w0 = omega(frequency, sampleRate);
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * NOTCH_Q);
+        return normalize(1, -2 * cos, 1, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    private static double omega(double frequency, double sampleRate) {
+        if (frequency >= sampleRate / 2) {
+            throw new IllegalArgumentException("Filter frequency %s Hz must be below the Nyquist frequency %s Hz"
+                    .formatted(frequency, sampleRate / 2));
+        }
+        return 2 * Math.PI * frequency / sampleRate;
+    }
+
+    private static double[] normalize(double b0, double b1, double b2, double a0, double a1, double a2) {
+        return new double[]{b0 / a0, b1 / a0, b2 / a0, a1 / a0, a2 / a0};
+    }
+}
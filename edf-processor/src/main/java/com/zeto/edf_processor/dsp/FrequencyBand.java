@@ -0,0 +1,44 @@
+package com.zeto.edf_processor.dsp;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A named frequency band {@code [low, high)} in Hz.
+ *
+ * @param name band name, e.g. "alpha"
+ * @param low  lower edge in Hz (inclusive)
+ * @param high upper edge in Hz (exclusive)
+ */
+public record FrequencyBand(String name, double low, double high) {
+
+    /** Classic EEG bands */
+    public static final List<FrequencyBand> EEG_BANDS = List.of(
+            new FrequencyBand("delta", 0.5, 4),
+            new FrequencyBand("theta", 4, 8),
+            new FrequencyBand("alpha", 8, 13),
+            new FrequencyBand("beta", 13, 30));
+
+    private static final Pattern FORMAT = Pattern.compile("(\\w+):(\\d+(?:\\.\\d+)?)-(\\d+(?:\\.\\d+)?)");
+
+    /**
+     * Parses a band in the form {@code name:low-high}, e.g. {@code alpha:8-13}.
+     *
+     * @param value band definition
+     * @return parsed band
+     * @throws IllegalArgumentException if the format is wrong or {@code low >= high}
+     */
+    public static FrequencyBand parse(String value) {
+        Matcher matcher = FORMAT.matcher(value.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Band must be given as name:low-high, found '%s'".formatted(value));
+        }
+        double low = Double.parseDouble(matcher.group(2));
+        double high = Double.parseDouble(matcher.group(3));
+        if (low >= high) {
+            throw new IllegalArgumentException("Lower edge of band %s must be below the upper edge".formatted(matcher.group(1)));
+        }
+        return new FrequencyBand(matcher.group(1), low, high);
+    }
+}
@@ -0,0 +1,188 @@
+package com.zeto.edf_processor.dsp;
+
+/**
+ * Rational-ratio sample rate converter with a polyphase FIR filter bank.
+ *
+ * <p>Resamples by {@code interpolation / decimation}: conceptually the signal is
+ * upsampled by {@code interpolation}, low-pass filtered and downsampled by
+ * {@code decimation}. The low-pass is a Kaiser windowed sinc split into
+ * {@code interpolation} phases, so every output sample costs one short dot product
+ * and the zeros of the upsampled signal are never touched.</p>
+ *
+ * <p>The filter is linear-phase and its delay is compensated: output sample {@code n}
+ * lies at the time of input sample {@code n * decimation / interpolation}. It reaches
+ * {@link #halfLength()} input samples before and after that point; beyond the ends of
+ * the input the edge samples are repeated, so callers pass context around the part they keep.</p>
+ *
+ * <p>Instances are immutable and thread-safe, the filter bank is computed once and can
+ * be shared.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class PolyphaseResampler {
+
+    /** Half length of the filter in input samples, per unit of decimation over interpolation */
+    private static final int HALF_LENGTH = 16;
+
+    /** Kaiser window shape, about 80 dB stopband attenuation */
+    private static final double KAISER_BETA = 8.0;
+
+    /** Passband edge relative to the lower Nyquist frequency, the rest is the transition band */
+    private static final double CUTOFF = 0.9;
+
+    /** Upper bound of the filter bank size, in coefficients */
+    private static final int MAX_BANK_SIZE = 1 << 20;
+
+    private final int interpolation;
+    private final int decimation;
+    private final int halfLength;
+
+    /** Coefficients per phase, {@code [phase][k]} weights input sample {@code base - k} */
+    private final float[][] bank;
+
+    private PolyphaseResampler(int interpolation, int decimation) {
+        this.interpolation = interpolation;
+        this.decimation = decimation;
+        this.halfLength = HALF_LENGTH * Math.max(1, (decimation + interpolation - 1) / interpolation);
+        this.bank = design(interpolation, decimation, halfLength);
+    }
+
+    /**
+     * Creates a resampler between two sample counts per time unit, e.g. samples per data record.
+     *
+     * @param inputRate  input samples per time unit
+     * @param outputRate output samples per time unit
+     * @return resampler with the reduced ratio
+     * @throws IllegalArgumentException if a rate is not positive or the filter bank would be too large
+     */
+    public static PolyphaseResampler of(int inputRate, int outputRate) {
+        if (inputRate <= 0 || outputRate <= 0) {
+            throw new IllegalArgumentException("Sample rates must be positive: %d -> %d".formatted(inputRate, outputRate));
+        }
+        int gcd = gcd(inputRate, outputRate);
+        int interpolation = outputRate / gcd;
+        int decimation = inputRate / gcd;
+        long halfLength = (long) HALF_LENGTH * Math.max(1, (decimation + interpolation - 1) / interpolation);
+        if ((long) interpolation * (2 * halfLength + 1) > MAX_BANK_SIZE) {
+            throw new IllegalArgumentException("Resampling ratio %d/%d is too fine".formatted(interpolation, decimation));
+        }
+        return new PolyphaseResampler(interpolation, decimation);
+    }
+
+    public int interpolation() {
+        return interpolation;
+    }
+
+    public int decimation() {
+        return decimation;
+    }
+
+    /**
+     * Number of input samples the filter reaches on each side of an output sample.
+     */
+    public int halfLength() {
+        return halfLength;
+    }
+
+    /**
+     * Approximate heap size in bytes: the filter bank, one coefficient array per phase.
+     */
+    public long sizeInBytes() {
+        return 32L + 16L + (long) bank.length * (4 + 16 + (long) bank[0].length * Float.BYTES);
+    }
+
+    /**
+     * Number of output samples for a number of input samples.
+     */
+    public int outputLength(int inputLength) {
+        return (int) (((long) inputLength * interpolation + decimation - 1) / decimation);
+    }
+
+    /**
+     * Resamples {@code input} into {@code output}, which holds {@link #outputLength(int)} samples.
+     *
+     * <p>The phase is tracked with integer counters, nothing is allocated per sample.</p>
+     *
+     * @param input  input samples
+     * @param output output samples, filled from index 0
+     */
+    public void process(float[] input, float[] output) {
+        int last = input.length - 1;
+        int taps = bank[0].length;
+        long position = 0;
+        for (int n = 0; n < output.length; n++, position += decimation) {
+            float[] phase = bank[(int) (position % interpolation)];
+            int base = (int) (position / interpolation) + halfLength;
+            double sum = 0;
+            if (base - taps + 1 >= 0 && base <= last) {
+                for (int k = 0; k < taps; k++) {
+                    sum += phase[k] * input[base - k];
+                }
+            } else {
+                for (int k = 0; k < taps; k++) {
+                    sum += phase[k] * input[Math.max(0, Math.min(last, base - k))];
+                }
+            }
+            output[n] = (float) sum;
+        }
+    }
+
+    /**
+     * Designs the prototype low-pass at the upsampled rate, centered at {@code halfLength * interpolation},
+     * and splits it into phases.
+     */
+    private static float[][] design(int interpolation, int decimation, int halfLength) {
+        int center = halfLength * interpolation;
+        int length = 2 * center + 1;
+        // cutoff in cycles per upsampled sample, below the lower of both Nyquist frequencies
+        double cutoff = CUTOFF * 0.5 / Math.max(interpolation, decimation);
+        double norm = besselI0(KAISER_BETA);
+
+        int taps = 2 * halfLength + 1;
+        float[][] bank = new float[interpolation][taps];
+        double[] gain = new double[interpolation];
+        for (int j = 0; j < length; j++) {
+            double x = j - center;
+            double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+            double r = x / center;
+            double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - r * r))) / norm;
+            double h = sinc * window;
+            bank[j % interpolation][j / interpolation] = (float) h;
+            gain[j % interpolation] += h;
+        }
+        // unit DC gain for every phase
+        for (int p = 0; p < interpolation; p++) {
+            for (int k = 0; k < taps; k++) {
+                bank[p][k] = (float) (bank[p][k] / gain[p]);
+            }
+        }
+        return bank;
+    }
+
+    /**
+     * Modified Bessel function of the first kind, order zero, by its power series.
+     */
+    private static double besselI0(double x) {
+        double sum = 1;
+        double term = 1;
+        double quarter = x * x / 4;
+        for (int k = 1; k < 50; k++) {
+            term *= quarter / ((double) k * k);
+            sum += term;
+            if (term < 1e-12 * sum) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,165 @@
+package com.zeto.edf_processor.dsp;
+
+import com.zeto.edf_processor.model.RecordingQuality.ChannelQuality;
+
+import java.util.Locale;
+
+/**
+ * Streaming signal quality measures of one channel, fed record by record.
+ *
+ * <p>Per record the meter checks for a flatline (no change beyond one digital step),
+ * for an artifact (peak-to-peak amplitude above a threshold) and measures the mains
+ * power at 50 and 60 Hz with the Goertzel algorithm; per sample it counts values at
+ * the digital limits. Only counters are kept, a record is never copied.</p>
+ *
+ * <p>Instances are not thread-safe, every channel needs its own meter.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class SignalQualityMeter {
+
+    private static final double[] LINE_FREQUENCIES = {50, 60};
+
+    private final String label;
+    private final double sampleRate;
+    private final double scale;
+    private final double offset;
+    private final int digitalMin;
+    private final int digitalMax;
+
+    /** Artifact threshold in the unit of the channel, {@code NaN} if the unit is unknown */
+    private final double artifactThreshold;
+
+    private long records;
+    private long samples;
+    private long flatRecords;
+    private long artifactRecords;
+    private long clippedSamples;
+    private final double[] linePower = new double[LINE_FREQUENCIES.length];
+    private double totalPower;
+
+    /**
+     * @param label               channel label
+     * @param unit                physical dimension, amplitudes are compared in microvolts
+     * @param sampleRate          sample rate in Hz
+     * @param scale               physical units per digital step
+     * @param offset              physical value of digital zero
+     * @param digitalMin          digital minimum of the channel
+     * @param digitalMax          digital maximum of the channel
+     * @param artifactMicrovolts  peak-to-peak amplitude of a record marking it as an artifact
+     */
+    public SignalQualityMeter(String label, String unit, double sampleRate, double scale, double offset,
+                              int digitalMin, int digitalMax, double artifactMicrovolts) {
+        this.label = label;
+        this.sampleRate = sampleRate;
+        this.scale = scale;
+        this.offset = offset;
+        this.digitalMin = Math.min(digitalMin, digitalMax);
+        this.digitalMax = Math.max(digitalMin, digitalMax);
+        this.artifactThreshold = artifactMicrovolts / microvoltsPerUnit(unit);
+    }
+
+    /**
+     * Adds one record of physical samples.
+     *
+     * @param record samples of the channel
+     * @param from   first sample of the record (inclusive)
+     * @param to     last sample of the record (exclusive)
+     */
+    public void accept(float[] record, int from, int to) {
+        int n = to - from;
+        if (n <= 0) {
+            return;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            float x = record[i];
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+            sum += x;
+            long digital = Math.round((x - offset) / scale);
+            if (digital <= digitalMin || digital >= digitalMax) {
+                clippedSamples++;
+            }
+        }
+        records++;
+        samples += n;
+        double peakToPeak = max - min;
+        if (peakToPeak <= Math.abs(scale)) {
+            flatRecords++;
+        }
+        if (peakToPeak > artifactThreshold) {
+            artifactRecords++;
+        }
+
+        double mean = sum / n;
+        double variance = 0;
+        for (int i = from; i < to; i++) {
+            double d = record[i] - mean;
+            variance += d * d;
+        }
+        totalPower += variance / n;
+        for (int f = 0; f < LINE_FREQUENCIES.length; f++) {
+            if (LINE_FREQUENCIES[f] < sampleRate / 2) {
+                linePower[f] += goertzelPower(record, from, to, mean, LINE_FREQUENCIES[f]);
+            }
+        }
+    }
+
+    /**
+     * Summarizes the records seen so far.
+     */
+    public ChannelQuality result() {
+        if (records == 0) {
+            return new ChannelQuality(label, 0, 0, null, null, 0);
+        }
+        double flatline = (double) flatRecords / records;
+        double clipping = (double) clippedSamples / samples;
+        Double lineNoise = null;
+        if (LINE_FREQUENCIES[0] < sampleRate / 2) {
+            double line = Math.max(linePower[0], linePower[1]);
+            lineNoise = totalPower > 0 ? Math.min(1, line / totalPower) : 0.0;
+        }
+        Double artifacts = Double.isNaN(artifactThreshold) ? null : (double) artifactRecords / records;
+
+        double score = (1 - flatline) * (1 - clipping)
+                * (1 - (lineNoise != null ? lineNoise : 0))
+                * (1 - (artifacts != null ? artifacts : 0));
+        return new ChannelQuality(label, flatline, clipping, lineNoise, artifacts, 100 * score);
+    }
+
+    /**
+     * Power of the sinusoid at {@code frequency} in a record, by the Goertzel recurrence.
+     */
+    private double goertzelPower(float[] record, int from, int to, double mean, double frequency) {
+        int n = to - from;
+        double coefficient = 2 * Math.cos(2 * Math.PI * frequency / sampleRate);
+        double s1 = 0;
+        double s2 = 0;
+        for (int i = from; i < to; i++) {
+            double s = record[i] - mean + coefficient * s1 - s2;
+            s2 = s1;
+            s1 = s;
+        }
+        double magnitude2 = s1 * s1 + s2 * s2 - coefficient * s1 * s2;
+        // a sine of amplitude A gives |X| = A*n/2 and carries A^2/2 of power
+        return 2 * magnitude2 / ((double) n * n);
+    }
+
+    /**
+     * Microvolts per unit of a physical dimension, {@code NaN} for units that are not voltages.
+     */
+    static double microvoltsPerUnit(String unit) {
+        String normalized = unit == null ? "" : unit.trim().toLowerCase(Locale.ROOT);
+        return switch (normalized) {
+            case "uv", "µv", "μv" -> 1;
+            case "mv" -> 1e3;
+            case "v" -> 1e6;
+            case "nv" -> 1e-3;
+            default -> Double.NaN;
+        };
+    }
+}
@@ -0,0 +1,215 @@
+package com.zeto.edf_processor.dsp;
+
+import java.util.Locale;
+
+/**
+ * Threshold detector for spikes and other transient events.
+ *
+ * <p>A detection is an excursion of the signal away from its mean over the analysed
+ * range: a run of samples above the threshold is reported once, at its peak. After a
+ * detection the detector stays silent for a refractory period.</p>
+ *
+ * <ul>
+ *   <li>{@link Mode#AMPLITUDE} - the threshold is a deviation in the unit of the channel</li>
+ *   <li>{@link Mode#ZSCORE} - the threshold is a multiple of the standard deviation of the range</li>
+ * </ul>
+ *
+ * <p>A range too long to hold in memory is analysed in consecutive chunks: a first pass
+ * accumulates the {@link Statistics} of the whole range, a second pass feeds the chunks in
+ * order to one {@link Scan}, which carries the refractory period and an excursion still
+ * running at the end of a chunk into the next one. The detections are the same as those
+ * of {@link #detect(float[], int, int, Sink)} over the whole range.</p>
+ *
+ * <p>Instances are immutable and thread-safe; a {@link Scan} is not.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class ThresholdDetector {
+
+    public enum Mode {
+        AMPLITUDE, ZSCORE;
+
+        /**
+         * Parses a mode name, case-insensitive.
+         *
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        public static Mode parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown detector mode '%s', expected amplitude or zscore".formatted(name));
+            }
+        }
+    }
+
+    /**
+     * Receives the detections of a range.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * @param index index of the peak sample in the analysed array; for a {@link Scan}, in the array of the
+         *              last chunk, negative for a peak in an earlier chunk
+         * @param value sample value at the peak
+         */
+        void detected(int index, float value);
+    }
+
+    /**
+     * Mean and standard deviation of a signal, accumulated over consecutive chunks with Welford's method.
+     */
+    public static final class Statistics {
+
+        private long count;
+        private double mean;
+        private double squares;
+
+        /**
+         * Adds {@code samples[from, to)}.
+         */
+        public void add(float[] samples, int from, int to) {
+            for (int i = from; i < to; i++) {
+                count++;
+                double delta = samples[i] - mean;
+                mean += delta / count;
+                squares += delta * (samples[i] - mean);
+            }
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public double mean() {
+            return mean;
+        }
+
+        /** Population standard deviation, 0 before any sample */
+        public double deviation() {
+            return count > 0 ? Math.sqrt(squares / count) : 0;
+        }
+    }
+
+    /**
+     * Detection state of one signal analysed in consecutive chunks, see {@link #scan(Statistics)}.
+     */
+    public final class Scan {
+
+        private final double mean;
+        private final double limit;
+
+        /** Samples accepted so far, the position of the next chunk in the signal */
+        private long position;
+
+        /** Position of the first sample of the last chunk, minus the array index it was passed at */
+        private long chunkBase;
+
+        /** Last position of the refractory period after the previous detection */
+        private long silentUntil = -1;
+
+        /** Position and value of the peak of the running excursion, -1 if there is none */
+        private long peak = -1;
+        private float peakValue;
+
+        private Scan(Statistics statistics) {
+            this.mean = statistics.mean();
+            double deviation = statistics.deviation();
+            // a flat signal has no excursion in standard deviations
+            this.limit = mode == Mode.ZSCORE
+                    ? deviation > 0 ? threshold * deviation : Double.POSITIVE_INFINITY
+                    : threshold;
+        }
+
+        /**
+         * Detects events in {@code samples[from, to)}, the chunk following the previously accepted one.
+         * An excursion running at the end of the chunk is reported by a later chunk or {@link #finish(Sink)}.
+         *
+         * @return number of detections
+         */
+        public int accept(float[] samples, int from, int to, Sink sink) {
+            chunkBase = position - from;
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                long index = chunkBase + i;
+                double deviation = Math.abs(samples[i] - mean);
+                if (peak >= 0) {
+                    // follow the excursion to its peak
+                    if (deviation > limit) {
+                        if (deviation > Math.abs(peakValue - mean)) {
+                            peak = index;
+                            peakValue = samples[i];
+                        }
+                        continue;
+                    }
+                    count += report(sink);
+                } else if (index > silentUntil && deviation > limit) {
+                    peak = index;
+                    peakValue = samples[i];
+                }
+            }
+            position += Math.max(0, to - from);
+            return count;
+        }
+
+        /**
+         * Reports an excursion still running at the end of the signal.
+         *
+         * @return number of detections
+         */
+        public int finish(Sink sink) {
+            return peak >= 0 ? report(sink) : 0;
+        }
+
+        private int report(Sink sink) {
+            sink.detected((int) (peak - chunkBase), peakValue);
+            silentUntil = peak + refractorySamples;
+            peak = -1;
+            return 1;
+        }
+    }
+
+    private final Mode mode;
+    private final double threshold;
+    private final int refractorySamples;
+
+    /**
+     * @param mode              how the threshold is interpreted
+     * @param threshold         deviation from the mean that marks an event, positive
+     * @param refractorySamples samples after a peak in which no further event is reported
+     */
+    public ThresholdDetector(Mode mode, double threshold, int refractorySamples) {
+        if (!(threshold > 0)) {
+            throw new IllegalArgumentException("Detection threshold must be positive");
+        }
+        this.mode = mode;
+        this.threshold = threshold;
+        this.refractorySamples = Math.max(0, refractorySamples);
+    }
+
+    /**
+     * Starts the detection over a signal analysed in chunks.
+     *
+     * @param statistics statistics of the whole signal, from a first pass over the chunks
+     * @return the state to feed the chunks to, in order
+     */
+    public Scan scan(Statistics statistics) {
+        return new Scan(statistics);
+    }
+
+    /**
+     * Detects events in {@code samples[from, to)}.
+     *
+     * @return number of detections
+     */
+    public int detect(float[] samples, int from, int to, Sink sink) {
+        if (to - from <= 0) {
+            return 0;
+        }
+        Statistics statistics = new Statistics();
+        statistics.add(samples, from, to);
+        Scan scan = scan(statistics);
+        return scan.accept(samples, from, to, sink) + scan.finish(sink);
+    }
+}
@@ -0,0 +1,150 @@
+package com.zeto.edf_processor.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Welch power spectral density estimator with a Hann window and 50 % overlap.
+ *
+ * <p>Every segment is mean-detrended, windowed and transformed; the one-sided
+ * periodograms are averaged and scaled to a density ({@code unit²/Hz}). The
+ * estimator is immutable and thread-safe; all scratch memory is supplied by a
+ * per-thread {@link Workspace}, so estimating allocates nothing.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class WelchPsd {
+
+    private final Fft fft;
+    private final double sampleRate;
+    private final double[] window;
+    /** Density scale of a periodogram: 1 / (fs * sum(w²)) */
+    private final double scale;
+
+    /**
+     * @param segmentSize samples per segment, a power of two
+     * @param sampleRate  sample rate in Hz
+     */
+    public WelchPsd(int segmentSize, double sampleRate) {
+        this.fft = new Fft(segmentSize);
+        this.sampleRate = sampleRate;
+        this.window = new double[segmentSize];
+        double sumOfSquares = 0;
+        for (int i = 0; i < segmentSize; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / segmentSize);
+            sumOfSquares += window[i] * window[i];
+        }
+        this.scale = 1.0 / (sampleRate * sumOfSquares);
+    }
+
+    public int segmentSize() {
+        return fft.size();
+    }
+
+    /**
+     * Approximate heap size in bytes: the window and the FFT plan.
+     */
+    public long sizeInBytes() {
+        return 40L + 16L + (long) window.length * Double.BYTES + fft.sizeInBytes();
+    }
+
+    /**
+     * Width of a frequency bin in Hz.
+     */
+    public double binWidth() {
+        return sampleRate / fft.size();
+    }
+
+    /**
+     * Creates the scratch buffers of one thread.
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(fft.size());
+    }
+
+    /**
+     * Estimates the PSD of {@code samples[from, to)} into {@link Workspace#psd()}.
+     *
+     * <p>Signals shorter than one segment are zero padded.</p>
+     *
+     * @param samples   signal
+     * @param from      first sample (inclusive)
+     * @param to        last sample (exclusive)
+     * @param workspace scratch buffers of the calling thread
+     */
+    public void estimate(float[] samples, int from, int to, Workspace workspace) {
+        int n = fft.size();
+        int step = n / 2;
+        double[] re = workspace.re;
+        double[] im = workspace.im;
+        double[] psd = workspace.psd;
+        Arrays.fill(psd, 0);
+
+        int segments = Math.max(1, (to - from - n) / step + 1);
+        for (int segment = 0; segment < segments; segment++) {
+            int start = from + segment * step;
+            int length = Math.min(n, to - start);
+            double mean = 0;
+            for (int i = 0; i < length; i++) {
+                mean += samples[start + i];
+            }
+            mean /= length;
+            for (int i = 0; i < n; i++) {
+                re[i] = i < length ? (samples[start + i] - mean) * window[i] : 0;
+                im[i] = 0;
+            }
+            fft.transform(re, im);
+            for (int k = 0; k <= n / 2; k++) {
+                psd[k] += re[k] * re[k] + im[k] * im[k];
+            }
+        }
+
+        for (int k = 0; k <= n / 2; k++) {
+            // one-sided: every bin but DC and Nyquist carries the power of its mirror bin
+            double oneSided = k == 0 || k == n / 2 ? 1 : 2;
+            psd[k] *= oneSided * scale / segments;
+        }
+    }
+
+    /**
+     * Integrates the last estimated PSD over {@code [low, high)} Hz.
+     *
+     * @param workspace workspace holding the PSD
+     * @param low       lower band edge in Hz (inclusive)
+     * @param high      upper band edge in Hz (exclusive)
+     * @return band power in {@code unit²}
+     */
+    public double bandPower(Workspace workspace, double low, double high) {
+        double binWidth = binWidth();
+        double power = 0;
+        for (int k = 0; k <= fft.size() / 2; k++) {
+            double frequency = k * binWidth;
+            if (frequency >= low && frequency < high) {
+                power += workspace.psd[k];
+            }
+        }
+        return power * binWidth;
+    }
+
+    /**
+     * Scratch buffers of one thread for one segment size.
+     */
+    public static final class Workspace {
+        private final double[] re;
+        private final double[] im;
+        private final double[] psd;
+
+        private Workspace(int size) {
+            this.re = new double[size];
+            this.im = new double[size];
+            this.psd = new double[size / 2 + 1];
+        }
+
+        /**
+         * One-sided PSD of the last estimate, bin {@code k} at {@code k * binWidth} Hz.
+         */
+        public double[] psd() {
+            return psd;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.zeto.edf_processor.dto;
+
+import com.zeto.edf_processor.model.AmplitudeStatistics;
+import org.mapstruct.Mapper;
+
+/**
+ * MapStruct mapper for converting {@link AmplitudeStatistics} to {@link AmplitudeStatisticsDto}s.
+ *
+ * <p>Histogram counts are handed over without copying.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Mapper(componentModel = "spring")
+public interface AmplitudeMapper {
+
+    AmplitudeStatisticsDto toDto(AmplitudeStatistics statistics);
+
+    default long[] counts(long[] counts) {
+        return counts;
+    }
+}
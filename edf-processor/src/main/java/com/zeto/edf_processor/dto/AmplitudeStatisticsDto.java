@@ -0,0 +1,44 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the amplitude percentiles of the channels of a recording or the archive.
+ *
+ * <p><b>JSON serialization example:</b></p>
+ * <pre>
+ * {
+ *   "fileName": "patient001.edf",
+ *   "files": 1,
+ *   "filesPending": 0,
+ *   "channels": [
+ *     {"label": "EEG Fp1", "unit": "uV", "samples": 42000,
+ *      "percentiles": {"p1": -182.4, "p50": -1.2, "p99": 176.9}, "histogram": null}
+ *   ]
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see ChannelAmplitudeDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AmplitudeStatisticsDto {
+    /** Name of the EDF file, null for archive-wide statistics */
+    private String fileName;
+
+    /** Number of recordings merged */
+    private int files;
+
+    /** Valid recordings whose histograms are not computed yet */
+    private int filesPending;
+
+    /** Statistics per channel */
+    private List<ChannelAmplitudeDto> channels;
+}
@@ -0,0 +1,33 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Data Transfer Object (DTO) for the amplitude percentiles of one channel, in its physical unit.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChannelAmplitudeDto {
+    /** Channel label */
+    private String label;
+
+    /** Physical dimension */
+    private String unit;
+
+    /** Number of samples */
+    private long samples;
+
+    /** Value per percentile, keyed p1, p50, p99, ... */
+    private Map<String, Double> percentiles;
+
+    /** Histogram, only if requested */
+    private HistogramDto histogram;
+}
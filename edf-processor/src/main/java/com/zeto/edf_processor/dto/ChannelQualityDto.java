@@ -0,0 +1,38 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for the signal quality of one channel.
+ *
+ * <p>Fractions are between 0 and 1, {@code null} if they could not be determined
+ * for the channel.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see QualityDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChannelQualityDto {
+    /** Channel label */
+    private String label;
+
+    /** Share of records without any signal change */
+    private Double flatlineFraction;
+
+    /** Share of samples at the digital minimum or maximum */
+    private Double clippingFraction;
+
+    /** Share of the signal power at the 50 or 60 Hz mains frequency */
+    private Double lineNoiseFraction;
+
+    /** Share of records with a peak-to-peak amplitude above the artifact threshold */
+    private Double artifactFraction;
+
+    /** Channel quality in percent */
+    private Double score;
+}
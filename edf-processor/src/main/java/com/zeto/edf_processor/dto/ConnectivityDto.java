@@ -0,0 +1,52 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the connectivity matrix of the channels of an EDF file.
+ *
+ * <p><b>JSON serialization example:</b></p>
+ * <pre>
+ * {
+ *   "fileName": "patient001.edf",
+ *   "method": "COHERENCE",
+ *   "fromSeconds": 0.0,
+ *   "toSeconds": 30.0,
+ *   "band": {"name": "alpha", "low": 8.0, "high": 13.0},
+ *   "labels": ["EEG Fp1", "EEG Fp2", "EEG O1"],
+ *   "matrix": [[1.0, 0.82, 0.12], [0.82, 1.0, 0.10], [0.12, 0.10, 1.0]]
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConnectivityDto {
+    /** Name of the EDF file */
+    private String fileName;
+
+    /** CORRELATION or COHERENCE */
+    private String method;
+
+    /** Start of the window in seconds */
+    private double fromSeconds;
+
+    /** End of the window in seconds */
+    private double toSeconds;
+
+    /** Band the coherence is averaged over, null for correlation */
+    private FrequencyBandDto band;
+
+    /** Channel labels in the order of the rows and columns */
+    private List<String> labels;
+
+    /** Symmetric matrix [row][column] */
+    private double[][] matrix;
+}
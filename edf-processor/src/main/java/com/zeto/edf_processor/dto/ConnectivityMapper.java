@@ -0,0 +1,22 @@
+package com.zeto.edf_processor.dto;
+
+import com.zeto.edf_processor.model.ConnectivityMatrix;
+import org.mapstruct.Mapper;
+
+/**
+ * MapStruct mapper for converting {@link ConnectivityMatrix}es to {@link ConnectivityDto}s.
+ *
+ * <p>The matrix is handed over without copying.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Mapper(componentModel = "spring")
+public interface ConnectivityMapper {
+
+    ConnectivityDto toDto(ConnectivityMatrix connectivity);
+
+    default double[][] matrix(double[][] matrix) {
+        return matrix;
+    }
+}
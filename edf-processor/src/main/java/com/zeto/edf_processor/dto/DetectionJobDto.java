@@ -0,0 +1,73 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object (DTO) for the state and progress of a batch detection job.
+ *
+ * <p><b>JSON serialization example:</b></p>
+ * <pre>
+ * {
+ *   "id": "3f6c0a52-...",
+ *   "state": "RUNNING",
+ *   "error": null,
+ *   "createdAt": "2025-11-20T09:15:00Z",
+ *   "filesTotal": 120,
+ *   "filesDone": 37,
+ *   "filesSkipped": 0,
+ *   "samplesTotal": 5529600000,
+ *   "samplesProcessed": 1706496000,
+ *   "progress": 0.3086,
+ *   "samplesPerSecond": 48213000.0,
+ *   "detections": 18230
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see DetectionJobRequest
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DetectionJobDto {
+    /** Job identifier */
+    private String id;
+
+    /** QUEUED, RUNNING, COMPLETED, FAILED or CANCELLED */
+    private String state;
+
+    /** Reason of a failed job */
+    private String error;
+
+    /** Creation time */
+    private Instant createdAt;
+
+    /** Number of files of the job */
+    private Integer filesTotal;
+
+    /** Number of files scanned completely */
+    private Integer filesDone;
+
+    /** Number of files skipped because they changed or lost every requested channel */
+    private Integer filesSkipped;
+
+    /** Samples to scan, known once the job started */
+    private Long samplesTotal;
+
+    /** Samples scanned so far, including earlier runs of a resumed job */
+    private Long samplesProcessed;
+
+    /** Share of the samples scanned, between 0 and 1 */
+    private Double progress;
+
+    /** Throughput since the job was (re)started */
+    private Double samplesPerSecond;
+
+    /** Number of detections so far */
+    private Long detections;
+}
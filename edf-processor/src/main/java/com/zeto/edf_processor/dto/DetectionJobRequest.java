@@ -0,0 +1,45 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request body starting a batch detection job.
+ *
+ * <p><b>JSON example:</b></p>
+ * <pre>
+ * {
+ *   "mode": "zscore",
+ *   "threshold": 6,
+ *   "refractorySeconds": 0.2,
+ *   "channels": ["EEG Fp1", "EEG Fp2"],
+ *   "fileNames": []
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see DetectionJobDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DetectionJobRequest {
+    /** {@code amplitude} (threshold in channel units) or {@code zscore} (threshold in standard deviations) */
+    private String mode = "zscore";
+
+    /** Deviation from the mean marking an event */
+    private Double threshold;
+
+    /** Minimum distance of two events on a channel, in seconds */
+    private double refractorySeconds = 0.2;
+
+    /** Channel labels to scan, empty for every signal channel */
+    private List<String> channels = List.of();
+
+    /** Files to scan, empty for every valid loaded file */
+    private List<String> fileNames = List.of();
+}
@@ -25,8 +25,11 @@ import java.util.List;
  * <pre>
  * {
  *   "fileName": "patient001.edf",
+ *   "fileId": "patient001.edf",
  *   "validEdf": true,
  *   "errorMessage": null,
+ *   "errorCode": null,
+ *   "errorOffset": null,
  *   "recordingID": "Startdate 03-MAR-2022 ZHI27402 Mrs._John_Doe Zeto_WR-08",
  *   "recordingDate": "2024-01-15T10:30:00",
  *   "patientName": "John Doe",
@@ -36,7 +39,12 @@ import java.util.List;
  *     {"name": "EEG Fp2", "type": "AgCl"}
  *   ],
  *   "recordingLength": 3600.0,
- *   "numberOfAnnotations": 5
+ *   "numberOfAnnotations": 5,
+ *   "sourceRoot": "/mnt/archive1",
+ *   "quality": {"score": 91.4, "channels": [...]},
+ *   "previewUrl": "/api/edfs/patient001.edf/preview?v=70d10-192f1a3b6e8",
+ *   "contentHash": "9f2c4e01b7d3a655",
+ *   "aliases": ["patient001-copy.edf"]
  * }
  * </pre>
  *
@@ -44,15 +52,20 @@ import java.util.List;
  * <pre>
  * {
  *   "fileName": "corrupted.edf",
+ *   "fileId": "2024:corrupted.edf",
  *   "validEdf": false,
- *   "errorMessage": "Invalid EDF file",
+ *   "errorMessage": "File has 427562 bytes, header and records need 462096",
+ *   "errorCode": "FILE_SIZE_MISMATCH",
+ *   "errorOffset": 427562,
  *   "recordingID": null,
  *   "recordingDate": null,
  *   "patientName": null,
  *   "numberOfChannels": null,
  *   "channels": [],
  *   "recordingLength": null,
- *   "numberOfAnnotations": null
+ *   "numberOfAnnotations": null,
+ *   "sourceRoot": "/mnt/archive1",
+ *   "quality": null
  * }
  * </pre>
  *
@@ -71,6 +84,14 @@ public class EdfDto {
      */
     private String fileName;
 
+    /**
+     * Identifier of the file in the URLs of the API, unique across the source roots.
+     * <p>The file name for files directly in the first source root, otherwise the path relative to the
+     * root with {@code :} between the directories, prefixed with {@code @<n>:} for the n-th root,
+     * e.g. {@code "2024:patient001.edf"} or {@code "@2:patient001.edf"}.</p>
+     */
+    private String fileId;
+
     /**
      * Indicates whether the EDF file was successfully parsed.
      * <p>{@code true} if file is valid and parsed successfully, {@code false} otherwise.</p>
@@ -84,6 +105,20 @@ public class EdfDto {
      */
     private String errorMessage;
 
+    /**
+     * Machine-readable reason of the invalidity, e.g. {@code FILE_SIZE_MISMATCH}.
+     * <p>{@code null} for valid files.</p>
+     *
+     * @see com.zeto.edf_processor.model.EdfErrorCode
+     */
+    private String errorCode;
+
+    /**
+     * Byte offset of the offending header field, or where the data ends for truncated files.
+     * <p>{@code null} for valid files or if the position is unknown.</p>
+     */
+    private Long errorOffset;
+
     /**
      * Unique identifier for the recording from the EDF header.
      * <p>May be {@code null} if not present in the file or if file is invalid.</p>
@@ -152,4 +187,38 @@ public class EdfDto {
      */
     private Integer numberOfAnnotations;
 
+    /**
+     * Absolute path of the configured source root the file was found under.
+     * <p>Present for both valid and invalid files.</p>
+     */
+    private String sourceRoot;
+
+    /**
+     * Signal quality summary, computed in the background after the file is loaded.
+     * <p>{@code null} for invalid files and while the analysis is still running.</p>
+     *
+     * @see QualityDto
+     */
+    private QualityDto quality;
+
+    /**
+     * Versioned URL of the waveform preview, cached by clients for a long time.
+     * <p>{@code null} for invalid files and while the analysis is still running.</p>
+     *
+     * @see com.zeto.edf_processor.dsp.WaveformPreview
+     */
+    private String previewUrl;
+
+    /**
+     * Content hash of the file, equal for copies of the same recording.
+     * <p>{@code null} if deduplication is disabled.</p>
+     */
+    private String contentHash;
+
+    /**
+     * Identifiers of other files with the same content, listed once under this file.
+     * <p>Same form as {@link #fileId}, so an alias can be used wherever a file name is accepted.</p>
+     */
+    private List<String> aliases;
+
 }
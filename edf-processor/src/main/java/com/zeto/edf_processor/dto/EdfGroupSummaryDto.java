@@ -0,0 +1,26 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for the valid files of one group of the archive summary.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see EdfSummaryDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EdfGroupSummaryDto {
+    /** Value the files of the group share, e.g. a patient name or {@code 2024-01} */
+    private String key;
+
+    /** Number of files */
+    private int files;
+
+    /** Recording time of the files in hours */
+    private double recordingHours;
+}
@@ -1,11 +1,15 @@
 package com.zeto.edf_processor.dto;
 
 import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.EdfFileProperties;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 import org.mapstruct.ReportingPolicy;
+import org.springframework.web.util.UriUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -63,17 +67,49 @@ public interface EdfMapper {
      * @return DTO representation of the EDF file data
      */
     @Mapping(target = "fileName", source = "edfFileProperties.fileName")
+    @Mapping(target = "fileId", source = "edfFileProperties.fileId")
     @Mapping(target = "validEdf", source = "edfFileProperties.validEdf")
     @Mapping(target = "errorMessage", source = "edfFileProperties.errorMessage")
+    @Mapping(target = "errorCode", source = "edfFileProperties.errorCode")
+    @Mapping(target = "errorOffset", source = "edfFileProperties.errorOffset")
+    @Mapping(target = "sourceRoot", source = "edfFileProperties.sourceRoot")
     @Mapping(target = "recordingDate", expression = "java(edfData.getRecordingDateTime())")
     @Mapping(target = "patientName", expression = "java(edfData.getPatientName())")
     @Mapping(target = "channels", source = ".", qualifiedByName = "mapChannels")
     @Mapping(target = "numberOfChannels", expression = "java(edfData.getNumberOfChannels())")
     //@Mapping(target = "numberOfChannels", source = ".", qualifiedByName = "channelCount")
     @Mapping(target = "recordingLength", expression = "java(edfData.getRecordingLengthInSeconds())")
+    @Mapping(target = "previewUrl", expression = "java(previewUrl(edfData))")
+    @Mapping(target = "aliases", expression = "java(aliasNames(edfData))")
     EdfDto toDto(EdfData edfData);
 
     List<EdfDto> toDto(List<EdfData> edfDataList);
 
+    /**
+     * Versioned URL of the waveform preview, {@code null} until the preview is computed.
+     */
+    default String previewUrl(EdfData edfData) {
+        if (edfData.getPreview() == null) {
+            return null;
+        }
+        return "/api/edfs/%s/preview?v=%s".formatted(
+                UriUtils.encodePathSegment(edfData.getEdfFileProperties().getFileId(), StandardCharsets.UTF_8),
+                edfData.getEdfFileProperties().getFingerprint().version());
+    }
+
+    /**
+     * Identifiers of the aliases of a file, as accepted by the endpoints taking a file name.
+     */
+    default List<String> aliasNames(EdfData edfData) {
+        return edfData.getAliases().stream().map(EdfFileProperties::getFileId).toList();
+    }
+
+    /**
+     * Maps file system paths to their string form.
+     */
+    default String map(Path path) {
+        return path != null ? path.toString() : null;
+    }
+
     }
 
@@ -0,0 +1,45 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for one page of the EDF file list.
+ *
+ * <p><b>JSON serialization example:</b></p>
+ * <pre>
+ * {
+ *   "offset": 100,
+ *   "limit": 100,
+ *   "total": 104213,
+ *   "scanComplete": true,
+ *   "items": [ { "fileName": "patient101.edf", "validEdf": true, ... } ]
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see EdfDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EdfPageDto {
+    /** Index of the first item in the whole list */
+    private int offset;
+
+    /** Requested page size */
+    private int limit;
+
+    /** Number of files in the whole list */
+    private int total;
+
+    /** The list is the result of a finished scan, otherwise it still grows while files are parsed */
+    private boolean scanComplete;
+
+    /** Files of the page, fewer than limit on the last page */
+    private List<EdfDto> items;
+}
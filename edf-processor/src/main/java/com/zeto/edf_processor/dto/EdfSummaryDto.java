@@ -0,0 +1,76 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the counts of the loaded EDF files and the archive-wide totals.
+ *
+ * <p>While the first scan runs, the counts grow with the parsed files; {@code scanComplete}
+ * tells when they are final. If the scan failed, {@code scanFailure} tells why and the counts
+ * stay those of the files listed before. {@code scanRejected} counts the new files the scan did not
+ * load because the heap was above the rejection mark; they are missing from the counts until a
+ * later scan loads them.</p>
+ *
+ * <p><b>JSON serialization example:</b></p>
+ * <pre>
+ * {
+ *   "total": 52100, "valid": 52093, "invalid": 7, "validRatio": 0.99987,
+ *   "recordingHours": 48211.5,
+ *   "scanComplete": false, "scanDiscovered": 104213, "scanParsed": 52100, "scanRejected": 0,
+ *   "scanFailure": null,
+ *   "byPatient": [ { "key": "DO0815199", "files": 12, "recordingHours": 14.2 } ],
+ *   "byMonth": [ { "key": "2024-01", "files": 2210, "recordingHours": 2034.7 } ],
+ *   "byChannelSet": [ { "key": "C3,C4,Cz,Fp1,...", "files": 40110, "recordingHours": 37002.0 } ]
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EdfSummaryDto {
+    /** Number of loaded files */
+    private int total;
+
+    /** Number of valid files */
+    private int valid;
+
+    /** Number of invalid files */
+    private int invalid;
+
+    /** Share of the valid files, 0 without files */
+    private double validRatio;
+
+    /** Recording time of the valid files in hours */
+    private double recordingHours;
+
+    /** The counts are the result of a finished scan */
+    private boolean scanComplete;
+
+    /** Files found by the running or last scan */
+    private int scanDiscovered;
+
+    /** Files of the running or last scan parsed so far */
+    private int scanParsed;
+
+    /** New files of the running or last scan not loaded under memory pressure */
+    private int scanRejected;
+
+    /** Reason the last scan failed, {@code null} if it succeeded or is running */
+    private String scanFailure;
+
+    /** Valid files by patient code, the whole subject field if it has no EDF+ patient code */
+    private List<EdfGroupSummaryDto> byPatient;
+
+    /** Valid files by month of the recording start, {@code unknown} without a start date */
+    private List<EdfGroupSummaryDto> byMonth;
+
+    /** Valid files by their sorted channel labels */
+    private List<EdfGroupSummaryDto> byChannelSet;
+}
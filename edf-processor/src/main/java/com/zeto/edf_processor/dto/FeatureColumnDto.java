@@ -0,0 +1,25 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for the values of one feature of one channel per epoch.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FeatureColumnDto {
+    /** Channel label */
+    private String channel;
+
+    /** Feature key, e.g. alpha, variance, zeroCrossingRate, lineLength */
+    private String feature;
+
+    /** Value per epoch */
+    private float[] values;
+}
@@ -0,0 +1,22 @@
+package com.zeto.edf_processor.dto;
+
+import com.zeto.edf_processor.model.FeatureColumns;
+import org.mapstruct.Mapper;
+
+/**
+ * MapStruct mapper for converting {@link FeatureColumns} to {@link FeaturesDto}s.
+ *
+ * <p>Column values are handed over without copying.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Mapper(componentModel = "spring")
+public interface FeatureMapper {
+
+    FeaturesDto toDto(FeatureColumns columns);
+
+    default float[] values(float[] values) {
+        return values;
+    }
+}
@@ -0,0 +1,52 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for columns of the epoch feature table of an EDF file.
+ *
+ * <p><b>JSON serialization example:</b></p>
+ * <pre>
+ * {
+ *   "fileName": "patient001.edf",
+ *   "epochSeconds": 30.0,
+ *   "epochCount": 960,
+ *   "fromEpoch": 0,
+ *   "toEpoch": 3,
+ *   "columns": [
+ *     {"channel": "EEG Fp1", "feature": "alpha", "values": [12.5, 14.1, 9.8]},
+ *     {"channel": "EEG Fp1", "feature": "lineLength", "values": [8125.0, 7990.2, 8410.7]}
+ *   ]
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see FeatureColumnDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FeaturesDto {
+    /** Name of the EDF file */
+    private String fileName;
+
+    /** Length of an epoch in seconds */
+    private double epochSeconds;
+
+    /** Number of complete epochs of the file */
+    private int epochCount;
+
+    /** First returned epoch (inclusive) */
+    private int fromEpoch;
+
+    /** Last returned epoch (exclusive) */
+    private int toEpoch;
+
+    /** Selected columns */
+    private List<FeatureColumnDto> columns;
+}
@@ -0,0 +1,20 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for a frequency band {@code [low, high)} in Hz.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FrequencyBandDto {
+    private String name;
+    private double low;
+    private double high;
+}
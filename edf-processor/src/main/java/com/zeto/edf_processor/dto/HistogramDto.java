@@ -0,0 +1,25 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for an amplitude histogram in physical units.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistogramDto {
+    /** Lower edge of the first bucket */
+    private double start;
+
+    /** Width of a bucket */
+    private double bucketWidth;
+
+    /** Samples per bucket */
+    private long[] counts;
+}
@@ -0,0 +1,58 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the accounted memory of the repository and the caches.
+ *
+ * <p>{@code heapUsedBytes} is compared with the marks: the accounted heap structures or, if larger,
+ * the heap still in use after the last garbage collection. Mapped regions live outside the heap.</p>
+ *
+ * <p><b>JSON serialization example:</b></p>
+ * <pre>
+ * {
+ *   "budgetBytes": 2147483648, "evictAboveBytes": 1610612736, "rejectAboveBytes": 1932735283,
+ *   "heapUsedBytes": 612368384, "accountedHeapBytes": 398458880, "mappedBytes": 52428800,
+ *   "level": "NORMAL",
+ *   "components": [
+ *     { "name": "edf-metadata", "kind": "METADATA", "entries": 52100, "bytes": 94371840, "limitBytes": 0 },
+ *     { "name": "signal-blocks", "kind": "DECODED", "entries": 5120, "bytes": 268402688, "limitBytes": 268435456 }
+ *   ]
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MemoryFootprintDto {
+    /** Budget the marks are fractions of, the maximum heap by default */
+    private long budgetBytes;
+
+    /** Heap usage above which caches are trimmed */
+    private long evictAboveBytes;
+
+    /** Heap usage above which new loads are rejected */
+    private long rejectAboveBytes;
+
+    /** Heap usage compared with the marks */
+    private long heapUsedBytes;
+
+    /** Sum of the accounted structures on the heap */
+    private long accountedHeapBytes;
+
+    /** Sum of the accounted memory-mapped regions */
+    private long mappedBytes;
+
+    /** NORMAL, EVICT or REJECT */
+    private String level;
+
+    /** Accounted structures */
+    private List<MemoryUsageDto> components;
+}
@@ -0,0 +1,19 @@
+package com.zeto.edf_processor.dto;
+
+import com.zeto.edf_processor.cache.MemoryFootprint;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import org.mapstruct.Mapper;
+
+/**
+ * MapStruct mapper for converting a {@link MemoryFootprint} to a {@link MemoryFootprintDto}.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Mapper(componentModel = "spring")
+public interface MemoryMapper {
+
+    MemoryFootprintDto toDto(MemoryFootprint footprint);
+
+    MemoryUsageDto toDto(MemoryUsage usage);
+}
@@ -0,0 +1,32 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for the accounted memory of one cached structure.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see MemoryFootprintDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MemoryUsageDto {
+    /** Name of the structure, e.g. {@code edf-metadata} or {@code signal-blocks} */
+    private String name;
+
+    /** METADATA, INDEX, DECODED or MAPPED */
+    private String kind;
+
+    /** Number of entries */
+    private long entries;
+
+    /** Estimated size in bytes */
+    private long bytes;
+
+    /** Byte budget of the structure, 0 if it is only bounded by the archive */
+    private long limitBytes;
+}
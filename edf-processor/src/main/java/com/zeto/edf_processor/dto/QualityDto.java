@@ -0,0 +1,37 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the signal quality summary of a recording.
+ *
+ * <p><b>JSON serialization example:</b></p>
+ * <pre>
+ * {
+ *   "score": 91.4,
+ *   "channels": [
+ *     {"label": "EEG Fp1", "flatlineFraction": 0.0, "clippingFraction": 0.001,
+ *      "lineNoiseFraction": 0.02, "artifactFraction": 0.05, "score": 92.1}
+ *   ]
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see EdfDto
+ * @see ChannelQualityDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QualityDto {
+    /** Overall quality in percent, the mean of the channel scores */
+    private Double score;
+
+    /** Quality of each signal channel */
+    private List<ChannelQualityDto> channels;
+}
@@ -0,0 +1,39 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) carrying the samples of one channel of a signal window.
+ *
+ * <p>Samples are physical values. {@code scale} and {@code offset} describe the
+ * calibration of the source channel ({@code physical = digital * scale + offset}),
+ * which allows compact 16-bit encodings of the samples.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see SignalDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SignalChannelDto {
+    /** Label of the channel, e.g. "EEG Fp1" */
+    private String label;
+
+    /** Physical dimension of the samples, e.g. "uV" */
+    private String unit;
+
+    /** Sample rate in Hz */
+    private double sampleRate;
+
+    /** Physical units per digital step */
+    private double scale;
+
+    /** Physical value of digital zero */
+    private double offset;
+
+    /** Physical sample values */
+    private float[] samples;
+}
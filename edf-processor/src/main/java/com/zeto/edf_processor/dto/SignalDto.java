@@ -0,0 +1,50 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for a window of decoded EDF data records.
+ *
+ * <p>Besides JSON, CBOR and Smile, the window can be serialized in the packed binary
+ * formats {@code application/vnd.zeto.signal.f32} and {@code application/vnd.zeto.signal.i16}.</p>
+ *
+ * <p><b>JSON serialization example:</b></p>
+ * <pre>
+ * {
+ *   "fileName": "patient001.edf",
+ *   "fromRecord": 0,
+ *   "toRecord": 10,
+ *   "startSeconds": 0.0,
+ *   "channels": [
+ *     {"label": "EEG Fp1", "unit": "uV", "sampleRate": 500.0, "scale": 0.03, "offset": 0.0, "samples": [1.5, 2.1, ...]}
+ *   ]
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see SignalChannelDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SignalDto {
+    /** Name of the EDF file */
+    private String fileName;
+
+    /** First data record of the window (inclusive) */
+    private int fromRecord;
+
+    /** Last data record of the window (exclusive) */
+    private int toRecord;
+
+    /** Offset of the first sample from the start of the recording, in seconds */
+    private double startSeconds;
+
+    /** Decoded channels in the requested order */
+    private List<SignalChannelDto> channels;
+}
@@ -0,0 +1,24 @@
+package com.zeto.edf_processor.dto;
+
+import com.zeto.edf_processor.model.SignalWindow;
+import org.mapstruct.Mapper;
+
+/**
+ * MapStruct mapper for converting decoded {@link SignalWindow}s to {@link SignalDto}s.
+ *
+ * <p>Sample arrays are handed over without copying.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see SignalWindow
+ * @see SignalDto
+ */
+@Mapper(componentModel = "spring")
+public interface SignalMapper {
+
+    SignalDto toDto(SignalWindow signalWindow);
+
+    default float[] samples(float[] samples) {
+        return samples;
+    }
+}
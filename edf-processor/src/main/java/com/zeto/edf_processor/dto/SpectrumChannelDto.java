@@ -0,0 +1,26 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for the band powers of one channel.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see SpectrumDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SpectrumChannelDto {
+    /** Channel label */
+    private String label;
+
+    /** Physical dimension of the samples, the band powers are in its square */
+    private String unit;
+
+    /** Band power indexed by {@code [epoch][band]} */
+    private double[][] bandPower;
+}
@@ -0,0 +1,47 @@
+package com.zeto.edf_processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the band powers of the epochs of an EDF file.
+ *
+ * <p><b>JSON serialization example:</b></p>
+ * <pre>
+ * {
+ *   "fileName": "patient001.edf",
+ *   "epochSeconds": 30.0,
+ *   "epochCount": 2,
+ *   "bands": [{"name": "delta", "low": 0.5, "high": 4.0}, {"name": "alpha", "low": 8.0, "high": 13.0}],
+ *   "channels": [
+ *     {"label": "EEG Fp1", "unit": "uV", "bandPower": [[120.5, 14.2], [98.1, 17.9]]}
+ *   ]
+ * }
+ * </pre>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see SpectrumChannelDto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SpectrumDto {
+    /** Name of the EDF file */
+    private String fileName;
+
+    /** Length of an epoch in seconds */
+    private double epochSeconds;
+
+    /** Number of complete epochs, a trailing partial epoch is skipped */
+    private int epochCount;
+
+    /** Frequency bands in the order of the band power values */
+    private List<FrequencyBandDto> bands;
+
+    /** Band powers per channel */
+    private List<SpectrumChannelDto> channels;
+}
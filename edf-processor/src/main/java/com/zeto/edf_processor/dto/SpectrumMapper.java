@@ -0,0 +1,22 @@
+package com.zeto.edf_processor.dto;
+
+import com.zeto.edf_processor.model.BandPowerSpectrum;
+import org.mapstruct.Mapper;
+
+/**
+ * MapStruct mapper for converting {@link BandPowerSpectrum}s to {@link SpectrumDto}s.
+ *
+ * <p>Band power arrays are handed over without copying.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Mapper(componentModel = "spring")
+public interface SpectrumMapper {
+
+    SpectrumDto toDto(BandPowerSpectrum spectrum);
+
+    default double[][] bandPower(double[][] bandPower) {
+        return bandPower;
+    }
+}
@@ -0,0 +1,39 @@
+package com.zeto.edf_processor.dto;
+
+import com.zeto.edf_processor.model.ArchiveSummary;
+import com.zeto.edf_processor.model.ScanProgress;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+/**
+ * MapStruct mapper for converting an {@link ArchiveSummary} and the {@link ScanProgress} to an {@link EdfSummaryDto}.
+ *
+ * <p>Recording times are converted from seconds to hours.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Mapper(componentModel = "spring")
+public interface SummaryMapper {
+
+    double SECONDS_PER_HOUR = 3600.0;
+
+    @Mapping(target = "total", source = "summary.total")
+    @Mapping(target = "valid", source = "summary.valid")
+    @Mapping(target = "invalid", source = "summary.invalid")
+    @Mapping(target = "validRatio", expression = "java(summary.total() > 0 ? (double) summary.valid() / summary.total() : 0)")
+    @Mapping(target = "recordingHours", expression = "java(summary.recordingSeconds() / SECONDS_PER_HOUR)")
+    @Mapping(target = "scanComplete", source = "progress.complete")
+    @Mapping(target = "scanDiscovered", source = "progress.discovered")
+    @Mapping(target = "scanParsed", source = "progress.parsed")
+    @Mapping(target = "scanRejected", source = "progress.rejected")
+    @Mapping(target = "scanFailure", source = "progress.failure")
+    EdfSummaryDto toDto(ArchiveSummary summary, ScanProgress progress);
+
+    @Mapping(target = "recordingHours", expression = "java(group.recordingSeconds() / SECONDS_PER_HOUR)")
+    EdfGroupSummaryDto toDto(ArchiveSummary.Group group);
+
+    List<EdfGroupSummaryDto> toDto(List<ArchiveSummary.Group> groups);
+}
@@ -1,10 +1,15 @@
 package com.zeto.edf_processor.exceptions;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 
 /**
@@ -19,6 +24,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
  * <ul>
  *   <li>Converts exceptions to RFC 7807 ProblemDetail format</li>
  *   <li>Maps exception types to appropriate HTTP status codes</li>
+ *   <li>Answers malformed requests - unparsable parameters or bodies, missing parameters - with 400
+ *       through the Spring MVC defaults of {@link ResponseEntityExceptionHandler}</li>
  *   <li>Logs errors for debugging and monitoring</li>
  *   <li>Provides user-friendly error messages</li>
  *   <li>Prevents stack trace exposure in production</li>
@@ -45,7 +52,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
  */
 @ControllerAdvice
 @Slf4j
-public class GlobalExceptionHandler {
+public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
     @ExceptionHandler(EdfSourceNotFoundException.class)
     public ProblemDetail handleEdfSourceNotFound(EdfSourceNotFoundException ex) {
@@ -59,6 +66,37 @@ public class GlobalExceptionHandler {
         return ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, ex.getMessage());
     }
 
+    @ExceptionHandler(InvalidSignalRequestException.class)
+    public ProblemDetail handleInvalidSignalRequest(InvalidSignalRequestException ex) {
+        log.error("Invalid signal request: {}", ex.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ProblemDetail handleInvalidRequest(InvalidRequestException ex) {
+        log.error("Invalid request: {}", ex.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    @ExceptionHandler(RescanRateLimitedException.class)
+    public ResponseEntity<ProblemDetail> handleRescanRateLimited(RescanRateLimitedException ex) {
+        log.warn("Rescan rejected: {}", ex.getMessage());
+        // Retry-After in whole seconds, rounded up so a client retrying on time is accepted
+        long seconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        problem.setProperty("retryAfterSeconds", seconds);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+                .body(problem);
+    }
+
+    @Override
+    protected ResponseEntity<Object> handleExceptionInternal(Exception ex, Object body, HttpHeaders headers,
+                                                             HttpStatusCode statusCode, WebRequest request) {
+        log.warn("Rejected request: {}", ex.getMessage());
+        return super.handleExceptionInternal(ex, body, headers, statusCode, request);
+    }
+
     @ExceptionHandler(Exception.class)
     public ProblemDetail handleNotFound(Exception ex) {
         log.error("Unexpected error occurred: {}", ex.getMessage());
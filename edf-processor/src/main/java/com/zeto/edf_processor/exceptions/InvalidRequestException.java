@@ -0,0 +1,7 @@
+package com.zeto.edf_processor.exceptions;
+
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
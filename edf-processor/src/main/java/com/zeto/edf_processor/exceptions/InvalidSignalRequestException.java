@@ -0,0 +1,7 @@
+package com.zeto.edf_processor.exceptions;
+
+public class InvalidSignalRequestException extends InvalidRequestException {
+    public InvalidSignalRequestException(String message) {
+        super(message);
+    }
+}
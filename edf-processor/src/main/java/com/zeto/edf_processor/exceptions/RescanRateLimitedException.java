@@ -0,0 +1,20 @@
+package com.zeto.edf_processor.exceptions;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * A rescan was requested before the minimum interval after the previous scan passed.
+ */
+@Getter
+public class RescanRateLimitedException extends RuntimeException {
+
+    /** Time until the next rescan is allowed */
+    private final Duration retryAfter;
+
+    public RescanRateLimitedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,38 @@
+package com.zeto.edf_processor.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Amplitude percentiles per channel of one recording or merged over the archive.
+ *
+ * @param fileName     name of the EDF file, {@code null} for archive-wide statistics
+ * @param files        number of recordings merged
+ * @param filesPending number of valid recordings whose histograms are not computed yet
+ * @param channels     statistics per channel; archive-wide one entry per label and calibration
+ */
+public record AmplitudeStatistics(String fileName, int files, int filesPending, List<ChannelStatistics> channels) {
+
+    /**
+     * Statistics of one channel in its physical unit.
+     *
+     * @param label       channel label
+     * @param unit        physical dimension
+     * @param samples     number of samples
+     * @param percentiles value per percentile, keyed {@code p1}, {@code p50}, {@code p99.9}, ...
+     * @param histogram   the histogram, {@code null} unless requested
+     */
+    public record ChannelStatistics(String label, String unit, long samples, Map<String, Double> percentiles,
+                                    Histogram histogram) {
+    }
+
+    /**
+     * Histogram in physical units.
+     *
+     * @param start       lower edge of the first bucket
+     * @param bucketWidth width of a bucket
+     * @param counts      samples per bucket
+     */
+    public record Histogram(double start, double bucketWidth, long[] counts) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.zeto.edf_processor.model;
+
+import java.util.List;
+
+/**
+ * Totals of the listed files, valid and invalid, and the recording time of the valid files
+ * grouped by patient, recording month and channel set.
+ *
+ * <p>Copies of a recording listed as aliases of a file are not counted.</p>
+ *
+ * @param total            number of listed files
+ * @param valid            number of valid files
+ * @param invalid          number of invalid files
+ * @param recordingSeconds recording time of the valid files in seconds
+ * @param byPatient        valid files by patient code, see {@link PatientInfo#getPatientCode()}
+ * @param byMonth          valid files by month of the recording start, e.g. {@code 2024-01}
+ * @param byChannelSet     valid files by the sorted channel labels, e.g. {@code C3,C4,Cz,Fp1}
+ */
+public record ArchiveSummary(int total, int valid, int invalid, double recordingSeconds,
+                             List<Group> byPatient, List<Group> byMonth, List<Group> byChannelSet) {
+
+    /**
+     * Files of one group.
+     *
+     * @param key              value the files share
+     * @param files            number of files
+     * @param recordingSeconds recording time of the files in seconds
+     */
+    public record Group(String key, int files, double recordingSeconds) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.zeto.edf_processor.model;
+
+import com.zeto.edf_processor.dsp.FrequencyBand;
+
+import java.util.List;
+
+/**
+ * Band powers of consecutive epochs of an EDF file, per channel.
+ *
+ * @param fileName     name of the EDF file
+ * @param epochSeconds length of an epoch in seconds
+ * @param epochCount   number of complete epochs in the file
+ * @param bands        frequency bands, in the order of the power values
+ * @param channels     band powers of each requested channel
+ */
+public record BandPowerSpectrum(String fileName,
+                                double epochSeconds,
+                                int epochCount,
+                                List<FrequencyBand> bands,
+                                List<ChannelBandPower> channels) {
+
+    /**
+     * Band powers of one channel.
+     *
+     * @param label     channel label
+     * @param unit      physical dimension of the samples, band powers are in its square
+     * @param bandPower power indexed by {@code [epoch][band]}
+     */
+    public record ChannelBandPower(String label, String unit, double[][] bandPower) {
+    }
+
+    /**
+     * Approximate heap size of the band powers in bytes.
+     */
+    public long sizeInBytes() {
+        return 256L + (long) channels.size() * epochCount * (bands.size() * Double.BYTES + 16);
+    }
+}
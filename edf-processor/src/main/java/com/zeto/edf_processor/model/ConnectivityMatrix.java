@@ -0,0 +1,54 @@
+package com.zeto.edf_processor.model;
+
+import com.zeto.edf_processor.dsp.FrequencyBand;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pairwise connectivity of the channels of an EDF file over a time window.
+ *
+ * @param fileName    name of the EDF file
+ * @param method      connectivity measure
+ * @param fromSeconds start of the window from the start of the recording, in seconds
+ * @param toSeconds   end of the window, in seconds
+ * @param band        band the coherence is averaged over, {@code null} for correlation
+ * @param labels      channel labels, in the order of the rows and columns
+ * @param matrix      symmetric matrix {@code [row][column]}
+ */
+public record ConnectivityMatrix(String fileName,
+                                 Method method,
+                                 double fromSeconds,
+                                 double toSeconds,
+                                 FrequencyBand band,
+                                 List<String> labels,
+                                 double[][] matrix) {
+
+    public enum Method {
+        /** Pearson correlation of the samples, -1 to 1 */
+        CORRELATION,
+        /** Magnitude-squared coherence averaged over a band, 0 to 1 */
+        COHERENCE;
+
+        /**
+         * Parses a method name, case-insensitive.
+         *
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        public static Method parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown connectivity method '%s', expected correlation or coherence"
+                        .formatted(name));
+            }
+        }
+    }
+
+    /**
+     * Approximate heap size of the matrix in bytes.
+     */
+    public long sizeInBytes() {
+        return 256L + (long) labels.size() * (labels.size() * Double.BYTES + 64);
+    }
+}
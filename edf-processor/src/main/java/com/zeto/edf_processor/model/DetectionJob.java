@@ -0,0 +1,67 @@
+package com.zeto.edf_processor.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Definition of a batch detection job, persisted with the job so it can be resumed.
+ *
+ * <p>The files are pinned with their fingerprints when the job is created; a file that
+ * changed before the job reached it is skipped rather than mixed from two versions.</p>
+ *
+ * @param id         job identifier
+ * @param createdAt  creation time
+ * @param parameters detector settings
+ * @param files      recordings to scan
+ */
+public record DetectionJob(String id, Instant createdAt, Parameters parameters, List<JobFile> files) {
+
+    /**
+     * Detector settings of a job.
+     *
+     * @param mode              {@code AMPLITUDE} or {@code ZSCORE}, see {@link com.zeto.edf_processor.dsp.ThresholdDetector}
+     * @param threshold         deviation marking an event, in channel units or standard deviations
+     * @param refractorySeconds minimum distance of two events on a channel
+     * @param channels          channel labels to scan, empty for every signal channel
+     */
+    public record Parameters(String mode, double threshold, double refractorySeconds, List<String> channels) {
+    }
+
+    /**
+     * A recording of a job.
+     *
+     * @param fileName    identifier of the file, unique across the source roots
+     * @param path        absolute path
+     * @param fingerprint version of the file when the job was created
+     */
+    public record JobFile(String fileName, String path, FileFingerprint fingerprint) {
+    }
+
+    /**
+     * Approximate heap size in bytes: the identifier, the settings and the pinned files.
+     */
+    public long sizeInBytes() {
+        long size = HeapSize.object(4, 0) + HeapSize.string(id) + HeapSize.object(0, Long.BYTES + Integer.BYTES)
+                + HeapSize.object(2, 2 * Double.BYTES) + HeapSize.string(parameters.mode())
+                + HeapSize.list(parameters.channels()) + HeapSize.list(files);
+        for (String channel : parameters.channels()) {
+            size += HeapSize.string(channel);
+        }
+        for (JobFile file : files) {
+            size += HeapSize.object(3, 0) + HeapSize.string(file.fileName()) + HeapSize.string(file.path())
+                    + HeapSize.FINGERPRINT;
+        }
+        return size;
+    }
+
+    /**
+     * Lifecycle of a job; {@code QUEUED} and {@code RUNNING} jobs are resumed after a restart.
+     */
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+}
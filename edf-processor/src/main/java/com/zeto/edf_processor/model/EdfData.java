@@ -3,7 +3,9 @@ package com.zeto.edf_processor.model;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -15,15 +17,18 @@ import java.util.Optional;
  * </p>
  *
  * <p>
- * The class is designed to be immutable and is instantiated through static
+ * The parsed header fields are immutable, and instances are created through static
  * factory methods to ensure controlled creation for both valid and invalid EDF files.
+ * The enrichment fields are mutable and volatile: the quality, amplitude histograms and preview are
+ * attached by the background analysis after the file is listed, the content hash and aliases are set by the scan.
+ * They are not part of {@link #equals(Object)} and {@link #hashCode()}, which compare the parsed contents.
  * </p>
  *
  * <h2>Usage</h2>
  * <ul>
- *   <li>Use {@link #createValidEdfData(String, String, String, String, String, String[], String[], int, double, int)}
+ *   <li>Use {@link #createValidEdfData(Path, String, Path, FileFingerprint, String, String, String, String, String[], String[], int, double, int)}
  *       to build a valid EDF representation from parsed file data.</li>
- *   <li>Use {@link #createInvalidEdfData(String, String)} to represent a corrupted or unreadable EDF file.</li>
+ *   <li>Use {@link #createInvalidEdfData(Path, String, Path, FileFingerprint, EdfValidationError)} to represent a corrupted or unreadable EDF file.</li>
  * </ul>
  *
  * <p><strong>DDD Role:</strong> Aggregate Root of the EDF domain.</p>
@@ -70,6 +75,40 @@ public class EdfData {
      */
     private final int numberOfAnnotations;
 
+    /**
+     * Signal quality summary, attached in the background after the file is loaded.
+     * {@code null} until the analysis finished and for invalid files.
+     */
+    @EqualsAndHashCode.Exclude
+    private volatile RecordingQuality quality;
+
+    /**
+     * Amplitude histograms of the signal channels, filled by the same background pass as {@link #quality}.
+     * {@code null} until the analysis finished and for invalid files.
+     */
+    @EqualsAndHashCode.Exclude
+    private volatile RecordingAmplitudes amplitudes;
+
+    /**
+     * Encoded {@link com.zeto.edf_processor.dsp.WaveformPreview} of the signal channels, filled by the same
+     * background pass as {@link #quality}. {@code null} until the analysis finished and for invalid files.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile byte[] preview;
+
+    /**
+     * Content hash of the file as 16 hex digits, set by the scan. {@code null} if deduplication is disabled.
+     */
+    @EqualsAndHashCode.Exclude
+    private volatile String contentHash;
+
+    /**
+     * Other files with the same content, set by the scan: they are not parsed, but listed on this entity.
+     */
+    @EqualsAndHashCode.Exclude
+    private volatile List<EdfFileProperties> aliases = List.of();
+
     // --------------------------------------------------------------------------------------------
     // Static Factory Methods
     // --------------------------------------------------------------------------------------------
@@ -82,13 +121,17 @@ public class EdfData {
      * and empty placeholders or null for other components.
      * </p>
      *
-     * @param fileName     name of the EDF file
-     * @param errorMessage reason or description of the validation failure
+     * @param filePath     path of the EDF file
+     * @param fileId       identifier of the file in the archive
+     * @param sourceRoot   source root the file was found under
+     * @param fingerprint  version of the EDF file
+     * @param error        code, byte offset and description of the validation failure
      * @return a new {@code EdfData} instance representing an invalid file
      */
-    public static EdfData createInvalidEdfData(String fileName, String errorMessage) {
-        log.warn("Creating invalid EDF data for file: {}", fileName);
-        return new EdfData(EdfFileProperties.invalidEdf(fileName,errorMessage),
+    public static EdfData createInvalidEdfData(Path filePath, String fileId, Path sourceRoot, FileFingerprint fingerprint,
+                                               EdfValidationError error) {
+        log.warn("Creating invalid EDF data for file: {}", fileId);
+        return new EdfData(EdfFileProperties.invalidEdf(filePath, fileId, sourceRoot, fingerprint, error),
                                  null,
                            null,
                                  null,
@@ -105,7 +148,10 @@ public class EdfData {
      * from the EDF header and metadata.
      * </p>
      *
-     * @param fileName            name of the EDF file
+     * @param filePath            path of the EDF file
+     * @param fileId              identifier of the file in the archive
+     * @param sourceRoot          source root the file was found under
+     * @param fingerprint         version of the EDF file
      * @param recordingId         unique recording identifier
      * @param startDate           start date from the EDF header
      * @param startTime           start time from the EDF header
@@ -117,7 +163,10 @@ public class EdfData {
      * @param numberOfAnnotations number of annotations in the EDF
      * @return a fully initialized, valid {@code EdfData} instance
      */
-    public static EdfData createValidEdfData(String fileName,
+    public static EdfData createValidEdfData(Path filePath,
+                                             String fileId,
+                                             Path sourceRoot,
+                                             FileFingerprint fingerprint,
                                              String recordingId,
                                              String startDate,
                                              String startTime,
@@ -128,8 +177,8 @@ public class EdfData {
                                              double durationOfRecords,
                                              int numberOfAnnotations
                                              ) {
-            log.debug("Creating valid EDF data for file: {}", fileName);
-            return new EdfData(EdfFileProperties.validEdf(fileName),
+            log.debug("Creating valid EDF data for file: {}", fileId);
+            return new EdfData(EdfFileProperties.validEdf(filePath, fileId, sourceRoot, fingerprint),
                                      recordingId.trim(),
                                RecordingDateTime.from(startDate, startTime),
                                      PatientInfo.from(subjectId),
@@ -138,6 +187,24 @@ public class EdfData {
                                                    numberOfAnnotations);
     }
 
+    /**
+     * Copies this entity with another content hash, for an entity already listed that must not change.
+     * The analysis results and aliases are carried over.
+     *
+     * @param hash content hash as 16 hex digits, {@code null} if deduplication is disabled
+     * @return a new {@code EdfData} instance with the same header data
+     */
+    public EdfData withContentHash(String hash) {
+        EdfData copy = new EdfData(edfFileProperties, recordingID, recordingDateTime, patientInfo, channels, metrics,
+                numberOfAnnotations);
+        copy.quality = quality;
+        copy.amplitudes = amplitudes;
+        copy.preview = preview;
+        copy.aliases = aliases;
+        copy.contentHash = hash;
+        return copy;
+    }
+
     // --------------------------------------------------------------------------------------------
     // Derived Getters and Convenience Methods
     // --------------------------------------------------------------------------------------------
@@ -162,6 +229,17 @@ public class EdfData {
         return recordingDateTime != null ? recordingDateTime.getRecordingDateTime() : null;
             }
 
+    /**
+     * Tells whether this entity is listed under a file identifier, its own or the identifier of an alias.
+     *
+     * @param fileId identifier of an EDF file, see {@link EdfFileProperties#fileId(int, Path, Path)}
+     * @return {@code true} if the file or one of its aliases has this identifier
+     */
+    public boolean isListedAs(String fileId) {
+        return edfFileProperties.getFileId().equals(fileId)
+                || aliases.stream().anyMatch(alias -> alias.getFileId().equals(fileId));
+    }
+
     /**
      * Returns the patient's name extracted from the EDF subject ID, if available.
      *
@@ -188,4 +266,62 @@ public class EdfData {
         return edfFileProperties != null && edfFileProperties.isValidEdf();
     }
 
+    /**
+     * Approximate heap size of the parsed header data in bytes: the entity, its file properties,
+     * header fields, channels and aliases. The source root is shared by all files and not counted.
+     *
+     * @return estimated bytes, see {@link HeapSize}
+     */
+    public long metadataSizeInBytes() {
+        long size = HeapSize.object(11, Integer.BYTES) + fileSizeInBytes(edfFileProperties);
+        size += HeapSize.string(recordingID);
+        if (recordingDateTime != null) {
+            size += HeapSize.object(3, 0) + HeapSize.string(recordingDateTime.getStartDate())
+                    + HeapSize.string(recordingDateTime.getStartTime()) + HeapSize.LOCAL_DATE_TIME;
+        }
+        if (patientInfo != null) {
+            size += HeapSize.object(2, 0) + HeapSize.string(patientInfo.getSubjectId())
+                    + HeapSize.string(patientInfo.getPatientName());
+        }
+        List<Channels.Channel> signalChannels = channels.getSignalChannels();
+        size += HeapSize.object(1, 0) + HeapSize.list(signalChannels);
+        for (Channels.Channel channel : signalChannels) {
+            size += HeapSize.object(2, 0) + HeapSize.string(channel.label()) + HeapSize.string(channel.type());
+        }
+        size += HeapSize.object(0, Integer.BYTES + Double.BYTES);
+        size += HeapSize.string(contentHash);
+        List<EdfFileProperties> copies = aliases;
+        if (!copies.isEmpty()) {
+            size += HeapSize.list(copies) + copies.stream().mapToLong(EdfData::fileSizeInBytes).sum();
+        }
+        return size;
+    }
+
+    private static long fileSizeInBytes(EdfFileProperties file) {
+        if (file == null) {
+            return 0;
+        }
+        // the identifier is the name for files directly in the first root
+        return HeapSize.object(7, 1) + HeapSize.string(file.getFileName())
+                + (file.getFileId().equals(file.getFileName()) ? 0 : HeapSize.string(file.getFileId()))
+                + HeapSize.path(file.getFilePath()) + HeapSize.FINGERPRINT
+                + HeapSize.string(file.getErrorMessage())
+                + (file.getErrorOffset() != null ? HeapSize.object(0, Long.BYTES) : 0);
+    }
+
+    /**
+     * Approximate heap size of the results of the background analysis in bytes:
+     * quality, amplitude histograms and waveform preview. 0 until the analysis finished.
+     *
+     * @return estimated bytes, see {@link HeapSize}
+     */
+    public long enrichmentSizeInBytes() {
+        RecordingQuality currentQuality = quality;
+        RecordingAmplitudes currentAmplitudes = amplitudes;
+        byte[] currentPreview = preview;
+        return (currentQuality != null ? currentQuality.sizeInBytes() : 0)
+                + (currentAmplitudes != null ? currentAmplitudes.sizeInBytes() : 0)
+                + (currentPreview != null ? HeapSize.array(currentPreview.length, 1) : 0);
+    }
+
 }
@@ -0,0 +1,43 @@
+package com.zeto.edf_processor.model;
+
+/**
+ * Machine-readable reason why an EDF file was rejected.
+ *
+ * <p>The header checks run in the order of the constants, the first failing
+ * check determines the code of a file.</p>
+ */
+public enum EdfErrorCode {
+    /** File is shorter than the fixed 256 byte header or the header of its channels */
+    TRUNCATED_HEADER,
+    /** Header contains a control character, i.e. binary data */
+    NON_TEXT_HEADER,
+    /** Version field is not "0" */
+    INVALID_VERSION,
+    /** A numeric header field is not a valid integer or decimal number */
+    INVALID_NUMBER,
+    /** Number of channels is not positive */
+    INVALID_CHANNEL_COUNT,
+    /** Number of header bytes does not match 256 + 256 * number of channels */
+    HEADER_SIZE_MISMATCH,
+    /** Reserved field starts with "EDF+" but is neither "EDF+C" nor "EDF+D" */
+    INVALID_EDF_PLUS_TYPE,
+    /** Number of data records is not positive, or the duration of a record is negative */
+    INVALID_RECORD_COUNT,
+    /** Samples per record of a channel is not positive */
+    INVALID_SAMPLE_COUNT,
+    /** Digital minimum is not below the digital maximum, or physical minimum equals physical maximum */
+    INVALID_CALIBRATION,
+    /** File size differs from header bytes + number of records * record size */
+    FILE_SIZE_MISMATCH,
+    /**
+     * Memory the parser would allocate for the data records exceeds {@code edf.scan.max-parse-bytes};
+     * the scan lists such files from their header instead of parsing them
+     */
+    PARSE_BUDGET_EXCEEDED,
+    /** File could not be read */
+    UNREADABLE,
+    /** Header is valid, but the file could not be parsed */
+    PARSE_FAILED,
+    /** Parse did not finish within {@code edf.scan.parse-timeout} and was cancelled, the next scan tries again */
+    PARSE_TIMEOUT
+}
@@ -4,6 +4,8 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.nio.file.Path;
+
 /**
  * Represents properties of an EDF file including its name and validation status.
  */
@@ -12,30 +14,85 @@ import lombok.RequiredArgsConstructor;
 public class EdfFileProperties {
     /** Name of the EDF file */
     private final String fileName;
+    /** Identifier of the file in the archive, unique across the source roots, see {@link #fileId(int, Path, Path)} */
+    private final String fileId;
+    /** Absolute path of the EDF file */
+    private final Path filePath;
+    /** Configured source root the file was found under */
+    private final Path sourceRoot;
+    /** Version of the file the properties were read from */
+    private final FileFingerprint fingerprint;
     /** Indicates if the EDF file is valid */
     private final boolean validEdf;
     /** Error message if the EDF file is invalid */
     private final String errorMessage;
+    /** Machine-readable error code if the EDF file is invalid */
+    private final EdfErrorCode errorCode;
+    /** Byte offset of the error in the file, if known */
+    private final Long errorOffset;
+
+    /** Separates the directories of an identifier, '/' cannot be used in a single path segment of a URL */
+    public static final char ID_SEPARATOR = ':';
+
+    /**
+     * Builds the identifier of a file: its path relative to the source root, with {@value #ID_SEPARATOR}
+     * between the directories, prefixed with {@code @<n>:} for the files of the n-th source root after the first.
+     * Files directly in the first root are identified by their name,
+     * e.g. {@code rec.edf}, {@code 2024:rec.edf} and {@code @2:rec.edf}.
+     *
+     * @param rootPosition position of the source root in the configuration, 1 for the first
+     * @param sourceRoot   source root the file was found under
+     * @param filePath     path of the file under the root
+     * @return identifier, unique across the source roots
+     */
+    public static String fileId(int rootPosition, Path sourceRoot, Path filePath) {
+        StringBuilder id = new StringBuilder();
+        if (rootPosition > 1) {
+            id.append('@').append(rootPosition).append(ID_SEPARATOR);
+        }
+        Path relative = sourceRoot.relativize(filePath);
+        for (int i = 0; i < relative.getNameCount(); i++) {
+            if (i > 0) {
+                id.append(ID_SEPARATOR);
+            }
+            id.append(relative.getName(i));
+        }
+        return id.toString();
+    }
 
     /**
      * Creates a valid EDF file properties object.
      *
-     * @param fileName file name
+     * @param filePath path of the file
+     * @param fileId identifier of the file in the archive
+     * @param sourceRoot source root the file was found under
+     * @param fingerprint version of the file
      * @return EdfFileProperties for a valid EDF
      */
-    public static EdfFileProperties validEdf(String fileName) {
-        return new EdfFileProperties(fileName, true, null );
+    public static EdfFileProperties validEdf(Path filePath, String fileId, Path sourceRoot, FileFingerprint fingerprint) {
+        String fileName = filePath.getFileName().toString();
+        return new EdfFileProperties(fileName, shared(fileId, fileName), filePath, sourceRoot, fingerprint, true, null, null, null);
     }
 
     /**
      * Creates an invalid EDF file properties object with error message
      *
-     * @param fileName file name
-     * @param errorMessage reason for invalidity
+     * @param filePath path of the file
+     * @param fileId identifier of the file in the archive
+     * @param sourceRoot source root the file was found under
+     * @param fingerprint version of the file
+     * @param error reason for invalidity
      * @return EdfFileProperties for an invalid EDF
      */
-    public static EdfFileProperties invalidEdf(String fileName, String errorMessage) {
-        return new EdfFileProperties(fileName, false, errorMessage);
+    public static EdfFileProperties invalidEdf(Path filePath, String fileId, Path sourceRoot, FileFingerprint fingerprint,
+                                               EdfValidationError error) {
+        String fileName = filePath.getFileName().toString();
+        return new EdfFileProperties(fileName, shared(fileId, fileName), filePath, sourceRoot, fingerprint, false,
+                error.message(), error.code(), error.offset());
     }
 
+    /** Returns the name for an identifier equal to it, so the two share one string */
+    private static String shared(String fileId, String fileName) {
+        return fileId.equals(fileName) ? fileName : fileId;
+    }
 }
@@ -0,0 +1,18 @@
+package com.zeto.edf_processor.model;
+
+/**
+ * Structured reason why an EDF file is invalid.
+ *
+ * @param code    machine-readable error code
+ * @param offset  byte offset of the offending header field or data position, {@code null} if unknown
+ * @param message human-readable description
+ */
+public record EdfValidationError(EdfErrorCode code, Long offset, String message) {
+
+    /**
+     * Creates an error located at a byte offset of the file.
+     */
+    public static EdfValidationError at(EdfErrorCode code, long offset, String message) {
+        return new EdfValidationError(code, offset, message);
+    }
+}
@@ -0,0 +1,56 @@
+package com.zeto.edf_processor.model;
+
+import com.zeto.edf_processor.dsp.FrequencyBand;
+
+import java.util.Arrays;
+
+/**
+ * Features computed per channel and epoch for the feature store.
+ *
+ * <p>Band powers are in the square of the channel unit, variance likewise, the zero
+ * crossing rate is in crossings of the epoch mean per second and the line length is
+ * the summed absolute sample-to-sample difference over the epoch in the channel unit.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public enum EpochFeature {
+    DELTA("delta", FrequencyBand.EEG_BANDS.get(0)),
+    THETA("theta", FrequencyBand.EEG_BANDS.get(1)),
+    ALPHA("alpha", FrequencyBand.EEG_BANDS.get(2)),
+    BETA("beta", FrequencyBand.EEG_BANDS.get(3)),
+    VARIANCE("variance", null),
+    ZERO_CROSSING_RATE("zeroCrossingRate", null),
+    LINE_LENGTH("lineLength", null);
+
+    private final String key;
+    private final FrequencyBand band;
+
+    EpochFeature(String key, FrequencyBand band) {
+        this.key = key;
+        this.band = band;
+    }
+
+    /** Name of the feature in requests, responses and the store */
+    public String key() {
+        return key;
+    }
+
+    /** Band of a band power feature, {@code null} for the others */
+    public FrequencyBand band() {
+        return band;
+    }
+
+    /**
+     * Looks up a feature by its key, case-insensitive.
+     *
+     * @throws IllegalArgumentException if the key is unknown
+     */
+    public static EpochFeature parse(String key) {
+        return Arrays.stream(values())
+                .filter(feature -> feature.key.equalsIgnoreCase(key.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown feature '%s', expected one of %s"
+                        .formatted(key, Arrays.stream(values()).map(EpochFeature::key).toList())));
+    }
+}
@@ -0,0 +1,31 @@
+package com.zeto.edf_processor.model;
+
+import java.util.List;
+
+/**
+ * Selected columns of the epoch feature table of an EDF file.
+ *
+ * @param fileName     name of the EDF file
+ * @param epochSeconds length of an epoch in seconds
+ * @param epochCount   number of complete epochs in the file
+ * @param fromEpoch    first returned epoch (inclusive)
+ * @param toEpoch      last returned epoch (exclusive)
+ * @param columns      the selected (channel, feature) columns
+ */
+public record FeatureColumns(String fileName,
+                             double epochSeconds,
+                             int epochCount,
+                             int fromEpoch,
+                             int toEpoch,
+                             List<Column> columns) {
+
+    /**
+     * Values of one feature of one channel.
+     *
+     * @param channel channel label
+     * @param feature feature key, see {@link EpochFeature#key()}
+     * @param values  value per epoch of {@code [fromEpoch, toEpoch)}
+     */
+    public record Column(String channel, String feature, float[] values) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.zeto.edf_processor.model;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+/**
+ * Read-only columnar table of epoch features of one version of an EDF file.
+ *
+ * <p>The table holds one {@code float} column per (channel, feature) pair, each with one
+ * value per epoch. The values usually live in a memory-mapped file; reading a column
+ * is a bulk copy of {@code epochs} floats and never touches the EDF file. Reads use
+ * absolute positions only, so a table can be shared between threads.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class FeatureTable {
+
+    private final FileFingerprint fingerprint;
+    private final double epochSeconds;
+    private final int epochCount;
+    private final List<String> channels;
+    private final List<EpochFeature> features;
+    private final FloatBuffer values;
+
+    /**
+     * @param fingerprint  version of the EDF file the features were computed from
+     * @param epochSeconds length of an epoch in seconds
+     * @param epochCount   number of epochs, the length of every column
+     * @param channels     channel labels
+     * @param features     features of every channel
+     * @param values       columns in channel-major order, column {@code (c, f)} starts at
+     *                     {@code (c * features.size() + f) * epochCount}
+     */
+    public FeatureTable(FileFingerprint fingerprint, double epochSeconds, int epochCount,
+                        List<String> channels, List<EpochFeature> features, FloatBuffer values) {
+        if (values.capacity() < (long) channels.size() * features.size() * epochCount) {
+            throw new IllegalArgumentException("Feature table holds %d values, %d columns of %d epochs expected"
+                    .formatted(values.capacity(), channels.size() * features.size(), epochCount));
+        }
+        this.fingerprint = fingerprint;
+        this.epochSeconds = epochSeconds;
+        this.epochCount = epochCount;
+        this.channels = List.copyOf(channels);
+        this.features = List.copyOf(features);
+        this.values = values;
+    }
+
+    public FileFingerprint fingerprint() {
+        return fingerprint;
+    }
+
+    public double epochSeconds() {
+        return epochSeconds;
+    }
+
+    public int epochCount() {
+        return epochCount;
+    }
+
+    public List<String> channels() {
+        return channels;
+    }
+
+    public List<EpochFeature> features() {
+        return features;
+    }
+
+    /**
+     * Size of the columns in bytes, mapped outside the heap for tables of the file store.
+     */
+    public long sizeInBytes() {
+        return (long) values.capacity() * Float.BYTES;
+    }
+
+    /**
+     * Copies the values of epochs {@code [fromEpoch, toEpoch)} of one column.
+     *
+     * @param channel index into {@link #channels()}
+     * @param feature index into {@link #features()}
+     */
+    public float[] column(int channel, int feature, int fromEpoch, int toEpoch) {
+        float[] column = new float[toEpoch - fromEpoch];
+        int start = (channel * features.size() + feature) * epochCount + fromEpoch;
+        values.get(start, column, 0, column.length);
+        return column;
+    }
+}
@@ -0,0 +1,42 @@
+package com.zeto.edf_processor.model;
+
+/**
+ * Value object identifying a specific version of a file on disk.
+ *
+ * <p>The fingerprint changes whenever the file is replaced, truncated, appended to
+ * or touched. It is cheap to obtain from the file attributes that are already
+ * read while scanning the source directory.</p>
+ *
+ * @param size         file size in bytes
+ * @param lastModified last modification time in milliseconds since the epoch
+ */
+public record FileFingerprint(long size, long lastModified) {
+
+    /**
+     * Returns a compact token of this version, e.g. to version the URL of a derived resource.
+     *
+     * @return e.g. {@code 70d10-192f1a3b6e8}
+     */
+    public String version() {
+        return "%x-%x".formatted(size, lastModified);
+    }
+
+    /**
+     * Returns a strong HTTP entity tag for this version of the file.
+     *
+     * @return quoted entity tag, e.g. {@code "70d10-192f1a3b6e8"}
+     */
+    public String etag() {
+        return "\"%x-%x\"".formatted(size, lastModified);
+    }
+
+    /**
+     * Returns a strong HTTP entity tag for a derived representation of this version of the file.
+     *
+     * @param variant identifier of the representation, e.g. {@code r10-20}
+     * @return quoted entity tag, e.g. {@code "70d10-192f1a3b6e8-r10-20"}
+     */
+    public String etag(String variant) {
+        return "\"%x-%x-%s\"".formatted(size, lastModified, variant);
+    }
+}
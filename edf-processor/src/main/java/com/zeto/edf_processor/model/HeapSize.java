@@ -0,0 +1,97 @@
+package com.zeto.edf_processor.model;
+
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Heap size estimates of the building blocks of cached objects.
+ *
+ * <p>The estimates follow the layout of a 64-bit HotSpot JVM with compressed references,
+ * the default below 32 GB of heap: 12 byte object headers, 16 byte array headers,
+ * 4 byte references and sizes aligned to 8 bytes. Strings are compact, one byte per
+ * character unless a character is outside Latin-1. Objects shared with other entries,
+ * e.g. source roots or enum constants, are not counted by the callers.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+public final class HeapSize {
+
+    public static final int OBJECT_HEADER = 12;
+    public static final int ARRAY_HEADER = 16;
+    public static final int REFERENCE = 4;
+
+    /** Node of a {@code HashMap} or {@code ConcurrentHashMap} and its share of the table at load factor 0.75 */
+    public static final int MAP_ENTRY = 40;
+
+    /** Node of an access-ordered {@code LinkedHashMap}, with the links of the access order, and its table share */
+    public static final int LINKED_MAP_ENTRY = 48;
+
+    /** {@code FileFingerprint}: size and modification time */
+    public static final long FINGERPRINT = object(0, 2 * Long.BYTES);
+
+    /** {@code LocalDateTime} with its {@code LocalDate} and {@code LocalTime} */
+    public static final long LOCAL_DATE_TIME = object(2, 0) + object(0, Integer.BYTES + 2 * Short.BYTES)
+            + object(0, 3 + Integer.BYTES);
+
+    private HeapSize() {
+    }
+
+    /**
+     * Rounds a size up to the object alignment.
+     */
+    public static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Size of an object with the given fields.
+     *
+     * @param references     number of reference fields
+     * @param primitiveBytes bytes of the primitive fields
+     */
+    public static long object(int references, int primitiveBytes) {
+        return align(OBJECT_HEADER + (long) references * REFERENCE + primitiveBytes);
+    }
+
+    /**
+     * Size of an array.
+     *
+     * @param length       number of elements
+     * @param elementBytes bytes of one element, {@link #REFERENCE} for object arrays
+     */
+    public static long array(long length, int elementBytes) {
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+
+    /**
+     * Size of a string and its character array, 0 for {@code null}.
+     */
+    public static long string(String value) {
+        if (value == null) {
+            return 0;
+        }
+        boolean latin1 = value.chars().allMatch(c -> c < 256);
+        // value, hash, coder and hashIsZero
+        return object(1, Integer.BYTES + 2) + array(value.length(), latin1 ? 1 : 2);
+    }
+
+    /**
+     * Size of a path of the default file system: its bytes, the offsets of its names and its cached string.
+     */
+    public static long path(Path path) {
+        if (path == null) {
+            return 0;
+        }
+        String value = path.toString();
+        return object(4, Integer.BYTES) + array(value.length(), 1) + array(path.getNameCount(), Integer.BYTES)
+                + string(value);
+    }
+
+    /**
+     * Size of an immutable list without its elements.
+     */
+    public static long list(Collection<?> elements) {
+        return object(1, 0) + array(elements.size(), REFERENCE);
+    }
+}
@@ -0,0 +1,109 @@
+package com.zeto.edf_processor.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A montage: derived channels defined as sparse linear combinations of channel labels.
+ *
+ * <p>Every derivation is one row of a sparse matrix over the channel labels of a
+ * recording. Derivations are written as expressions, optionally prefixed with a label:</p>
+ * <ul>
+ *   <li>{@code Fp1-F7} - bipolar derivation</li>
+ *   <li>{@code Cz-Lap=Cz-0.25*C3-0.25*C4-0.25*Fz-0.25*Pz} - Laplacian with an explicit label</li>
+ * </ul>
+ *
+ * <p>An average reference montage subtracts the mean of its channels from each of them.</p>
+ *
+ * <p>Labels are matched after normalization (see {@link #normalizeLabel(String)}), so
+ * {@code Fp1} matches {@code EEG Fp1} and {@code FP1-REF}.</p>
+ *
+ * @param name             montage name
+ * @param derivations      derived channels, empty for an average reference over all signal channels
+ * @param averageReference whether the derivations are re-referenced to their average
+ */
+public record MontageDefinition(String name, List<Derivation> derivations, boolean averageReference) {
+
+    /**
+     * One weighted input of a derivation.
+     *
+     * @param label  input channel label
+     * @param weight weight of the input
+     */
+    public record Term(String label, double weight) {
+    }
+
+    /**
+     * A derived channel.
+     *
+     * @param label output label
+     * @param terms weighted inputs
+     */
+    public record Derivation(String label, List<Term> terms) {
+    }
+
+    private static final Pattern TERM = Pattern.compile("\\s*([+-]?)\\s*(?:(\\d+(?:\\.\\d+)?)\\s*\\*\\s*)?([A-Za-z][\\w']*)\\s*");
+
+    /**
+     * Creates a montage from derivation expressions.
+     *
+     * @param name             montage name
+     * @param expressions      derivations as {@code [label=]expression}
+     * @param averageReference whether to re-reference to the average; expressions must then be single labels
+     * @return parsed montage
+     * @throws IllegalArgumentException if an expression is malformed
+     */
+    public static MontageDefinition parse(String name, List<String> expressions, boolean averageReference) {
+        List<Derivation> derivations = new ArrayList<>(expressions.size());
+        for (String expression : expressions) {
+            Derivation derivation = parseDerivation(expression);
+            if (averageReference && derivation.terms().size() != 1) {
+                throw new IllegalArgumentException("Average reference montage %s must list single channels, found '%s'"
+                        .formatted(name, expression));
+            }
+            derivations.add(derivation);
+        }
+        return new MontageDefinition(name, List.copyOf(derivations), averageReference);
+    }
+
+    static Derivation parseDerivation(String expression) {
+        int separator = expression.indexOf('=');
+        String label = (separator >= 0 ? expression.substring(0, separator) : expression).trim();
+        String formula = separator >= 0 ? expression.substring(separator + 1) : expression;
+
+        List<Term> terms = new ArrayList<>();
+        Matcher matcher = TERM.matcher(formula);
+        int position = 0;
+        while (position < formula.length() && matcher.find(position) && matcher.start() == position) {
+            if (!terms.isEmpty() && matcher.group(1).isEmpty()) {
+                break;
+            }
+            double weight = matcher.group(2) != null ? Double.parseDouble(matcher.group(2)) : 1.0;
+            terms.add(new Term(matcher.group(3), "-".equals(matcher.group(1)) ? -weight : weight));
+            position = matcher.end();
+        }
+        if (terms.isEmpty() || position != formula.length()) {
+            throw new IllegalArgumentException("Malformed derivation '%s'".formatted(expression));
+        }
+        return new Derivation(label, List.copyOf(terms));
+    }
+
+    /**
+     * Normalizes a channel label for matching: case-insensitive, without the
+     * {@code EEG} prefix, a reference suffix ({@code -REF}, {@code -LE}, {@code -AR}) and spaces.
+     *
+     * @param label channel label
+     * @return normalized label
+     */
+    public static String normalizeLabel(String label) {
+        String normalized = label.trim().toLowerCase(Locale.ROOT);
+        if (normalized.startsWith("eeg ")) {
+            normalized = normalized.substring(4);
+        }
+        normalized = normalized.replaceFirst("-(ref|le|ar)$", "");
+        return normalized.replace(" ", "");
+    }
+}
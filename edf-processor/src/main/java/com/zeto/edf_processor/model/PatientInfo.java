@@ -33,6 +33,21 @@ public class PatientInfo {
         return new PatientInfo(subjectId, extractedName);
     }
 
+    /**
+     * Identifies the patient for grouping: the patient code, the first token of an EDF+ SubjectID,
+     * or the whole trimmed SubjectID if it is not structured by EDF+ or the code is unknown ("X").
+     * Unlike the name, it is not a shared placeholder when the name cannot be extracted.
+     *
+     * @return patient code or SubjectID, {@code null} without a SubjectID
+     */
+    public String getPatientCode() {
+        if (subjectId == null) {
+            return null;
+        }
+        String[] parts = subjectId.trim().split("\\s+");
+        return parts.length >= 4 && !parts[0].equals("X") ? parts[0] : subjectId.trim();
+    }
+
     /**
      * Extracts the patient's name from the EDF SubjectID string.
      * EDF SubjectID is a free text, patient name is the 4th token of SubjectID by standard
@@ -0,0 +1,64 @@
+package com.zeto.edf_processor.model;
+
+import com.zeto.edf_processor.dsp.AmplitudeHistogram;
+
+import java.util.List;
+
+/**
+ * Amplitude histograms of the signal channels of a recording.
+ *
+ * @param channels histogram of each signal channel
+ */
+public record RecordingAmplitudes(List<ChannelAmplitudes> channels) {
+
+    /**
+     * Histogram of the digital values of one channel and the calibration to physical values.
+     *
+     * @param label     channel label
+     * @param unit      physical dimension
+     * @param scale     physical units per digital step
+     * @param offset    physical value of digital zero
+     * @param histogram histogram of the digital values
+     */
+    public record ChannelAmplitudes(String label, String unit, double scale, double offset,
+                                    AmplitudeHistogram histogram) {
+
+        /**
+         * Physical value of a digital value.
+         */
+        public double physical(double digital) {
+            return offset + digital * scale;
+        }
+
+        /**
+         * Whether the histograms of both channels can be merged: same label and calibration.
+         */
+        public boolean isMergeableWith(ChannelAmplitudes other) {
+            return label.equals(other.label) && unit.equals(other.unit)
+                    && scale == other.scale && offset == other.offset;
+        }
+
+        /**
+         * Returns this channel with the samples of another mergeable channel added.
+         */
+        public ChannelAmplitudes merge(ChannelAmplitudes other) {
+            return new ChannelAmplitudes(label, unit, scale, offset, histogram.merge(other.histogram));
+        }
+    }
+
+    public RecordingAmplitudes {
+        channels = List.copyOf(channels);
+    }
+
+    /**
+     * Approximate heap size in bytes.
+     */
+    public long sizeInBytes() {
+        long size = HeapSize.object(1, 0) + HeapSize.list(channels);
+        for (ChannelAmplitudes channel : channels) {
+            size += HeapSize.object(3, 2 * Double.BYTES) + HeapSize.string(channel.label())
+                    + HeapSize.string(channel.unit()) + channel.histogram().sizeInBytes();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,11 @@
+package com.zeto.edf_processor.model;
+
+/**
+ * Encoded waveform preview of a version of an EDF file.
+ *
+ * @param fileName    name of the EDF file
+ * @param fingerprint version of the file the preview was computed from
+ * @param data        encoded {@link com.zeto.edf_processor.dsp.WaveformPreview}
+ */
+public record RecordingPreview(String fileName, FileFingerprint fingerprint, byte[] data) {
+}
@@ -0,0 +1,55 @@
+package com.zeto.edf_processor.model;
+
+import java.util.List;
+
+/**
+ * Signal quality summary of a recording, computed in the background after ingest.
+ *
+ * <p>Fractions are shares of the analysed records (flatline, artifacts) or samples
+ * (clipping) of a channel; a {@code null} fraction could not be determined for the
+ * channel, e.g. line noise above the Nyquist frequency or amplitudes in an unknown unit.</p>
+ *
+ * @param score    overall quality in percent, the mean of the channel scores
+ * @param channels quality of each signal channel
+ */
+public record RecordingQuality(double score, List<ChannelQuality> channels) {
+
+    /**
+     * Quality of one channel.
+     *
+     * @param label             channel label
+     * @param flatlineFraction  share of records without any signal change
+     * @param clippingFraction  share of samples at the digital minimum or maximum
+     * @param lineNoiseFraction share of the signal power at the 50 or 60 Hz mains frequency
+     * @param artifactFraction  share of records with a peak-to-peak amplitude above the artifact threshold
+     * @param score             channel quality in percent
+     */
+    public record ChannelQuality(String label,
+                                 double flatlineFraction,
+                                 double clippingFraction,
+                                 Double lineNoiseFraction,
+                                 Double artifactFraction,
+                                 double score) {
+    }
+
+    /**
+     * Combines channel results into a recording summary.
+     */
+    public static RecordingQuality of(List<ChannelQuality> channels) {
+        double score = channels.stream().mapToDouble(ChannelQuality::score).average().orElse(0);
+        return new RecordingQuality(score, List.copyOf(channels));
+    }
+
+    /**
+     * Approximate heap size in bytes.
+     */
+    public long sizeInBytes() {
+        long size = HeapSize.object(1, Double.BYTES) + HeapSize.list(channels);
+        for (ChannelQuality channel : channels) {
+            size += HeapSize.object(3, 3 * Double.BYTES) + HeapSize.string(channel.label())
+                    + (channel.lineNoiseFraction() != null ? HeapSize.object(0, Double.BYTES) : 0)
+                    + (channel.artifactFraction() != null ? HeapSize.object(0, Double.BYTES) : 0);
+        }
+        return size;
+    }
+}
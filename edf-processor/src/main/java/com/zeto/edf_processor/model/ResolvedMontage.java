@@ -0,0 +1,104 @@
+package com.zeto.edf_processor.model;
+
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow.ChannelSignal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A montage resolved against the channels of one recording: a sparse matrix over
+ * the channel indices of the file.
+ *
+ * @param name   montage name
+ * @param inputs distinct channels read to compute the derivations
+ * @param rows   derived channels, each referencing positions in {@code inputs}
+ */
+public record ResolvedMontage(String name, List<ChannelLayout> inputs, List<Row> rows) {
+
+    /**
+     * One derived channel as a sparse row.
+     *
+     * @param label   output label
+     * @param unit    physical dimension, taken from the first input
+     * @param inputs  positions of the inputs in {@link ResolvedMontage#inputs()}
+     * @param weights weight of each input
+     */
+    public record Row(String label, String unit, int[] inputs, float[] weights) {
+    }
+
+    /**
+     * Binds the montage to the channels of a recording with the same labels and samples per record:
+     * the inputs are replaced by the channels at the same header positions, so byte offsets and
+     * calibration are those of the recording.
+     *
+     * @param layout layout of the recording
+     * @return this montage if the channels are equal, otherwise a montage over the channels of the layout
+     */
+    public ResolvedMontage bind(SignalLayout layout) {
+        List<ChannelLayout> bound = inputs.stream().map(input -> layout.getChannels().get(input.index())).toList();
+        if (bound.equals(inputs)) {
+            return this;
+        }
+        List<Row> boundRows = rows.stream()
+                .map(row -> new Row(row.label(), bound.get(row.inputs()[0]).unit(), row.inputs(), row.weights()))
+                .toList();
+        return new ResolvedMontage(name, bound, boundRows);
+    }
+
+    /**
+     * Computes the derived channels from a window of the input channels, one pass per row
+     * over the window.
+     *
+     * @param window samples of {@link #inputs()}, in the same order
+     * @param labels output labels to compute, empty for all rows
+     * @return window with the derived channels
+     */
+    public SignalWindow apply(SignalWindow window, List<String> labels) {
+        List<ChannelSignal> derived = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (labels != null && !labels.isEmpty() && labels.stream().noneMatch(row.label()::equalsIgnoreCase)) {
+                continue;
+            }
+            ChannelSignal first = window.channels().get(row.inputs()[0]);
+            int terms = row.inputs().length;
+            float[][] sources = new float[terms][];
+            double scale = 0;
+            for (int t = 0; t < terms; t++) {
+                ChannelSignal input = window.channels().get(row.inputs()[t]);
+                sources[t] = input.samples();
+                scale = Math.max(scale, input.scale());
+            }
+            float[] weights = row.weights();
+            float[] samples = new float[first.samples().length];
+            for (int i = 0; i < samples.length; i++) {
+                float sum = 0;
+                for (int t = 0; t < terms; t++) {
+                    sum += weights[t] * sources[t][i];
+                }
+                samples[i] = sum;
+            }
+            double gain = 0;
+            for (float weight : weights) {
+                gain += Math.abs(weight);
+            }
+            // scale the calibration by the gain of the row, so int16 output keeps the range
+            derived.add(new ChannelSignal(row.label(), row.unit(), first.sampleRate(), scale * gain, 0.0, samples));
+        }
+        return new SignalWindow(window.fileName(), window.fromRecord(), window.toRecord(), window.startSeconds(), derived);
+    }
+
+    /**
+     * Approximate heap size in bytes: the rows and the input channels. The name and the labels
+     * and units of the inputs are shared with the montage definition and the channel labels.
+     */
+    public long sizeInBytes() {
+        long size = HeapSize.object(3, 0) + HeapSize.list(inputs) + HeapSize.list(rows)
+                + inputs.size() * HeapSize.object(2, 5 * Integer.BYTES + 2 * Double.BYTES);
+        for (Row row : rows) {
+            size += HeapSize.object(4, 0) + HeapSize.string(row.label())
+                    + HeapSize.array(row.inputs().length, Integer.BYTES) + HeapSize.array(row.weights().length, Float.BYTES);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,23 @@
+package com.zeto.edf_processor.model;
+
+/**
+ * Progress of the scan of the source roots.
+ *
+ * <p>Until the first scan has finished the list grows while files are parsed, newest first;
+ * a later scan replaces the complete list of the previous one when it ends. A failed scan
+ * keeps the listed files and reports its failure. Files a scan did not load because the heap was
+ * above the rejection mark of the memory guard are counted as rejected, a later scan loads them.</p>
+ *
+ * @param complete   the listed files are the result of a successfully finished scan
+ * @param scanning   a scan is running
+ * @param discovered files found by the running or last scan
+ * @param parsed     files of the running or last scan parsed so far
+ * @param rejected   files of the running or last scan not loaded under memory pressure, not listed
+ * @param failure    reason the last scan failed, {@code null} if it succeeded or is running
+ */
+public record ScanProgress(boolean complete, boolean scanning, int discovered, int parsed, int rejected,
+                           String failure) {
+
+    /** Before the first scan started */
+    public static final ScanProgress NOT_STARTED = new ScanProgress(false, false, 0, 0, 0, null);
+}
@@ -0,0 +1,187 @@
+package com.zeto.edf_processor.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Value object describing the binary layout of the data records of an EDF file.
+ *
+ * <p>An EDF data record stores the samples of every channel one after the other,
+ * each sample as a 16-bit little-endian two's complement integer. The layout
+ * pre-computes the byte offset of each channel inside a record, so a single
+ * channel can be located without decoding the others.</p>
+ *
+ * <p>Physical values are derived from digital values with the linear calibration
+ * of the channel: {@code physical = digital * scale + offset}.</p>
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class SignalLayout {
+
+    /** Label prefix of the EDF+ annotation channel(s) */
+    public static final String ANNOTATION_LABEL = "EDF Annotations";
+
+    /**
+     * Immutable record describing a single channel inside a data record.
+     *
+     * @param index            position of the channel in the header
+     * @param label            trimmed channel label
+     * @param unit             trimmed physical dimension (e.g. "uV")
+     * @param samplesPerRecord number of samples of the channel in one data record
+     * @param byteOffset       offset of the first sample of the channel inside a data record
+     * @param digitalMin       digital minimum from the header
+     * @param digitalMax       digital maximum from the header
+     * @param physicalMin      physical minimum from the header
+     * @param physicalMax      physical maximum from the header
+     */
+    public record ChannelLayout(int index,
+                                String label,
+                                String unit,
+                                int samplesPerRecord,
+                                int byteOffset,
+                                int digitalMin,
+                                int digitalMax,
+                                double physicalMin,
+                                double physicalMax) {
+
+        /** Physical units per digital step */
+        public double scale() {
+            int digitalRange = digitalMax - digitalMin;
+            return digitalRange == 0 ? 1.0 : (physicalMax - physicalMin) / digitalRange;
+        }
+
+        /** Physical value of digital zero */
+        public double offset() {
+            return physicalMin - digitalMin * scale();
+        }
+
+        /** Sample rate in Hz for the given record duration */
+        public double sampleRate(double durationOfRecords) {
+            return durationOfRecords > 0 ? samplesPerRecord / durationOfRecords : samplesPerRecord;
+        }
+
+        /**
+         * Decodes the samples of the channel in one data record into physical values.
+         *
+         * @param buffer       little-endian buffer holding the samples
+         * @param position     position of the first sample of the channel in the buffer
+         * @param target       receives the physical samples
+         * @param targetOffset index of the first sample in the target
+         */
+        public void decode(ByteBuffer buffer, int position, float[] target, int targetOffset) {
+            double scale = scale();
+            double offset = offset();
+            for (int s = 0; s < samplesPerRecord; s++, position += Short.BYTES) {
+                target[targetOffset + s] = (float) (buffer.getShort(position) * scale + offset);
+            }
+        }
+
+        /** Whether the channel carries EDF+ annotations instead of samples */
+        public boolean isAnnotation() {
+            return label.startsWith(ANNOTATION_LABEL);
+        }
+    }
+
+    /** Number of bytes in the header, the first data record starts here */
+    private final int headerBytes;
+
+    /** Number of data records in the file */
+    private final int numberOfRecords;
+
+    /** Duration of one data record in seconds */
+    private final double durationOfRecords;
+
+    /** Size of one data record in bytes */
+    private final int recordBytes;
+
+    /** Layout of all channels, including annotation channels */
+    private final List<ChannelLayout> channels;
+
+    /**
+     * Creates a {@link SignalLayout} from the per-channel arrays of an EDF header.
+     *
+     * @param headerBytes       number of bytes in the header
+     * @param numberOfRecords   number of data records
+     * @param durationOfRecords duration of a data record in seconds
+     * @param labels            channel labels
+     * @param units             physical dimensions
+     * @param samplesPerRecord  number of samples per data record for each channel
+     * @param digitalMin        digital minimum for each channel
+     * @param digitalMax        digital maximum for each channel
+     * @param physicalMin       physical minimum for each channel
+     * @param physicalMax       physical maximum for each channel
+     * @return layout with the channel offsets computed
+     */
+    public static SignalLayout from(int headerBytes,
+                                    int numberOfRecords,
+                                    double durationOfRecords,
+                                    String[] labels,
+                                    String[] units,
+                                    Integer[] samplesPerRecord,
+                                    Integer[] digitalMin,
+                                    Integer[] digitalMax,
+                                    Double[] physicalMin,
+                                    Double[] physicalMax) {
+        List<ChannelLayout> channels = new ArrayList<>(labels.length);
+        int byteOffset = 0;
+        for (int i = 0; i < labels.length; i++) {
+            String unit = units != null && i < units.length && units[i] != null ? units[i].trim() : "";
+            channels.add(new ChannelLayout(i, labels[i].trim(), unit, samplesPerRecord[i], byteOffset,
+                    digitalMin[i], digitalMax[i], physicalMin[i], physicalMax[i]));
+            byteOffset += samplesPerRecord[i] * Short.BYTES;
+        }
+        return new SignalLayout(headerBytes, numberOfRecords, durationOfRecords, byteOffset, List.copyOf(channels));
+    }
+
+    /**
+     * Absolute file position of the given data record.
+     *
+     * @param record zero based record index
+     * @return byte position of the record in the file
+     */
+    public long recordPosition(int record) {
+        return headerBytes + (long) record * recordBytes;
+    }
+
+    /**
+     * Finds a channel by its trimmed label (case-insensitive).
+     *
+     * @param label channel label
+     * @return the channel layout, or empty if the file has no such channel
+     */
+    public Optional<ChannelLayout> channel(String label) {
+        String trimmed = label.trim();
+        return channels.stream()
+                .filter(c -> c.label().equalsIgnoreCase(trimmed))
+                .findFirst();
+    }
+
+    /**
+     * Returns the channels carrying samples, i.e. all channels except EDF+ annotations.
+     *
+     * @return ordinary signal channels in header order
+     */
+    public List<ChannelLayout> signalChannels() {
+        return channels.stream()
+                .filter(c -> !c.isAnnotation())
+                .toList();
+    }
+
+    /**
+     * Approximate heap size in bytes.
+     */
+    public long sizeInBytes() {
+        long size = HeapSize.object(1, 3 * Integer.BYTES + Double.BYTES) + HeapSize.list(channels);
+        for (ChannelLayout channel : channels) {
+            size += HeapSize.object(2, 5 * Integer.BYTES + 2 * Double.BYTES)
+                    + HeapSize.string(channel.label()) + HeapSize.string(channel.unit());
+        }
+        return size;
+    }
+}
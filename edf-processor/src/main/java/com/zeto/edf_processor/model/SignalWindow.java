@@ -0,0 +1,41 @@
+package com.zeto.edf_processor.model;
+
+import java.util.List;
+
+/**
+ * Decoded samples of a contiguous range of data records of an EDF file.
+ *
+ * <p>Samples are stored per channel as physical values in primitive {@code float}
+ * arrays. The calibration ({@code scale}, {@code offset}) of the source channel is
+ * kept, so the samples can be quantized back to 16-bit values without loss.</p>
+ *
+ * @param fileName     name of the EDF file
+ * @param fromRecord   first record of the window (inclusive)
+ * @param toRecord     last record of the window (exclusive)
+ * @param startSeconds offset of the first sample from the start of the recording, in seconds
+ * @param channels     decoded channels in the requested order
+ */
+public record SignalWindow(String fileName,
+                           int fromRecord,
+                           int toRecord,
+                           double startSeconds,
+                           List<ChannelSignal> channels) {
+
+    /**
+     * Samples of one channel.
+     *
+     * @param label      channel label
+     * @param unit       physical dimension
+     * @param sampleRate sample rate in Hz
+     * @param scale      physical units per digital step
+     * @param offset     physical value of digital zero
+     * @param samples    physical sample values
+     */
+    public record ChannelSignal(String label,
+                                String unit,
+                                double sampleRate,
+                                double scale,
+                                double offset,
+                                float[] samples) {
+    }
+}
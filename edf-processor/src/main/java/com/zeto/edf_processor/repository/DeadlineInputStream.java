@@ -0,0 +1,70 @@
+package com.zeto.edf_processor.repository;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+
+/**
+ * Input stream that cancels a parse cooperatively at a deadline.
+ *
+ * <p>Every read checks the deadline and the interrupt flag of the reading thread first and
+ * throws an {@link InterruptedIOException}, carrying the bytes read so far, once either is hit.
+ * A parser reading record by record is thus stopped within one record of the deadline,
+ * without a watchdog thread and without leaving the parser running in the background.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+class DeadlineInputStream extends FilterInputStream {
+
+    private final Duration timeout;
+    private final long deadline;
+    private long bytesRead;
+
+    DeadlineInputStream(InputStream in, Duration timeout) {
+        super(in);
+        this.timeout = timeout;
+        this.deadline = System.nanoTime() + timeout.toNanos();
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkDeadline();
+        int b = super.read();
+        if (b >= 0) {
+            bytesRead++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkDeadline();
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            bytesRead += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkDeadline();
+        long skipped = super.skip(n);
+        bytesRead += skipped;
+        return skipped;
+    }
+
+    private void checkDeadline() throws InterruptedIOException {
+        String reason = Thread.currentThread().isInterrupted() ? "Parse interrupted"
+                : System.nanoTime() - deadline > 0 ? "Parse exceeded %d ms".formatted(timeout.toMillis())
+                : null;
+        if (reason != null) {
+            InterruptedIOException e = new InterruptedIOException("%s, cancelled after %d bytes".formatted(reason, bytesRead));
+            e.bytesTransferred = (int) Math.min(bytesRead, Integer.MAX_VALUE);
+            throw e;
+        }
+    }
+}
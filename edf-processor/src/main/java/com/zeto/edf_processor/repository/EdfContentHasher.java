@@ -0,0 +1,107 @@
+package com.zeto.edf_processor.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Content hash of an EDF file, to find copies of the same recording under different names.
+ *
+ * <p>The sampled hash covers the whole header (patient, recording, start time and the
+ * channel headers), {@code blocks} evenly spaced blocks of the data records including the
+ * first and the last one, and the file size; it reads a few hundred kilobytes whatever the
+ * size of the file. The full hash covers every byte. Both are {@link XxHash64}.</p>
+ *
+ * <p>Reads go through a direct buffer per thread, so hashing on the scan pool copies no data
+ * to the heap and allocates nothing per file.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+class EdfContentHasher {
+
+    /** Bytes of one sampled block of the data records */
+    static final int BLOCK_BYTES = 16 * 1024;
+
+    /** Direct read buffer of every hashing thread */
+    private static final int BUFFER_BYTES = 1024 * 1024;
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_BYTES));
+
+    /** Offset and width of the header byte count in the fixed header */
+    private static final int HEADER_BYTES_OFFSET = EdfHeaderValidator.HEADER_BYTES;
+    private static final int HEADER_BYTES_WIDTH = 8;
+
+    private final boolean full;
+    private final int blocks;
+
+    /**
+     * @param full   hash every byte instead of the header and sampled blocks
+     * @param blocks sampled blocks of the data records, at least 2
+     */
+    EdfContentHasher(boolean full, int blocks) {
+        this.full = full;
+        this.blocks = Math.max(2, blocks);
+    }
+
+    /**
+     * Hashes a file.
+     *
+     * @param file path of the file
+     * @param size size of the file from the directory listing
+     * @return 64 bit content hash
+     * @throws IOException if the file cannot be read
+     */
+    long hash(Path file, long size) throws IOException {
+        XxHash64 hash = new XxHash64(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (full) {
+                update(channel, hash, 0, size);
+            } else {
+                long headerBytes = Math.min(size, headerBytes(channel));
+                update(channel, hash, 0, headerBytes);
+                long dataBytes = size - headerBytes;
+                if (dataBytes <= (long) blocks * BLOCK_BYTES) {
+                    update(channel, hash, headerBytes, dataBytes);
+                } else {
+                    for (int i = 0; i < blocks; i++) {
+                        update(channel, hash, headerBytes + (dataBytes - BLOCK_BYTES) * i / (blocks - 1), BLOCK_BYTES);
+                    }
+                }
+            }
+        }
+        // copies truncated after the last sampled block differ in size
+        hash.update(size);
+        return hash.digest();
+    }
+
+    /**
+     * Declared header size, the fixed header only if it cannot be read.
+     */
+    private static long headerBytes(FileChannel channel) throws IOException {
+        ByteBuffer field = ByteBuffer.allocate(HEADER_BYTES_WIDTH);
+        channel.read(field, HEADER_BYTES_OFFSET);
+        try {
+            return Math.max(EdfHeaderValidator.FIXED_HEADER_BYTES,
+                    Long.parseLong(new String(field.array(), 0, field.position(), StandardCharsets.US_ASCII).trim()));
+        } catch (NumberFormatException e) {
+            return EdfHeaderValidator.FIXED_HEADER_BYTES;
+        }
+    }
+
+    private static void update(FileChannel channel, XxHash64 hash, long position, long length) throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        long end = position + length;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
+            hash.update(buffer.flip());
+        }
+    }
+}
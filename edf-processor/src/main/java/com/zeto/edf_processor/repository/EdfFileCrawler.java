@@ -0,0 +1,186 @@
+package com.zeto.edf_processor.repository;
+
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.config.EdfProcessorProperties.Source;
+import com.zeto.edf_processor.model.EdfFileProperties;
+import com.zeto.edf_processor.model.FileFingerprint;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel crawler collecting the EDF files of a source root.
+ *
+ * <p>Every directory is listed by its own fork/join task with {@link Files#walkFileTree}
+ * limited to depth 1; subdirectories are forked as new tasks. The file size and
+ * modification time come from the {@link BasicFileAttributes} delivered with the
+ * directory listing, so no file is stat-ed a second time.</p>
+ *
+ * <p><b>Matching:</b> include and exclude globs are matched against the path relative
+ * to the root. Without include patterns every file with an {@code .edf} extension
+ * (case-insensitive) is loaded. Excluded directories are not descended into.
+ * Symbolic links are not followed.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see EdfInMemoryRepository
+ */
+@Component
+@Slf4j
+public class EdfFileCrawler {
+
+    /**
+     * An EDF file found by the crawler.
+     *
+     * @param sourceRoot  root the file was found under
+     * @param filePath    absolute path of the file
+     * @param fileId      identifier of the file, unique across the source roots
+     * @param fingerprint size and modification time from the directory listing
+     */
+    public record DiscoveredFile(Path sourceRoot, Path filePath, String fileId, FileFingerprint fingerprint) {
+    }
+
+    private final ForkJoinPool scanPool;
+
+    public EdfFileCrawler(EdfProcessorProperties properties) {
+        this.scanPool = new ForkJoinPool(properties.getScan().getParallelism());
+    }
+
+    /**
+     * Collects the matching files under a source root, ordered by path.
+     *
+     * <p>A subdirectory that cannot be listed is logged and skipped.</p>
+     *
+     * @param root         absolute path of an existing root directory
+     * @param rootPosition position of the root in the configuration, 1 for the first, qualifies the file identifiers
+     * @param source       patterns and depth limit of the root
+     * @return matching files
+     * @throws UncheckedIOException if the root itself cannot be listed
+     * @see EdfFileProperties#fileId(int, Path, Path)
+     */
+    public List<DiscoveredFile> crawl(Path root, int rootPosition, Source source) {
+        Filter filter = new Filter(root, rootPosition, source);
+        List<DiscoveredFile> files = new ArrayList<>(scanPool.invoke(new DirectoryTask(root, root, 0, filter)));
+        files.sort(Comparator.comparing(DiscoveredFile::filePath));
+        return files;
+    }
+
+    /**
+     * Pool the directory tasks run on.
+     */
+    public ForkJoinPool scanPool() {
+        return scanPool;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scanPool.shutdownNow();
+    }
+
+    /**
+     * Compiled include/exclude patterns and the depth limit of a source root.
+     */
+    private static final class Filter {
+        private final List<PathMatcher> includes;
+        private final List<PathMatcher> excludes;
+        private final int maxDepth;
+        private final int rootPosition;
+
+        Filter(Path root, int rootPosition, Source source) {
+            FileSystem fileSystem = root.getFileSystem();
+            this.includes = source.getInclude().stream().map(glob -> fileSystem.getPathMatcher("glob:" + glob)).toList();
+            this.excludes = source.getExclude().stream().map(glob -> fileSystem.getPathMatcher("glob:" + glob)).toList();
+            this.maxDepth = source.getMaxDepth();
+            this.rootPosition = rootPosition;
+        }
+
+        boolean isExcluded(Path relative) {
+            return excludes.stream().anyMatch(matcher -> matcher.matches(relative));
+        }
+
+        boolean isIncluded(Path relative) {
+            if (isExcluded(relative)) {
+                return false;
+            }
+            if (includes.isEmpty()) {
+                return relative.getFileName().toString().toLowerCase().endsWith(".edf");
+            }
+            return includes.stream().anyMatch(matcher -> matcher.matches(relative));
+        }
+    }
+
+    /**
+     * Lists one directory and forks a task for every subdirectory within the depth limit.
+     */
+    private static final class DirectoryTask extends RecursiveTask<List<DiscoveredFile>> {
+        private final Path root;
+        private final Path directory;
+        /** Depth of the directory, the root is at depth 0 */
+        private final int depth;
+        private final Filter filter;
+
+        DirectoryTask(Path root, Path directory, int depth, Filter filter) {
+            this.root = root;
+            this.directory = directory;
+            this.depth = depth;
+            this.filter = filter;
+        }
+
+        @Override
+        protected List<DiscoveredFile> compute() {
+            List<DiscoveredFile> files = new ArrayList<>();
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            try {
+                Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        Path relative = root.relativize(file);
+                        if (attrs.isDirectory()) {
+                            // files of the subdirectory are at depth + 2
+                            if (depth + 2 <= filter.maxDepth && !filter.isExcluded(relative)) {
+                                subdirectories.add(new DirectoryTask(root, file, depth + 1, filter));
+                            }
+                        } else if (attrs.isRegularFile() && filter.isIncluded(relative)) {
+                            files.add(new DiscoveredFile(root, file, EdfFileProperties.fileId(filter.rootPosition, root, file),
+                                    new FileFingerprint(attrs.size(), attrs.lastModifiedTime().toMillis())));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        log.warn("Skipping unreadable path {}: {}", file, e.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                if (depth == 0) {
+                    throw new UncheckedIOException(e);
+                }
+                log.warn("Skipping unreadable directory {}: {}", directory, e.getMessage());
+                return files;
+            }
+            for (DirectoryTask task : invokeAll(subdirectories)) {
+                files.addAll(task.join());
+            }
+            return files;
+        }
+    }
+}
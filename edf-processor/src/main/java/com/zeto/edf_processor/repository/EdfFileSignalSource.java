@@ -0,0 +1,228 @@
+package com.zeto.edf_processor.repository;
+
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+import com.zeto.edf_processor.model.SignalWindow.ChannelSignal;
+import com.zeto.edf_processor.service.EdfSignalSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import ru.mipt.edf.EDFHeader;
+import ru.mipt.edf.EDFParser;
+import ru.mipt.edf.EDFParserException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File system adapter for reading EDF data records with NIO.
+ *
+ * <p>The header is parsed with {@link EDFParser#parseHeader(InputStream)}, which only
+ * consumes the header bytes. Data records are then read with positional
+ * {@link FileChannel} reads into a single reusable record buffer, and the requested
+ * channels are demultiplexed into primitive {@code float} arrays.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see SignalLayout
+ */
+@Repository
+@Slf4j
+public class EdfFileSignalSource implements EdfSignalSource {
+
+    /**
+     * Reads the current fingerprint of a file from its attributes.
+     *
+     * @param filePath path of the file
+     * @return size and modification time of the file
+     * @throws UncheckedIOException if the attributes cannot be read
+     */
+    @Override
+    public FileFingerprint fingerprint(Path filePath) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            return new FileFingerprint(attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the record layout from the header of an EDF file.
+     *
+     * @param filePath path of the EDF file
+     * @return layout of the data records
+     * @throws UncheckedIOException if the file cannot be read or the header is invalid
+     */
+    @Override
+    public SignalLayout readLayout(Path filePath) {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            EDFHeader header = EDFParser.parseHeader(Channels.newInputStream(channel)).getHeader();
+            return SignalLayout.from(header.getBytesInHeader(),
+                    header.getNumberOfRecords(),
+                    header.getDurationOfRecords(),
+                    header.getChannelLabels(),
+                    header.getDimensions(),
+                    header.getNumberOfSamples(),
+                    header.getDigitalMin(),
+                    header.getDigitalMax(),
+                    header.getMinInUnits(),
+                    header.getMaxInUnits());
+        } catch (EDFParserException e) {
+            throw new UncheckedIOException(new IOException("Invalid EDF header: " + filePath.getFileName(), e));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the raw header bytes of an EDF file.
+     *
+     * @param filePath path of the EDF file
+     * @param layout   layout of the file, see {@link #readLayout(Path)}
+     * @return the first {@link SignalLayout#getHeaderBytes()} bytes of the file
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    @Override
+    public byte[] readHeader(Path filePath, SignalLayout layout) {
+        ByteBuffer header = ByteBuffer.allocate(layout.getHeaderBytes());
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            readFully(fileChannel, header, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return header.array();
+    }
+
+    /**
+     * Reads and decodes the records {@code [fromRecord, toRecord)} of a single channel.
+     *
+     * <p>Only the bytes of the channel are read from each record, with one positional
+     * read per record into a reusable buffer.</p>
+     *
+     * @param filePath   path of the EDF file
+     * @param layout     layout of the file, see {@link #readLayout(Path)}
+     * @param fromRecord first record (inclusive)
+     * @param toRecord   last record (exclusive)
+     * @param channel    channel to decode
+     * @return physical samples of the channel
+     * @throws UncheckedIOException if reading fails or the file is shorter than its header claims
+     */
+    @Override
+    public float[] readChannel(Path filePath, SignalLayout layout, int fromRecord, int toRecord, ChannelLayout channel) {
+        int samplesPerRecord = channel.samplesPerRecord();
+        float[] samples = new float[samplesPerRecord * (toRecord - fromRecord)];
+        ByteBuffer slice = ByteBuffer.allocate(samplesPerRecord * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            for (int r = fromRecord; r < toRecord; r++) {
+                readFully(fileChannel, slice.clear(), layout.recordPosition(r) + channel.byteOffset());
+                channel.decode(slice, 0, samples, (r - fromRecord) * samplesPerRecord);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return samples;
+    }
+
+    /**
+     * Reads and decodes the records {@code [fromRecord, toRecord)} of the given channels.
+     *
+     * @param filePath   path of the EDF file
+     * @param layout     layout of the file, see {@link #readLayout(Path)}
+     * @param fromRecord first record (inclusive)
+     * @param toRecord   last record (exclusive)
+     * @param channels   channels to decode
+     * @return decoded physical samples per channel
+     * @throws UncheckedIOException if reading fails or the file is shorter than its header claims
+     */
+    @Override
+    public SignalWindow readWindow(Path filePath, SignalLayout layout, int fromRecord, int toRecord,
+                                   List<ChannelLayout> channels) {
+        int recordCount = toRecord - fromRecord;
+        float[][] samples = new float[channels.size()][];
+        for (int c = 0; c < channels.size(); c++) {
+            samples[c] = new float[channels.get(c).samplesPerRecord() * recordCount];
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(layout.getRecordBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            for (int r = 0; r < recordCount; r++) {
+                readFully(fileChannel, record.clear(), layout.recordPosition(fromRecord + r));
+                for (int c = 0; c < channels.size(); c++) {
+                    ChannelLayout channel = channels.get(c);
+                    channel.decode(record, channel.byteOffset(), samples[c], r * channel.samplesPerRecord());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<ChannelSignal> channelSignals = new ArrayList<>(channels.size());
+        for (int c = 0; c < channels.size(); c++) {
+            ChannelLayout channel = channels.get(c);
+            channelSignals.add(new ChannelSignal(channel.label(), channel.unit(),
+                    channel.sampleRate(layout.getDurationOfRecords()),
+                    channel.scale(), channel.offset(), samples[c]));
+        }
+        return new SignalWindow(filePath.getFileName().toString(), fromRecord, toRecord,
+                fromRecord * layout.getDurationOfRecords(), channelSignals);
+    }
+
+    /**
+     * Reads the records {@code [fromRecord, toRecord)} undecoded, in blocks of at most {@code blockRecords} records.
+     *
+     * <p>One heap buffer of a block is allocated per call and reused for every block, so the memory
+     * of a call does not grow with the number of records and is collected with the call.</p>
+     *
+     * @param filePath     path of the EDF file
+     * @param layout       layout of the file, see {@link #readLayout(Path)}
+     * @param fromRecord   first record (inclusive)
+     * @param toRecord     last record (exclusive)
+     * @param blockRecords records per block, at least 1
+     * @param consumer     receives every block in record order
+     * @throws UncheckedIOException if reading fails, the file is shorter than its header claims or the consumer fails
+     */
+    @Override
+    public void readRecords(Path filePath, SignalLayout layout, int fromRecord, int toRecord, int blockRecords,
+                            RecordBlockConsumer consumer) {
+        ByteBuffer block = ByteBuffer.allocate(blockRecords * layout.getRecordBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            for (int r = fromRecord; r < toRecord; r += blockRecords) {
+                int records = Math.min(blockRecords, toRecord - r);
+                block.clear().limit(records * layout.getRecordBytes());
+                readFully(fileChannel, block, layout.recordPosition(r));
+                consumer.accept(block, r, records);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fills the buffer from the given file position, failing on a premature end of file.
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long filePosition = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, filePosition);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of EDF file at byte " + filePosition);
+            }
+            filePosition += read;
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,278 @@
+package com.zeto.edf_processor.repository;
+
+import com.zeto.edf_processor.model.EdfErrorCode;
+import com.zeto.edf_processor.model.EdfValidationError;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static com.zeto.edf_processor.model.EdfErrorCode.*;
+
+/**
+ * Cheap structural validation of EDF files, reading only the header.
+ *
+ * <p>Runs before the full parse, so a broken file is rejected after reading
+ * {@code 256 * (channels + 1)} bytes instead of the whole file. The checks cost
+ * O(header size):</p>
+ * <ol>
+ *   <li>The fixed and the per-channel header are complete and free of control characters</li>
+ *   <li>Numeric fields have valid integer or decimal syntax</li>
+ *   <li>The header byte count equals {@code 256 + 256 * channels}</li>
+ *   <li>The reserved field is "EDF+C" or "EDF+D" if it starts with "EDF+"</li>
+ *   <li>Record count, samples per record and calibration are plausible</li>
+ *   <li>The file size equals {@code header bytes + records * record size}</li>
+ *   <li>The memory the parser allocates for the data records fits the parse budget</li>
+ * </ol>
+ *
+ * <p>Every failure carries an {@link EdfErrorCode} and the byte offset of the
+ * offending field (or, for a size mismatch, where the data ends or the excess begins).</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see EdfValidationError
+ */
+@Slf4j
+public class EdfHeaderValidator {
+
+    static final int FIXED_HEADER_BYTES = 256;
+    static final int CHANNEL_HEADER_BYTES = 256;
+
+    /** Offsets of the fixed header fields */
+    static final int VERSION = 0;
+    static final int HEADER_BYTES = 184;
+    static final int RESERVED = 192;
+    static final int NUMBER_OF_RECORDS = 236;
+    static final int DURATION = 244;
+    static final int NUMBER_OF_SIGNALS = 252;
+
+    /** Widths of the per-channel fields, in header order */
+    private static final int LABEL_WIDTH = 16;
+    private static final int TRANSDUCER_WIDTH = 80;
+    private static final int DIMENSION_WIDTH = 8;
+    private static final int NUMBER_WIDTH = 8;
+    private static final int PREFILTER_WIDTH = 80;
+
+    /**
+     * Bytes the EDFParser allocates per byte of data records: every 2 byte sample is held
+     * as a {@code short} and as a {@code double} (2 + 8 bytes)
+     */
+    static final int PARSE_BYTES_PER_DATA_BYTE = 5;
+
+    private static final Pattern INTEGER = Pattern.compile("[-+]?\\d+");
+    private static final Pattern DECIMAL = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+
+    /** Largest parse allocation accepted, see {@link #estimateParseBytes(long)} */
+    private final long maxParseBytes;
+
+    /**
+     * Validator without a parse budget.
+     */
+    public EdfHeaderValidator() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxParseBytes largest memory the parse of a file may allocate for its data records
+     */
+    public EdfHeaderValidator(long maxParseBytes) {
+        this.maxParseBytes = maxParseBytes;
+    }
+
+    /**
+     * Memory the EDFParser allocates to decode the data records of a file.
+     *
+     * @param dataBytes bytes of the data records, {@code records * record size}
+     * @return estimated bytes allocated by the parse
+     */
+    public static long estimateParseBytes(long dataBytes) {
+        return dataBytes > Long.MAX_VALUE / PARSE_BYTES_PER_DATA_BYTE ? Long.MAX_VALUE
+                : dataBytes * PARSE_BYTES_PER_DATA_BYTE;
+    }
+
+    /**
+     * Validates the structure of an EDF file.
+     *
+     * @param file     the file to validate
+     * @param fileSize size of the file in bytes, as read by the directory scan
+     * @return the first failing check, or empty if the file is structurally valid
+     * @throws IOException if the file cannot be read
+     */
+    public Optional<EdfValidationError> validate(Path file, long fileSize) throws IOException {
+        if (fileSize < FIXED_HEADER_BYTES) {
+            return fail(TRUNCATED_HEADER, fileSize, "File has %d bytes, the fixed header needs %d"
+                    .formatted(fileSize, FIXED_HEADER_BYTES));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header fixed = new Header(read(channel, 0, FIXED_HEADER_BYTES), 0);
+            Optional<EdfValidationError> error = validateFixed(fixed);
+            if (error.isPresent()) {
+                return error;
+            }
+
+            int signals = fixed.integer(NUMBER_OF_SIGNALS, 4);
+            long headerBytes = FIXED_HEADER_BYTES + (long) CHANNEL_HEADER_BYTES * signals;
+            if (fileSize < headerBytes) {
+                return fail(TRUNCATED_HEADER, fileSize, "File has %d bytes, the header of %d channels needs %d"
+                        .formatted(fileSize, signals, headerBytes));
+            }
+            Header channels = new Header(read(channel, FIXED_HEADER_BYTES, (int) headerBytes - FIXED_HEADER_BYTES), FIXED_HEADER_BYTES);
+            return validateChannels(fixed, channels, signals, headerBytes, fileSize);
+        } catch (InvalidFieldException e) {
+            return Optional.of(e.error);
+        }
+    }
+
+    private Optional<EdfValidationError> validateFixed(Header fixed) {
+        Optional<EdfValidationError> ascii = fixed.checkAscii();
+        if (ascii.isPresent()) {
+            return ascii;
+        }
+        if (!fixed.text(VERSION, 8).equals("0")) {
+            return fail(INVALID_VERSION, VERSION, "Version must be 0, found '%s'".formatted(fixed.text(VERSION, 8)));
+        }
+        int headerBytes = fixed.integer(HEADER_BYTES, 8);
+        int signals = fixed.integer(NUMBER_OF_SIGNALS, 4);
+        if (signals <= 0) {
+            return fail(INVALID_CHANNEL_COUNT, NUMBER_OF_SIGNALS, "Number of signals must be positive, found %d".formatted(signals));
+        }
+        if (headerBytes != FIXED_HEADER_BYTES + CHANNEL_HEADER_BYTES * signals) {
+            return fail(HEADER_SIZE_MISMATCH, HEADER_BYTES, "Header declares %d bytes, %d signals need %d"
+                    .formatted(headerBytes, signals, FIXED_HEADER_BYTES + CHANNEL_HEADER_BYTES * signals));
+        }
+        String reserved = fixed.text(RESERVED, 44);
+        if (reserved.startsWith("EDF+") && !reserved.equals("EDF+C") && !reserved.equals("EDF+D")) {
+            return fail(INVALID_EDF_PLUS_TYPE, RESERVED, "Reserved field must be EDF+C or EDF+D, found '%s'".formatted(reserved));
+        }
+        int records = fixed.integer(NUMBER_OF_RECORDS, 8);
+        if (records <= 0) {
+            return fail(INVALID_RECORD_COUNT, NUMBER_OF_RECORDS, "Number of data records must be positive, found %d".formatted(records));
+        }
+        double duration = fixed.decimal(DURATION, 8);
+        if (duration < 0) {
+            return fail(INVALID_RECORD_COUNT, DURATION, "Duration of a data record must not be negative, found %s".formatted(duration));
+        }
+        return Optional.empty();
+    }
+
+    private Optional<EdfValidationError> validateChannels(Header fixed, Header channels, int signals,
+                                                          long headerBytes, long fileSize) {
+        Optional<EdfValidationError> ascii = channels.checkAscii();
+        if (ascii.isPresent()) {
+            return ascii;
+        }
+        int physicalMins = FIXED_HEADER_BYTES + signals * (LABEL_WIDTH + TRANSDUCER_WIDTH + DIMENSION_WIDTH);
+        int physicalMaxs = physicalMins + signals * NUMBER_WIDTH;
+        int digitalMins = physicalMaxs + signals * NUMBER_WIDTH;
+        int digitalMaxs = digitalMins + signals * NUMBER_WIDTH;
+        int samples = digitalMaxs + signals * NUMBER_WIDTH + signals * PREFILTER_WIDTH;
+
+        long recordBytes = 0;
+        for (int i = 0; i < signals; i++) {
+            int samplesOffset = samples + i * NUMBER_WIDTH;
+            int samplesPerRecord = channels.integer(samplesOffset, NUMBER_WIDTH);
+            if (samplesPerRecord <= 0) {
+                return fail(INVALID_SAMPLE_COUNT, samplesOffset, "Samples per record of signal %d must be positive, found %d"
+                        .formatted(i, samplesPerRecord));
+            }
+            recordBytes += (long) samplesPerRecord * Short.BYTES;
+
+            double physicalMin = channels.decimal(physicalMins + i * NUMBER_WIDTH, NUMBER_WIDTH);
+            double physicalMax = channels.decimal(physicalMaxs + i * NUMBER_WIDTH, NUMBER_WIDTH);
+            int digitalMin = channels.integer(digitalMins + i * NUMBER_WIDTH, NUMBER_WIDTH);
+            int digitalMax = channels.integer(digitalMaxs + i * NUMBER_WIDTH, NUMBER_WIDTH);
+            if (digitalMin >= digitalMax) {
+                return fail(INVALID_CALIBRATION, digitalMins + i * NUMBER_WIDTH, "Digital minimum %d of signal %d is not below the maximum %d"
+                        .formatted(digitalMin, i, digitalMax));
+            }
+            if (physicalMin == physicalMax) {
+                return fail(INVALID_CALIBRATION, physicalMins + i * NUMBER_WIDTH, "Physical minimum and maximum of signal %d are both %s"
+                        .formatted(i, physicalMin));
+            }
+        }
+
+        long expectedSize = headerBytes + fixed.integer(NUMBER_OF_RECORDS, 8) * recordBytes;
+        if (fileSize != expectedSize) {
+            return fail(FILE_SIZE_MISMATCH, Math.min(fileSize, expectedSize), "File has %d bytes, header and records need %d"
+                    .formatted(fileSize, expectedSize));
+        }
+        long parseBytes = estimateParseBytes(expectedSize - headerBytes);
+        if (parseBytes > maxParseBytes) {
+            return fail(PARSE_BUDGET_EXCEEDED, NUMBER_OF_RECORDS, "Parsing %d records needs about %d MB, the limit is %d MB"
+                    .formatted(fixed.integer(NUMBER_OF_RECORDS, 8), parseBytes >> 20, maxParseBytes >> 20));
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<EdfValidationError> fail(EdfErrorCode code, long offset, String message) {
+        log.debug("Header check {} failed at byte {}: {}", code, offset, message);
+        return Optional.of(EdfValidationError.at(code, offset, message));
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * A part of the header starting at a file offset, with typed field access.
+     * Field offsets are file offsets.
+     */
+    private record Header(byte[] bytes, int start) {
+
+        Optional<EdfValidationError> checkAscii() {
+            for (int i = 0; i < bytes.length; i++) {
+                // non-ASCII text is tolerated, control characters mean binary data in the header
+                if ((bytes[i] & 0xff) < 0x20 || bytes[i] == 0x7f) {
+                    return fail(NON_TEXT_HEADER, start + i, "Header byte 0x%02x is a control character".formatted(bytes[i] & 0xff));
+                }
+            }
+            return Optional.empty();
+        }
+
+        String text(int offset, int width) {
+            return new String(bytes, offset - start, width, StandardCharsets.ISO_8859_1).trim();
+        }
+
+        int integer(int offset, int width) {
+            String value = text(offset, width);
+            if (!INTEGER.matcher(value).matches()) {
+                throw new InvalidFieldException(EdfValidationError.at(INVALID_NUMBER, offset,
+                        "Field at byte %d is not an integer: '%s'".formatted(offset, value)));
+            }
+            return Integer.parseInt(value);
+        }
+
+        double decimal(int offset, int width) {
+            String value = text(offset, width);
+            if (!DECIMAL.matcher(value).matches()) {
+                throw new InvalidFieldException(EdfValidationError.at(INVALID_NUMBER, offset,
+                        "Field at byte %d is not a number: '%s'".formatted(offset, value)));
+            }
+            return Double.parseDouble(value);
+        }
+    }
+
+    /**
+     * Aborts the validation at the first malformed numeric field.
+     */
+    private static class InvalidFieldException extends RuntimeException {
+        private final transient EdfValidationError error;
+
+        InvalidFieldException(EdfValidationError error) {
+            super(error.message(), null, false, false);
+            this.error = error;
+        }
+    }
+}
@@ -1,22 +1,59 @@
 package com.zeto.edf_processor.repository;
 
 
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryPressure;
+import com.zeto.edf_processor.cache.MemoryUsage;
 import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.config.EdfProcessorProperties.Dedup;
+import com.zeto.edf_processor.config.EdfProcessorProperties.Source;
 import com.zeto.edf_processor.exceptions.EdfSourceNotFoundException;
 import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.EdfErrorCode;
+import com.zeto.edf_processor.model.EdfFileProperties;
+import com.zeto.edf_processor.model.EdfValidationError;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.HeapSize;
+import com.zeto.edf_processor.model.ScanProgress;
+import com.zeto.edf_processor.repository.EdfFileCrawler.DiscoveredFile;
+import com.zeto.edf_processor.service.EdfFileChangedEvent;
+import com.zeto.edf_processor.service.EdfFileListedEvent;
+import com.zeto.edf_processor.service.EdfFilesLoadedEvent;
 import com.zeto.edf_processor.service.EdfRepository;
-import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 import ru.mipt.edf.EDFHeader;
 import ru.mipt.edf.EDFParserResult;
 
 import java.io.File;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 
 
@@ -28,15 +65,29 @@ import java.util.concurrent.CopyOnWriteArrayList;
  *
  * <p>This repository acts as the data access layer, responsible for:</p>
  * <ul>
- *   <li>Scanning the configured directory for .edf files</li>
+ *   <li>Scanning the configured source roots recursively for .edf files, see {@link EdfFileCrawler}</li>
  *   <li>Parsing each file using the EDFParser library</li>
  *   <li>Converting parsed data into domain entities</li>
  *   <li>Maintaining an in-memory cache of loaded files</li>
+ *   <li>Parsing the newest files (by modification time) first and listing them in batches as they are
+ *       parsed until the first scan has finished</li>
+ *   <li>Remembering invalid files by fingerprint, so unchanged broken files are not parsed on every rescan;
+ *       a parse cancelled at its timeout is tried again by the next scan</li>
+ *   <li>Listing files too large to parse within {@code edf.scan.max-parse-bytes} from their header</li>
+ *   <li>Parsing copies of the same recording once: files with the same content hash are listed as
+ *       aliases of the newest copy, see {@link EdfContentHasher}; the files are hashed on the scan pool
+ *       a few files ahead of the parse</li>
  *   <li>Handling both valid and invalid EDF files gracefully</li>
+ *   <li>Accounting the memory of the parsed metadata and its indexes, and not listing new files
+ *       while the {@link MemoryPressure} rejects loads; they are listed by a later scan</li>
+ *   <li>Publishing an {@link EdfFileChangedEvent} for every file modified or removed since the previous load</li>
+ *   <li>Publishing an {@link EdfFileListedEvent} for every file listed while the first load runs</li>
+ *   <li>Publishing an {@link EdfFilesLoadedEvent} after every load, for background enrichment</li>
  * </ul>
  *
- * <p>The repository automatically loads all EDF files on application startup
- * via the {@link #loadEdfs()} method annotated with {@link PostConstruct}.</p>
+ * <p>The first load is started by {@link com.zeto.edf_processor.service.EdfService} once the
+ * application is ready, in the background unless {@code edf.scan.background} is disabled, so
+ * startup does not wait for the archive to be parsed.</p>
  *
  * @author Peter Kormos
  * @version 1.0
@@ -45,80 +96,456 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 @Repository
 @Slf4j
-@RequiredArgsConstructor
-public class EdfInMemoryRepository implements EdfRepository {
+public class EdfInMemoryRepository implements EdfRepository, MemoryAccounted {
     /**
      * Static instance of EDF file reader for parsing operations.
      */
     private static final EdfReader EDF_READER = new EdfReader();
 
+    /**
+     * Most files parsed by the first load before a new snapshot lists them; the first batches are smaller,
+     * so the newest files are listed right away.
+     */
+    private static final int PARTIAL_BATCH = 64;
+
+    /**
+     * Longest time a file parsed by the first load waits for the next snapshot, unless no other file is parsed meanwhile.
+     */
+    private static final long PARTIAL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /**
+     * Files hashed ahead of the parse per thread of the scan pool, see {@link ContentHashes}.
+     */
+    private static final int HASH_LOOK_AHEAD = 4;
+
     /**
      * Configuration properties containing the EDF directory path.
      */
     private final EdfProcessorProperties properties;
 
+    /**
+     * Notifies caches of files modified or removed between two loads.
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Parallel crawler collecting the EDF files of the source roots.
+     */
+    private final EdfFileCrawler crawler;
+
+    /**
+     * Files not listed before are not parsed while it rejects loads.
+     */
+    private final MemoryPressure memoryPressure;
+
+    /**
+     * Header checks of every file, with the parse budget {@code edf.scan.max-parse-bytes}.
+     */
+    private final EdfHeaderValidator headerValidator;
+
     /**
      * In-memory "cache" of loaded EDF file data.
      * This list contains both valid and invalid EDF files.
-     * Thread-safe without explicit synchronization for heavy workloads
+     * An immutable snapshot replaced at the end of every load, so readers need no synchronization or copy.
+     */
+    private volatile List<EdfData> edfs = List.of();
+
+    /**
+     * Immutable snapshot of the files parsed so far by a load before any load has finished, listed instead of
+     * the empty snapshot and replaced per batch of parsed files; {@code null} otherwise.
+     */
+    private volatile List<EdfData> partial;
+
+    /**
+     * The files of {@link #edfs} and {@link #partial} by identifier and alias identifiers, built with each snapshot
+     * and published before it. Aliases found after a file was listed in a partial snapshot are indexed with the next one.
+     */
+    private volatile Map<String, EdfData> edfsById = Map.of();
+    private volatile Map<String, EdfData> partialById;
+
+    /** Files parsed so far by the running load, accounted next to the current snapshot; {@code null} otherwise */
+    private volatile List<EdfData> loading;
+
+    /** A load has finished successfully */
+    private volatile boolean complete;
+
+    /** Reason the last load failed, {@code null} if it succeeded or is running */
+    private volatile String failure;
+
+    /** A load is running */
+    private volatile boolean scanning;
+
+    /** Files found, parsed and rejected under memory pressure by the running or last load */
+    private final AtomicInteger discovered = new AtomicInteger();
+    private final AtomicInteger parsed = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    /**
+     * Negative cache of files that failed validation or parsing, by path.
+     * A file is not parsed again until its fingerprint changes or the entry is forgotten.
+     */
+    private final Map<Path, EdfData> invalidEdfs = new ConcurrentHashMap<>();
+
+    /**
+     * Content hashes of the files, by path. A file is not hashed again until its fingerprint changes.
      */
-    private final List<EdfData> edfs = new CopyOnWriteArrayList<>();
+    private final Map<Path, ContentHash> contentHashes = new ConcurrentHashMap<>();
 
     /**
-     * Loads all EDF files from the configured directory on application startup.
+     * Content hash of a version of a file.
+     */
+    private record ContentHash(FileFingerprint fingerprint, long hash) {
+    }
+
+    public EdfInMemoryRepository(EdfProcessorProperties properties, ApplicationEventPublisher eventPublisher,
+                                 EdfFileCrawler crawler, MemoryPressure memoryPressure) {
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.crawler = crawler;
+        this.memoryPressure = memoryPressure;
+        this.headerValidator = new EdfHeaderValidator(properties.getScan().getMaxParseBytes().toBytes());
+    }
+
+    /**
+     * Loads all EDF files from the configured source roots, replacing the previously loaded files.
      *
-     * <p>This method is automatically invoked thanks to the {@link PostConstruct} annotation.
-     * It performs the following steps:</p>
+     * <p>It performs the following steps:</p>
      *
      * <ol>
-     *   <li>Clears any previously cached file data</li>
-     *   <li>Validates the configured directory exists and is accessible</li>
-     *   <li>Filters for files with .edf extension (case-insensitive)</li>
-     *   <li>Parses each file, handling both valid and invalid files</li>
-     *   <li>Logs statistics about loaded files (total, valid, invalid)</li>
+     *   <li>Validates each configured source root exists and is accessible, missing roots are logged and skipped</li>
+     *   <li>Crawls each root in parallel, filtering files by the include/exclude globs and the depth limit</li>
+     *   <li>Parses the files newest first, handling both valid and invalid files; until the first load
+     *       has finished, {@link #listEdfs()} returns the files parsed so far, published in batches</li>
+     *   <li>Replaces the previously cached file data with the new list</li>
+     *   <li>Logs statistics about loaded files (total, valid, invalid) per root</li>
      * </ol>
      *
      * <p><b>Behavior for edge cases:</b></p>
      * <ul>
-     *   <li>If directory is empty: returns gracefully (no exception)</li>
+     *   <li>If a root is empty: continues gracefully (no exception)</li>
+     *   <li>If a root cannot be listed: logs the error and keeps the files it listed before</li>
      *   <li>If file is corrupted: marks as invalid but continues processing others</li>
      *   <li>If file parsing fails: logs error and includes in results as invalid</li>
+     *   <li>If the thread is interrupted: the load fails with a {@link CancellationException}</li>
+     *   <li>If the load fails: keeps the files listed by the last finished load, or the files parsed so far
+     *       before the first one, and reports the failure in {@link #scanProgress()}</li>
      * </ul>
      *
-     * @throws EdfSourceNotFoundException if the configured directory does not exist or is not a valid directory
+     * @throws EdfSourceNotFoundException if none of the configured source roots exists as a directory
      */
-    @PostConstruct
     public void loadEdfs() {
-        // clear local list first
-        edfs.clear();
+        // remember the loaded versions, the new list replaces the current one at the end
+        Map<Path, FileFingerprint> previous = fingerprints(edfs);
+        List<EdfData> loaded = Collections.synchronizedList(new ArrayList<>());
+        discovered.set(0);
+        parsed.set(0);
+        rejected.set(0);
+        failure = null;
+        scanning = true;
+        if (!complete) {
+            // nothing listed yet, so list the files while they are parsed
+            partialById = Map.of();
+            partial = List.of();
+        }
+        loading = loaded;
+        boolean succeeded = false;
+        try {
+            scanSourceRoots(loaded, previous.keySet());
+            // forget failures of files that are gone
+            Set<Path> loadedPaths = fingerprints(loaded).keySet();
+            invalidEdfs.keySet().retainAll(loadedPaths);
+            succeeded = true;
+        } catch (RuntimeException e) {
+            failure = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            // a failed load keeps what was listed, the files of the last finished load or the ones parsed so far
+            if (succeeded || !complete) {
+                List<EdfData> snapshot = List.copyOf(loaded);
+                edfsById = byFileId(snapshot);
+                edfs = snapshot;
+            }
+            partial = null;
+            partialById = null;
+            loading = null;
+            complete |= succeeded;
+            scanning = false;
+            publishChanges(previous);
+        }
+        eventPublisher.publishEvent(new EdfFilesLoadedEvent(edfs));
+    }
+
+    private void scanSourceRoots(List<EdfData> loaded, Set<Path> listed) {
+        List<Source> sources = properties.getSourceRoots();
+        List<DiscoveredFile> edfFiles = new ArrayList<>();
+        Set<Path> failedRoots = new HashSet<>();
+        int existingRoots = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            Source source = sources.get(i);
+            Path root = properties.resolveSourcePath(source);
+            log.info("Start loading of EDF files from {}", root);
+
+            if (!Files.isDirectory(root)) {
+                log.error("EDF directory not found: {}", root);
+                continue;
+            }
+            existingRoots++;
+
+            List<DiscoveredFile> rootFiles;
+            try {
+                rootFiles = crawler.crawl(root, i + 1, source);
+            } catch (UncheckedIOException e) {
+                log.error("EDF directory {} could not be listed, its files are kept as listed: {}", root, e.getMessage());
+                failedRoots.add(root);
+                continue;
+            }
+
+            //check if the root is empty, if yes, continue with the next one which is a valid state
+            if (rootFiles.isEmpty()) {
+                log.warn("No EDF files found in directory: {}", root);
+                continue;
+            }
+            edfFiles.addAll(rootFiles);
+        }
+
+        if (existingRoots == 0) {
+            throw new EdfSourceNotFoundException("EDF directory not found in: %s".formatted(
+                    sources.stream().map(Source::getPath).collect(Collectors.joining(", "))));
+        }
 
-        File directory = new File(properties.getEdfSourceDirectory());
-        log.info("Start loading of EDF files from {}", directory.getAbsolutePath());
+        // newest first: recent recordings are listed within seconds, whatever the size of the archive
+        edfFiles.sort(Comparator.comparingLong((DiscoveredFile file) -> file.fingerprint().lastModified()).reversed());
+        discovered.set(edfFiles.size());
+        log.info("Found {} EDF files in {} of {} source roots", edfFiles.size(), existingRoots, sources.size());
 
-        if (!directory.exists() || !directory.isDirectory()) {
-            log.error("EDF directory not found");
-            throw new EdfSourceNotFoundException("EDF directory not found in: %s".formatted(properties.getEdfSource()));
+        // add the parsed edfs files to cache one by one, copies of a file already parsed become its aliases
+        ContentHashes hashes = new ContentHashes(edfFiles);
+        Map<Long, EdfData> byHash = new HashMap<>();
+        int aliases = 0;
+        long listedAt = System.nanoTime();
+        try {
+            for (DiscoveredFile edfFile : edfFiles) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Scan interrupted after %d of %d files".formatted(parsed.get(), edfFiles.size()));
+                }
+                Long hash = hashes.next();
+                EdfData original = hash != null ? byHash.get(hash) : null;
+                if (original != null) {
+                    log.info("File {}: copy of {}", edfFile.fileId(), original.getEdfFileProperties().getFileId());
+                    List<EdfFileProperties> copies = new ArrayList<>(original.getAliases());
+                    copies.add(EdfFileProperties.validEdf(edfFile.filePath(), edfFile.fileId(), edfFile.sourceRoot(), edfFile.fingerprint()));
+                    original.setAliases(List.copyOf(copies));
+                    aliases++;
+                } else if (!listed.contains(edfFile.filePath()) && memoryPressure.rejectsLoads()) {
+                    // files listed before are parsed again, they replace their previous version
+                    log.warn("File {}: not loaded, memory above the rejection mark", edfFile.filePath().getFileName());
+                    rejected.incrementAndGet();
+                } else {
+                    EdfData edfData = loadEdfFile(edfFile, hash != null ? HexFormat.of().toHexDigits(hash) : null);
+                    // copies of an invalid or timed out file are parsed themselves
+                    if (hash != null && edfData.isValidEdf()) {
+                        byHash.put(hash, edfData);
+                    }
+                    loaded.add(edfData);
+                    List<EdfData> snapshot = partial;
+                    if (snapshot != null) {
+                        int unlisted = loaded.size() - snapshot.size();
+                        if (unlisted >= Math.min(PARTIAL_BATCH, Math.max(1, snapshot.size()))
+                                || System.nanoTime() - listedAt >= PARTIAL_INTERVAL_NANOS) {
+                            listPartial(loaded);
+                            listedAt = System.nanoTime();
+                        }
+                    }
+                }
+                parsed.incrementAndGet();
+            }
+        } finally {
+            hashes.cancel();
+        }
+        if (partial != null) {
+            listPartial(loaded);
+        }
+        // forget hashes of files that are gone
+        Set<Path> paths = edfFiles.stream().map(DiscoveredFile::filePath).collect(Collectors.toSet());
+        contentHashes.keySet().retainAll(paths);
+
+        // a root that could not be listed keeps its files until a later scan lists it again
+        for (EdfData edfData : edfs) {
+            if (failedRoots.contains(edfData.getEdfFileProperties().getSourceRoot())) {
+                loaded.add(edfData);
+            }
         }
 
-        //read only *.edf files
-        File[] edfFiles = directory.listFiles((dirName, fileName) -> fileName.toLowerCase().endsWith(".edf"));
+        // log statistics of valid/invalid files per root
+        Map<Path, List<EdfData>> byRoot = loaded.stream().collect(Collectors.groupingBy(
+                e -> e.getEdfFileProperties().getSourceRoot(), LinkedHashMap::new, Collectors.toList()));
+        byRoot.forEach((root, rootEdfs) -> {
+            long validEdfFiles = rootEdfs.stream().filter(e -> e.getEdfFileProperties().isValidEdf()).count();
+            log.info("Loaded {} EDF files from {}, valid:{}, invalid:{} ",
+                    rootEdfs.size(), root, validEdfFiles, rootEdfs.size() - validEdfFiles);
+        });
+        log.info("Loaded {} EDF files and {} copies from {} of {} source roots", loaded.size(), aliases, existingRoots, sources.size());
+        if (rejected.get() > 0) {
+            log.warn("{} new EDF files not loaded under memory pressure, a later scan loads them", rejected.get());
+        }
+    }
 
-        //check if edf source is empty, if yes, return empty list which is a valid state
-        if (edfFiles == null || edfFiles.length == 0) {
-            log.warn("No EDF files found in directory: {}", directory.getAbsolutePath());
+    /**
+     * Publishes a new snapshot of the files parsed so far by the first load, then an {@link EdfFileListedEvent}
+     * for every file it lists first, so listeners find the file listed.
+     */
+    private void listPartial(List<EdfData> loaded) {
+        List<EdfData> before = partial;
+        List<EdfData> snapshot = List.copyOf(loaded);
+        if (snapshot.size() == before.size()) {
             return;
         }
+        partialById = byFileId(snapshot);
+        partial = snapshot;
+        snapshot.subList(before.size(), snapshot.size())
+                .forEach(edfData -> eventPublisher.publishEvent(new EdfFileListedEvent(edfData)));
+    }
+
+    /**
+     * Content hashes of the files of a scan in scan order, hashed on the scan pool ahead of the parse.
+     *
+     * <p>Hashing runs a bounded number of files ahead of the file being parsed, so the first file is
+     * parsed as soon as its own hash is known instead of after the whole archive was hashed, and the
+     * pending hashes do not grow with the number of files. The hash of an unchanged file is reused.
+     * A file that cannot be read is not hashed, it is parsed and fails there.</p>
+     */
+    private final class ContentHashes {
+        private final List<DiscoveredFile> files;
+        private final EdfContentHasher hasher;
+        private final int lookAhead;
+        private final Deque<ForkJoinTask<Long>> pending = new ArrayDeque<>();
+        private int submitted;
+
+        ContentHashes(List<DiscoveredFile> files) {
+            this.files = files;
+            Dedup dedup = properties.getDedup();
+            if (!dedup.isEnabled()) {
+                contentHashes.clear();
+            }
+            this.hasher = dedup.isEnabled() ? new EdfContentHasher(dedup.isFullHash(), dedup.getSampleBlocks()) : null;
+            this.lookAhead = HASH_LOOK_AHEAD * crawler.scanPool().getParallelism();
+        }
+
+        /**
+         * Returns the hash of the next file, waiting for it if it is still hashed.
+         *
+         * @return content hash, {@code null} if deduplication is disabled or the file could not be read
+         */
+        Long next() {
+            if (hasher == null) {
+                return null;
+            }
+            while (submitted < files.size() && pending.size() < lookAhead) {
+                DiscoveredFile file = files.get(submitted++);
+                pending.add(crawler.scanPool().submit(() -> hash(file)));
+            }
+            ForkJoinTask<Long> next = pending.poll();
+            return next != null ? next.join() : null;
+        }
+
+        private Long hash(DiscoveredFile file) {
+            ContentHash known = contentHashes.get(file.filePath());
+            if (known != null && known.fingerprint().equals(file.fingerprint())) {
+                return known.hash();
+            }
+            try {
+                long hash = hasher.hash(file.filePath(), file.fingerprint().size());
+                contentHashes.put(file.filePath(), new ContentHash(file.fingerprint(), hash));
+                return hash;
+            } catch (IOException e) {
+                log.warn("File {}: content not hashed, {}", file.filePath().getFileName(), e.getMessage());
+                return null;
+            }
+        }
 
-        // add all parsed edfs file to cache
-        edfs.addAll(Arrays.stream(edfFiles)
-                .map(this::parseEdfFile)
-                .toList());
+        /**
+         * Cancels the hashes not consumed, e.g. after the scan failed.
+         */
+        void cancel() {
+            pending.forEach(task -> task.cancel(false));
+            pending.clear();
+        }
+    }
+
+    /**
+     * Indexes the files of a snapshot by identifier and alias identifiers; the first file listed under an identifier wins.
+     */
+    private static Map<String, EdfData> byFileId(List<EdfData> snapshot) {
+        Map<String, EdfData> index = new HashMap<>();
+        for (EdfData edfData : snapshot) {
+            index.putIfAbsent(edfData.getEdfFileProperties().getFileId(), edfData);
+            edfData.getAliases().forEach(alias -> index.putIfAbsent(alias.getFileId(), edfData));
+        }
+        return index;
+    }
+
+    private static Map<Path, FileFingerprint> fingerprints(List<EdfData> edfs) {
+        return edfs.stream()
+                .map(EdfData::getEdfFileProperties)
+                .collect(Collectors.toMap(EdfFileProperties::getFilePath, EdfFileProperties::getFingerprint, (a, b) -> a));
+    }
 
-        // log statistics of valid/invalid files
-        long validEdfFiles = edfs.stream().filter(e -> e.getEdfFileProperties().isValidEdf()).count();
-        log.info("Loaded {} EDF files, valid:{}, invalid:{} ", edfs.size(),validEdfFiles, edfs.size()-validEdfFiles);
+    /**
+     * Returns the remembered result of a file that failed with the same fingerprint before,
+     * otherwise parses the file and remembers it if it is invalid. A parse cancelled at its timeout
+     * is not remembered, it may succeed when the file system is less busy.
+     *
+     * <p>The remembered result is listed by the published snapshot, so it is not changed: if its
+     * content hash differs, e.g. after deduplication was enabled, a copy with the new hash replaces it.</p>
+     *
+     * @param discoveredFile the EDF file
+     * @param contentHash    content hash of the file as hex digits, {@code null} if deduplication is disabled
+     */
+    private EdfData loadEdfFile(DiscoveredFile discoveredFile, String contentHash) {
+        EdfData knownInvalid = invalidEdfs.get(discoveredFile.filePath());
+        if (knownInvalid != null && knownInvalid.getEdfFileProperties().getFingerprint().equals(discoveredFile.fingerprint())
+                && knownInvalid.getEdfFileProperties().getFileId().equals(discoveredFile.fileId())) {
+            log.debug("File {}: unchanged since it failed, skipped", discoveredFile.fileId());
+            if (Objects.equals(knownInvalid.getContentHash(), contentHash)) {
+                return knownInvalid;
+            }
+            EdfData rehashed = knownInvalid.withContentHash(contentHash);
+            invalidEdfs.put(discoveredFile.filePath(), rehashed);
+            return rehashed;
+        }
+        EdfData edfData = parseEdfFile(discoveredFile);
+        edfData.setContentHash(contentHash);
+        if (edfData.isValidEdf() || edfData.getEdfFileProperties().getErrorCode() == EdfErrorCode.PARSE_TIMEOUT) {
+            invalidEdfs.remove(discoveredFile.filePath());
+        } else {
+            invalidEdfs.put(discoveredFile.filePath(), edfData);
+        }
+        return edfData;
+    }
+
+    /**
+     * Runs the header checks of {@link EdfHeaderValidator}, including the parse budget ({@code edf.scan.max-parse-bytes}),
+     * an unreadable file is reported as {@link EdfErrorCode#UNREADABLE}.
+     */
+    private Optional<EdfValidationError> validateHeader(DiscoveredFile discoveredFile) {
+        try {
+            return headerValidator.validate(discoveredFile.filePath(), discoveredFile.fingerprint().size());
+        } catch (IOException e) {
+            return Optional.of(new EdfValidationError(EdfErrorCode.UNREADABLE, null, e.getMessage()));
+        }
+    }
 
-        log.info("Loaded {} EDF files from {}", edfs.size(), directory.getAbsolutePath());
+    /**
+     * Publishes a change event for every previously loaded file that is gone or has a new fingerprint.
+     */
+    private void publishChanges(Map<Path, FileFingerprint> previous) {
+        Map<Path, FileFingerprint> current = fingerprints(edfs);
+        previous.forEach((path, fingerprint) -> {
+            if (!fingerprint.equals(current.get(path))) {
+                log.debug("File {} changed since the previous load", path.getFileName());
+                eventPublisher.publishEvent(new EdfFileChangedEvent(path));
+            }
+        });
     }
 
     /**
@@ -130,7 +557,12 @@ public class EdfInMemoryRepository implements EdfRepository {
      *
      * <p><b>Parsing process:</b></p>
      * <ol>
-     *   <li>Attempts to read and parse the file using EDFParser</li>
+     *   <li>Validates the header with {@link EdfHeaderValidator}, rejecting broken files without reading data records</li>
+     *   <li>Lists a file whose parse would allocate more than {@code edf.scan.max-parse-bytes} from its header,
+     *       see {@link EdfReader#readEdfHeader(Path, Duration)}</li>
+     *   <li>Attempts to read and parse the file using EDFParser within {@code edf.scan.parse-timeout},
+     *       a parse over time is cancelled and the file is invalid with {@link EdfErrorCode#PARSE_TIMEOUT}</li>
+     *   <li>If the thread is interrupted: throws a {@link CancellationException}, the file is not listed</li>
      *   <li>If successful: extracts header data and creates valid EdfData</li>
      *   <li>If failed: creates invalid EdfData with error message</li>
      *   <li>Counts annotations if present in the parsed result</li>
@@ -140,16 +572,36 @@ public class EdfInMemoryRepository implements EdfRepository {
      * are caught by {@link EdfReader}, which returns an empty Optional.
      * This method then creates an invalid EdfData object.</p>
      *
-     * @param file the EDF file to parse
+     * @param discoveredFile the EDF file to parse, with the attributes read by the crawler
      * @return {@link EdfData} entity representing the file (valid or invalid)
      */
-    private EdfData parseEdfFile(File file) {
-        Optional<EDFParserResult> result = EDF_READER.readEdfFile(file);
+    private EdfData parseEdfFile(DiscoveredFile discoveredFile) {
+        File file = discoveredFile.filePath().toFile();
+        FileFingerprint fingerprint = discoveredFile.fingerprint();
+
+        // reject structurally broken files before any data record is read
+        Optional<EdfValidationError> headerError = validateHeader(discoveredFile);
+        if (headerError.isPresent() && headerError.get().code() == EdfErrorCode.PARSE_BUDGET_EXCEEDED) {
+            log.info("File {}: {}, listed from its header", file.getName(), headerError.get().message());
+            return listFromHeader(discoveredFile);
+        }
+        if (headerError.isPresent()) {
+            log.error("File {}: invalid, {} at byte {}", file.getName(), headerError.get().code(), headerError.get().offset());
+            return EdfData.createInvalidEdfData(file.toPath(), discoveredFile.fileId(), discoveredFile.sourceRoot(), fingerprint, headerError.get());
+        }
+
+        Optional<EDFParserResult> result;
+        try {
+            result = EDF_READER.readEdfFile(file, properties.getScan().getParseTimeout());
+        } catch (InterruptedIOException e) {
+            return cancelled(discoveredFile, e);
+        }
 
         if (result.isEmpty()) {
             log.error("File {}: invalid", file.getName());
             // Create invalid EdfData
-            return EdfData.createInvalidEdfData(file.getName(),"Invalid EDF File");
+            return EdfData.createInvalidEdfData(file.toPath(), discoveredFile.fileId(), discoveredFile.sourceRoot(), fingerprint,
+                    new EdfValidationError(EdfErrorCode.PARSE_FAILED, null, "Invalid EDF File"));
         }
 
         log.info("File {}: valid", file.getName());
@@ -159,7 +611,10 @@ public class EdfInMemoryRepository implements EdfRepository {
 
         log.debug("Successfully parsed: {}", file.getName());
         // Use factory method with all required data to create a valid EdfData
-        return EdfData.createValidEdfData(file.getName(),
+        return EdfData.createValidEdfData(file.toPath(),
+                discoveredFile.fileId(),
+                discoveredFile.sourceRoot(),
+                fingerprint,
                 edfh.getRecordingID(),
                 edfh.getStartDate(),
                 edfh.getStartTime(),
@@ -172,11 +627,58 @@ public class EdfInMemoryRepository implements EdfRepository {
     }
 
     /**
-     * Returns an immutable copy of all loaded EDF files.
+     * Lists a file from its header without parsing its data records, for files too large to parse.
+     */
+    private EdfData listFromHeader(DiscoveredFile discoveredFile) {
+        Path path = discoveredFile.filePath();
+        Optional<EdfReader.HeaderListing> listing;
+        try {
+            listing = EDF_READER.readEdfHeader(path, properties.getScan().getParseTimeout());
+        } catch (InterruptedIOException e) {
+            return cancelled(discoveredFile, e);
+        }
+        if (listing.isEmpty()) {
+            log.error("File {}: invalid", path.getFileName());
+            return EdfData.createInvalidEdfData(path, discoveredFile.fileId(), discoveredFile.sourceRoot(), discoveredFile.fingerprint(),
+                    new EdfValidationError(EdfErrorCode.PARSE_FAILED, null, "Invalid EDF File"));
+        }
+        EDFHeader edfh = listing.get().header();
+        return EdfData.createValidEdfData(path,
+                discoveredFile.fileId(),
+                discoveredFile.sourceRoot(),
+                discoveredFile.fingerprint(),
+                edfh.getRecordingID(),
+                edfh.getStartDate(),
+                edfh.getStartTime(),
+                edfh.getSubjectID(),
+                edfh.getChannelLabels(),
+                edfh.getTransducerTypes(),
+                edfh.getNumberOfRecords(),
+                edfh.getDurationOfRecords(),
+                listing.get().numberOfAnnotations());
+    }
+
+    /**
+     * Result of a read cancelled by its deadline, an invalid file with {@link EdfErrorCode#PARSE_TIMEOUT}.
+     *
+     * @throws CancellationException if the read was cancelled by an interrupt of the scan instead
+     */
+    private static EdfData cancelled(DiscoveredFile discoveredFile, InterruptedIOException e) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Scan interrupted while reading " + discoveredFile.fileId());
+        }
+        log.error("File {}: invalid, {}", discoveredFile.fileId(), e.getMessage());
+        return EdfData.createInvalidEdfData(discoveredFile.filePath(), discoveredFile.fileId(), discoveredFile.sourceRoot(),
+                discoveredFile.fingerprint(), EdfValidationError.at(EdfErrorCode.PARSE_TIMEOUT, e.bytesTransferred, e.getMessage()));
+    }
+
+    /**
+     * Returns an immutable list of all loaded EDF files.
      *
      * <p>This method provides read-only access to the in-memory cache of EDF files.
      * The returned list is immutable to prevent external modification of the
-     * repository's internal state.</p>
+     * repository's internal state. Until the first load has finished it holds the files
+     * parsed so far, a snapshot replaced per batch of parsed files, see {@link #scanProgress()}.</p>
      *
      * <p><b>Note:</b> The returned list includes both valid and invalid files.
      * Callers should check {@code EdfData.isValid()} to distinguish between them.</p>
@@ -184,6 +686,91 @@ public class EdfInMemoryRepository implements EdfRepository {
      * @return Immutable list of all loaded EDF file data
      */
     public List<EdfData> listEdfs() {
-        return List.copyOf(edfs);
+        List<EdfData> growing = partial;
+        return growing != null ? growing : edfs;
+    }
+
+    /**
+     * Returns the progress of the running or last load.
+     *
+     * @return progress, {@link ScanProgress#NOT_STARTED} before the first load
+     */
+    public ScanProgress scanProgress() {
+        String lastFailure = failure;
+        if (!complete && !scanning && lastFailure == null) {
+            return ScanProgress.NOT_STARTED;
+        }
+        return new ScanProgress(complete, scanning, discovered.get(), parsed.get(), rejected.get(), lastFailure);
+    }
+
+    /**
+     * Forgets remembered failures, so the files are parsed again on the next load.
+     *
+     * @param fileName identifier of the file to forget, {@code null} forgets every failed file
+     * @return number of forgotten files
+     */
+    public int forgetInvalidEdfs(String fileName) {
+        int before = invalidEdfs.size();
+        invalidEdfs.values().removeIf(edfData -> fileName == null || edfData.isListedAs(fileName));
+        return before - invalidEdfs.size();
+    }
+
+    /**
+     * Returns the accounted memory of the repository.
+     *
+     * <ul>
+     *   <li>{@code edf-metadata}: the listed files and the files parsed so far by a running load, a file
+     *       in both, e.g. a remembered invalid file listed again by a rescan, is counted once</li>
+     *   <li>{@code edf-enrichment}: quality, amplitude histograms and previews attached to them</li>
+     *   <li>{@code invalid-files}, {@code content-hashes}: entries of the remembered failures and hashes,
+     *       the paths and invalid files are shared with the metadata</li>
+     *   <li>{@code file-ids}: entries of the identifier index of the listed files, the identifiers are shared
+     *       with the metadata</li>
+     * </ul>
+     */
+    @Override
+    public List<MemoryUsage> memoryUsage() {
+        Map<String, EdfData> growing = partialById;
+        int fileIds = edfsById.size() + (growing != null ? growing.size() : 0);
+        List<EdfData> current = edfs;
+        List<EdfData> running = loading;
+        List<EdfData> parsing = running != null ? List.copyOf(running) : List.of();
+        long metadataBytes = HeapSize.list(current) + HeapSize.list(parsing);
+        long enrichmentBytes = 0;
+        long enriched = 0;
+        // a rescan lists remembered invalid files and the files of unlistable roots again
+        Set<EdfData> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<EdfData> files : List.of(current, parsing)) {
+            for (EdfData edfData : files) {
+                if (!counted.add(edfData)) {
+                    continue;
+                }
+                metadataBytes += edfData.metadataSizeInBytes();
+                long enrichment = edfData.enrichmentSizeInBytes();
+                enrichmentBytes += enrichment;
+                enriched += enrichment > 0 ? 1 : 0;
+            }
+        }
+        return List.of(
+                new MemoryUsage("edf-metadata", MemoryUsage.Kind.METADATA, counted.size(), metadataBytes, 0),
+                new MemoryUsage("edf-enrichment", MemoryUsage.Kind.DECODED, enriched, enrichmentBytes, 0),
+                new MemoryUsage("invalid-files", MemoryUsage.Kind.INDEX, invalidEdfs.size(),
+                        invalidEdfs.size() * (long) HeapSize.MAP_ENTRY, 0),
+                new MemoryUsage("content-hashes", MemoryUsage.Kind.INDEX, contentHashes.size(),
+                        contentHashes.size() * (HeapSize.MAP_ENTRY + HeapSize.object(1, Long.BYTES) + HeapSize.FINGERPRINT), 0),
+                new MemoryUsage("file-ids", MemoryUsage.Kind.INDEX, fileIds, fileIds * (long) HeapSize.MAP_ENTRY, 0));
+    }
+
+    /**
+     * Looks up a loaded EDF file by its identifier, or by the identifier of one of its aliases,
+     * in the index built with the listed snapshot.
+     * Identifiers are unique across the source roots, see {@link EdfFileProperties#fileId(int, Path, Path)}.
+     *
+     * @param fileName identifier of the EDF file, the file name for files directly in the first source root
+     * @return the EDF file data, or empty if no file with this identifier was loaded
+     */
+    public Optional<EdfData> findByFileName(String fileName) {
+        Map<String, EdfData> growing = partialById;
+        return Optional.ofNullable((growing != null ? growing : edfsById).get(fileName));
     }
 }
@@ -2,12 +2,21 @@ package com.zeto.edf_processor.repository;
 
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import ru.mipt.edf.EDFHeader;
 import ru.mipt.edf.EDFParser;
 import ru.mipt.edf.EDFParserException;
 import ru.mipt.edf.EDFParserResult;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 /**
  * Utility class for reading and parsing EDF (European Data Format) files.
@@ -23,6 +32,8 @@ import java.util.Optional;
  *   <li>Comprehensive error logging for debugging</li>
  *   <li>Automatic resource cleanup (try-with-resources)</li>
  *   <li>Handles multiple types of failures (IO, parsing, unexpected)</li>
+ *   <li>Optional deadline, the parse is cancelled cooperatively between two reads</li>
+ *   <li>Header-only reading for files too large to parse, see {@link #readEdfHeader(Path, Duration)}</li>
  * </ul>
  * @author Peter Kormos
  * @version 1.0
@@ -38,6 +49,18 @@ public class EdfReader {
      */
     private static final EDFParser EDF_PARSER = new EDFParser();
 
+    /** Label of the annotation channel the EDFParser reads, see {@link #readEdfHeader(Path, Duration)} */
+    private static final String ANNOTATION_LABEL = "EDF Annotations";
+
+    /**
+     * Header of an EDF file read without its data records.
+     *
+     * @param header              the parsed header
+     * @param numberOfAnnotations annotations counted as a full parse counts them
+     */
+    public record HeaderListing(EDFHeader header, int numberOfAnnotations) {
+    }
+
     /**
      * Reads and parses an EDF file, returning the parsed result if successful.
      *
@@ -73,16 +96,49 @@ public class EdfReader {
      * @return Optional containing the parsed result if successful, empty Optional if parsing failed
      */
     public Optional<EDFParserResult> readEdfFile(File file) {
+        try {
+            return readEdfFile(file, null);
+        } catch (InterruptedIOException e) {
+            // no deadline, only an interrupt of the reading thread
+            Thread.currentThread().interrupt();
+            log.error("Reading of file {} interrupted", file.getName());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads and parses an EDF file like {@link #readEdfFile(File)}, cancelled at a deadline.
+     *
+     * <p>The deadline and the interrupt flag of the thread are checked before every read of the
+     * parser, see {@link DeadlineInputStream}. A cancelled parse is not an invalid file format,
+     * so it is reported as an exception instead of an empty result.</p>
+     *
+     * @param file    the EDF file to read and parse (must not be null)
+     * @param timeout time the parse may take, {@code null} for no limit
+     * @return Optional containing the parsed result if successful, empty Optional if parsing failed
+     * @throws InterruptedIOException if the deadline passed or the thread was interrupted, with the bytes read
+     */
+    public Optional<EDFParserResult> readEdfFile(File file, Duration timeout) throws InterruptedIOException {
         // Validate file before attempting to read
         if (file == null) {
             log.error("File is null");
             return Optional.empty();
         }
 
-        try (InputStream is = new FileInputStream(file)) {
+        try (InputStream is = timeout == null ? new FileInputStream(file)
+                : new DeadlineInputStream(new BufferedInputStream(new FileInputStream(file)), timeout)) {
             return Optional.of(EDFParser.parseEDF(is));
         } catch (EDFParserException e) {
+            // the parser wraps every failure of the stream
+            if (e.getCause() instanceof InterruptedIOException cancelled) {
+                throw cancelled;
+            }
+            if (e.getCause() instanceof ClosedByInterruptException) {
+                throw new InterruptedIOException("Parse interrupted");
+            }
             log.error("Error at parsing of file: {} - {}", file.getName(), e.getMessage());
+        } catch (InterruptedIOException e) {
+            throw e;
         } catch (IOException e) {
             log.error("IO error reading file: {} - {}", file.getName(), e.getMessage());
         } catch (Exception e) {
@@ -91,4 +147,123 @@ public class EdfReader {
 
         return Optional.empty();
     }
+
+    /**
+     * Reads the header of an EDF file and counts its annotations like {@link #readEdfFile(File, Duration)},
+     * without holding the data records in memory.
+     *
+     * <p>Only the header is parsed. Then only the annotation channel of every record is read, one
+     * positional read per record into a reusable buffer. The annotations are counted as the EDFParser
+     * counts them, from the first EDF+ annotation channel labelled {@value #ANNOTATION_LABEL}. The deadline and the interrupt flag are checked before every record.</p>
+     *
+     * @param file    the EDF file to read
+     * @param timeout time the read may take
+     * @return the header and the annotation count, empty if the header is invalid or the file cannot be read
+     * @throws InterruptedIOException if the deadline passed or the thread was interrupted, with the bytes read
+     */
+    public Optional<HeaderListing> readEdfHeader(Path file, Duration timeout) throws InterruptedIOException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            EDFHeader header = EDFParser.parseHeader(Channels.newInputStream(channel)).getHeader();
+            int annotationChannel = annotationChannel(header);
+            int annotations = annotationChannel < 0 ? 0
+                    : countAnnotations(channel, header, annotationChannel, timeout, deadline);
+            return Optional.of(new HeaderListing(header, annotations));
+        } catch (EDFParserException e) {
+            if (e.getCause() instanceof ClosedByInterruptException) {
+                throw new InterruptedIOException("Header read interrupted");
+            }
+            log.error("Error at parsing the header of file: {} - {}", file.getFileName(), e.getMessage());
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (ClosedByInterruptException e) {
+            throw new InterruptedIOException("Header read interrupted");
+        } catch (IOException e) {
+            log.error("IO error reading file: {} - {}", file.getFileName(), e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Index of the channel the EDFParser reads annotations from, -1 if it reads none.
+     */
+    private static int annotationChannel(EDFHeader header) {
+        if (header.getFormatVersion() == null || !header.getFormatVersion().startsWith("EDF+")) {
+            return -1;
+        }
+        String[] labels = header.getChannelLabels();
+        return IntStream.range(0, labels.length)
+                .filter(i -> labels[i].trim().equals(ANNOTATION_LABEL))
+                .findFirst()
+                .orElse(-1);
+    }
+
+    private static int countAnnotations(FileChannel channel, EDFHeader header, int annotationChannel,
+                                        Duration timeout, long deadline) throws IOException {
+        Integer[] samples = header.getNumberOfSamples();
+        long recordBytes = 0;
+        long channelOffset = 0;
+        for (int i = 0; i < samples.length; i++) {
+            if (i == annotationChannel) {
+                channelOffset = recordBytes;
+            }
+            recordBytes += (long) samples[i] * Short.BYTES;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(samples[annotationChannel] * Short.BYTES);
+        TalCounter counter = new TalCounter();
+        long bytesRead = 0;
+        for (int r = 0; r < header.getNumberOfRecords(); r++) {
+            String reason = Thread.currentThread().isInterrupted() ? "Header read interrupted"
+                    : System.nanoTime() - deadline > 0 ? "Header read exceeded %d ms".formatted(timeout.toMillis())
+                    : null;
+            if (reason != null) {
+                InterruptedIOException e = new InterruptedIOException("%s, cancelled after %d bytes".formatted(reason, bytesRead));
+                e.bytesTransferred = (int) Math.min(bytesRead, Integer.MAX_VALUE);
+                throw e;
+            }
+            buffer.clear();
+            EdfFileSignalSource.readFully(channel, buffer, header.getBytesInHeader() + r * recordBytes + channelOffset);
+            counter.accept(buffer.array(), buffer.limit());
+            bytesRead += buffer.limit();
+        }
+        return counter.count;
+    }
+
+    /**
+     * Counts the annotations of the concatenated annotation channel with the state machine of the
+     * EDFParser, fed record by record: a TAL is counted when the next one starts, and the last byte
+     * of the channel is never examined, as by the parser.
+     */
+    private static final class TalCounter {
+        private static final byte DURATION_START = 0x15;
+        private static final byte TEXT_END = 0x14;
+
+        private long position;
+        private long start;
+        private long textStart = -2;
+        private long talEnd = -3;
+        private int pending = -1;
+        private int count;
+
+        void accept(byte[] bytes, int length) {
+            for (int i = 0; i < length; i++) {
+                if (pending >= 0) {
+                    examine((byte) pending, bytes[i]);
+                }
+                pending = bytes[i] & 0xff;
+            }
+        }
+
+        private void examine(byte current, byte next) {
+            if (current == TEXT_END && start > textStart) {
+                textStart = position;
+            } else if (current == TEXT_END && next == 0) {
+                talEnd = position;
+            } else if (current != 0 && current != DURATION_START && start < talEnd) {
+                count++;
+                start = position;
+            }
+            position++;
+        }
+    }
 }
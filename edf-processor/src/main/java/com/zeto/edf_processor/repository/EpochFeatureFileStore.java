@@ -0,0 +1,230 @@
+package com.zeto.edf_processor.repository;
+
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.model.EpochFeature;
+import com.zeto.edf_processor.model.FeatureTable;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.service.EpochFeatureStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * File system adapter storing epoch feature tables as memory-mapped column files.
+ *
+ * <p>Every EDF file has one {@code .features} file in {@code edf.features.dir}:</p>
+ * <pre>
+ *   int    magic "EDFF", int version
+ *   long   size, long lastModified      fingerprint of the EDF file
+ *   double epochSeconds
+ *   int    epochCount, channelCount, featureCount
+ *   string path of the EDF file, channel labels, feature keys   (int length + UTF-8)
+ *   padding to {@value #ALIGNMENT} bytes
+ *   float  columns in channel-major order, epochCount values each
+ * </pre>
+ *
+ * <p>Files are written to a temporary file and moved into place, so a reader never sees
+ * a partial table. Opened tables are kept mapped until their EDF file changes, at most
+ * {@code edf.features.max-open-tables} of them, least recently used first out; the mapped
+ * columns are accounted as {@link MemoryUsage.Kind#MAPPED} memory.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see FeatureTable
+ */
+@Repository
+@Slf4j
+public class EpochFeatureFileStore implements EpochFeatureStore, MemoryAccounted {
+
+    private static final int MAGIC = 0x45444646;
+    private static final int VERSION = 1;
+    private static final int ALIGNMENT = 64;
+    private static final String EXTENSION = ".features";
+
+    private final Path directory;
+    /** Opened tables in access order, guarded by itself */
+    private final Map<Path, FeatureTable> tables;
+
+    public EpochFeatureFileStore(EdfProcessorProperties properties) {
+        this.directory = properties.getFeaturesPath();
+        int maxOpenTables = properties.getFeatures().getMaxOpenTables();
+        this.tables = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, FeatureTable> eldest) {
+                // the mapping is released once the last reader dropped the table
+                return size() > maxOpenTables;
+            }
+        });
+    }
+
+    @Override
+    public Optional<FeatureTable> open(Path filePath, FileFingerprint fingerprint) {
+        FeatureTable table = tables.get(filePath);
+        if (table != null && table.fingerprint().equals(fingerprint)) {
+            return Optional.of(table);
+        }
+        Path storeFile = storeFile(filePath);
+        if (!Files.isRegularFile(storeFile)) {
+            return Optional.empty();
+        }
+        try {
+            Optional<FeatureTable> stored = map(storeFile, filePath, fingerprint);
+            stored.ifPresent(found -> tables.put(filePath, found));
+            return stored;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable feature file {}: {}", storeFile, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public FeatureTable write(Path filePath, FileFingerprint fingerprint, double epochSeconds,
+                              List<String> channels, List<EpochFeature> features, float[][] columns) {
+        int epochCount = columns.length == 0 ? 0 : columns[0].length;
+        Path storeFile = storeFile(filePath);
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, storeFile.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                writeFully(channel, header(filePath, fingerprint, epochSeconds, epochCount, channels, features));
+                ByteBuffer column = ByteBuffer.allocate(epochCount * Float.BYTES);
+                for (float[] values : columns) {
+                    column.clear();
+                    column.asFloatBuffer().put(values);
+                    writeFully(channel, column);
+                }
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+            Files.move(temporary, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FeatureTable table = map(storeFile, filePath, fingerprint)
+                    .orElseThrow(() -> new IOException("Feature file %s was replaced while writing".formatted(storeFile)));
+            tables.put(filePath, table);
+            return table;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void delete(Path filePath) {
+        tables.remove(filePath);
+        try {
+            Files.deleteIfExists(storeFile(filePath));
+        } catch (IOException e) {
+            log.warn("Deleting the feature file of {} failed: {}", filePath, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the mapped columns of the opened tables; the pages are loaded by the operating system on access.
+     */
+    @Override
+    public List<MemoryUsage> memoryUsage() {
+        synchronized (tables) {
+            long mapped = tables.values().stream().mapToLong(FeatureTable::sizeInBytes).sum();
+            return List.of(new MemoryUsage("feature-tables", MemoryUsage.Kind.MAPPED, tables.size(), mapped, 0));
+        }
+    }
+
+    /**
+     * Maps a feature file, empty if it belongs to another file or version.
+     */
+    private Optional<FeatureTable> map(Path storeFile, Path filePath, FileFingerprint fingerprint) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(storeFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a feature file of version %d".formatted(VERSION));
+            }
+            FileFingerprint stored = new FileFingerprint(buffer.getLong(), buffer.getLong());
+            double epochSeconds = buffer.getDouble();
+            int epochCount = buffer.getInt();
+            int channelCount = buffer.getInt();
+            int featureCount = buffer.getInt();
+            String path = readString(buffer);
+            if (!stored.equals(fingerprint) || !path.equals(filePath.toString())) {
+                return Optional.empty();
+            }
+            List<String> channels = new ArrayList<>(channelCount);
+            for (int c = 0; c < channelCount; c++) {
+                channels.add(readString(buffer));
+            }
+            List<EpochFeature> features = new ArrayList<>(featureCount);
+            for (int f = 0; f < featureCount; f++) {
+                features.add(EpochFeature.parse(readString(buffer)));
+            }
+            buffer.position(align(buffer.position()));
+            return Optional.of(new FeatureTable(stored, epochSeconds, epochCount, channels, features,
+                    buffer.slice().asFloatBuffer()));
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Feature file is truncated", e);
+        }
+    }
+
+    private static ByteBuffer header(Path filePath, FileFingerprint fingerprint, double epochSeconds, int epochCount,
+                                     List<String> channels, List<EpochFeature> features) {
+        List<byte[]> strings = new ArrayList<>();
+        strings.add(filePath.toString().getBytes(StandardCharsets.UTF_8));
+        channels.forEach(label -> strings.add(label.getBytes(StandardCharsets.UTF_8)));
+        features.forEach(feature -> strings.add(feature.key().getBytes(StandardCharsets.UTF_8)));
+        int length = 2 * Integer.BYTES + 2 * Long.BYTES + Double.BYTES + 3 * Integer.BYTES
+                + strings.stream().mapToInt(bytes -> Integer.BYTES + bytes.length).sum();
+        ByteBuffer header = ByteBuffer.allocate(align(length));
+        header.putInt(MAGIC).putInt(VERSION)
+                .putLong(fingerprint.size()).putLong(fingerprint.lastModified())
+                .putDouble(epochSeconds)
+                .putInt(epochCount).putInt(channels.size()).putInt(features.size());
+        for (byte[] bytes : strings) {
+            header.putInt(bytes.length).put(bytes);
+        }
+        return header.clear();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int align(int position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Name of the feature file of an EDF file: its name and a hash of its full path,
+     * so equally named files of different directories do not share a table.
+     */
+    private Path storeFile(Path filePath) {
+        return directory.resolve("%s-%08x%s".formatted(filePath.getFileName(), filePath.toString().hashCode(), EXTENSION));
+    }
+}
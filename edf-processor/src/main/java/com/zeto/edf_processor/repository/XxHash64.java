@@ -0,0 +1,129 @@
+package com.zeto.edf_processor.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming xxHash64 (XXH64) of a byte sequence.
+ *
+ * <p>Consumes input in 32 byte stripes of four 64 bit lanes, bytes that do not fill a stripe
+ * are kept until the next update or the digest. The digest equals the one-shot XXH64 of the
+ * concatenated input, whatever the split into updates.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+final class XxHash64 {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE = 32;
+
+    private final long seed;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long totalLength;
+
+    /** Input not yet consumed as a stripe */
+    private final ByteBuffer pending = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+    XxHash64(long seed) {
+        this.seed = seed;
+        v1 = seed + P1 + P2;
+        v2 = seed + P2;
+        v3 = seed;
+        v4 = seed - P1;
+    }
+
+    /**
+     * Consumes the remaining bytes of a buffer; its byte order is set to little-endian.
+     */
+    void update(ByteBuffer input) {
+        input.order(ByteOrder.LITTLE_ENDIAN);
+        totalLength += input.remaining();
+        if (pending.position() > 0) {
+            while (pending.hasRemaining() && input.hasRemaining()) {
+                pending.put(input.get());
+            }
+            if (pending.hasRemaining()) {
+                return;
+            }
+            pending.flip();
+            stripe(pending);
+            pending.clear();
+        }
+        while (input.remaining() >= STRIPE) {
+            stripe(input);
+        }
+        pending.put(input);
+    }
+
+    /**
+     * Consumes a long in little-endian order.
+     */
+    void update(long value) {
+        update(ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(value).flip());
+    }
+
+    /**
+     * Hash of the input consumed so far.
+     */
+    long digest() {
+        long h;
+        if (totalLength >= STRIPE) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += totalLength;
+
+        ByteBuffer rest = pending.duplicate().flip().order(ByteOrder.LITTLE_ENDIAN);
+        while (rest.remaining() >= Long.BYTES) {
+            h ^= round(0, rest.getLong());
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        if (rest.remaining() >= Integer.BYTES) {
+            h ^= (rest.getInt() & 0xFFFFFFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+        }
+        while (rest.hasRemaining()) {
+            h ^= (rest.get() & 0xFF) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+        }
+
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private void stripe(ByteBuffer input) {
+        v1 = round(v1, input.getLong());
+        v2 = round(v2, input.getLong());
+        v3 = round(v3, input.getLong());
+        v4 = round(v4, input.getLong());
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * P1 + P4;
+    }
+}
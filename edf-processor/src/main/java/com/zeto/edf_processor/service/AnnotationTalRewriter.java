@@ -0,0 +1,127 @@
+package com.zeto.edf_processor.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Rewrites the EDF+ annotation channel of data records for a file starting later.
+ *
+ * <p>The annotation channel of a record holds Time-stamped Annotation Lists (TALs), each
+ * {@code +onset[\u0015duration]\u0014text\u0014...\u0014\u0000}; the first one of a record is the
+ * timekeeping TAL {@code +onset\u0014\u0014\u0000} with the start of the record. Onsets are seconds
+ * relative to the file start, so moving the start by whole seconds subtracts them from every
+ * onset, exactly in decimal. Durations and texts are kept as they are.</p>
+ *
+ * <p>Without annotations only the timekeeping entry of a record is written, {@code +onset\u0014\u0014\u0000}:
+ * the other TALs are dropped and so are annotations sharing the timekeeping TAL. A rewritten onset is
+ * never longer than the original one for a non-negative result, a TAL not fitting the channel
+ * anyway is dropped. The scratch arrays of one channel slice are reused for every record, so an
+ * instance belongs to one export.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see EdfExportService
+ */
+@Slf4j
+final class AnnotationTalRewriter {
+
+    static final byte TAL_END = 0;
+    static final byte DURATION_START = 0x15;
+    static final byte TEXT_END = 0x14;
+
+    private final BigDecimal shiftSeconds;
+    private final boolean keepAnnotations;
+    private final byte[] source;
+    private final byte[] target;
+
+    /**
+     * @param shiftSeconds    seconds the file start moves forward
+     * @param keepAnnotations keep the annotations, otherwise only the timekeeping TALs
+     * @param channelBytes    bytes of the annotation channel in one record
+     */
+    AnnotationTalRewriter(long shiftSeconds, boolean keepAnnotations, int channelBytes) {
+        this.shiftSeconds = BigDecimal.valueOf(shiftSeconds);
+        this.keepAnnotations = keepAnnotations;
+        this.source = new byte[channelBytes];
+        this.target = new byte[channelBytes];
+    }
+
+    /**
+     * Reads the annotation channel of one record and writes the rewritten channel, of the same size.
+     *
+     * @param channel the annotation channel of the record, all remaining bytes are read
+     * @param output  receives exactly {@code channelBytes} bytes
+     */
+    void rewrite(ByteBuffer channel, ByteBuffer output) {
+        channel.get(source);
+        Arrays.fill(target, TAL_END);
+        int written = 0;
+        int start = 0;
+        boolean timekeeping = true;
+        // TALs follow each other until the zero padding of the channel
+        while (start < source.length && source[start] != TAL_END) {
+            int end = indexOf(TAL_END, start);
+            if (keepAnnotations) {
+                written = copyShifted(start, end, written, false);
+            } else if (timekeeping) {
+                written = copyShifted(start, end, written, true);
+            }
+            timekeeping = false;
+            start = end + 1;
+        }
+        output.put(target);
+    }
+
+    /**
+     * Writes the TAL {@code [start, end)} with the shifted onset and its terminator at {@code written}.
+     *
+     * @param timekeepingOnly write only the onset and the empty timekeeping annotation, not the other annotations
+     * @return the new end of the written TALs
+     */
+    private int copyShifted(int start, int end, int written, boolean timekeepingOnly) {
+        int onsetEnd = start;
+        while (onsetEnd < end && source[onsetEnd] != DURATION_START && source[onsetEnd] != TEXT_END) {
+            onsetEnd++;
+        }
+        byte[] onset;
+        try {
+            onset = shift(new String(source, start, onsetEnd - start, StandardCharsets.US_ASCII))
+                    .getBytes(StandardCharsets.US_ASCII);
+        } catch (NumberFormatException e) {
+            log.warn("Dropping an annotation with an invalid onset");
+            return written;
+        }
+        int length = onset.length + (timekeepingOnly ? 2 : end - onsetEnd) + 1;
+        if (written + length > target.length) {
+            log.warn("Dropping an annotation not fitting the annotation channel after the new onset");
+            return written;
+        }
+        System.arraycopy(onset, 0, target, written, onset.length);
+        if (timekeepingOnly) {
+            target[written + onset.length] = TEXT_END;
+            target[written + onset.length + 1] = TEXT_END;
+        } else {
+            System.arraycopy(source, onsetEnd, target, written + onset.length, end - onsetEnd);
+        }
+        target[written + length - 1] = TAL_END;
+        return written + length;
+    }
+
+    private String shift(String onset) {
+        BigDecimal shifted = new BigDecimal(onset).subtract(shiftSeconds);
+        return shifted.signum() < 0 ? shifted.toPlainString() : "+" + shifted.toPlainString();
+    }
+
+    private int indexOf(byte value, int from) {
+        for (int i = from; i < source.length; i++) {
+            if (source[i] == value) {
+                return i;
+            }
+        }
+        return source.length;
+    }
+}
@@ -0,0 +1,305 @@
+package com.zeto.edf_processor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeto.edf_processor.model.DetectionJob;
+import com.zeto.edf_processor.model.DetectionJob.State;
+import com.zeto.edf_processor.model.HeapSize;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime state and result files of one {@link DetectionJob}.
+ *
+ * <p>A job directory holds:</p>
+ * <ul>
+ *   <li>{@code job.json} - the job definition</li>
+ *   <li>{@code state} - the current {@link State}, followed by the error of a failed job</li>
+ *   <li>{@code detections.csv} - {@code file,channel,seconds,value} per detection</li>
+ *   <li>{@code checkpoint.log} - one line per finished unit: file index, first record,
+ *       and the length of {@code detections.csv}, detections and samples after the unit</li>
+ * </ul>
+ *
+ * <p>The detections of a unit and its checkpoint line are written under one lock, so
+ * the order of blocks in {@code detections.csv} is the order of the checkpoint lines.
+ * The detections are forced to the disk before the checkpoint line is written, and the line
+ * before the unit counts as completed, so a power loss cannot keep a checkpoint whose
+ * detections were lost. After a crash {@code detections.csv} is truncated to the length in the last complete
+ * checkpoint line, dropping the detections of units that will run again. The completed units
+ * are only kept in memory while the job can still resume.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Slf4j
+final class DetectionJobRun {
+
+    static final String JOB_FILE = "job.json";
+    static final String STATE_FILE = "state";
+    static final String DETECTIONS_FILE = "detections.csv";
+    static final String CHECKPOINT_FILE = "checkpoint.log";
+
+    private static final byte[] CSV_HEADER = "file,channel,seconds,value\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * A record range of one file of the job, the unit of work and of checkpointing.
+     */
+    record Unit(int file, int fromRecord, int toRecord) {
+    }
+
+    @Getter
+    private final DetectionJob job;
+
+    @Getter
+    private final Path directory;
+
+    @Getter
+    private volatile State state;
+
+    @Getter
+    private volatile String error;
+
+    private volatile boolean cancelled;
+    private volatile boolean stopping;
+
+    /** Units checkpointed so far, cleared once the job is finished and never resumes */
+    private final Set<String> completedUnits = ConcurrentHashMap.newKeySet();
+    private final AtomicLong samplesTotal = new AtomicLong();
+    private final AtomicLong samplesProcessed = new AtomicLong();
+    private final AtomicLong detections = new AtomicLong();
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private final AtomicInteger filesSkipped = new AtomicInteger();
+
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile long samplesAtStart;
+
+    private long detectionsBytes;
+    private FileChannel detectionsOut;
+    private FileChannel checkpointOut;
+
+    private DetectionJobRun(DetectionJob job, Path directory, State state, String error) {
+        this.job = job;
+        this.directory = directory;
+        this.state = state;
+        this.error = error;
+    }
+
+    /**
+     * Creates the directory and files of a new job.
+     */
+    static DetectionJobRun create(DetectionJob job, Path directory, ObjectMapper objectMapper) throws IOException {
+        Files.createDirectories(directory);
+        objectMapper.writeValue(directory.resolve(JOB_FILE).toFile(), job);
+        Files.write(directory.resolve(DETECTIONS_FILE), CSV_HEADER);
+        Files.write(directory.resolve(CHECKPOINT_FILE), new byte[0]);
+        DetectionJobRun run = new DetectionJobRun(job, directory, State.QUEUED, null);
+        run.detectionsBytes = CSV_HEADER.length;
+        run.writeState();
+        return run;
+    }
+
+    /**
+     * Loads a job written by a previous run of the application and recovers its checkpoint.
+     */
+    static DetectionJobRun load(Path directory, ObjectMapper objectMapper) throws IOException {
+        DetectionJob job = objectMapper.readValue(directory.resolve(JOB_FILE).toFile(), DetectionJob.class);
+        List<String> stateLines = Files.readAllLines(directory.resolve(STATE_FILE), StandardCharsets.UTF_8);
+        State state = State.valueOf(stateLines.get(0).trim());
+        String error = stateLines.size() > 1 ? String.join("\n", stateLines.subList(1, stateLines.size())) : null;
+        DetectionJobRun run = new DetectionJobRun(job, directory, state, error);
+        run.recover();
+        if (state.isFinished()) {
+            run.completedUnits.clear();
+        }
+        return run;
+    }
+
+    /**
+     * Reads the complete checkpoint lines, drops a torn last line and the detections written after it.
+     */
+    private void recover() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        String content = Files.exists(checkpoint) ? Files.readString(checkpoint, StandardCharsets.UTF_8) : "";
+        detectionsBytes = CSV_HEADER.length;
+        int lineStart = 0;
+        for (int lineEnd = content.indexOf('\n'); lineEnd >= 0; lineEnd = content.indexOf('\n', lineStart)) {
+            String[] fields = content.substring(lineStart, lineEnd).split("\t");
+            if (fields.length != 5) {
+                break;
+            }
+            completedUnits.add(unitKey(Integer.parseInt(fields[0]), Integer.parseInt(fields[1])));
+            detectionsBytes = Long.parseLong(fields[2]);
+            detections.set(Long.parseLong(fields[3]));
+            samplesProcessed.set(Long.parseLong(fields[4]));
+            lineStart = lineEnd + 1;
+        }
+        truncate(checkpoint, content.substring(0, lineStart).getBytes(StandardCharsets.UTF_8).length);
+        truncate(directory.resolve(DETECTIONS_FILE), detectionsBytes);
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        if (Files.exists(file) && Files.size(file) > size) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(size);
+            }
+        }
+    }
+
+    /**
+     * Opens the result files for appending and starts the throughput clock.
+     */
+    synchronized void open() throws IOException {
+        detectionsOut = FileChannel.open(directory.resolve(DETECTIONS_FILE), StandardOpenOption.WRITE);
+        detectionsOut.position(detectionsBytes);
+        checkpointOut = FileChannel.open(directory.resolve(CHECKPOINT_FILE), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        samplesAtStart = samplesProcessed.get();
+        startNanos = System.nanoTime();
+        endNanos = 0;
+    }
+
+    synchronized void close() {
+        endNanos = System.nanoTime();
+        try {
+            if (detectionsOut != null) {
+                detectionsOut.close();
+            }
+            if (checkpointOut != null) {
+                checkpointOut.close();
+            }
+        } catch (IOException e) {
+            log.warn("Closing the result files of job {} failed: {}", job.id(), e.getMessage());
+        }
+    }
+
+    /**
+     * Appends the detections of a finished unit, then its checkpoint line, each forced to the disk.
+     *
+     * @param unit           the finished unit
+     * @param block          CSV lines of its detections
+     * @param samples        number of samples scanned
+     * @param detectionCount number of detections in the block
+     */
+    synchronized void commit(Unit unit, byte[] block, long samples, int detectionCount) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        while (buffer.hasRemaining()) {
+            detectionsOut.write(buffer);
+        }
+        detectionsOut.force(false);
+        detectionsBytes += block.length;
+        long totalDetections = detections.addAndGet(detectionCount);
+        long totalSamples = samplesProcessed.addAndGet(samples);
+        String line = "%d\t%d\t%d\t%d\t%d\n".formatted(unit.file(), unit.fromRecord(), detectionsBytes,
+                totalDetections, totalSamples);
+        ByteBuffer checkpoint = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (checkpoint.hasRemaining()) {
+            checkpointOut.write(checkpoint);
+        }
+        checkpointOut.force(false);
+        completedUnits.add(unitKey(unit.file(), unit.fromRecord()));
+    }
+
+    boolean isCompleted(Unit unit) {
+        return completedUnits.contains(unitKey(unit.file(), unit.fromRecord()));
+    }
+
+    void setState(State state, String error) {
+        this.state = state;
+        this.error = error;
+        if (state.isFinished()) {
+            completedUnits.clear();
+        }
+        try {
+            writeState();
+        } catch (IOException e) {
+            log.warn("Saving the state of job {} failed: {}", job.id(), e.getMessage());
+        }
+    }
+
+    private void writeState() throws IOException {
+        Files.writeString(directory.resolve(STATE_FILE), error != null ? state + "\n" + error : state.name(),
+                StandardCharsets.UTF_8);
+    }
+
+    /** Requests cancellation, the job ends as {@link State#CANCELLED}. */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /** Stops the job for a shutdown, it stays {@link State#RUNNING} and resumes after a restart. */
+    void stop() {
+        stopping = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    boolean isStopping() {
+        return stopping;
+    }
+
+    boolean isInterrupted() {
+        return cancelled || stopping;
+    }
+
+    AtomicLong samplesTotal() {
+        return samplesTotal;
+    }
+
+    long samplesProcessed() {
+        return samplesProcessed.get();
+    }
+
+    long detections() {
+        return detections.get();
+    }
+
+    AtomicInteger filesDone() {
+        return filesDone;
+    }
+
+    AtomicInteger filesSkipped() {
+        return filesSkipped;
+    }
+
+    /**
+     * Samples scanned per second since the job was (re)started.
+     */
+    double samplesPerSecond() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        double seconds = (end - startNanos) / 1e9;
+        return seconds > 0 ? (samplesProcessed.get() - samplesAtStart) / seconds : 0;
+    }
+
+    /**
+     * Approximate heap size in bytes: the job definition, the error and the completed units.
+     */
+    long sizeInBytes() {
+        long size = HeapSize.object(12, 2 + 4 * Long.BYTES) + 6 * HeapSize.object(0, Long.BYTES)
+                + job.sizeInBytes() + HeapSize.string(error);
+        for (String unit : completedUnits) {
+            size += HeapSize.MAP_ENTRY + HeapSize.string(unit);
+        }
+        return size;
+    }
+
+    private static String unitKey(int file, int fromRecord) {
+        return file + ":" + fromRecord;
+    }
+}
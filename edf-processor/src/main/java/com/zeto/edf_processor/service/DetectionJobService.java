@@ -0,0 +1,489 @@
+package com.zeto.edf_processor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.dsp.ThresholdDetector;
+import com.zeto.edf_processor.dto.DetectionJobDto;
+import com.zeto.edf_processor.dto.DetectionJobRequest;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.DetectionJob;
+import com.zeto.edf_processor.model.DetectionJob.JobFile;
+import com.zeto.edf_processor.model.DetectionJob.State;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.HeapSize;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+import com.zeto.edf_processor.service.DetectionJobRun.Unit;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Runs threshold spike/event detection over many recordings as a background batch job.
+ *
+ * <p>Key points:</p>
+ * <ul>
+ *   <li>A job is split into units of {@code edf.jobs.chunk-records} records of one file; the files
+ *       are scanned on a dedicated {@link ForkJoinPool} of {@code edf.jobs.parallelism} threads</li>
+ *   <li>A file is read twice: a first pass takes the mean and standard deviation of every channel over
+ *       the whole file, the second detects unit by unit in order, carrying the refractory period and an
+ *       excursion running over the end of a unit into the next, see {@link ThresholdDetector.Scan}.
+ *       A resumed file restarts the carried state on the last unit checkpointed before the restart</li>
+ *   <li>At most {@code edf.jobs.max-concurrent-reads} units read at the same time, and reads
+ *       bypass the {@link SignalBlockCache}, so a job leaves I/O and cache to the interactive API</li>
+ *   <li>Detections are streamed to a CSV file and every finished unit is checkpointed,
+ *       see {@link DetectionJobRun}; jobs interrupted by a shutdown resume after the restart</li>
+ *   <li>Jobs run one after another, progress and throughput in samples per second are reported</li>
+ *   <li>Every job stays listed, its definition and state are accounted as metadata; the checkpointed
+ *       units are kept only until the job is finished</li>
+ * </ul>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see ThresholdDetector
+ */
+@Service
+@Slf4j
+public class DetectionJobService implements MemoryAccounted {
+
+    /**
+     * A file of a running job with its layout, scanned channels and detectors.
+     */
+    private record FilePlan(JobFile file, Path path, SignalLayout layout, List<ChannelLayout> channels,
+                            List<ThresholdDetector> detectors) {
+    }
+
+    private final EdfRepository edfRepository;
+    private final EdfSignalSource edfSignalSource;
+    private final ObjectMapper objectMapper;
+    private final Path jobsPath;
+    private final int chunkRecords;
+    private final ForkJoinPool pool;
+    private final Semaphore readPermits;
+    private final ExecutorService coordinator;
+    private final Map<String, DetectionJobRun> runs = new ConcurrentHashMap<>();
+
+    public DetectionJobService(EdfRepository edfRepository,
+                               EdfSignalSource edfSignalSource,
+                               ObjectMapper objectMapper,
+                               EdfProcessorProperties properties) {
+        this.edfRepository = edfRepository;
+        this.edfSignalSource = edfSignalSource;
+        this.objectMapper = objectMapper;
+        this.jobsPath = properties.getJobsPath();
+        this.chunkRecords = properties.getJobs().getChunkRecords();
+        this.pool = new ForkJoinPool(properties.getJobs().getParallelism());
+        this.readPermits = new Semaphore(properties.getJobs().getMaxConcurrentReads());
+        this.coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "edf-detection-jobs");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops running jobs without cancelling them, they resume after the next start.
+     */
+    @PreDestroy
+    public void shutdown() {
+        runs.values().forEach(DetectionJobRun::stop);
+        coordinator.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Loads the jobs of previous runs and queues the unfinished ones again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() {
+        if (!Files.isDirectory(jobsPath)) {
+            return;
+        }
+        List<DetectionJobRun> loaded = new ArrayList<>();
+        try (Stream<Path> directories = Files.list(jobsPath)) {
+            for (Path directory : directories.filter(d -> Files.isRegularFile(d.resolve(DetectionJobRun.JOB_FILE))).toList()) {
+                try {
+                    loaded.add(DetectionJobRun.load(directory, objectMapper));
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Detection job in {} cannot be loaded: {}", directory, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Detection jobs in {} cannot be listed: {}", jobsPath, e.getMessage());
+            return;
+        }
+        loaded.sort(Comparator.comparing(run -> run.getJob().createdAt()));
+        for (DetectionJobRun run : loaded) {
+            runs.put(run.getJob().id(), run);
+            if (!run.getState().isFinished()) {
+                log.info("Resuming detection job {} at {} samples", run.getJob().id(), run.samplesProcessed());
+                coordinator.execute(() -> execute(run));
+            }
+        }
+    }
+
+    /**
+     * Creates a detection job and queues it.
+     *
+     * @param request detector settings and files
+     * @return the queued job
+     * @throws InvalidSignalRequestException if a setting is not valid
+     * @throws EdfDataNotFoundException      if a requested file is not loaded
+     */
+    public DetectionJobDto submit(DetectionJobRequest request) {
+        DetectionJob.Parameters parameters = validate(request);
+        List<JobFile> files = resolveFiles(request.getFileNames());
+        if (files.isEmpty()) {
+            throw new InvalidSignalRequestException("No valid EDF file to scan");
+        }
+        DetectionJob job = new DetectionJob(UUID.randomUUID().toString(), Instant.now(), parameters, files);
+        DetectionJobRun run;
+        try {
+            run = DetectionJobRun.create(job, jobsPath.resolve(job.id()), objectMapper);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create detection job in %s".formatted(jobsPath), e);
+        }
+        runs.put(job.id(), run);
+        coordinator.execute(() -> execute(run));
+        log.info("Queued detection job {} over {} files", job.id(), files.size());
+        return toDto(run);
+    }
+
+    /**
+     * Lists all jobs, newest first.
+     */
+    public List<DetectionJobDto> list() {
+        return runs.values().stream()
+                .sorted(Comparator.comparing((DetectionJobRun run) -> run.getJob().createdAt()).reversed())
+                .map(this::toDto)
+                .toList();
+    }
+
+    /**
+     * Returns state and progress of a job.
+     *
+     * @throws EdfDataNotFoundException if the job does not exist
+     */
+    public DetectionJobDto status(String id) {
+        return toDto(find(id));
+    }
+
+    /**
+     * Cancels a queued or running job, the detections found so far are kept.
+     *
+     * @throws EdfDataNotFoundException if the job does not exist
+     */
+    public DetectionJobDto cancel(String id) {
+        DetectionJobRun run = find(id);
+        if (!run.getState().isFinished()) {
+            run.cancel();
+            if (run.getState() == State.QUEUED) {
+                run.setState(State.CANCELLED, null);
+            }
+        }
+        return toDto(run);
+    }
+
+    /**
+     * Returns the CSV file the detections of a job are written to.
+     *
+     * @throws EdfDataNotFoundException if the job does not exist
+     */
+    public Path detectionsFile(String id) {
+        return find(id).getDirectory().resolve(DetectionJobRun.DETECTIONS_FILE);
+    }
+
+    @Override
+    public List<MemoryUsage> memoryUsage() {
+        long bytes = 0;
+        int entries = 0;
+        for (DetectionJobRun run : runs.values()) {
+            bytes += HeapSize.MAP_ENTRY + run.sizeInBytes();
+            entries++;
+        }
+        return List.of(new MemoryUsage("detection-jobs", MemoryUsage.Kind.METADATA, entries, bytes, 0));
+    }
+
+    private DetectionJobRun find(String id) {
+        DetectionJobRun run = runs.get(id);
+        if (run == null) {
+            throw new EdfDataNotFoundException("Detection job not found: %s".formatted(id));
+        }
+        return run;
+    }
+
+    /**
+     * Runs a job on the coordinator thread, its units on the fork/join pool.
+     */
+    private void execute(DetectionJobRun run) {
+        if (run.isInterrupted()) {
+            return;
+        }
+        run.setState(State.RUNNING, null);
+        try {
+            run.open();
+            List<FilePlan> plans = plan(run);
+            List<List<Unit>> files = new ArrayList<>();
+            for (int f = 0; f < plans.size(); f++) {
+                FilePlan plan = plans.get(f);
+                if (plan == null) {
+                    continue;
+                }
+                List<Unit> units = new ArrayList<>();
+                int records = plan.layout().getNumberOfRecords();
+                for (int from = 0; from < records; from += chunkRecords) {
+                    units.add(new Unit(f, from, Math.min(records, from + chunkRecords)));
+                }
+                if (units.stream().allMatch(run::isCompleted)) {
+                    run.filesDone().incrementAndGet();
+                } else {
+                    files.add(units);
+                }
+            }
+
+            pool.invoke(new RangeTask(0, files.size(), 1, (from, to) -> {
+                for (int f = from; f < to && !run.isInterrupted(); f++) {
+                    List<Unit> units = files.get(f);
+                    scanFile(run, plans.get(units.get(0).file()), units);
+                }
+            }));
+
+            if (run.isStopping()) {
+                log.info("Detection job {} stopped at {} samples, resumes after restart", run.getJob().id(), run.samplesProcessed());
+            } else if (run.isCancelled()) {
+                run.setState(State.CANCELLED, null);
+            } else {
+                run.setState(State.COMPLETED, null);
+                log.info("Detection job {} completed: {} detections, {} samples/s", run.getJob().id(),
+                        run.detections(), Math.round(run.samplesPerSecond()));
+            }
+        } catch (Exception e) {
+            if (!run.isStopping()) {
+                log.error("Detection job {} failed: {}", run.getJob().id(), e.getMessage());
+                run.setState(State.FAILED, e.getMessage());
+            }
+        } finally {
+            run.close();
+        }
+    }
+
+    /**
+     * Reads the layouts of the job files; files changed since the job was created or
+     * without any requested channel are skipped.
+     */
+    private List<FilePlan> plan(DetectionJobRun run) {
+        DetectionJob.Parameters parameters = run.getJob().parameters();
+        ThresholdDetector.Mode mode = ThresholdDetector.Mode.parse(parameters.mode());
+        List<FilePlan> plans = new ArrayList<>();
+        long samplesTotal = 0;
+        for (JobFile file : run.getJob().files()) {
+            Path path = Path.of(file.path());
+            try {
+                if (!Files.isRegularFile(path) || !edfSignalSource.fingerprint(path).equals(file.fingerprint())) {
+                    log.warn("Detection job {}: {} changed since the job was created, skipped", run.getJob().id(), file.fileName());
+                    skip(run, plans);
+                    continue;
+                }
+                SignalLayout layout = edfSignalSource.readLayout(path);
+                List<ChannelLayout> channels = parameters.channels().isEmpty()
+                        ? layout.signalChannels()
+                        : parameters.channels().stream()
+                                .map(layout::channel)
+                                .flatMap(Optional::stream)
+                                .filter(channel -> !channel.isAnnotation())
+                                .toList();
+                if (channels.isEmpty()) {
+                    skip(run, plans);
+                    continue;
+                }
+                double duration = layout.getDurationOfRecords();
+                List<ThresholdDetector> detectors = channels.stream()
+                        .map(channel -> new ThresholdDetector(mode, parameters.threshold(),
+                                (int) Math.round(parameters.refractorySeconds() * channel.sampleRate(duration))))
+                        .toList();
+                plans.add(new FilePlan(file, path, layout, channels, detectors));
+                samplesTotal += (long) layout.getNumberOfRecords()
+                        * channels.stream().mapToLong(ChannelLayout::samplesPerRecord).sum();
+            } catch (RuntimeException e) {
+                log.warn("Detection job {}: {} cannot be read, skipped: {}", run.getJob().id(), file.fileName(), e.getMessage());
+                skip(run, plans);
+            }
+        }
+        run.samplesTotal().set(samplesTotal);
+        return plans;
+    }
+
+    private static void skip(DetectionJobRun run, List<FilePlan> plans) {
+        run.filesSkipped().incrementAndGet();
+        plans.add(null);
+    }
+
+    /**
+     * Scans the units of one file in order: a first pass takes the statistics of every channel,
+     * the second detects and commits unit by unit.
+     */
+    private void scanFile(DetectionJobRun run, FilePlan plan, List<Unit> units) {
+        List<ThresholdDetector.Statistics> statistics = plan.channels().stream()
+                .map(channel -> new ThresholdDetector.Statistics())
+                .toList();
+        for (Unit unit : units) {
+            if (run.isInterrupted()) {
+                return;
+            }
+            SignalWindow window = read(plan, unit);
+            for (int c = 0; c < statistics.size(); c++) {
+                float[] values = window.channels().get(c).samples();
+                statistics.get(c).add(values, 0, values.length);
+            }
+        }
+
+        List<ThresholdDetector.Scan> scans = scans(plan, statistics);
+        for (int u = 0; u < units.size() && !run.isInterrupted(); u++) {
+            Unit unit = units.get(u);
+            boolean last = u == units.size() - 1;
+            if (run.isCompleted(unit)) {
+                if (!last && !run.isCompleted(units.get(u + 1))) {
+                    // a resumed file: the refractory period and a running excursion carry over from this unit
+                    scans = scans(plan, statistics);
+                    detect(plan, unit, read(plan, unit), scans, false, null);
+                }
+                continue;
+            }
+            SignalWindow window = read(plan, unit);
+            StringBuilder csv = new StringBuilder();
+            int detections = detect(plan, unit, window, scans, last, csv);
+            long samples = window.channels().stream().mapToLong(channel -> channel.samples().length).sum();
+            try {
+                run.commit(unit, csv.toString().getBytes(StandardCharsets.UTF_8), samples, detections);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (!run.isInterrupted()) {
+            run.filesDone().incrementAndGet();
+        }
+    }
+
+    private static List<ThresholdDetector.Scan> scans(FilePlan plan, List<ThresholdDetector.Statistics> statistics) {
+        List<ThresholdDetector.Scan> scans = new ArrayList<>(statistics.size());
+        for (int c = 0; c < statistics.size(); c++) {
+            scans.add(plan.detectors().get(c).scan(statistics.get(c)));
+        }
+        return scans;
+    }
+
+    /**
+     * Reads the records of a unit under a read permit.
+     */
+    private SignalWindow read(FilePlan plan, Unit unit) {
+        readPermits.acquireUninterruptibly();
+        try {
+            return edfSignalSource.readWindow(plan.path(), plan.layout(), unit.fromRecord(), unit.toRecord(), plan.channels());
+        } finally {
+            readPermits.release();
+        }
+    }
+
+    /**
+     * Feeds the samples of a unit to the scans of its channels.
+     *
+     * @param last the last unit of the file, excursions still running end with it
+     * @param csv  receives a CSV line per detection, {@code null} to only carry the state over
+     * @return number of detections
+     */
+    private static int detect(FilePlan plan, Unit unit, SignalWindow window, List<ThresholdDetector.Scan> scans,
+                              boolean last, StringBuilder csv) {
+        double duration = plan.layout().getDurationOfRecords();
+        double startSeconds = unit.fromRecord() * duration;
+        int detections = 0;
+        for (int c = 0; c < plan.channels().size(); c++) {
+            ChannelLayout channel = plan.channels().get(c);
+            float[] values = window.channels().get(c).samples();
+            double sampleRate = channel.sampleRate(duration);
+            String prefix = csvField(plan.file().fileName()) + "," + csvField(channel.label()) + ",";
+            ThresholdDetector.Sink sink = csv == null ? (index, value) -> { } : (index, value) ->
+                    csv.append(prefix)
+                       .append(String.format(Locale.ROOT, "%.4f,%.3f", startSeconds + index / sampleRate, value))
+                       .append('\n');
+            detections += scans.get(c).accept(values, 0, values.length, sink);
+            if (last) {
+                detections += scans.get(c).finish(sink);
+            }
+        }
+        return detections;
+    }
+
+    private static String csvField(String value) {
+        return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
+    private static DetectionJob.Parameters validate(DetectionJobRequest request) {
+        if (request.getThreshold() == null || !(request.getThreshold() > 0)) {
+            throw new InvalidSignalRequestException("Detection threshold must be positive");
+        }
+        if (!(request.getRefractorySeconds() >= 0)) {
+            throw new InvalidSignalRequestException("Refractory period must not be negative");
+        }
+        String mode = request.getMode() != null ? request.getMode() : "zscore";
+        try {
+            ThresholdDetector.Mode.parse(mode);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSignalRequestException(e.getMessage());
+        }
+        List<String> channels = request.getChannels() != null ? List.copyOf(request.getChannels()) : List.of();
+        return new DetectionJob.Parameters(mode, request.getThreshold(), request.getRefractorySeconds(), channels);
+    }
+
+    private List<JobFile> resolveFiles(List<String> fileNames) {
+        List<EdfData> edfs;
+        if (fileNames == null || fileNames.isEmpty()) {
+            edfs = edfRepository.listEdfs().stream().filter(EdfData::isValidEdf).toList();
+        } else {
+            edfs = fileNames.stream()
+                    .map(name -> edfRepository.findByFileName(name)
+                            .filter(EdfData::isValidEdf)
+                            .orElseThrow(() -> new EdfDataNotFoundException("Valid EDF file not found: %s".formatted(name))))
+                    .toList();
+        }
+        return edfs.stream()
+                .map(EdfData::getEdfFileProperties)
+                .map(file -> new JobFile(file.getFileId(), file.getFilePath().toAbsolutePath().toString(), file.getFingerprint()))
+                .toList();
+    }
+
+    private DetectionJobDto toDto(DetectionJobRun run) {
+        long total = run.samplesTotal().get();
+        long processed = run.samplesProcessed();
+        Double progress = run.getState() == State.COMPLETED ? Double.valueOf(1.0)
+                : total > 0 ? Double.valueOf((double) processed / total) : null;
+        return new DetectionJobDto(run.getJob().id(), run.getState().name(), run.getError(), run.getJob().createdAt(),
+                run.getJob().files().size(), run.filesDone().get(), run.filesSkipped().get(),
+                total > 0 ? total : null, processed, progress, run.samplesPerSecond(), run.detections());
+    }
+}
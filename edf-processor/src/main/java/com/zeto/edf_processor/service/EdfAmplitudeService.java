@@ -0,0 +1,159 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.dsp.AmplitudeHistogram;
+import com.zeto.edf_processor.dto.AmplitudeMapper;
+import com.zeto.edf_processor.dto.AmplitudeStatisticsDto;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.AmplitudeStatistics;
+import com.zeto.edf_processor.model.AmplitudeStatistics.ChannelStatistics;
+import com.zeto.edf_processor.model.AmplitudeStatistics.Histogram;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.RecordingAmplitudes;
+import com.zeto.edf_processor.model.RecordingAmplitudes.ChannelAmplitudes;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service layer serving amplitude percentiles from the per-channel {@link AmplitudeHistogram}s.
+ *
+ * <p>The histograms of a recording are filled by the background pass of the
+ * {@link EdfQualityService}; a request for a recording that was not analysed yet
+ * takes over its queued analysis, or waits for the running one. Archive-wide statistics merge the histograms of every
+ * analysed recording per channel label and calibration, without reading any file.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see RecordingAmplitudes
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EdfAmplitudeService {
+
+    /** Percentiles when none are requested */
+    private static final List<Double> DEFAULT_PERCENTILES = List.of(1.0, 50.0, 99.0);
+
+    private final EdfSignalService edfSignalService;
+    private final EdfRepository edfRepository;
+    private final EdfQualityService edfQualityService;
+    private final AmplitudeMapper amplitudeMapper;
+
+    /**
+     * Returns the amplitude percentiles of the channels of an EDF file.
+     *
+     * @param fileName    name of a loaded, valid EDF file
+     * @param channels    channel labels, empty selects every signal channel
+     * @param percentiles percentiles between 0 and 100, empty for 1, 50 and 99
+     * @param histogram   include the histogram of every channel
+     * @return statistics per channel
+     * @throws EdfDataNotFoundException      if no file with this name is loaded
+     * @throws InvalidSignalRequestException if the file is invalid or a parameter is not valid
+     */
+    public AmplitudeStatisticsDto recording(String fileName, List<String> channels, List<Double> percentiles,
+                                            boolean histogram) {
+        EdfData edfData = edfSignalService.findValidEdf(fileName);
+        List<Double> selectedPercentiles = percentiles(percentiles);
+        List<ChannelAmplitudes> amplitudes = edfQualityService.amplitudes(edfData).channels();
+        if (channels != null && !channels.isEmpty()) {
+            Set<String> known = Set.copyOf(amplitudes.stream().map(ChannelAmplitudes::label).toList());
+            channels.stream().filter(label -> !known.contains(label)).findFirst().ifPresent(label -> {
+                throw new InvalidSignalRequestException("Unknown channel: %s".formatted(label));
+            });
+        }
+        return amplitudeMapper.toDto(new AmplitudeStatistics(edfData.getEdfFileProperties().getFileName(), 1, 0,
+                statistics(amplitudes, channels, selectedPercentiles, histogram)));
+    }
+
+    /**
+     * Returns the amplitude percentiles of all analysed recordings, merged per channel label and calibration.
+     *
+     * @param channels    channel labels, empty selects every label
+     * @param percentiles percentiles between 0 and 100, empty for 1, 50 and 99
+     * @param histogram   include the merged histogram of every channel
+     * @return merged statistics per channel
+     * @throws InvalidSignalRequestException if a percentile is not valid
+     */
+    public AmplitudeStatisticsDto archive(List<String> channels, List<Double> percentiles, boolean histogram) {
+        List<Double> selectedPercentiles = percentiles(percentiles);
+        List<ChannelAmplitudes> merged = new ArrayList<>();
+        int files = 0;
+        int pending = 0;
+        for (EdfData edfData : edfRepository.listEdfs()) {
+            if (!edfData.isValidEdf()) {
+                continue;
+            }
+            RecordingAmplitudes amplitudes = edfData.getAmplitudes();
+            if (amplitudes == null) {
+                pending++;
+                continue;
+            }
+            files++;
+            for (ChannelAmplitudes channel : amplitudes.channels()) {
+                merge(merged, channel);
+            }
+        }
+        return amplitudeMapper.toDto(new AmplitudeStatistics(null, files, pending,
+                statistics(merged, channels, selectedPercentiles, histogram)));
+    }
+
+    private static void merge(List<ChannelAmplitudes> merged, ChannelAmplitudes channel) {
+        for (int i = 0; i < merged.size(); i++) {
+            if (merged.get(i).isMergeableWith(channel)) {
+                merged.set(i, merged.get(i).merge(channel));
+                return;
+            }
+        }
+        merged.add(channel);
+    }
+
+    private static List<ChannelStatistics> statistics(List<ChannelAmplitudes> amplitudes, List<String> channels,
+                                                      List<Double> percentiles, boolean histogram) {
+        return amplitudes.stream()
+                .filter(channel -> channels == null || channels.isEmpty() || channels.contains(channel.label()))
+                .map(channel -> statistics(channel, percentiles, histogram))
+                .toList();
+    }
+
+    private static ChannelStatistics statistics(ChannelAmplitudes channel, List<Double> percentiles, boolean histogram) {
+        AmplitudeHistogram counts = channel.histogram();
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (double percentile : percentiles) {
+            double digital = counts.quantile(percentile / 100);
+            values.put(key(percentile), Double.isNaN(digital) ? null : channel.physical(digital));
+        }
+        Histogram buckets = histogram
+                ? new Histogram(channel.physical(counts.firstValue()),
+                        channel.scale() * AmplitudeHistogram.BUCKET_WIDTH, counts.counts())
+                : null;
+        return new ChannelStatistics(channel.label(), channel.unit(), counts.count(), values, buckets);
+    }
+
+    private static List<Double> percentiles(List<Double> percentiles) {
+        if (percentiles == null || percentiles.isEmpty()) {
+            return DEFAULT_PERCENTILES;
+        }
+        for (double percentile : percentiles) {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new InvalidSignalRequestException("Percentiles must be between 0 and 100, found %s"
+                        .formatted(percentile));
+            }
+        }
+        return percentiles;
+    }
+
+    /**
+     * Key of a percentile, e.g. {@code p1}, {@code p99.9}.
+     */
+    private static String key(double percentile) {
+        return "p" + BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString();
+    }
+}
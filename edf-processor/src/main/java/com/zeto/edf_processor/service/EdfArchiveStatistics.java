@@ -0,0 +1,238 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.model.ArchiveSummary;
+import com.zeto.edf_processor.model.ArchiveSummary.Group;
+import com.zeto.edf_processor.model.Channels.Channel;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.HeapSize;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Archive-wide totals of the listed files, maintained incrementally.
+ *
+ * <p>Every listed file contributes to the totals and, if valid, to one group per dimension:
+ * patient code, month of the recording start and channel set. Adding, replacing or removing a file
+ * updates the counters of its groups in O(1), so a {@link #summary()} costs the number of groups,
+ * not the number of files. Recording time is summed in whole microseconds, so removing a file
+ * takes back exactly what adding it added. The files of a group share the key string of its
+ * counter, so a channel set shared by thousands of files is held once.</p>
+ *
+ * <p>Files are added as the first scan lists them ({@link EdfFileListedEvent}); after every load
+ * ({@link EdfFilesLoadedEvent}) the files of the new list are added, where an unchanged file is
+ * skipped, and the files missing from it are removed.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Component
+public class EdfArchiveStatistics implements MemoryAccounted {
+
+    /** Group of valid files without a recording start date */
+    static final String UNKNOWN_MONTH = "unknown";
+
+    /** Group of valid files without a SubjectID */
+    static final String UNKNOWN_PATIENT = "unknown";
+
+    private static final double MICROS_PER_SECOND = 1_000_000.0;
+
+    /** Contribution of a listed file, by path; guarded by this */
+    private final Map<Path, Contribution> contributions = new HashMap<>();
+
+    /** Guarded by this */
+    private final Counter totals = new Counter(null);
+    private int valid;
+    private final Map<String, Counter> byPatient = new HashMap<>();
+    private final Map<String, Counter> byMonth = new HashMap<>();
+    private final Map<String, Counter> byChannelSet = new HashMap<>();
+
+    /**
+     * What a listed file adds to the totals and the groups, equal for unchanged files.
+     *
+     * @param valid      the file is valid and belongs to groups
+     * @param micros     recording time in microseconds
+     * @param patient    patient group, the patient code; {@code null} for invalid files as the other keys
+     * @param month      month group
+     * @param channelSet channel set group
+     */
+    private record Contribution(boolean valid, long micros, String patient, String month, String channelSet) {
+
+        private static final Contribution INVALID = new Contribution(false, 0, null, null, null);
+
+        static Contribution of(EdfData edfData) {
+            if (!edfData.isValidEdf()) {
+                return INVALID;
+            }
+            LocalDateTime start = edfData.getRecordingDateTime();
+            // the name can be the same placeholder for many patients, the code tells them apart
+            String patient = edfData.getPatientInfo().getPatientCode();
+            return new Contribution(true,
+                    Math.round(edfData.getRecordingLengthInSeconds() * MICROS_PER_SECOND),
+                    patient != null ? patient : UNKNOWN_PATIENT,
+                    start != null ? YearMonth.from(start).toString() : UNKNOWN_MONTH,
+                    edfData.getChannels().getSignalChannels().stream()
+                            .map(Channel::label)
+                            .sorted()
+                            .distinct()
+                            .collect(Collectors.joining(",")));
+        }
+    }
+
+    /** Files and recording time of a group */
+    private static final class Counter {
+        /** Key of the group, the instance shared by the contributions of its files */
+        final String key;
+        int files;
+        long micros;
+
+        Counter(String key) {
+            this.key = key;
+        }
+
+        Group toGroup() {
+            return new Group(key, files, micros / MICROS_PER_SECOND);
+        }
+    }
+
+    /**
+     * The first scan listed a parsed file.
+     */
+    @EventListener
+    public void onFileListed(EdfFileListedEvent event) {
+        put(event.edfData());
+    }
+
+    /**
+     * A load replaced the list. Runs before the {@link EdfListVersion} changes, so a summary
+     * tagged with the new version holds the new totals.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onFilesLoaded(EdfFilesLoadedEvent event) {
+        replaceAll(event.edfs());
+    }
+
+    /**
+     * Adds a file, or replaces the file listed under the same path.
+     *
+     * @param edfData the listed file
+     */
+    public synchronized void put(EdfData edfData) {
+        Contribution contribution = canonical(Contribution.of(edfData));
+        Contribution previous = contributions.put(edfData.getEdfFileProperties().getFilePath(), contribution);
+        if (contribution.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(contribution, 1);
+    }
+
+    /**
+     * Makes the listed files the given ones: adds or replaces every file and removes the others.
+     *
+     * @param edfs the files of the list
+     */
+    public synchronized void replaceAll(Collection<EdfData> edfs) {
+        edfs.forEach(this::put);
+        if (contributions.size() > edfs.size()) {
+            Set<Path> listed = edfs.stream().map(e -> e.getEdfFileProperties().getFilePath()).collect(Collectors.toSet());
+            contributions.entrySet().removeIf(entry -> {
+                if (listed.contains(entry.getKey())) {
+                    return false;
+                }
+                apply(entry.getValue(), -1);
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Returns the current totals, groups ordered by key.
+     *
+     * @return totals and groups of the listed files
+     */
+    public synchronized ArchiveSummary summary() {
+        return new ArchiveSummary(totals.files, valid, totals.files - valid, totals.micros / MICROS_PER_SECOND,
+                groups(byPatient), groups(byMonth), groups(byChannelSet));
+    }
+
+    /**
+     * Returns the accounted memory of the statistics: the contribution of every listed file and the groups.
+     * The paths are shared with the listed files and the keys of the contributions with the groups.
+     */
+    @Override
+    public synchronized List<MemoryUsage> memoryUsage() {
+        long contributionBytes = contributions.size() * (HeapSize.MAP_ENTRY + HeapSize.object(3, 1 + Long.BYTES));
+        long groupBytes = 0;
+        int groupCount = 0;
+        for (Map<String, Counter> groups : List.of(byPatient, byMonth, byChannelSet)) {
+            for (String key : groups.keySet()) {
+                groupBytes += HeapSize.MAP_ENTRY + HeapSize.object(1, Integer.BYTES + Long.BYTES) + HeapSize.string(key);
+            }
+            groupCount += groups.size();
+        }
+        return List.of(
+                new MemoryUsage("archive-contributions", MemoryUsage.Kind.INDEX, contributions.size(), contributionBytes, 0),
+                new MemoryUsage("archive-groups", MemoryUsage.Kind.INDEX, groupCount, groupBytes, 0));
+    }
+
+    /**
+     * Replaces the group keys of a contribution with the keys of the existing groups.
+     */
+    private Contribution canonical(Contribution contribution) {
+        if (!contribution.valid()) {
+            return contribution;
+        }
+        return new Contribution(true, contribution.micros(), key(byPatient, contribution.patient()),
+                key(byMonth, contribution.month()), key(byChannelSet, contribution.channelSet()));
+    }
+
+    private static String key(Map<String, Counter> groups, String key) {
+        Counter counter = groups.get(key);
+        return counter != null ? counter.key : key;
+    }
+
+    private void apply(Contribution contribution, int sign) {
+        totals.files += sign;
+        if (!contribution.valid()) {
+            return;
+        }
+        valid += sign;
+        totals.micros += sign * contribution.micros();
+        count(byPatient, contribution.patient(), contribution.micros(), sign);
+        count(byMonth, contribution.month(), contribution.micros(), sign);
+        count(byChannelSet, contribution.channelSet(), contribution.micros(), sign);
+    }
+
+    private static void count(Map<String, Counter> groups, String key, long micros, int sign) {
+        Counter counter = groups.computeIfAbsent(key, Counter::new);
+        counter.files += sign;
+        counter.micros += sign * micros;
+        if (counter.files == 0) {
+            groups.remove(key);
+        }
+    }
+
+    private static List<Group> groups(Map<String, Counter> groups) {
+        return new TreeMap<>(groups).entrySet().stream()
+                .map(entry -> entry.getValue().toGroup())
+                .toList();
+    }
+}
@@ -0,0 +1,307 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.ByteBudgetCache;
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryPressure;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.dsp.CoherenceEstimator;
+import com.zeto.edf_processor.dsp.FrequencyBand;
+import com.zeto.edf_processor.dsp.PearsonCorrelation;
+import com.zeto.edf_processor.dto.ConnectivityDto;
+import com.zeto.edf_processor.dto.ConnectivityMapper;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.ConnectivityMatrix;
+import com.zeto.edf_processor.model.ConnectivityMatrix.Method;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Service layer computing the correlation or coherence matrix of the channels of an EDF file.
+ *
+ * <p><b>Processing:</b></p>
+ * <ul>
+ *   <li>The records covering the window are read from the file and cropped to the window</li>
+ *   <li>Every channel is prepared once: normalized for {@link PearsonCorrelation}, or transformed
+ *       into its segment spectra by a {@link CoherenceEstimator}</li>
+ *   <li>The matrix is split into tiles of {@value #TILE_CHANNELS} x {@value #TILE_CHANNELS} channel
+ *       pairs above the diagonal, computed in parallel on a dedicated fork/join pool</li>
+ * </ul>
+ *
+ * <p>All channels of a matrix share one sample rate. Without requested channels the signal
+ * channels of the most frequent sample rate are used.</p>
+ *
+ * <p>Results are cached by file fingerprint, window, method, band and channels within
+ * {@code edf.connectivity.cache-max-bytes}.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see ConnectivityMatrix
+ */
+@Service
+@Slf4j
+public class EdfConnectivityService implements MeterBinder, MemoryAccounted {
+
+    /** Channels per side of a tile of the matrix */
+    static final int TILE_CHANNELS = 8;
+
+    /** Band of the coherence when none is requested */
+    private static final FrequencyBand BROADBAND = new FrequencyBand("broadband", 0.5, 30);
+
+    private record ConnectivityKey(Path filePath, FileFingerprint fingerprint, int fromSample, int toSample,
+                                   Method method, FrequencyBand band, List<Integer> channels) {
+    }
+
+    private record PlanKey(int segmentSize, double sampleRate, FrequencyBand band) {
+    }
+
+    private record Tile(int rowFrom, int rowTo, int colFrom, int colTo) {
+    }
+
+    private final EdfSignalService edfSignalService;
+    private final EdfSignalSource edfSignalSource;
+    private final SignalBlockCache signalBlockCache;
+    private final ConnectivityMapper connectivityMapper;
+    private final EdfProcessorProperties.Connectivity settings;
+    private final ForkJoinPool pool;
+    private final ByteBudgetCache<ConnectivityKey, ConnectivityMatrix> results;
+    private final Map<PlanKey, CoherenceEstimator> plans = new ConcurrentHashMap<>();
+
+    public EdfConnectivityService(EdfSignalService edfSignalService,
+                                  EdfSignalSource edfSignalSource,
+                                  SignalBlockCache signalBlockCache,
+                                  ConnectivityMapper connectivityMapper,
+                                  EdfProcessorProperties properties,
+                                  MemoryPressure memoryPressure) {
+        this.edfSignalService = edfSignalService;
+        this.edfSignalSource = edfSignalSource;
+        this.signalBlockCache = signalBlockCache;
+        this.connectivityMapper = connectivityMapper;
+        this.settings = properties.getConnectivity();
+        this.pool = new ForkJoinPool(settings.getParallelism());
+        this.results = new ByteBudgetCache<>("connectivity", settings.getCacheMaxBytes().toBytes(),
+                ConnectivityMatrix::sizeInBytes, memoryPressure);
+    }
+
+    /**
+     * Computes the connectivity matrix of the channels of an EDF file over a time window.
+     *
+     * @param fileName name of a loaded, valid EDF file
+     * @param from     start of the window in seconds
+     * @param to       end of the window in seconds, {@code null} for {@code edf.connectivity.window-seconds}
+     *                 after the start, limited to the end of the recording
+     * @param method   {@code correlation} or {@code coherence}
+     * @param band     coherence band as {@code name:low-high} or the name of an EEG band, {@code null} for 0.5-30 Hz
+     * @param channels labels of the channels, empty uses the signal channels of the most frequent sample rate
+     * @return symmetric matrix over the channels
+     * @throws EdfDataNotFoundException      if no file with this name is loaded
+     * @throws InvalidSignalRequestException if the file is invalid or a parameter is not valid
+     */
+    public ConnectivityDto connectivity(String fileName, double from, Double to, String method, String band,
+                                        List<String> channels) {
+        Path filePath = edfSignalService.findValidEdf(fileName).getEdfFileProperties().getFilePath();
+        FileFingerprint fingerprint = edfSignalSource.fingerprint(filePath);
+        SignalLayout layout = signalBlockCache.layout(filePath, fingerprint);
+
+        Method connectivityMethod = parse(() -> Method.parse(method));
+        FrequencyBand frequencyBand = connectivityMethod == Method.COHERENCE ? parseBand(band) : null;
+        List<ChannelLayout> channelLayouts = channels(layout, channels);
+        double sampleRate = channelLayouts.get(0).sampleRate(layout.getDurationOfRecords());
+
+        double recordingSeconds = layout.getNumberOfRecords() * layout.getDurationOfRecords();
+        double end = to != null ? to : Math.min(recordingSeconds, from + settings.getWindowSeconds());
+        if (from < 0 || end <= from || end > recordingSeconds + 1e-9) {
+            throw new InvalidSignalRequestException("Invalid window [%s, %s) s, recording has %s s"
+                    .formatted(from, end, recordingSeconds));
+        }
+        if (end - from > settings.getMaxWindowSeconds()) {
+            throw new InvalidSignalRequestException("At most %s s can be analysed at once"
+                    .formatted(settings.getMaxWindowSeconds()));
+        }
+        int fromSample = (int) Math.round(from * sampleRate);
+        int toSample = (int) Math.min(Math.round(end * sampleRate),
+                (long) layout.getNumberOfRecords() * channelLayouts.get(0).samplesPerRecord());
+        if (toSample - fromSample < 2) {
+            throw new InvalidSignalRequestException("Window must contain at least two samples");
+        }
+
+        ConnectivityKey key = new ConnectivityKey(filePath, fingerprint, fromSample, toSample, connectivityMethod,
+                frequencyBand, channelLayouts.stream().map(ChannelLayout::index).toList());
+        ConnectivityMatrix matrix = results.get(key,
+                k -> compute(filePath, layout, fromSample, toSample, sampleRate, connectivityMethod, frequencyBand,
+                        channelLayouts));
+        return connectivityMapper.toDto(matrix);
+    }
+
+    private ConnectivityMatrix compute(Path filePath, SignalLayout layout, int fromSample, int toSample,
+                                       double sampleRate, Method method, FrequencyBand band,
+                                       List<ChannelLayout> channels) {
+        long start = System.nanoTime();
+        int samplesPerRecord = channels.get(0).samplesPerRecord();
+        int fromRecord = fromSample / samplesPerRecord;
+        int toRecord = (toSample + samplesPerRecord - 1) / samplesPerRecord;
+        SignalWindow window = edfSignalSource.readWindow(filePath, layout, fromRecord, toRecord, channels);
+        int offset = fromSample - fromRecord * samplesPerRecord;
+        int length = toSample - fromSample;
+
+        int n = channels.size();
+        double[][] matrix = new double[n][n];
+        List<Tile> tiles = tiles(n);
+        if (method == Method.CORRELATION) {
+            float[][] normalized = new float[n][];
+            pool.invoke(new RangeTask(0, n, 1, (first, last) -> {
+                for (int c = first; c < last; c++) {
+                    normalized[c] = PearsonCorrelation.normalize(window.channels().get(c).samples(), offset,
+                            offset + length);
+                }
+            }));
+            pool.invoke(new RangeTask(0, tiles.size(), 1, (first, last) -> {
+                for (int t = first; t < last; t++) {
+                    Tile tile = tiles.get(t);
+                    PearsonCorrelation.tile(normalized, tile.rowFrom(), tile.rowTo(), tile.colFrom(), tile.colTo(),
+                            matrix);
+                }
+            }));
+        } else {
+            CoherenceEstimator estimator = plan(sampleRate, length, band);
+            CoherenceEstimator.Spectra[] spectra = new CoherenceEstimator.Spectra[n];
+            pool.invoke(new RangeTask(0, n, 1, (first, last) -> {
+                for (int c = first; c < last; c++) {
+                    spectra[c] = estimator.transform(window.channels().get(c).samples(), offset, offset + length);
+                }
+            }));
+            pool.invoke(new RangeTask(0, tiles.size(), 1, (first, last) -> {
+                CoherenceEstimator.Workspace workspace = estimator.newWorkspace();
+                for (int t = first; t < last; t++) {
+                    Tile tile = tiles.get(t);
+                    for (int i = tile.rowFrom(); i < tile.rowTo(); i++) {
+                        for (int j = Math.max(i, tile.colFrom()); j < tile.colTo(); j++) {
+                            double coherence = i == j ? 1 : estimator.coherence(spectra[i], spectra[j], workspace);
+                            matrix[i][j] = coherence;
+                            matrix[j][i] = coherence;
+                        }
+                    }
+                }
+            }));
+        }
+
+        log.debug("{} matrix of {} channels x {} samples of {} computed in {} ms", method, n, length,
+                filePath.getFileName(), (System.nanoTime() - start) / 1_000_000);
+        return new ConnectivityMatrix(filePath.getFileName().toString(), method, fromSample / sampleRate,
+                toSample / sampleRate, band, channels.stream().map(ChannelLayout::label).toList(), matrix);
+    }
+
+    /**
+     * Splits the upper triangle of an {@code n x n} matrix into tiles of channel pairs.
+     */
+    static List<Tile> tiles(int n) {
+        List<Tile> tiles = new ArrayList<>();
+        for (int row = 0; row < n; row += TILE_CHANNELS) {
+            for (int col = row; col < n; col += TILE_CHANNELS) {
+                tiles.add(new Tile(row, Math.min(n, row + TILE_CHANNELS), col, Math.min(n, col + TILE_CHANNELS)));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns the shared coherence plan of a sample rate and band; the segment is the largest
+     * power of two not longer than the configured segment length and a third of the window,
+     * so every window spans at least five overlapping segments.
+     */
+    private CoherenceEstimator plan(double sampleRate, int windowSamples, FrequencyBand band) {
+        int segmentSamples = (int) Math.min(windowSamples / 3, Math.round(sampleRate * settings.getSegmentSeconds()));
+        int segmentSize = Math.max(2, Integer.highestOneBit(Math.max(2, segmentSamples)));
+        return plans.computeIfAbsent(new PlanKey(segmentSize, sampleRate, band), key -> parse(
+                () -> new CoherenceEstimator(key.segmentSize(), key.sampleRate(), key.band())));
+    }
+
+    private static List<ChannelLayout> channels(SignalLayout layout, List<String> labels) {
+        List<ChannelLayout> channels = EdfSignalService.resolveChannels(layout, labels);
+        if (channels.isEmpty()) {
+            throw new InvalidSignalRequestException("File has no signal channels");
+        }
+        Map<Integer, Long> rates = channels.stream()
+                .collect(Collectors.groupingBy(ChannelLayout::samplesPerRecord, Collectors.counting()));
+        if (rates.size() == 1) {
+            return channels;
+        }
+        if (labels != null && !labels.isEmpty()) {
+            throw new InvalidSignalRequestException("All channels of a connectivity matrix must share one sample rate");
+        }
+        int samplesPerRecord = rates.entrySet().stream()
+                .max(Map.Entry.<Integer, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .orElseThrow()
+                .getKey();
+        return channels.stream().filter(channel -> channel.samplesPerRecord() == samplesPerRecord).toList();
+    }
+
+    private static FrequencyBand parseBand(String band) {
+        if (band == null || band.isBlank()) {
+            return BROADBAND;
+        }
+        String name = band.trim().toLowerCase(Locale.ROOT);
+        return FrequencyBand.EEG_BANDS.stream()
+                .filter(eegBand -> eegBand.name().equals(name))
+                .findFirst()
+                .orElseGet(() -> parse(() -> FrequencyBand.parse(band)));
+    }
+
+    private static <T> T parse(Supplier<T> parser) {
+        try {
+            return parser.get();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSignalRequestException(e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the cached results of a modified or removed file.
+     *
+     * @param event change detected by the repository
+     */
+    @EventListener
+    public void onFileChanged(EdfFileChangedEvent event) {
+        results.invalidateIf(key -> key.filePath().equals(event.filePath()));
+    }
+
+    @Override
+    public List<MemoryUsage> memoryUsage() {
+        return List.of(results.memoryUsage());
+    }
+
+    @Override
+    public long releaseMemory() {
+        return results.releaseHalf();
+    }
+
+    @Override
+    public void bindTo(@NotNull MeterRegistry registry) {
+        results.bindTo(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
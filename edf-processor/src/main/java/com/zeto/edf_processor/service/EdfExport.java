@@ -0,0 +1,47 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Description of an EDF file exported from a time window of a recording.
+ *
+ * <p>The content is the rewritten {@code header} followed by the records {@code [fromRecord, toRecord)}
+ * of the source, each cut down to the exported channels and the rewritten annotation channel.</p>
+ *
+ * @param fileName          file name offered to the client
+ * @param filePath          path of the source EDF file
+ * @param layout            layout of the source file
+ * @param header            header of the exported file
+ * @param fromRecord        first exported record of the source (inclusive)
+ * @param toRecord          last exported record of the source (exclusive)
+ * @param channels          exported signal channels of the source, in output order
+ * @param annotationChannel EDF+ annotation channel of the source, {@code null} for plain EDF
+ * @param annotations       the annotations are kept, otherwise only the timekeeping of the records
+ * @param shiftSeconds      whole seconds between the start of the source and of the export
+ * @param recordBytes       size of an exported data record
+ */
+public record EdfExport(String fileName,
+                        Path filePath,
+                        SignalLayout layout,
+                        byte[] header,
+                        int fromRecord,
+                        int toRecord,
+                        List<ChannelLayout> channels,
+                        ChannelLayout annotationChannel,
+                        boolean annotations,
+                        long shiftSeconds,
+                        int recordBytes) {
+
+    /**
+     * Total number of bytes of the exported file.
+     *
+     * @return header length plus the exported records
+     */
+    public long contentLength() {
+        return header.length + (long) (toRecord - fromRecord) * recordBytes;
+    }
+}
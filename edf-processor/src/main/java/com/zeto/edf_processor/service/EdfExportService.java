@@ -0,0 +1,254 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.HeapSize;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service exporting a time window of a recording as a new EDF/EDF+ file, e.g. a clip around an event.
+ *
+ * <p>The window is widened to whole data records. The exported file holds the selected signal
+ * channels and, for EDF+ sources, the annotation channel:</p>
+ * <ul>
+ *   <li>The header is rebuilt from the fields of the exported channels, with the new record
+ *       count, channel count, header size and start time.</li>
+ *   <li>Records are copied undecoded, channel slice by channel slice, from one NIO buffer of
+ *       source records into one buffer of exported records, which is written to the client.
+ *       Both buffers are heap buffers sized by {@code edf.export.buffer-bytes}, so every export runs in
+ *       bounded memory whatever the length of the window, and exports run concurrently. The buffers
+ *       of the running exports are accounted by the memory guard.</li>
+ *   <li>EDF+: the start moves to the whole second of the first record and the onsets of the
+ *       timekeeping and annotation TALs move with it, see {@link AnnotationTalRewriter}.
+ *       Without annotations only the timekeeping entry of every record is kept. Discontinuous EDF+D files are rejected.</li>
+ *   <li>EDF: the start moves to the first record, which must start on a whole second.</li>
+ * </ul>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see EdfExport
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class EdfExportService implements MemoryAccounted {
+
+    /** Offsets and widths of the fixed header fields rewritten by an export */
+    static final int HEADER_BYTES_OFFSET = 184;
+    static final int RESERVED_OFFSET = 192;
+    static final int RESERVED_SIZE = 44;
+    static final int NUMBER_OF_SIGNALS_OFFSET = 252;
+    static final int NUMBER_OF_SIGNALS_SIZE = 4;
+    static final int FIXED_HEADER_BYTES = 256;
+
+    /** Widths of the per-channel header fields, in header order; 256 bytes per channel in total */
+    private static final int[] CHANNEL_FIELD_WIDTHS = {16, 80, 8, 8, 8, 8, 8, 80, 8, 32};
+
+    private final EdfRepository edfDataRepository;
+
+    private final EdfSignalSource edfSignalSource;
+
+    private final EdfProcessorProperties properties;
+
+    /** Running exports and the bytes of their buffers */
+    private final AtomicInteger runningExports = new AtomicInteger();
+    private final AtomicLong bufferBytes = new AtomicLong();
+
+    /**
+     * Prepares the export of the window {@code [fromSeconds, toSeconds)} of a file.
+     *
+     * @param fileName    name of a loaded EDF file
+     * @param fromSeconds start of the window in seconds from the start of the recording
+     * @param toSeconds   end of the window, {@code null} for the end of the recording
+     * @param labels      labels of the exported signal channels, {@code null} or empty for all
+     * @param annotations keep the annotations of an EDF+ file
+     * @return description of the exported file
+     * @throws EdfDataNotFoundException      if no file with this name is loaded
+     * @throws InvalidSignalRequestException if the file is invalid or discontinuous, the window is not finite, empty or
+     *                                       outside the recording, a channel is unknown or a plain EDF window starts inside
+     *                                       a second
+     */
+    public EdfExport prepare(String fileName, double fromSeconds, Double toSeconds, List<String> labels, boolean annotations) {
+        if (!Double.isFinite(fromSeconds) || toSeconds != null && !Double.isFinite(toSeconds)) {
+            throw new InvalidSignalRequestException("Export window must be finite, found [%s, %s) s".formatted(fromSeconds, toSeconds));
+        }
+        EdfData edfData = edfDataRepository.findByFileName(fileName)
+                .orElseThrow(() -> new EdfDataNotFoundException("EDF file not found: %s".formatted(fileName)));
+        if (!edfData.isValidEdf()) {
+            throw new InvalidSignalRequestException("EDF file is invalid: %s".formatted(fileName));
+        }
+        Path filePath = edfData.getEdfFileProperties().getFilePath();
+        SignalLayout layout = edfSignalSource.readLayout(filePath);
+        byte[] header = edfSignalSource.readHeader(filePath, layout);
+        if (field(header, RESERVED_OFFSET, RESERVED_SIZE).startsWith("EDF+D")) {
+            throw new InvalidSignalRequestException("Discontinuous EDF+D files cannot be exported: %s".formatted(fileName));
+        }
+
+        double duration = layout.getDurationOfRecords();
+        double end = toSeconds != null ? toSeconds : layout.getNumberOfRecords() * duration;
+        if (duration <= 0 || fromSeconds < 0 || end <= fromSeconds || fromSeconds >= layout.getNumberOfRecords() * duration) {
+            throw new InvalidSignalRequestException("Invalid export window [%s, %s) s, the recording has %d records of %s s"
+                    .formatted(fromSeconds, end, layout.getNumberOfRecords(), duration));
+        }
+        int fromRecord = (int) Math.floor(fromSeconds / duration);
+        int toRecord = (int) Math.min(layout.getNumberOfRecords(), Math.ceil(end / duration));
+
+        List<ChannelLayout> channels = channels(layout, labels);
+        ChannelLayout annotationChannel = layout.getChannels().stream().filter(ChannelLayout::isAnnotation).findFirst().orElse(null);
+        double offsetSeconds = fromRecord * duration;
+        if (annotationChannel == null && offsetSeconds != Math.rint(offsetSeconds)) {
+            throw new InvalidSignalRequestException(
+                    "An EDF export must start on a whole second, record %d starts at %.3f s".formatted(fromRecord, offsetSeconds));
+        }
+        long shiftSeconds = (long) Math.floor(offsetSeconds);
+
+        List<ChannelLayout> exported = new ArrayList<>(channels);
+        if (annotationChannel != null) {
+            exported.add(annotationChannel);
+        }
+        int recordBytes = exported.stream().mapToInt(c -> c.samplesPerRecord() * Short.BYTES).sum();
+        log.debug("Exporting records {}..{} and {} channels of {}", fromRecord, toRecord, channels.size(), fileName);
+        return new EdfExport(exportName(fileName, fromRecord * duration, toRecord * duration), filePath, layout,
+                exportHeader(header, layout, exported, toRecord - fromRecord, shiftSeconds),
+                fromRecord, toRecord, channels, annotationChannel, annotations, shiftSeconds, recordBytes);
+    }
+
+    /**
+     * Writes the exported file: the header, then the records block by block.
+     *
+     * @param export description of the export, see {@link #prepare}
+     * @param target receives {@link EdfExport#contentLength()} bytes
+     * @throws IOException if the source cannot be read or the target fails
+     */
+    public void write(EdfExport export, WritableByteChannel target) throws IOException {
+        SignalLayout layout = export.layout();
+        // records per block, so that the source and the export buffer each fit the buffer size
+        long largerRecord = Math.max(layout.getRecordBytes(), export.recordBytes());
+        int blockRecords = (int) Math.max(1, Math.min(Integer.MAX_VALUE / largerRecord,
+                properties.getExport().getBufferBytes().toBytes() / largerRecord));
+        // a heap buffer: the target copies it into an array anyway, and it is freed with the export
+        ByteBuffer output = ByteBuffer.allocate(blockRecords * export.recordBytes());
+        // the source block of the same number of records, allocated by the signal source
+        long buffers = HeapSize.array((long) blockRecords * layout.getRecordBytes(), 1) + HeapSize.array(output.capacity(), 1);
+        ChannelLayout annotationChannel = export.annotationChannel();
+        AnnotationTalRewriter rewriter = annotationChannel == null ? null : new AnnotationTalRewriter(
+                export.shiftSeconds(), export.annotations(), annotationChannel.samplesPerRecord() * Short.BYTES);
+
+        runningExports.incrementAndGet();
+        bufferBytes.addAndGet(buffers);
+        try {
+            writeFully(target, ByteBuffer.wrap(export.header()));
+            edfSignalSource.readRecords(export.filePath(), layout, export.fromRecord(), export.toRecord(), blockRecords,
+                    (block, firstRecord, records) -> {
+                        output.clear();
+                        for (int r = 0; r < records; r++) {
+                            int record = r * layout.getRecordBytes();
+                            for (ChannelLayout channel : export.channels()) {
+                                output.put(block.slice(record + channel.byteOffset(), channel.samplesPerRecord() * Short.BYTES));
+                            }
+                            if (rewriter != null) {
+                                rewriter.rewrite(block.slice(record + annotationChannel.byteOffset(),
+                                        annotationChannel.samplesPerRecord() * Short.BYTES), output);
+                            }
+                        }
+                        writeFully(target, output.flip());
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            bufferBytes.addAndGet(-buffers);
+            runningExports.decrementAndGet();
+        }
+    }
+
+    @Override
+    public List<MemoryUsage> memoryUsage() {
+        return List.of(new MemoryUsage("export-buffers", MemoryUsage.Kind.DECODED, runningExports.get(), bufferBytes.get(), 0));
+    }
+
+    /**
+     * Resolves the exported signal channels, all of them without labels.
+     */
+    private static List<ChannelLayout> channels(SignalLayout layout, List<String> labels) {
+        if (labels == null || labels.isEmpty()) {
+            return layout.signalChannels();
+        }
+        List<ChannelLayout> channels = new ArrayList<>(labels.size());
+        for (String label : labels) {
+            ChannelLayout channel = layout.channel(label)
+                    .filter(c -> !c.isAnnotation())
+                    .orElseThrow(() -> new InvalidSignalRequestException("Unknown channel: %s".formatted(label)));
+            if (!channels.contains(channel)) {
+                channels.add(channel);
+            }
+        }
+        return channels;
+    }
+
+    /**
+     * Builds the header of the export from the fixed header and the channel fields of the source.
+     */
+    static byte[] exportHeader(byte[] header, SignalLayout layout, List<ChannelLayout> channels, int records, long shiftSeconds) {
+        int sourceChannels = layout.getChannels().size();
+        byte[] exported = new byte[FIXED_HEADER_BYTES * (channels.size() + 1)];
+        System.arraycopy(header, 0, exported, 0, FIXED_HEADER_BYTES);
+        EdfRawService.writeField(exported, HEADER_BYTES_OFFSET, String.valueOf(exported.length));
+        EdfRawService.writeField(exported, EdfRawService.NUMBER_OF_RECORDS_OFFSET, String.valueOf(records));
+        EdfRawService.writeField(exported, NUMBER_OF_SIGNALS_OFFSET, NUMBER_OF_SIGNALS_SIZE, String.valueOf(channels.size()));
+        if (shiftSeconds > 0) {
+            EdfRawService.shiftStart(header, exported, shiftSeconds);
+        }
+
+        // every field is stored for all channels before the next field starts
+        int source = FIXED_HEADER_BYTES;
+        int target = FIXED_HEADER_BYTES;
+        for (int width : CHANNEL_FIELD_WIDTHS) {
+            for (ChannelLayout channel : channels) {
+                System.arraycopy(header, source + channel.index() * width, exported, target, width);
+                target += width;
+            }
+            source += sourceChannels * width;
+        }
+        return exported;
+    }
+
+    private static void writeFully(WritableByteChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static String field(byte[] header, int offset, int width) {
+        return new String(header, offset, width, StandardCharsets.US_ASCII).trim();
+    }
+
+    private static String exportName(String fileName, double fromSeconds, double toSeconds) {
+        int extension = fileName.lastIndexOf('.');
+        String baseName = extension > 0 ? fileName.substring(0, extension) : fileName;
+        return "%s_%s-%ss.edf".formatted(baseName, seconds(fromSeconds), seconds(toSeconds));
+    }
+
+    private static String seconds(double seconds) {
+        return BigDecimal.valueOf(seconds).stripTrailingZeros().toPlainString();
+    }
+}
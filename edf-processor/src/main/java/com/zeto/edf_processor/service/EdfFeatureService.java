@@ -0,0 +1,241 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.dsp.EpochFeatureExtractor;
+import com.zeto.edf_processor.dsp.WelchPsd;
+import com.zeto.edf_processor.dto.FeatureMapper;
+import com.zeto.edf_processor.dto.FeaturesDto;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.EpochFeature;
+import com.zeto.edf_processor.model.FeatureColumns;
+import com.zeto.edf_processor.model.FeatureTable;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Service layer serving per-epoch features from the {@link EpochFeatureStore}.
+ *
+ * <p><b>Processing:</b></p>
+ * <ul>
+ *   <li>The first request for a version of a file builds its table: every signal channel,
+ *       every {@link EpochFeature}, epochs of {@code edf.features.epoch-seconds}, computed in
+ *       parallel on a dedicated fork/join pool with the {@link WelchPlans} of the spectrum</li>
+ *   <li>A file whose record duration does not divide the epoch length is rejected, as by
+ *       {@link EdfSpectrumService}</li>
+ *   <li>Concurrent requests for a table that is being built wait for the same build</li>
+ *   <li>Later requests, also after a restart, read the selected columns from the mapped
+ *       store file and never touch the EDF file</li>
+ * </ul>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see FeatureTable
+ */
+@Service
+@Slf4j
+public class EdfFeatureService {
+
+    private final EdfSignalService edfSignalService;
+    private final EdfSignalSource edfSignalSource;
+    private final SignalBlockCache signalBlockCache;
+    private final EpochFeatureStore featureStore;
+    private final FeatureMapper featureMapper;
+    private final EdfProcessorProperties.Features settings;
+    private final ForkJoinPool pool;
+    private final WelchPlans plans;
+    private final Map<Path, CompletableFuture<FeatureTable>> building = new ConcurrentHashMap<>();
+
+    public EdfFeatureService(EdfSignalService edfSignalService,
+                             EdfSignalSource edfSignalSource,
+                             SignalBlockCache signalBlockCache,
+                             EpochFeatureStore featureStore,
+                             FeatureMapper featureMapper,
+                             WelchPlans plans,
+                             EdfProcessorProperties properties) {
+        this.edfSignalService = edfSignalService;
+        this.edfSignalSource = edfSignalSource;
+        this.signalBlockCache = signalBlockCache;
+        this.featureStore = featureStore;
+        this.featureMapper = featureMapper;
+        this.plans = plans;
+        this.settings = properties.getFeatures();
+        this.pool = new ForkJoinPool(settings.getParallelism());
+    }
+
+    /**
+     * Returns columns of the epoch feature table of an EDF file, building the table if needed.
+     *
+     * @param fileName  name of a loaded, valid EDF file
+     * @param channels  channel labels, empty selects every channel of the table
+     * @param features  feature keys, empty selects every feature
+     * @param fromEpoch first epoch (inclusive)
+     * @param toEpoch   last epoch (exclusive), {@code null} for the last epoch of the file
+     * @return the selected columns over the epoch range
+     * @throws EdfDataNotFoundException      if no file with this name is loaded
+     * @throws InvalidSignalRequestException if the file is invalid, a parameter is not valid or the epoch
+     *                                       length is not a whole multiple of the record duration of the file
+     */
+    public FeaturesDto features(String fileName, List<String> channels, List<String> features,
+                                int fromEpoch, Integer toEpoch) {
+        Path filePath = edfSignalService.findValidEdf(fileName).getEdfFileProperties().getFilePath();
+        FileFingerprint fingerprint = edfSignalSource.fingerprint(filePath);
+        // also for a table stored before: its epochs must be those the file is built with now
+        EdfSpectrumService.epochRecords(settings.getEpochSeconds(),
+                signalBlockCache.layout(filePath, fingerprint).getDurationOfRecords());
+        FeatureTable table = table(filePath, fingerprint);
+
+        List<Integer> channelIndexes = channels == null || channels.isEmpty()
+                ? IntStream.range(0, table.channels().size()).boxed().toList()
+                : channels.stream().map(label -> index(table.channels(), label, "channel")).toList();
+        List<Integer> featureIndexes = features == null || features.isEmpty()
+                ? IntStream.range(0, table.features().size()).boxed().toList()
+                : features.stream().map(key -> index(table.features(), parseFeature(key), "feature")).toList();
+        int to = toEpoch != null ? toEpoch : table.epochCount();
+        if (fromEpoch < 0 || to < fromEpoch || to > table.epochCount()) {
+            throw new InvalidSignalRequestException("Invalid epoch range [%d, %d), file has %d epochs"
+                    .formatted(fromEpoch, to, table.epochCount()));
+        }
+
+        List<FeatureColumns.Column> columns = new ArrayList<>(channelIndexes.size() * featureIndexes.size());
+        for (int c : channelIndexes) {
+            for (int f : featureIndexes) {
+                columns.add(new FeatureColumns.Column(table.channels().get(c), table.features().get(f).key(),
+                        table.column(c, f, fromEpoch, to)));
+            }
+        }
+        return featureMapper.toDto(new FeatureColumns(filePath.getFileName().toString(), table.epochSeconds(),
+                table.epochCount(), fromEpoch, to, columns));
+    }
+
+    /**
+     * Opens the stored table of a version of a file, or builds it once for all concurrent callers.
+     */
+    FeatureTable table(Path filePath, FileFingerprint fingerprint) {
+        while (true) {
+            Optional<FeatureTable> stored = featureStore.open(filePath, fingerprint);
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+            CompletableFuture<FeatureTable> future = new CompletableFuture<>();
+            CompletableFuture<FeatureTable> running = building.putIfAbsent(filePath, future);
+            if (running == null) {
+                try {
+                    FeatureTable table = build(filePath, fingerprint);
+                    future.complete(table);
+                    return table;
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    building.remove(filePath, future);
+                }
+            }
+            FeatureTable table = await(running);
+            if (table.fingerprint().equals(fingerprint)) {
+                return table;
+            }
+            // a build of another version of the file finished, look again
+        }
+    }
+
+    private FeatureTable build(Path filePath, FileFingerprint fingerprint) {
+        long start = System.nanoTime();
+        SignalLayout layout = signalBlockCache.layout(filePath, fingerprint);
+        double duration = layout.getDurationOfRecords();
+        int epochRecords = EdfSpectrumService.epochRecords(settings.getEpochSeconds(), duration);
+        int epochCount = layout.getNumberOfRecords() / epochRecords;
+        List<ChannelLayout> channels = layout.signalChannels();
+        List<EpochFeature> features = List.of(EpochFeature.values());
+
+        List<EpochFeatureExtractor> extractors = channels.stream()
+                .map(channel -> new EpochFeatureExtractor(
+                        plans.plan(channel.sampleRate(duration), channel.samplesPerRecord() * epochRecords,
+                                settings.getSegmentSeconds()),
+                        channel.sampleRate(duration), features))
+                .toList();
+        float[][] columns = new float[channels.size() * features.size()][epochCount];
+
+        int leafEpochs = Math.max(1, epochCount / (pool.getParallelism() * 4));
+        pool.invoke(new RangeTask(0, epochCount, leafEpochs, (from, to) -> {
+            List<WelchPsd.Workspace> workspaces = extractors.stream().map(EpochFeatureExtractor::newWorkspace).toList();
+            float[] values = new float[features.size()];
+            for (int epoch = from; epoch < to; epoch++) {
+                SignalWindow window = edfSignalSource.readWindow(filePath, layout,
+                        epoch * epochRecords, (epoch + 1) * epochRecords, channels);
+                for (int c = 0; c < channels.size(); c++) {
+                    float[] samples = window.channels().get(c).samples();
+                    extractors.get(c).extract(samples, 0, samples.length, workspaces.get(c), values);
+                    for (int f = 0; f < values.length; f++) {
+                        columns[c * features.size() + f][epoch] = values[f];
+                    }
+                }
+            }
+        }));
+
+        FeatureTable table = featureStore.write(filePath, fingerprint, epochRecords * duration,
+                channels.stream().map(ChannelLayout::label).toList(), features, columns);
+        log.info("Feature table of {} ({} epochs x {} columns) built in {} ms", filePath.getFileName(), epochCount,
+                columns.length, (System.nanoTime() - start) / 1_000_000);
+        return table;
+    }
+
+    private static FeatureTable await(CompletableFuture<FeatureTable> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static EpochFeature parseFeature(String key) {
+        try {
+            return EpochFeature.parse(key);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSignalRequestException(e.getMessage());
+        }
+    }
+
+    private static <T> int index(List<T> values, T value, String kind) {
+        int index = values.indexOf(value);
+        if (index < 0) {
+            throw new InvalidSignalRequestException("Unknown %s: %s".formatted(kind, value));
+        }
+        return index;
+    }
+
+    /**
+     * Drops the stored table of a modified or removed file.
+     *
+     * @param event change detected by the repository
+     */
+    @EventListener
+    public void onFileChanged(EdfFileChangedEvent event) {
+        featureStore.delete(event.filePath());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,14 @@
+package com.zeto.edf_processor.service;
+
+import java.nio.file.Path;
+
+/**
+ * Published by the repository when a previously loaded EDF file was modified or removed.
+ *
+ * <p>Components holding data derived from the file content listen to this event
+ * to drop their stale entries.</p>
+ *
+ * @param filePath path of the changed file
+ */
+public record EdfFileChangedEvent(Path filePath) {
+}
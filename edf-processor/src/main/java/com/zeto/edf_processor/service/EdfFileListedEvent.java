@@ -0,0 +1,15 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.model.EdfData;
+
+/**
+ * Published by the repository when a parsed file is listed before the load has finished,
+ * i.e. while the first scan lists the files as they are parsed.
+ *
+ * <p>Files of later loads become visible together, see {@link EdfFilesLoadedEvent}.
+ * Listeners run on the loading thread and must be fast.</p>
+ *
+ * @param edfData the listed file, valid or invalid
+ */
+public record EdfFileListedEvent(EdfData edfData) {
+}
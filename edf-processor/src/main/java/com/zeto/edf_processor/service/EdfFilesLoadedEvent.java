@@ -0,0 +1,16 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.model.EdfData;
+
+import java.util.List;
+
+/**
+ * Published by the repository after a load, once the loaded files are visible to readers.
+ *
+ * <p>Components enriching the loaded files in the background listen to this event;
+ * listeners run on the loading thread and must hand longer work off.</p>
+ *
+ * @param edfs the loaded files, valid and invalid
+ */
+public record EdfFilesLoadedEvent(List<EdfData> edfs) {
+}
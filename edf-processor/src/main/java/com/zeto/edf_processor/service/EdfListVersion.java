@@ -0,0 +1,60 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.model.ScanProgress;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the file list, the entity tag of the list endpoints.
+ *
+ * <p>The version changes on every load and whenever a background result is attached
+ * to a loaded file, so a client holding the current tag holds the current list and is
+ * answered with {@code 304 Not Modified}. The tag starts with the startup time, so tags of
+ * an earlier run of the application never match. While the first scan lists the files as
+ * they are parsed, the tag also carries the number of parsed files.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class EdfListVersion {
+
+    private final EdfRepository edfRepository;
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * A rescan replaced the list. Runs after the other listeners of the load, e.g. the
+     * {@link EdfArchiveStatistics}, so no response carries the new tag with the old content.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onFilesLoaded(EdfFilesLoadedEvent event) {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Marks a change of a loaded file, e.g. an attached quality result.
+     */
+    public void increment() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Weak entity tag of the current version: the JSON and CBOR encodings of a list are equivalent.
+     */
+    public String etag() {
+        ScanProgress progress = edfRepository.scanProgress();
+        if (!progress.complete()) {
+            return "W/\"%s-%d-%d\"".formatted(instance, version.get(), progress.parsed());
+        }
+        return "W/\"%s-%d\"".formatted(instance, version.get());
+    }
+}
@@ -0,0 +1,41 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.dsp.WaveformPreview;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.RecordingPreview;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service layer serving the {@link WaveformPreview}s of the file list.
+ *
+ * <p>Previews are computed at ingest by the background pass of the {@link EdfQualityService}
+ * and kept on the loaded file; a preview requested before that pass reached the file is
+ * computed right away by the same single pass, see {@link EdfQualityService#preview(EdfData)}.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class EdfPreviewService {
+
+    private final EdfSignalService edfSignalService;
+    private final EdfQualityService edfQualityService;
+
+    /**
+     * Returns the waveform preview of an EDF file.
+     *
+     * @param fileName name of a loaded, valid EDF file
+     * @return the encoded preview and the version of the file it belongs to
+     * @throws EdfDataNotFoundException      if no file with this name is loaded
+     * @throws InvalidSignalRequestException if the file is invalid
+     */
+    public RecordingPreview preview(String fileName) {
+        EdfData edfData = edfSignalService.findValidEdf(fileName);
+        return new RecordingPreview(edfData.getEdfFileProperties().getFileName(),
+                edfData.getEdfFileProperties().getFingerprint(), edfQualityService.preview(edfData));
+    }
+}
@@ -0,0 +1,335 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.dsp.AmplitudeHistogram;
+import com.zeto.edf_processor.dsp.SignalQualityMeter;
+import com.zeto.edf_processor.dsp.WaveformPreview;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.RecordingAmplitudes;
+import com.zeto.edf_processor.model.RecordingAmplitudes.ChannelAmplitudes;
+import com.zeto.edf_processor.model.RecordingQuality;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes the signal quality of loaded EDF files in the background.
+ *
+ * <p>Each valid file without a result is queued as the first scan lists it ({@link EdfFileListedEvent})
+ * and after every load ({@link EdfFilesLoadedEvent}); it is queued on a bounded executor ({@code edf.quality.parallelism} threads,
+ * {@code edf.quality.queue-capacity} waiting files), so the metadata is listed right
+ * away and the quality appears on {@link EdfData#getQuality()} when it is done.
+ * Files are read in chunks of {@code edf.quality.chunk-records} records straight from
+ * the {@link EdfSignalSource}, bypassing the {@link SignalBlockCache} so a full pass
+ * does not evict the blocks of interactive requests.</p>
+ *
+ * <p>The same pass fills an {@link AmplitudeHistogram} per channel, attached as
+ * {@link EdfData#getAmplitudes()}, and the {@link WaveformPreview} of the file, attached as
+ * {@link EdfData#getPreview()}.</p>
+ *
+ * <p>A request for the amplitudes or the preview of a file not analysed yet does not start a second
+ * pass: it waits for the running analysis of the file, or runs the queued one itself, and concurrent
+ * requests share that single pass.</p>
+ *
+ * <p>Results are kept per file version: an unchanged file keeps its quality across
+ * rescans, a changed one ({@link EdfFileChangedEvent}) is analysed again. A rescan lists new
+ * {@link EdfData} objects, so a finished analysis is attached to the object listed at that time,
+ * and the objects of a later load are given the kept result when they are queued. An analysis
+ * interrupted by the shutdown keeps no result.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see SignalQualityMeter
+ */
+@Service
+@Slf4j
+public class EdfQualityService {
+
+    private record QualityKey(Path filePath, FileFingerprint fingerprint) {
+    }
+
+    /**
+     * Results of one pass over a file.
+     */
+    record Measurement(RecordingQuality quality, RecordingAmplitudes amplitudes, byte[] preview) {
+    }
+
+    private final EdfRepository edfRepository;
+
+    private final EdfSignalSource edfSignalSource;
+
+    private final EdfListVersion listVersion;
+
+    private final EdfProcessorProperties.Quality settings;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Map<QualityKey, Measurement> results = new ConcurrentHashMap<>();
+
+    /**
+     * Analysis of a file version, queued or running. It is run by the thread that claims it first,
+     * a worker of the executor or a request, and every other caller waits for its result.
+     */
+    private static final class Analysis {
+        private final CompletableFuture<Measurement> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+    }
+
+    /** Files queued or in progress, so a rescan does not queue them twice and requests do not analyse them again */
+    private final Map<QualityKey, Analysis> pending = new ConcurrentHashMap<>();
+
+    public EdfQualityService(EdfRepository edfRepository, EdfSignalSource edfSignalSource, EdfListVersion listVersion,
+                             EdfProcessorProperties properties) {
+        this.edfRepository = edfRepository;
+        this.listVersion = listVersion;
+        this.edfSignalSource = edfSignalSource;
+        this.settings = properties.getQuality();
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(settings.getParallelism(), settings.getParallelism(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(settings.getQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "edf-quality-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a file listed while the first scan runs.
+     */
+    @EventListener
+    public void onFileListed(EdfFileListedEvent event) {
+        enqueue(List.of(event.edfData()));
+    }
+
+    /**
+     * Queues the files of a rescan.
+     */
+    @EventListener
+    public void onFilesLoaded(EdfFilesLoadedEvent event) {
+        enqueue(event.edfs());
+    }
+
+    /**
+     * Attaches known results and queues the analysis of the other valid files.
+     */
+    private void enqueue(List<EdfData> edfs) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        int queued = 0;
+        for (EdfData edfData : edfs) {
+            if (!edfData.isValidEdf()) {
+                continue;
+            }
+            QualityKey key = key(edfData);
+            Measurement known = results.get(key);
+            if (known != null) {
+                attach(edfData, known);
+                continue;
+            }
+            Analysis analysis = new Analysis();
+            if (pending.putIfAbsent(key, analysis) == null) {
+                try {
+                    executor.execute(() -> analyse(key, edfData, analysis));
+                    queued++;
+                } catch (RejectedExecutionException e) {
+                    pending.remove(key, analysis);
+                    log.warn("Quality analysis queue full, {} is analysed on a later load",
+                            edfData.getEdfFileProperties().getFileName());
+                }
+            }
+        }
+        log.debug("Queued quality analysis of {} files", queued);
+    }
+
+    /**
+     * Drops the result of a changed or removed file.
+     */
+    @EventListener
+    public void onFileChanged(EdfFileChangedEvent event) {
+        results.keySet().removeIf(key -> key.filePath().equals(event.filePath()));
+    }
+
+    /**
+     * Returns the amplitude histograms of a valid file, analysing it now if its background
+     * analysis has not finished yet or is disabled. An analysis already running is awaited,
+     * one still queued is run on the calling thread, once for all concurrent callers.
+     *
+     * @param edfData a valid loaded file
+     * @return histograms of its signal channels
+     */
+    public RecordingAmplitudes amplitudes(EdfData edfData) {
+        RecordingAmplitudes amplitudes = edfData.getAmplitudes();
+        return amplitudes != null ? amplitudes : measurement(edfData).amplitudes();
+    }
+
+    /**
+     * Returns the waveform preview of a valid file, analysing it now if its background
+     * analysis has not finished yet or is disabled, like {@link #amplitudes(EdfData)}.
+     *
+     * @param edfData a valid loaded file
+     * @return the encoded {@link WaveformPreview}
+     */
+    public byte[] preview(EdfData edfData) {
+        byte[] preview = edfData.getPreview();
+        return preview != null ? preview : measurement(edfData).preview();
+    }
+
+    private Measurement measurement(EdfData edfData) {
+        QualityKey key = key(edfData);
+        Measurement measurement = results.get(key);
+        if (measurement == null) {
+            Analysis analysis = pending.computeIfAbsent(key, k -> new Analysis());
+            analyse(key, edfData, analysis);
+            measurement = await(analysis.result);
+        }
+        attach(edfData, measurement);
+        return measurement;
+    }
+
+    /**
+     * Runs an analysis unless another thread claimed it, and completes it with the result.
+     */
+    private void analyse(QualityKey key, EdfData edfData, Analysis analysis) {
+        if (!analysis.claimed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // an analysis that finished while this one was created
+            Measurement measurement = results.get(key);
+            if (measurement == null) {
+                long start = System.nanoTime();
+                measurement = measure(key.filePath());
+                results.put(key, measurement);
+                log.debug("Quality of {}: {}% in {} ms", key.filePath().getFileName(),
+                        Math.round(measurement.quality().score()),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            attach(edfData, measurement);
+            attachToListed(key, edfData, measurement);
+            analysis.result.complete(measurement);
+        } catch (CancellationException e) {
+            log.debug("Quality analysis of {} interrupted", key.filePath().getFileName());
+            analysis.result.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            log.warn("Quality analysis of {} failed: {}", key.filePath().getFileName(), e.getMessage());
+            analysis.result.completeExceptionally(e);
+        } finally {
+            pending.remove(key, analysis);
+        }
+    }
+
+    private static Measurement await(CompletableFuture<Measurement> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Attaches the result of a file to the object listed for it now, if a rescan replaced the analysed one.
+     */
+    private void attachToListed(QualityKey key, EdfData analysed, Measurement measurement) {
+        edfRepository.findByFileName(analysed.getEdfFileProperties().getFileId())
+                .filter(listed -> listed != analysed && key(listed).equals(key))
+                .ifPresent(listed -> attach(listed, measurement));
+    }
+
+    private void attach(EdfData edfData, Measurement measurement) {
+        if (edfData.getQuality() != measurement.quality()) {
+            // the quality is part of the listed file
+            listVersion.increment();
+        }
+        edfData.setQuality(measurement.quality());
+        edfData.setAmplitudes(measurement.amplitudes());
+        edfData.setPreview(measurement.preview());
+    }
+
+    /**
+     * Streams all records of a file through one {@link SignalQualityMeter}, one
+     * {@link AmplitudeHistogram.Builder} and one {@link WaveformPreview.Builder} per signal channel.
+     *
+     * @throws CancellationException if the thread is interrupted before the last record is read
+     */
+    Measurement measure(Path filePath) {
+        SignalLayout layout = edfSignalSource.readLayout(filePath);
+        List<ChannelLayout> channels = layout.signalChannels();
+        double duration = layout.getDurationOfRecords();
+        List<SignalQualityMeter> meters = channels.stream()
+                .map(channel -> new SignalQualityMeter(channel.label(), channel.unit(), channel.sampleRate(duration),
+                        channel.scale(), channel.offset(), channel.digitalMin(), channel.digitalMax(),
+                        settings.getArtifactMicrovolts()))
+                .toList();
+        List<AmplitudeHistogram.Builder> histograms = channels.stream()
+                .map(channel -> new AmplitudeHistogram.Builder(channel.scale(), channel.offset()))
+                .toList();
+        List<WaveformPreview.Builder> previews = channels.stream()
+                .map(channel -> new WaveformPreview.Builder(channel.label(),
+                        (long) channel.samplesPerRecord() * layout.getNumberOfRecords(), WaveformPreview.POINTS))
+                .toList();
+
+        int chunkRecords = settings.getChunkRecords();
+        for (int from = 0; from < layout.getNumberOfRecords() && !Thread.currentThread().isInterrupted(); from += chunkRecords) {
+            int to = Math.min(layout.getNumberOfRecords(), from + chunkRecords);
+            SignalWindow chunk = edfSignalSource.readWindow(filePath, layout, from, to, channels);
+            for (int c = 0; c < channels.size(); c++) {
+                float[] samples = chunk.channels().get(c).samples();
+                histograms.get(c).addPhysical(samples, 0, samples.length);
+                previews.get(c).add(samples, 0, samples.length);
+                int samplesPerRecord = channels.get(c).samplesPerRecord();
+                for (int offset = 0; offset + samplesPerRecord <= samples.length; offset += samplesPerRecord) {
+                    meters.get(c).accept(samples, offset, offset + samplesPerRecord);
+                }
+            }
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            // a partial pass would be kept as the result of the whole file
+            throw new CancellationException("Quality analysis of %s interrupted".formatted(filePath.getFileName()));
+        }
+        List<RecordingQuality.ChannelQuality> quality = new ArrayList<>(meters.size());
+        meters.forEach(meter -> quality.add(meter.result()));
+        List<ChannelAmplitudes> amplitudes = new ArrayList<>(channels.size());
+        for (int c = 0; c < channels.size(); c++) {
+            ChannelLayout channel = channels.get(c);
+            amplitudes.add(new ChannelAmplitudes(channel.label(), channel.unit(), channel.scale(), channel.offset(),
+                    histograms.get(c).build()));
+        }
+        byte[] preview = WaveformPreview.encode(duration * layout.getNumberOfRecords(),
+                previews.stream().map(WaveformPreview.Builder::build).toList());
+        return new Measurement(RecordingQuality.of(quality), new RecordingAmplitudes(amplitudes), preview);
+    }
+
+    private static QualityKey key(EdfData edfData) {
+        return new QualityKey(edfData.getEdfFileProperties().getFilePath(), edfData.getEdfFileProperties().getFingerprint());
+    }
+}
@@ -0,0 +1,161 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.SignalLayout;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Service preparing raw downloads of EDF files.
+ *
+ * <p>Either the unmodified file is served, or a record-aligned slice of it. A slice
+ * is a valid EDF file on its own: the header is rewritten with the new number of
+ * data records and the records are copied as they are, without decoding.</p>
+ *
+ * <p><b>Start time of a slice:</b></p>
+ * <ul>
+ *   <li>EDF+: the header start time is kept. Every data record starts with a
+ *       timekeeping annotation relative to the file start, which stays correct.</li>
+ *   <li>EDF: the header start date and time are moved to the first sliced record,
+ *       so the slice must start on a whole second.</li>
+ * </ul>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see RawEdfContent
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class EdfRawService {
+
+    /** Offset of the start date field in the EDF header */
+    static final int START_DATE_OFFSET = 168;
+    /** Offset of the start time field in the EDF header */
+    static final int START_TIME_OFFSET = 176;
+    /** Offset of the number of data records field in the EDF header */
+    static final int NUMBER_OF_RECORDS_OFFSET = 236;
+    /** Size of the date, time and number of records fields */
+    static final int FIELD_SIZE = 8;
+
+    private static final DateTimeFormatter START_DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yy");
+    private static final DateTimeFormatter START_TIME_FORMAT = DateTimeFormatter.ofPattern("HH.mm.ss");
+
+    private final EdfRepository edfDataRepository;
+
+    private final EdfSignalSource edfSignalSource;
+
+    /**
+     * Prepares the raw content of a file, or of the records {@code [fromRecord, toRecord)} of it.
+     *
+     * @param fileName   name of a loaded EDF file
+     * @param fromRecord first record (inclusive), {@code null} together with toRecord for the whole file
+     * @param toRecord   last record (exclusive), {@code null} for the last record of the file
+     * @return description of the bytes to send
+     * @throws EdfDataNotFoundException      if no file with this name is loaded
+     * @throws InvalidSignalRequestException if a slice of an invalid file or an invalid range is requested
+     */
+    public RawEdfContent prepare(String fileName, Integer fromRecord, Integer toRecord) {
+        EdfData edfData = edfDataRepository.findByFileName(fileName)
+                .orElseThrow(() -> new EdfDataNotFoundException("EDF file not found: %s".formatted(fileName)));
+        Path filePath = edfData.getEdfFileProperties().getFilePath();
+        FileFingerprint fingerprint = edfSignalSource.fingerprint(filePath);
+
+        if (fromRecord == null && toRecord == null) {
+            return new RawEdfContent(fileName, filePath, fingerprint, fingerprint.etag(),
+                    new byte[0], 0, fingerprint.size());
+        }
+        if (!edfData.isValidEdf()) {
+            throw new InvalidSignalRequestException("EDF file is invalid: %s".formatted(fileName));
+        }
+
+        SignalLayout layout = edfSignalSource.readLayout(filePath);
+        int first = fromRecord != null ? fromRecord : 0;
+        int last = toRecord != null ? toRecord : layout.getNumberOfRecords();
+        if (first < 0 || last <= first || last > layout.getNumberOfRecords()) {
+            throw new InvalidSignalRequestException("Invalid record range [%d, %d), file has %d records"
+                    .formatted(first, last, layout.getNumberOfRecords()));
+        }
+
+        log.debug("Slicing records {}..{} of {}", first, last, fileName);
+        byte[] header = trimHeader(edfSignalSource.readHeader(filePath, layout), layout, first, last);
+        long position = layout.recordPosition(first);
+        return new RawEdfContent(sliceName(fileName, first, last), filePath, fingerprint,
+                fingerprint.etag("r%d-%d".formatted(first, last)),
+                header, position, layout.recordPosition(last) - position);
+    }
+
+    /**
+     * Rewrites the header of a file for the records {@code [fromRecord, toRecord)}.
+     */
+    static byte[] trimHeader(byte[] header, SignalLayout layout, int fromRecord, int toRecord) {
+        byte[] trimmed = Arrays.copyOf(header, header.length);
+        writeField(trimmed, NUMBER_OF_RECORDS_OFFSET, String.valueOf(toRecord - fromRecord));
+
+        boolean edfPlus = layout.getChannels().stream().anyMatch(SignalLayout.ChannelLayout::isAnnotation);
+        if (edfPlus || fromRecord == 0) {
+            return trimmed;
+        }
+
+        double offsetSeconds = fromRecord * layout.getDurationOfRecords();
+        if (offsetSeconds != Math.rint(offsetSeconds)) {
+            throw new InvalidSignalRequestException(
+                    "An EDF slice must start on a whole second, record %d starts at %.3f s".formatted(fromRecord, offsetSeconds));
+        }
+        shiftStart(header, trimmed, (long) offsetSeconds);
+        return trimmed;
+    }
+
+    /**
+     * Writes the start date and time of a header moved by whole seconds into another header,
+     * which keeps its start if the original cannot be parsed.
+     */
+    static void shiftStart(byte[] header, byte[] target, long seconds) {
+        try {
+            String date = new String(header, START_DATE_OFFSET, FIELD_SIZE, StandardCharsets.US_ASCII).trim();
+            String time = new String(header, START_TIME_OFFSET, FIELD_SIZE, StandardCharsets.US_ASCII).trim();
+            LocalDateTime start = LocalDateTime.of(LocalDate.parse(date, START_DATE_FORMAT),
+                                                   LocalTime.parse(time, START_TIME_FORMAT))
+                    .plusSeconds(seconds);
+            writeField(target, START_DATE_OFFSET, start.format(START_DATE_FORMAT));
+            writeField(target, START_TIME_OFFSET, start.format(START_TIME_FORMAT));
+        } catch (DateTimeParseException e) {
+            log.warn("Start date of the EDF header cannot be parsed, keeping the original");
+        }
+    }
+
+    /**
+     * Writes a left-aligned, space padded ASCII header field.
+     */
+    static void writeField(byte[] header, int offset, String value) {
+        writeField(header, offset, FIELD_SIZE, value);
+    }
+
+    /**
+     * Writes a left-aligned, space padded ASCII header field of the given width.
+     */
+    static void writeField(byte[] header, int offset, int width, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        Arrays.fill(header, offset, offset + width, (byte) ' ');
+        System.arraycopy(bytes, 0, header, offset, Math.min(bytes.length, width));
+    }
+
+    private static String sliceName(String fileName, int fromRecord, int toRecord) {
+        int extension = fileName.lastIndexOf('.');
+        String baseName = extension > 0 ? fileName.substring(0, extension) : fileName;
+        return "%s_r%d-%d.edf".formatted(baseName, fromRecord, toRecord);
+    }
+}
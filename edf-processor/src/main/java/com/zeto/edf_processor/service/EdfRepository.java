@@ -1,12 +1,20 @@
 package com.zeto.edf_processor.service;
 
 import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.ScanProgress;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface EdfRepository {
 
     void loadEdfs();
 
     List<EdfData> listEdfs();
+
+    Optional<EdfData> findByFileName(String fileName);
+
+    int forgetInvalidEdfs(String fileName);
+
+    ScanProgress scanProgress();
 }
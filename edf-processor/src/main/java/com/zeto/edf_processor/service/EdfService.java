@@ -1,15 +1,28 @@
 package com.zeto.edf_processor.service;
 
+import com.zeto.edf_processor.config.EdfProcessorProperties;
 import com.zeto.edf_processor.dto.EdfDto;
 import com.zeto.edf_processor.dto.EdfMapper;
+import com.zeto.edf_processor.dto.EdfPageDto;
+import com.zeto.edf_processor.dto.EdfSummaryDto;
+import com.zeto.edf_processor.dto.SummaryMapper;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
 import com.zeto.edf_processor.exceptions.EdfSourceNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidRequestException;
+import com.zeto.edf_processor.exceptions.RescanRateLimitedException;
 import com.zeto.edf_processor.model.EdfData;
-import lombok.AllArgsConstructor;
+import com.zeto.edf_processor.model.ScanProgress;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Service layer for EDF (European Data Format) file operations.
@@ -22,7 +35,12 @@ import java.util.List;
  * <ul>
  *   <li>Convert domain entities ({@link EdfData}) to DTOs ({@link EdfDto}) </li>
  *   <li>Provide sorted (by Recording Date) and unsorted views of EDF file data</li>
+ *   <li>Provide pages of the list and a summary of the counts and archive-wide totals for large archives,
+ *       see {@link EdfArchiveStatistics}</li>
+ *   <li>Start the first scan once the application is ready, in the background ({@code edf.scan.background})</li>
  *   <li>Trigger directory rescanning operations, result might be sorted based on the optional parameter</li>
+ *   <li>Coalesce concurrent rescans into one scan and limit their rate ({@code edf.scan.min-interval})</li>
+ *   <li>Force a new parse attempt of files remembered as invalid</li>
  * </ul>
  *
  * @author Peter Kormos
@@ -32,8 +50,16 @@ import java.util.List;
  */
 @Service
 @Slf4j
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class EdfService {
+
+    /** Largest page of the file list */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /** Recording date order of the sorted views: newest first, files without a date last */
+    private static final Comparator<EdfData> BY_RECORDING_DATE = Comparator.comparing(EdfData::getRecordingDateTime,
+            Comparator.nullsLast(Comparator.reverseOrder()));
+
     /**
      * Repository for accessing EDF file data from the file system.
      */
@@ -44,6 +70,71 @@ public class EdfService {
      */
     private final EdfMapper edfMapper;
 
+    private final EdfProcessorProperties properties;
+
+    /**
+     * Incrementally maintained totals of the listed files.
+     */
+    private final EdfArchiveStatistics statistics;
+
+    private final SummaryMapper summaryMapper;
+
+    /**
+     * A listed snapshot of the repository and its files in recording date order.
+     */
+    private record SortedSnapshot(List<EdfData> listed, List<EdfData> sorted) {
+    }
+
+    /** The sorted view of the last listed snapshot, sorted again only when the repository lists a new one */
+    private volatile SortedSnapshot sortedSnapshot = new SortedSnapshot(List.of(), List.of());
+
+    private final Object scanLock = new Object();
+
+    /** The running scan, joined by concurrent rescans; guarded by scanLock */
+    private CompletableFuture<Void> runningScan;
+
+    /** A scan has ended; guarded by scanLock */
+    private boolean scanEnded;
+
+    /** End of the last scan in System.nanoTime(), only meaningful once {@link #scanEnded}; guarded by scanLock */
+    private long lastScanEnd;
+
+    /**
+     * Starts the first scan of the source roots once the application is ready.
+     *
+     * <p>In the background the application answers requests right away: the list grows while
+     * the files are parsed, newest first, and {@link #scanProgress()} tells when it is complete.
+     * A rescan requested meanwhile joins this scan.</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scanOnStartup() {
+        if (!properties.getScan().isBackground()) {
+            startupScan();
+            return;
+        }
+        Thread thread = new Thread(this::startupScan, "edf-startup-scan");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void startupScan() {
+        try {
+            scan(false);
+        } catch (RuntimeException e) {
+            // e.g. no source root yet, a rescan retries
+            log.error("Initial scan of the EDF source failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the progress of the running or last scan.
+     *
+     * @return progress of the scan
+     */
+    public ScanProgress scanProgress() {
+        return edfDataRepository.scanProgress();
+    }
+
     /**
      * Retrieves all EDF files in their original order (unsorted).
      *
@@ -66,7 +157,8 @@ public class EdfService {
      * <ol>
      *   <li>Clears the in-memory cache of previously loaded files</li>
      *   <li>Rescans the configured directory for .edf files</li>
-     *   <li>Parses all found files (both valid and invalid)</li>
+     *   <li>Parses all found files (both valid and invalid), unchanged invalid files are
+     *       reported with their remembered error instead</li>
      *   <li>Returns the updated list in original or sorted order</li>
      * </ol>
      *
@@ -77,17 +169,56 @@ public class EdfService {
      *   <li>Initial directory scan failed and needs to be retried</li>
      * </ul>
      *
+     * <p>A rescan requested while another one runs joins it, every caller receives the
+     * result of that scan. A new scan starts at the earliest {@code edf.scan.min-interval}
+     * after the previous one ended.</p>
+     *
      * @return List of all EDF files after rescanning the directory
      * @param sorted : boolean, result shall be sorted by recording date
      * @throws EdfSourceNotFoundException, if the configured directory does not exist or is not accessible
+     * @throws RescanRateLimitedException, if the previous scan ended less than the minimum interval ago
      */
     public List<EdfDto> rescan(boolean sorted) {
         log.debug("Rescanning EDF source and return all records");
-        edfDataRepository.loadEdfs();
+        scan(true);
         return sorted ? listEdfsSortedByRecordingDate()
                       : listEdfs();
     }
 
+    /**
+     * Forgets remembered failures and rescans, so invalid files are parsed again.
+     *
+     * <p>Unchanged invalid files are normally skipped by a rescan and reported with their
+     * original error. This forces a new attempt, e.g. after a parser fix.</p>
+     *
+     * <p>A retry is limited like {@link #rescan(boolean)}: without a running scan it is rejected
+     * within {@code edf.scan.min-interval} after the last one. Retries admitted while a scan runs
+     * wait for it and share one scan after it.</p>
+     *
+     * @param fileName name of the invalid file to retry, {@code null} retries every invalid file
+     * @return List of all EDF files after rescanning the directory
+     * @throws EdfDataNotFoundException, if a file name is given that is not a remembered invalid file
+     * @throws EdfSourceNotFoundException, if the configured directory does not exist or is not accessible
+     * @throws RescanRateLimitedException, if no scan runs and the previous one ended less than the minimum interval ago
+     */
+    public List<EdfDto> retryInvalid(String fileName) {
+        synchronized (scanLock) {
+            if (runningScan == null) {
+                checkInterval();
+            }
+        }
+        int forgotten = edfDataRepository.forgetInvalidEdfs(fileName);
+        if (fileName != null && forgotten == 0) {
+            throw new EdfDataNotFoundException("No invalid EDF file found: %s".formatted(fileName));
+        }
+        log.info("Retrying {} invalid EDF files", forgotten);
+        // a running scan may have passed the forgotten files already, so wait for it and scan again;
+        // the retry was admitted above, concurrent retries join this one scan
+        awaitRunningScan();
+        scan(false);
+        return listEdfs();
+    }
+
     /**
      * Retrieves all EDF files sorted by recording date (newest first, nulls last).
      *
@@ -106,10 +237,148 @@ public class EdfService {
      */
     public List<EdfDto> listEdfsSortedByRecordingDate() {
         log.debug("Get all EDF records and return them sorted");
-        return listEdfs().stream()
-                .sorted(Comparator.comparing(EdfDto::getRecordingDate,
-                        Comparator.nullsLast(Comparator.reverseOrder())))
-                .toList();
+        return edfMapper.toDto(sorted(edfDataRepository.listEdfs()));
+    }
+
+    /**
+     * Returns a listed snapshot in recording date order, sorted once per snapshot.
+     */
+    private List<EdfData> sorted(List<EdfData> listed) {
+        SortedSnapshot snapshot = sortedSnapshot;
+        if (snapshot.listed() != listed) {
+            snapshot = new SortedSnapshot(listed, listed.stream().sorted(BY_RECORDING_DATE).toList());
+            sortedSnapshot = snapshot;
+        }
+        return snapshot.sorted();
+    }
+
+    /**
+     * Retrieves one page of the file list, in original or recording date order.
+     *
+     * <p>Only the files of the page are converted to DTOs and the sorted order is computed
+     * once per listed snapshot, so the cost of a page does not grow with the number of loaded files.</p>
+     *
+     * @param offset index of the first file, 0 or more
+     * @param limit  maximum number of files, 1 to {@value #MAX_PAGE_SIZE}
+     * @param sorted order by recording date as {@link #listEdfsSortedByRecordingDate()}
+     * @return the files of the page and the total number of files
+     * @throws InvalidRequestException if offset or limit is out of range
+     */
+    public EdfPageDto page(int offset, int limit, boolean sorted) {
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException("Offset must not be negative and limit must be between 1 and %d"
+                    .formatted(MAX_PAGE_SIZE));
+        }
+        // progress first: a list read after a completed scan is complete
+        ScanProgress progress = edfDataRepository.scanProgress();
+        List<EdfData> edfs = edfDataRepository.listEdfs();
+        if (sorted) {
+            edfs = sorted(edfs);
+        }
+        int from = Math.min(offset, edfs.size());
+        int to = (int) Math.min((long) from + limit, edfs.size());
+        return new EdfPageDto(offset, limit, edfs.size(), progress.complete(), edfMapper.toDto(edfs.subList(from, to)));
+    }
+
+    /**
+     * Counts the loaded files and totals their recording time by patient, month and channel set.
+     *
+     * <p>The totals are maintained as files are listed, so the cost does not grow with the number
+     * of loaded files, only with the number of groups.</p>
+     *
+     * @return total, valid and invalid counts, the grouped recording time and the progress of the scan
+     */
+    public EdfSummaryDto summary() {
+        ScanProgress progress = edfDataRepository.scanProgress();
+        return summaryMapper.toDto(statistics.summary(), progress);
+    }
+
+    /**
+     * Triggers a rescan of the EDF directory without converting the result, coalesced and
+     * limited like {@link #rescan(boolean)}.
+     *
+     * @throws EdfSourceNotFoundException, if the configured directory does not exist or is not accessible
+     * @throws RescanRateLimitedException, if the previous scan ended less than the minimum interval ago
+     */
+    public void reload() {
+        log.debug("Rescanning EDF source");
+        scan(true);
+    }
+
+    /**
+     * Joins the running scan, or starts one on the calling thread.
+     *
+     * @param rateLimited reject a new scan within the minimum interval after the last one
+     */
+    private void scan(boolean rateLimited) {
+        CompletableFuture<Void> scan;
+        boolean started = false;
+        synchronized (scanLock) {
+            if (runningScan == null) {
+                if (rateLimited) {
+                    checkInterval();
+                }
+                runningScan = new CompletableFuture<>();
+                started = true;
+            }
+            scan = runningScan;
+        }
+        if (!started) {
+            log.debug("Joining the running scan");
+            join(scan);
+            return;
+        }
+
+        try {
+            edfDataRepository.loadEdfs();
+            scan.complete(null);
+        } catch (RuntimeException e) {
+            scan.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (scanLock) {
+                runningScan = null;
+                lastScanEnd = System.nanoTime();
+                scanEnded = true;
+            }
+        }
+    }
+
+    private void checkInterval() {
+        Duration minInterval = properties.getScan().getMinInterval();
+        if (!scanEnded || minInterval.isZero()) {
+            return;
+        }
+        Duration remaining = minInterval.minusNanos(System.nanoTime() - lastScanEnd);
+        if (remaining.isPositive()) {
+            throw new RescanRateLimitedException("The source was scanned less than %d s ago, retry in %d ms"
+                    .formatted(minInterval.toSeconds(), remaining.toMillis()), remaining);
+        }
+    }
+
+    private void awaitRunningScan() {
+        CompletableFuture<Void> scan;
+        synchronized (scanLock) {
+            scan = runningScan;
+        }
+        if (scan != null) {
+            try {
+                scan.join();
+            } catch (CompletionException e) {
+                // the failure is reported to the callers of that scan
+            }
+        }
+    }
+
+    private static void join(CompletableFuture<Void> scan) {
+        try {
+            scan.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
 }
@@ -0,0 +1,338 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.dsp.BiquadCascade;
+import com.zeto.edf_processor.dsp.FilterSpec;
+import com.zeto.edf_processor.dsp.PolyphaseResampler;
+import com.zeto.edf_processor.dto.SignalDto;
+import com.zeto.edf_processor.dto.SignalMapper;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.HeapSize;
+import com.zeto.edf_processor.model.ResolvedMontage;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+import com.zeto.edf_processor.model.SignalWindow.ChannelSignal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service layer for reading the signal data (data records) of EDF files.
+ *
+ * <p>Key responsibilities:</p>
+ * <ul>
+ *   <li>Resolve the requested file among the loaded, valid EDF files</li>
+ *   <li>Validate the requested record range and channel labels</li>
+ *   <li>Read and decode only the requested records, through the shared {@link SignalBlockCache}</li>
+ *   <li>Derive montage channels ({@link MontageRegistry}) from the decoded channels</li>
+ *   <li>Apply an optional IIR filter chain ({@link FilterSpec}), optionally zero-phase</li>
+ *   <li>Resample every channel to a common rate ({@link PolyphaseResampler}) on request; the filter
+ *       banks are shared per ratio, accounted as rebuildable memory and dropped under memory pressure</li>
+ * </ul>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see SignalDto
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class EdfSignalService implements MemoryAccounted {
+
+    /** Upper bound of the samples per record of a resampled channel (EDF allows 16-bit counts) */
+    private static final int MAX_SAMPLES_PER_RECORD = Short.MAX_VALUE;
+
+    private final EdfRepository edfDataRepository;
+
+    private final EdfSignalSource edfSignalSource;
+
+    private final SignalBlockCache signalBlockCache;
+
+    private final SignalMapper signalMapper;
+
+    private final MontageRegistry montageRegistry;
+
+    private record ResampleKey(int inputPerRecord, int outputPerRecord) {
+    }
+
+    /** Resamplers per ratio, their filter banks are shared by all requests */
+    private final Map<ResampleKey, PolyphaseResampler> resamplers = new ConcurrentHashMap<>();
+
+    private final EdfProcessorProperties properties;
+
+    /**
+     * Reads the decoded samples of a record range of an EDF file.
+     *
+     * @param fileName   name of a loaded, valid EDF file
+     * @param fromRecord first record (inclusive)
+     * @param toRecord   last record (exclusive), {@code null} reads as many records as allowed
+     * @param channels   labels of the channels to read, empty reads every signal channel; with a
+     *                   montage, labels of the derived channels
+     * @param filters    filter chain applied in order, e.g. {@code bandpass:0.5-70, notch:50}, empty for none
+     * @param zeroPhase  filter forward and backward, cancelling the phase shift of the filters
+     * @param montage    name of a configured montage ({@link MontageRegistry}), {@code null} for the
+     *                   channels of the recording
+     * @param rate       sample rate in Hz every channel is resampled to, {@code null} for the recorded rates
+     * @return decoded signal window
+     * @throws EdfDataNotFoundException      if no file with this name is loaded
+     * @throws InvalidSignalRequestException if the file is invalid or the range, channels montage or rate are not valid
+     */
+    public SignalDto readSignals(String fileName, int fromRecord, Integer toRecord, List<String> channels,
+                                 List<String> filters, boolean zeroPhase, String montage, Double rate) {
+        log.debug("Reading records {}..{} of {}", fromRecord, toRecord, fileName);
+        EdfData edfData = findValidEdf(fileName);
+        Path filePath = edfData.getEdfFileProperties().getFilePath();
+        FileFingerprint fingerprint = edfSignalSource.fingerprint(filePath);
+        SignalLayout layout = signalBlockCache.layout(filePath, fingerprint);
+
+        int maxRecords = properties.getSignal().getMaxRecordsPerRequest();
+        int lastRecord = toRecord != null ? toRecord
+                                          : Math.min(layout.getNumberOfRecords(), fromRecord + maxRecords);
+        validateRange(layout, fromRecord, lastRecord, maxRecords);
+
+        ResolvedMontage resolvedMontage = null;
+        List<ChannelLayout> channelLayouts;
+        if (montage != null && !montage.isBlank()) {
+            resolvedMontage = montageRegistry.resolve(montage, layout);
+            validateDerivations(resolvedMontage, channels);
+            channelLayouts = resolvedMontage.inputs();
+        } else {
+            channelLayouts = resolveChannels(layout, channels);
+        }
+        List<FilterSpec> filterChain = parseFilters(filters);
+        int outputPerRecord = rate != null ? outputSamplesPerRecord(layout, rate) : 0;
+
+        // filtering and resampling read context records around the window, cut off at the end
+        int padBefore = 0;
+        int padAfter = 0;
+        if (!filterChain.isEmpty()) {
+            double warmupSeconds = Math.min(FilterSpec.settlingSeconds(filterChain), properties.getFilter().getMaxWarmupSeconds());
+            padBefore = (int) Math.ceil(warmupSeconds / layout.getDurationOfRecords());
+            padAfter = zeroPhase ? padBefore : 0;
+        }
+        if (outputPerRecord > 0) {
+            for (ChannelLayout channel : channelLayouts) {
+                int halfLength = resampler(channel.samplesPerRecord(), outputPerRecord).halfLength();
+                int padRecords = (halfLength + channel.samplesPerRecord() - 1) / channel.samplesPerRecord();
+                padBefore = Math.max(padBefore, padRecords);
+                padAfter = Math.max(padAfter, padRecords);
+            }
+        }
+        int readFrom = Math.max(0, fromRecord - padBefore);
+        int readTo = Math.min(layout.getNumberOfRecords(), lastRecord + padAfter);
+
+        SignalWindow window = signalBlockCache.readWindow(filePath, fingerprint, layout, readFrom, readTo, channelLayouts);
+        if (resolvedMontage != null) {
+            window = resolvedMontage.apply(window, channels);
+        }
+        if (!filterChain.isEmpty()) {
+            filter(window, filterChain, zeroPhase);
+        }
+        if (outputPerRecord > 0) {
+            window = resample(window, layout, outputPerRecord);
+        }
+        if (readFrom != fromRecord || readTo != lastRecord) {
+            window = crop(window, layout, fromRecord, lastRecord);
+        }
+        return signalMapper.toDto(window);
+    }
+
+    /**
+     * Filters every channel of a padded window in place.
+     *
+     * <p>Records covering the settling time of the chain ({@link FilterSpec#settlingSeconds(List)}, at most
+     * {@code edf.filter.max-warmup-seconds}) before the window (and after it, for zero-phase filtering)
+     * are filtered along and cut off, so the filter transient has decayed when the window starts and the
+     * result matches filtering the whole file.
+     * The filter state carries over the record boundaries, the padded records are
+     * filtered as one continuous signal.</p>
+     */
+    private static void filter(SignalWindow padded, List<FilterSpec> filterChain, boolean zeroPhase) {
+        for (ChannelSignal channel : padded.channels()) {
+            float[] samples = channel.samples();
+            BiquadCascade cascade = design(filterChain, channel.sampleRate());
+            // start from the steady state of the first sample instead of a step from zero
+            cascade.prime(samples[0]);
+            cascade.process(samples, 0, samples.length);
+            if (zeroPhase) {
+                cascade.reset();
+                cascade.prime(samples[samples.length - 1]);
+                cascade.processReverse(samples, 0, samples.length);
+            }
+        }
+    }
+
+    /**
+     * Resamples every channel of a padded window to {@code outputPerRecord} samples per record.
+     *
+     * <p>The padded records give the resampling filter real context at the window edges;
+     * channels already at the target rate are passed through.</p>
+     */
+    private SignalWindow resample(SignalWindow padded, SignalLayout layout, int outputPerRecord) {
+        int paddedRecords = padded.toRecord() - padded.fromRecord();
+        List<ChannelSignal> resampled = new ArrayList<>(padded.channels().size());
+        for (ChannelSignal channel : padded.channels()) {
+            int inputPerRecord = channel.samples().length / paddedRecords;
+            if (inputPerRecord == outputPerRecord) {
+                resampled.add(channel);
+                continue;
+            }
+            PolyphaseResampler resampler = resampler(inputPerRecord, outputPerRecord);
+            float[] samples = new float[paddedRecords * outputPerRecord];
+            resampler.process(channel.samples(), samples);
+            resampled.add(new ChannelSignal(channel.label(), channel.unit(),
+                    outputPerRecord / layout.getDurationOfRecords(), channel.scale(), channel.offset(), samples));
+        }
+        return new SignalWindow(padded.fileName(), padded.fromRecord(), padded.toRecord(), padded.startSeconds(), resampled);
+    }
+
+    /**
+     * Cuts the context records off a padded window.
+     */
+    private static SignalWindow crop(SignalWindow padded, SignalLayout layout, int fromRecord, int toRecord) {
+        int paddedRecords = padded.toRecord() - padded.fromRecord();
+        List<ChannelSignal> cropped = new ArrayList<>(padded.channels().size());
+        for (ChannelSignal channel : padded.channels()) {
+            float[] samples = channel.samples();
+            int samplesPerRecord = samples.length / paddedRecords;
+            int from = (fromRecord - padded.fromRecord()) * samplesPerRecord;
+            int to = from + (toRecord - fromRecord) * samplesPerRecord;
+            cropped.add(new ChannelSignal(channel.label(), channel.unit(), channel.sampleRate(),
+                    channel.scale(), channel.offset(), Arrays.copyOfRange(samples, from, to)));
+        }
+        return new SignalWindow(padded.fileName(), fromRecord, toRecord,
+                fromRecord * layout.getDurationOfRecords(), cropped);
+    }
+
+    /**
+     * Returns the shared resampler of a ratio, the filter bank is designed once per ratio.
+     */
+    private PolyphaseResampler resampler(int inputPerRecord, int outputPerRecord) {
+        return resamplers.computeIfAbsent(new ResampleKey(inputPerRecord, outputPerRecord), key -> {
+            try {
+                return PolyphaseResampler.of(key.inputPerRecord(), key.outputPerRecord());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidSignalRequestException(e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public List<MemoryUsage> memoryUsage() {
+        long bytes = 0;
+        int entries = 0;
+        for (PolyphaseResampler resampler : resamplers.values()) {
+            bytes += HeapSize.MAP_ENTRY + HeapSize.object(0, 2 * Integer.BYTES) + resampler.sizeInBytes();
+            entries++;
+        }
+        return List.of(new MemoryUsage("resamplers", MemoryUsage.Kind.DECODED, entries, bytes, 0));
+    }
+
+    /**
+     * Drops every resampler, the next request designs its filter bank again.
+     */
+    @Override
+    public long releaseMemory() {
+        long released = memoryUsage().get(0).bytes();
+        resamplers.clear();
+        return released;
+    }
+
+    /**
+     * Converts a requested sample rate to samples per data record, which must be a whole number.
+     */
+    private static int outputSamplesPerRecord(SignalLayout layout, double rate) {
+        double perRecord = rate * layout.getDurationOfRecords();
+        long rounded = Math.round(perRecord);
+        if (rounded > MAX_SAMPLES_PER_RECORD) {
+            throw new InvalidSignalRequestException("Sample rate %s Hz is too high".formatted(rate));
+        }
+        if (!(rate > 0) || rounded < 1 || Math.abs(perRecord - rounded) > 1e-6) {
+            throw new InvalidSignalRequestException("Sample rate %s Hz does not give a whole number of samples per %s s record"
+                    .formatted(rate, layout.getDurationOfRecords()));
+        }
+        return (int) rounded;
+    }
+
+    /**
+     * Checks that the requested labels name derived channels of the montage.
+     */
+    private static void validateDerivations(ResolvedMontage montage, List<String> labels) {
+        if (labels == null) {
+            return;
+        }
+        for (String label : labels) {
+            if (montage.rows().stream().noneMatch(row -> row.label().equalsIgnoreCase(label))) {
+                throw new InvalidSignalRequestException("Unknown channel %s in montage %s".formatted(label, montage.name()));
+            }
+        }
+    }
+
+    private static List<FilterSpec> parseFilters(List<String> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return filters.stream().map(FilterSpec::parse).toList();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSignalRequestException(e.getMessage());
+        }
+    }
+
+    private static BiquadCascade design(List<FilterSpec> filterChain, double sampleRate) {
+        try {
+            return FilterSpec.design(filterChain, sampleRate);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSignalRequestException(e.getMessage());
+        }
+    }
+
+    /**
+     * Finds a loaded EDF file and checks that its data records can be read.
+     */
+    EdfData findValidEdf(String fileName) {
+        EdfData edfData = edfDataRepository.findByFileName(fileName)
+                .orElseThrow(() -> new EdfDataNotFoundException("EDF file not found: %s".formatted(fileName)));
+        if (!edfData.isValidEdf()) {
+            throw new InvalidSignalRequestException("EDF file is invalid: %s".formatted(fileName));
+        }
+        return edfData;
+    }
+
+    /**
+     * Resolves channel labels against the layout, defaulting to all signal channels.
+     */
+    static List<ChannelLayout> resolveChannels(SignalLayout layout, List<String> labels) {
+        if (labels == null || labels.isEmpty()) {
+            return layout.signalChannels();
+        }
+        return labels.stream()
+                .map(label -> layout.channel(label)
+                        .filter(channel -> !channel.isAnnotation())
+                        .orElseThrow(() -> new InvalidSignalRequestException("Unknown channel: %s".formatted(label))))
+                .toList();
+    }
+
+    private static void validateRange(SignalLayout layout, int fromRecord, int toRecord, int maxRecords) {
+        if (fromRecord < 0 || toRecord <= fromRecord || toRecord > layout.getNumberOfRecords()) {
+            throw new InvalidSignalRequestException("Invalid record range [%d, %d), file has %d records"
+                    .formatted(fromRecord, toRecord, layout.getNumberOfRecords()));
+        }
+        if (toRecord - fromRecord > maxRecords) {
+            throw new InvalidSignalRequestException("At most %d records can be requested at once".formatted(maxRecords));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Port for reading the data records of EDF files.
+ *
+ * <p>Implementations read only the header and the requested records, they never
+ * load the whole file into memory.</p>
+ */
+public interface EdfSignalSource {
+
+    FileFingerprint fingerprint(Path filePath);
+
+    SignalLayout readLayout(Path filePath);
+
+    byte[] readHeader(Path filePath, SignalLayout layout);
+
+    float[] readChannel(Path filePath, SignalLayout layout, int fromRecord, int toRecord, ChannelLayout channel);
+
+    SignalWindow readWindow(Path filePath, SignalLayout layout, int fromRecord, int toRecord, List<ChannelLayout> channels);
+
+    void readRecords(Path filePath, SignalLayout layout, int fromRecord, int toRecord, int blockRecords, RecordBlockConsumer consumer);
+
+    /**
+     * Receives the undecoded bytes of consecutive data records.
+     */
+    @FunctionalInterface
+    interface RecordBlockConsumer {
+
+        /**
+         * @param block       the records, from position 0 to the limit; only valid during the call
+         * @param firstRecord index of the first record of the block
+         * @param records     number of records in the block
+         * @throws IOException if the records cannot be consumed, e.g. the client went away
+         */
+        void accept(ByteBuffer block, int firstRecord, int records) throws IOException;
+    }
+}
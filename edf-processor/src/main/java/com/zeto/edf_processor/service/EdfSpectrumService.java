@@ -0,0 +1,223 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.ByteBudgetCache;
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryPressure;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.dsp.FrequencyBand;
+import com.zeto.edf_processor.dsp.WelchPsd;
+import com.zeto.edf_processor.dto.SpectrumDto;
+import com.zeto.edf_processor.dto.SpectrumMapper;
+import com.zeto.edf_processor.exceptions.EdfDataNotFoundException;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.BandPowerSpectrum;
+import com.zeto.edf_processor.model.BandPowerSpectrum.ChannelBandPower;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Service layer computing the power of frequency bands over fixed-length epochs.
+ *
+ * <p><b>Processing:</b></p>
+ * <ul>
+ *   <li>The file is split into epochs of whole data records; a trailing partial epoch is skipped</li>
+ *   <li>Epochs are processed in parallel on a dedicated fork/join pool; every leaf task
+ *       streams its epochs record range by record range from the file</li>
+ *   <li>The PSD of every channel and epoch is estimated with Welch's method
+ *       ({@link WelchPsd}), segments of {@code edf.spectrum.segment-seconds}</li>
+ *   <li>FFT plans are shared per segment size and sample rate, see {@link WelchPlans}; the record buffer, the decoded samples
+ *       and the Welch buffers are allocated once per leaf task, so the per-epoch loop allocates nothing</li>
+ * </ul>
+ *
+ * <p>Results are cached by file fingerprint, epoch length, bands and channels within
+ * {@code edf.spectrum.cache-max-bytes}.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see BandPowerSpectrum
+ */
+@Service
+@Slf4j
+public class EdfSpectrumService implements MeterBinder, MemoryAccounted {
+
+    /** Tolerance when checking that an epoch is a whole number of records */
+    private static final double EPSILON = 1e-9;
+
+    private record SpectrumKey(Path filePath, FileFingerprint fingerprint, int epochRecords,
+                               List<FrequencyBand> bands, List<Integer> channels) {
+    }
+
+    private final EdfSignalService edfSignalService;
+    private final EdfSignalSource edfSignalSource;
+    private final SignalBlockCache signalBlockCache;
+    private final SpectrumMapper spectrumMapper;
+    private final double segmentSeconds;
+    private final ForkJoinPool pool;
+    private final ByteBudgetCache<SpectrumKey, BandPowerSpectrum> results;
+    private final WelchPlans plans;
+
+    public EdfSpectrumService(EdfSignalService edfSignalService,
+                              EdfSignalSource edfSignalSource,
+                              SignalBlockCache signalBlockCache,
+                              SpectrumMapper spectrumMapper,
+                              WelchPlans plans,
+                              EdfProcessorProperties properties,
+                              MemoryPressure memoryPressure) {
+        this.edfSignalService = edfSignalService;
+        this.edfSignalSource = edfSignalSource;
+        this.signalBlockCache = signalBlockCache;
+        this.spectrumMapper = spectrumMapper;
+        this.plans = plans;
+        this.segmentSeconds = properties.getSpectrum().getSegmentSeconds();
+        this.pool = new ForkJoinPool(properties.getSpectrum().getParallelism());
+        this.results = new ByteBudgetCache<>("spectrum", properties.getSpectrum().getCacheMaxBytes().toBytes(),
+                BandPowerSpectrum::sizeInBytes, memoryPressure);
+    }
+
+    /**
+     * Computes the band powers of every complete epoch of an EDF file.
+     *
+     * @param fileName     name of a loaded, valid EDF file
+     * @param epochSeconds epoch length, a whole multiple of the record duration
+     * @param bands        bands as {@code name:low-high}, empty uses delta, theta, alpha and beta
+     * @param channels     labels of the channels, empty uses every signal channel
+     * @return band powers per channel, epoch and band
+     * @throws EdfDataNotFoundException      if no file with this name is loaded
+     * @throws InvalidSignalRequestException if the file is invalid or a parameter is not valid
+     */
+    public SpectrumDto spectrum(String fileName, double epochSeconds, List<String> bands, List<String> channels) {
+        Path filePath = edfSignalService.findValidEdf(fileName).getEdfFileProperties().getFilePath();
+        FileFingerprint fingerprint = edfSignalSource.fingerprint(filePath);
+        SignalLayout layout = signalBlockCache.layout(filePath, fingerprint);
+
+        int epochRecords = epochRecords(epochSeconds, layout.getDurationOfRecords());
+        List<FrequencyBand> frequencyBands = parseBands(bands);
+        List<ChannelLayout> channelLayouts = EdfSignalService.resolveChannels(layout, channels);
+
+        SpectrumKey key = new SpectrumKey(filePath, fingerprint, epochRecords, frequencyBands,
+                channelLayouts.stream().map(ChannelLayout::index).toList());
+        BandPowerSpectrum spectrum = results.get(key,
+                k -> compute(filePath, layout, epochRecords, frequencyBands, channelLayouts));
+        return spectrumMapper.toDto(spectrum);
+    }
+
+    private BandPowerSpectrum compute(Path filePath, SignalLayout layout, int epochRecords,
+                                      List<FrequencyBand> bands, List<ChannelLayout> channels) {
+        long start = System.nanoTime();
+        int epochCount = layout.getNumberOfRecords() / epochRecords;
+        double duration = layout.getDurationOfRecords();
+
+        List<WelchPsd> estimators = channels.stream()
+                .map(channel -> plans.plan(channel.sampleRate(duration), channel.samplesPerRecord() * epochRecords,
+                        segmentSeconds))
+                .toList();
+        double[][][] power = new double[channels.size()][epochCount][bands.size()];
+
+        int leafEpochs = Math.max(1, epochCount / (pool.getParallelism() * 4));
+        pool.invoke(new RangeTask(0, epochCount, leafEpochs, (from, to) -> {
+            // scratch of the task: the samples of one epoch and the Welch buffers of every channel
+            float[][] samples = new float[channels.size()][];
+            List<WelchPsd.Workspace> workspaces = new ArrayList<>(channels.size());
+            for (int c = 0; c < channels.size(); c++) {
+                samples[c] = new float[channels.get(c).samplesPerRecord() * epochRecords];
+                workspaces.add(estimators.get(c).newWorkspace());
+            }
+            // one block per epoch, read into the reused buffer of the call
+            edfSignalSource.readRecords(filePath, layout, from * epochRecords, to * epochRecords, epochRecords,
+                    (block, firstRecord, records) -> {
+                        int epoch = firstRecord / epochRecords;
+                        for (int c = 0; c < channels.size(); c++) {
+                            ChannelLayout channel = channels.get(c);
+                            for (int r = 0; r < records; r++) {
+                                channel.decode(block, r * layout.getRecordBytes() + channel.byteOffset(),
+                                        samples[c], r * channel.samplesPerRecord());
+                            }
+                            WelchPsd estimator = estimators.get(c);
+                            WelchPsd.Workspace workspace = workspaces.get(c);
+                            estimator.estimate(samples[c], 0, samples[c].length, workspace);
+                            for (int b = 0; b < bands.size(); b++) {
+                                power[c][epoch][b] = estimator.bandPower(workspace, bands.get(b).low(), bands.get(b).high());
+                            }
+                        }
+                    });
+        }));
+
+        List<ChannelBandPower> channelPowers = new ArrayList<>(channels.size());
+        for (int c = 0; c < channels.size(); c++) {
+            channelPowers.add(new ChannelBandPower(channels.get(c).label(), channels.get(c).unit(), power[c]));
+        }
+        log.debug("Band powers of {} epochs x {} channels of {} computed in {} ms", epochCount, channels.size(),
+                filePath.getFileName(), (System.nanoTime() - start) / 1_000_000);
+        return new BandPowerSpectrum(filePath.getFileName().toString(), epochRecords * duration, epochCount,
+                bands, channelPowers);
+    }
+
+    /**
+     * Number of records of an epoch.
+     *
+     * @throws InvalidSignalRequestException if the epoch is not a whole multiple of the record duration
+     */
+    static int epochRecords(double epochSeconds, double recordDuration) {
+        double records = epochSeconds / recordDuration;
+        if (!Double.isFinite(records) || recordDuration <= 0 || records < 1 - EPSILON || Math.abs(records - Math.round(records)) > EPSILON) {
+            throw new InvalidSignalRequestException("Epoch must be a whole multiple of the record duration %s s"
+                    .formatted(recordDuration));
+        }
+        return (int) Math.round(records);
+    }
+
+    private static List<FrequencyBand> parseBands(List<String> bands) {
+        if (bands == null || bands.isEmpty()) {
+            return FrequencyBand.EEG_BANDS;
+        }
+        try {
+            return bands.stream().map(FrequencyBand::parse).toList();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSignalRequestException(e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the cached results of a modified or removed file.
+     *
+     * @param event change detected by the repository
+     */
+    @EventListener
+    public void onFileChanged(EdfFileChangedEvent event) {
+        results.invalidateIf(key -> key.filePath().equals(event.filePath()));
+    }
+
+    @Override
+    public List<MemoryUsage> memoryUsage() {
+        return List.of(results.memoryUsage());
+    }
+
+    @Override
+    public long releaseMemory() {
+        return results.releaseHalf();
+    }
+
+    @Override
+    public void bindTo(@NotNull MeterRegistry registry) {
+        results.bindTo(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
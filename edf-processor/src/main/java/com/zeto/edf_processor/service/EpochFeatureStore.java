@@ -0,0 +1,49 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.model.EpochFeature;
+import com.zeto.edf_processor.model.FeatureTable;
+import com.zeto.edf_processor.model.FileFingerprint;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Port for the persistent store of epoch feature tables, one table per EDF file.
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see FeatureTable
+ */
+public interface EpochFeatureStore {
+
+    /**
+     * Opens the stored table of an EDF file.
+     *
+     * @param filePath    path of the EDF file
+     * @param fingerprint current version of the EDF file
+     * @return the table, empty if none is stored for this version
+     */
+    Optional<FeatureTable> open(Path filePath, FileFingerprint fingerprint);
+
+    /**
+     * Stores the table of an EDF file, replacing the table of any previous version.
+     *
+     * @param filePath     path of the EDF file
+     * @param fingerprint  version of the EDF file the features were computed from
+     * @param epochSeconds length of an epoch in seconds
+     * @param channels     channel labels
+     * @param features     features of every channel
+     * @param columns      columns in channel-major order, {@code [c * features.size() + f][epoch]}
+     * @return the stored table
+     */
+    FeatureTable write(Path filePath, FileFingerprint fingerprint, double epochSeconds,
+                       List<String> channels, List<EpochFeature> features, float[][] columns);
+
+    /**
+     * Removes the stored table of an EDF file.
+     *
+     * @param filePath path of the EDF file
+     */
+    void delete(Path filePath);
+}
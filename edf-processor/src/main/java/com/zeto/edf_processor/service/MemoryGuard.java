@@ -0,0 +1,251 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryFootprint;
+import com.zeto.edf_processor.cache.MemoryPressure;
+import com.zeto.edf_processor.cache.MemoryPressure.Level;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accounts the memory of every cached structure and enforces the high-water marks of the heap.
+ *
+ * <p>Every {@link MemoryAccounted} component reports its structures: the parsed metadata and its
+ * indexes, decoded signal blocks and analysis results, and memory-mapped feature tables. The heap
+ * usage compared with the marks is the sum of the accounted heap structures or, if larger, the heap
+ * still in use after the last garbage collection, so memory held outside the accounted structures
+ * counts as well. Both marks are fractions of {@code edf.memory.budget}, the maximum heap by default,
+ * and the eviction mark is below the rejection mark, see {@link EdfProcessorProperties.Memory#isMarksOrdered()}.</p>
+ *
+ * <p>Every {@code edf.memory.check-interval}:</p>
+ * <ul>
+ *   <li>Above {@code edf.memory.evict-above} the components release memory that can be rebuilt,
+ *       each cache evicts its least recently used half, until the released bytes cover the excess</li>
+ *   <li>Above {@code edf.memory.reject-above}, after eviction, the {@link MemoryPressure} rejects
+ *       loads: caches stop keeping new values and scans stop listing new files, reported as rejected in
+ *       the {@link com.zeto.edf_processor.model.ScanProgress}, until a later check finds the heap below the mark again</li>
+ * </ul>
+ *
+ * <p>Bytes released since the last garbage collection are taken off the live heap, so a cache
+ * is not trimmed again before the collector has freed what it released.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see MemoryFootprint
+ */
+@Component
+@Slf4j
+public class MemoryGuard implements MeterBinder {
+
+    /**
+     * Heap usage as seen by the garbage collector.
+     */
+    interface HeapProbe {
+
+        /** Bytes of the heap still in use after the last collection, 0 if unknown */
+        long liveBytes();
+
+        /** Number of collections so far */
+        long collections();
+    }
+
+    private final List<MemoryAccounted> components;
+    private final MemoryPressure memoryPressure;
+    private final HeapProbe heapProbe;
+    private final long budgetBytes;
+    private final long evictAboveBytes;
+    private final long rejectAboveBytes;
+    private final long checkIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+
+    /** Guarded by this */
+    private long releasedSinceCollection;
+    private long collections;
+
+    private volatile MemoryFootprint lastFootprint;
+
+    @Autowired
+    public MemoryGuard(List<MemoryAccounted> components, MemoryPressure memoryPressure, EdfProcessorProperties properties) {
+        this(components, memoryPressure, properties.getMemory(), new JvmHeapProbe(), Runtime.getRuntime().maxMemory());
+    }
+
+    MemoryGuard(List<MemoryAccounted> components, MemoryPressure memoryPressure, EdfProcessorProperties.Memory settings,
+                HeapProbe heapProbe, long maxHeapBytes) {
+        this.components = List.copyOf(components);
+        this.memoryPressure = memoryPressure;
+        this.heapProbe = heapProbe;
+        this.budgetBytes = settings.getBudget() != null ? settings.getBudget().toBytes() : maxHeapBytes;
+        this.evictAboveBytes = (long) (budgetBytes * settings.getEvictAbove());
+        this.rejectAboveBytes = (long) (budgetBytes * settings.getRejectAbove());
+        this.checkIntervalMillis = settings.getCheckInterval().toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "edf-memory-guard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.collections = heapProbe.collections();
+    }
+
+    /**
+     * Starts the periodic checks once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (checkIntervalMillis <= 0) {
+            log.info("Memory checks disabled, budget {} MB", budgetBytes >> 20);
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                check();
+            } catch (RuntimeException e) {
+                log.error("Memory check failed", e);
+            }
+        }, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Memory checks every {} ms, eviction above {} MB, rejection above {} MB of {} MB",
+                checkIntervalMillis, evictAboveBytes >> 20, rejectAboveBytes >> 20, budgetBytes >> 20);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Measures the accounted memory, releases memory above the eviction mark and updates the pressure.
+     *
+     * @return footprint after the release
+     */
+    public synchronized MemoryFootprint check() {
+        long collected = heapProbe.collections();
+        if (collected != collections) {
+            collections = collected;
+            releasedSinceCollection = 0;
+        }
+        MemoryFootprint footprint = measure();
+        if (footprint.heapUsedBytes() > evictAboveBytes) {
+            long excess = footprint.heapUsedBytes() - evictAboveBytes;
+            long released = 0;
+            for (MemoryAccounted component : components) {
+                if (released >= excess) {
+                    break;
+                }
+                released += component.releaseMemory();
+            }
+            releasedSinceCollection += released;
+            log.info("Heap {} MB above the eviction mark, released {} KB of caches",
+                    footprint.heapUsedBytes() >> 20, released >> 10);
+            footprint = measure();
+        }
+
+        Level previous = memoryPressure.level();
+        memoryPressure.update(footprint.level());
+        if (footprint.level() != previous) {
+            if (footprint.level() == Level.REJECT) {
+                log.warn("Heap {} MB above the rejection mark of {} MB, new loads are rejected",
+                        footprint.heapUsedBytes() >> 20, rejectAboveBytes >> 20);
+            } else {
+                log.info("Memory pressure {} -> {}, heap {} MB", previous, footprint.level(), footprint.heapUsedBytes() >> 20);
+            }
+        }
+        lastFootprint = footprint;
+        return footprint;
+    }
+
+    /**
+     * Measures the accounted memory without releasing anything.
+     *
+     * @return current footprint, with the level its heap usage has against the marks
+     */
+    public synchronized MemoryFootprint measure() {
+        List<MemoryUsage> usages = new ArrayList<>();
+        components.forEach(component -> usages.addAll(component.memoryUsage()));
+        long accountedHeap = 0;
+        long mapped = 0;
+        for (MemoryUsage usage : usages) {
+            if (usage.kind().onHeap()) {
+                accountedHeap += usage.bytes();
+            } else {
+                mapped += usage.bytes();
+            }
+        }
+        long heapUsed = Math.max(accountedHeap, heapProbe.liveBytes() - releasedSinceCollection);
+        Level level = heapUsed > rejectAboveBytes ? Level.REJECT
+                : heapUsed > evictAboveBytes ? Level.EVICT
+                : Level.NORMAL;
+        return new MemoryFootprint(budgetBytes, evictAboveBytes, rejectAboveBytes, heapUsed, accountedHeap, mapped,
+                level, List.copyOf(usages));
+    }
+
+    /**
+     * Returns the footprint of the last check, measured now if there was none.
+     */
+    private MemoryFootprint lastFootprint() {
+        MemoryFootprint footprint = lastFootprint;
+        return footprint != null ? footprint : measure();
+    }
+
+    @Override
+    public void bindTo(@NotNull MeterRegistry registry) {
+        for (MemoryUsage usage : measure().components()) {
+            String name = usage.name();
+            Gauge.builder("edf.memory.usage", this, guard -> guard.lastFootprint().components().stream()
+                            .filter(u -> u.name().equals(name))
+                            .mapToLong(MemoryUsage::bytes)
+                            .sum())
+                    .tag("structure", name).tag("kind", usage.kind().name().toLowerCase())
+                    .baseUnit("bytes").register(registry);
+        }
+        Gauge.builder("edf.memory.heap.used", this, guard -> guard.lastFootprint().heapUsedBytes())
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("edf.memory.budget", this, guard -> guard.budgetBytes)
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("edf.memory.pressure", memoryPressure, pressure -> pressure.level().ordinal())
+                .register(registry);
+    }
+
+    /**
+     * Reads the heap pools and collectors of the running JVM.
+     */
+    private static final class JvmHeapProbe implements HeapProbe {
+
+        @Override
+        public long liveBytes() {
+            long live = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null) {
+                    live += pool.getCollectionUsage().getUsed();
+                }
+            }
+            return live;
+        }
+
+        @Override
+        public long collections() {
+            return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                    .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                    .filter(count -> count > 0)
+                    .sum();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.HeapSize;
+import com.zeto.edf_processor.model.MontageDefinition;
+import com.zeto.edf_processor.model.MontageDefinition.Derivation;
+import com.zeto.edf_processor.model.MontageDefinition.Term;
+import com.zeto.edf_processor.model.ResolvedMontage;
+import com.zeto.edf_processor.model.ResolvedMontage.Row;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Montages defined in configuration ({@code edf.montages.<name>}), resolved per channel set.
+ *
+ * <p>A montage is resolved against the channel labels of a recording once: labels are
+ * matched after {@link MontageDefinition#normalizeLabel(String) normalization} and the
+ * result is cached by montage name, label list and samples per record, so recordings sharing
+ * a channel set share the resolution. The cached inputs are bound to the channels of every
+ * recording it is used for, see {@link ResolvedMontage#bind(SignalLayout)}. Derivations referring to channels the recording does not have
+ * are left out. The resolutions are accounted as rebuildable memory and dropped under
+ * memory pressure.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see MontageDefinition
+ * @see ResolvedMontage
+ */
+@Component
+@Slf4j
+public class MontageRegistry implements MemoryAccounted {
+
+    /** Channel labels and samples per record in header order, the sample rates decide which derivations apply */
+    private record ResolutionKey(String montage, List<String> labels, List<Integer> samplesPerRecord) {
+    }
+
+    /** Electrode positions of the 10-10 system, after label normalization */
+    private static final Pattern ELECTRODE = Pattern.compile("(fp|af|f|ft|fc|t|tp|c|cp|p|po|o)(z|\\d{1,2})");
+
+    private final Map<String, MontageDefinition> montages = new LinkedHashMap<>();
+
+    private final Map<ResolutionKey, ResolvedMontage> resolved = new ConcurrentHashMap<>();
+
+    public MontageRegistry(EdfProcessorProperties properties) {
+        properties.getMontages().forEach((name, montage) -> {
+            try {
+                montages.put(name, MontageDefinition.parse(name, montage.getDerivations(), montage.isAverageReference()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid montage edf.montages.%s: %s".formatted(name, e.getMessage()), e);
+            }
+        });
+        log.info("Loaded montages {}", montages.keySet());
+    }
+
+    /**
+     * Names of the configured montages.
+     */
+    public Set<String> names() {
+        return montages.keySet();
+    }
+
+    /**
+     * Resolves a montage against the channels of a recording.
+     *
+     * @param name   montage name
+     * @param layout layout of the recording
+     * @return resolved montage
+     * @throws InvalidSignalRequestException if the montage is unknown or none of its derivations matches
+     */
+    public ResolvedMontage resolve(String name, SignalLayout layout) {
+        MontageDefinition montage = montages.get(name);
+        if (montage == null) {
+            throw new InvalidSignalRequestException("Unknown montage %s, available: %s".formatted(name, montages.keySet()));
+        }
+        List<String> labels = layout.getChannels().stream().map(ChannelLayout::label).toList();
+        List<Integer> samplesPerRecord = layout.getChannels().stream().map(ChannelLayout::samplesPerRecord).toList();
+        // the cached inputs are the channels of the first recording, offsets and calibration are per file
+        return resolved.computeIfAbsent(new ResolutionKey(name, labels, samplesPerRecord), key -> resolve(montage, layout))
+                .bind(layout);
+    }
+
+    @Override
+    public List<MemoryUsage> memoryUsage() {
+        long bytes = 0;
+        int entries = 0;
+        for (Map.Entry<ResolutionKey, ResolvedMontage> entry : resolved.entrySet()) {
+            List<String> labels = entry.getKey().labels();
+            bytes += HeapSize.MAP_ENTRY + HeapSize.object(3, 0) + HeapSize.list(labels)
+                    + HeapSize.list(entry.getKey().samplesPerRecord())
+                    + labels.stream().mapToLong(HeapSize::string).sum() + entry.getValue().sizeInBytes();
+            entries++;
+        }
+        return List.of(new MemoryUsage("montage-resolutions", MemoryUsage.Kind.DECODED, entries, bytes, 0));
+    }
+
+    /**
+     * Drops every resolution, the next request resolves its montage again.
+     */
+    @Override
+    public long releaseMemory() {
+        long released = memoryUsage().get(0).bytes();
+        resolved.clear();
+        return released;
+    }
+
+    private static ResolvedMontage resolve(MontageDefinition montage, SignalLayout layout) {
+        Map<String, ChannelLayout> byLabel = new LinkedHashMap<>();
+        for (ChannelLayout channel : layout.signalChannels()) {
+            byLabel.putIfAbsent(MontageDefinition.normalizeLabel(channel.label()), channel);
+        }
+
+        List<Derivation> derivations = montage.averageReference()
+                ? averageReference(montage, byLabel)
+                : montage.derivations();
+
+        List<ChannelLayout> inputs = new ArrayList<>();
+        List<Row> rows = new ArrayList<>();
+        for (Derivation derivation : derivations) {
+            List<ChannelLayout> channels = derivation.terms().stream()
+                    .map(term -> byLabel.get(MontageDefinition.normalizeLabel(term.label())))
+                    .toList();
+            if (channels.contains(null)) {
+                log.debug("Montage {}: derivation {} does not match the recording", montage.name(), derivation.label());
+                continue;
+            }
+            if (channels.stream().map(ChannelLayout::samplesPerRecord).distinct().count() > 1) {
+                log.warn("Montage {}: derivation {} mixes sample rates, skipped", montage.name(), derivation.label());
+                continue;
+            }
+            int[] positions = new int[channels.size()];
+            float[] weights = new float[channels.size()];
+            for (int t = 0; t < channels.size(); t++) {
+                int position = inputs.indexOf(channels.get(t));
+                if (position < 0) {
+                    position = inputs.size();
+                    inputs.add(channels.get(t));
+                }
+                positions[t] = position;
+                weights[t] = (float) derivation.terms().get(t).weight();
+            }
+            rows.add(new Row(derivation.label(), channels.get(0).unit(), positions, weights));
+        }
+        if (rows.isEmpty()) {
+            throw new InvalidSignalRequestException("Montage %s does not match the channels of the recording".formatted(montage.name()));
+        }
+        return new ResolvedMontage(montage.name(), List.copyOf(inputs), List.copyOf(rows));
+    }
+
+    /**
+     * Expands an average reference montage: every channel minus the mean of all of its channels.
+     *
+     * <p>The channels are the ones listed by the montage or, without a list, the EEG channels of the
+     * recording ({@link #isEeg(String)}), all signal channels if none is recognized. Only channels at
+     * the dominant sample rate take part, so ECG, EMG or other channels recorded at another rate
+     * neither enter the mean nor make every derivation mix sample rates.</p>
+     */
+    private static List<Derivation> averageReference(MontageDefinition montage, Map<String, ChannelLayout> byLabel) {
+        // channels by the label of their derivation
+        Map<String, ChannelLayout> channels = new LinkedHashMap<>();
+        if (montage.derivations().isEmpty()) {
+            byLabel.values().stream()
+                    .filter(channel -> isEeg(channel.label()))
+                    .forEach(channel -> channels.put(channel.label(), channel));
+            if (channels.isEmpty()) {
+                byLabel.values().forEach(channel -> channels.put(channel.label(), channel));
+            }
+        } else {
+            for (Derivation derivation : montage.derivations()) {
+                String label = derivation.terms().get(0).label();
+                ChannelLayout channel = byLabel.get(MontageDefinition.normalizeLabel(label));
+                if (channel != null) {
+                    channels.put(label, channel);
+                }
+            }
+        }
+        int dominantRate = dominantSamplesPerRecord(channels.values());
+        List<String> labels = channels.entrySet().stream()
+                .filter(entry -> entry.getValue().samplesPerRecord() == dominantRate)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (labels.size() < channels.size()) {
+            log.debug("Montage {}: {} channels at another sample rate left out of the average", montage.name(),
+                    channels.size() - labels.size());
+        }
+        double mean = 1.0 / labels.size();
+        List<Derivation> derivations = new ArrayList<>(labels.size());
+        for (String label : labels) {
+            List<Term> terms = labels.stream()
+                    .map(other -> new Term(other, other.equals(label) ? 1 - mean : -mean))
+                    .toList();
+            derivations.add(new Derivation(label + "-AVG", terms));
+        }
+        return derivations;
+    }
+
+    /**
+     * Tells whether a label names an EEG channel: an EDF+ {@code EEG} label or a 10-10 electrode position.
+     */
+    static boolean isEeg(String label) {
+        return label.trim().toUpperCase(Locale.ROOT).startsWith("EEG ")
+                || ELECTRODE.matcher(MontageDefinition.normalizeLabel(label)).matches();
+    }
+
+    /**
+     * Samples per record shared by most of the channels, the higher rate on a tie; 0 without channels.
+     */
+    private static int dominantSamplesPerRecord(Collection<ChannelLayout> channels) {
+        Map<Integer, Long> counts = channels.stream()
+                .collect(Collectors.groupingBy(ChannelLayout::samplesPerRecord, Collectors.counting()));
+        return counts.entrySet().stream()
+                .max(Map.Entry.<Integer, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .orElse(0);
+    }
+}
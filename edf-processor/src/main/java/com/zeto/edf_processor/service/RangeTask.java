@@ -0,0 +1,46 @@
+package com.zeto.edf_processor.service;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task processing the index range {@code [from, to)} by splitting it in
+ * halves down to leaves of at most {@code leafSize} indices.
+ *
+ * <p>A leaf receives its whole sub-range, so per-task scratch buffers can be
+ * allocated once per leaf rather than once per index.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+class RangeTask extends RecursiveAction {
+
+    /**
+     * Work of a leaf task.
+     */
+    @FunctionalInterface
+    interface LeafAction {
+        void run(int from, int to);
+    }
+
+    private final int from;
+    private final int to;
+    private final int leafSize;
+    private final transient LeafAction action;
+
+    RangeTask(int from, int to, int leafSize, LeafAction action) {
+        this.from = from;
+        this.to = to;
+        this.leafSize = Math.max(1, leafSize);
+        this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= leafSize) {
+            action.run(from, to);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new RangeTask(from, middle, leafSize, action), new RangeTask(middle, to, leafSize, action));
+    }
+}
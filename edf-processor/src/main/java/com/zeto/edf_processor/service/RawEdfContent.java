@@ -0,0 +1,38 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.model.FileFingerprint;
+
+import java.nio.file.Path;
+
+/**
+ * Description of the bytes of a raw EDF download.
+ *
+ * <p>The content is the optional in-memory {@code header} followed by {@code length}
+ * bytes of the file starting at {@code position}. Neither part is decoded, so the
+ * file region can be transferred with zero-copy I/O.</p>
+ *
+ * @param fileName    file name offered to the client
+ * @param filePath    path of the source EDF file
+ * @param fingerprint version of the source file
+ * @param etag        strong entity tag of this representation
+ * @param header      rewritten header, empty for the unmodified file
+ * @param position    start of the file region
+ * @param length      length of the file region
+ */
+public record RawEdfContent(String fileName,
+                            Path filePath,
+                            FileFingerprint fingerprint,
+                            String etag,
+                            byte[] header,
+                            long position,
+                            long length) {
+
+    /**
+     * Total number of bytes of the content.
+     *
+     * @return header length plus file region length
+     */
+    public long contentLength() {
+        return header.length + length;
+    }
+}
@@ -0,0 +1,178 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.ByteBudgetCache;
+import com.zeto.edf_processor.cache.CacheStats;
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryPressure;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.model.HeapSize;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+import com.zeto.edf_processor.model.SignalWindow.ChannelSignal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared cache of decoded data-record blocks, used by every signal read.
+ *
+ * <p>The records of a file are grouped into fixed blocks of
+ * {@code edf.cache.block-records} records. A block holds the decoded physical samples
+ * of one channel and is keyed by (file, fingerprint, record range, channel), so a
+ * modified file never hits stale blocks. Blocks are kept in a {@link ByteBudgetCache}
+ * bounded by {@code edf.cache.max-bytes}, concurrent misses for the same block read
+ * the file once.</p>
+ *
+ * <p>When the repository detects a modified or removed file, all blocks and the
+ * layout of the file are dropped, see {@link EdfFileChangedEvent}. Under memory pressure
+ * the memory guard evicts blocks and new blocks are not kept, see {@link MemoryPressure}.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ * @see ByteBudgetCache
+ */
+@Component
+@Slf4j
+public class SignalBlockCache implements MeterBinder, MemoryAccounted {
+
+    /**
+     * Key of a cached block.
+     *
+     * @param filePath     path of the EDF file
+     * @param fingerprint  version of the file the block was decoded from
+     * @param firstRecord  first record of the block
+     * @param recordCount  number of records in the block
+     * @param channelIndex header index of the channel
+     */
+    public record BlockKey(Path filePath, FileFingerprint fingerprint, int firstRecord, int recordCount, int channelIndex) {
+    }
+
+    private record LayoutKey(Path filePath, FileFingerprint fingerprint) {
+    }
+
+    private final EdfSignalSource edfSignalSource;
+
+    private final int blockRecords;
+
+    private final ByteBudgetCache<BlockKey, float[]> blocks;
+
+    private final Map<LayoutKey, SignalLayout> layouts = new ConcurrentHashMap<>();
+
+    public SignalBlockCache(EdfSignalSource edfSignalSource, EdfProcessorProperties properties, MemoryPressure memoryPressure) {
+        this.edfSignalSource = edfSignalSource;
+        this.blockRecords = properties.getCache().getBlockRecords();
+        this.blocks = new ByteBudgetCache<>("signal-blocks", properties.getCache().getMaxBytes().toBytes(),
+                block -> HeapSize.array(block.length, Float.BYTES), memoryPressure);
+    }
+
+    /**
+     * Returns the layout of a file version, reading its header only once.
+     *
+     * @param filePath    path of the EDF file
+     * @param fingerprint current version of the file
+     * @return layout of the data records
+     */
+    public SignalLayout layout(Path filePath, FileFingerprint fingerprint) {
+        return layouts.computeIfAbsent(new LayoutKey(filePath, fingerprint),
+                key -> edfSignalSource.readLayout(key.filePath()));
+    }
+
+    /**
+     * Assembles the records {@code [fromRecord, toRecord)} of the given channels from cached blocks.
+     *
+     * <p>The returned sample arrays are fresh copies, callers may modify them.</p>
+     *
+     * @param filePath    path of the EDF file
+     * @param fingerprint current version of the file
+     * @param layout      layout of the file
+     * @param fromRecord  first record (inclusive)
+     * @param toRecord    last record (exclusive)
+     * @param channels    channels to read
+     * @return decoded signal window
+     */
+    public SignalWindow readWindow(Path filePath, FileFingerprint fingerprint, SignalLayout layout,
+                                   int fromRecord, int toRecord, List<ChannelLayout> channels) {
+        List<ChannelSignal> channelSignals = new ArrayList<>(channels.size());
+        for (ChannelLayout channel : channels) {
+            int samplesPerRecord = channel.samplesPerRecord();
+            float[] samples = new float[samplesPerRecord * (toRecord - fromRecord)];
+            for (int blockStart = fromRecord - fromRecord % blockRecords; blockStart < toRecord; blockStart += blockRecords) {
+                float[] block = block(filePath, fingerprint, layout, blockStart, channel);
+                int copyFrom = Math.max(fromRecord, blockStart);
+                int copyTo = Math.min(toRecord, blockStart + blockRecords);
+                System.arraycopy(block, (copyFrom - blockStart) * samplesPerRecord,
+                        samples, (copyFrom - fromRecord) * samplesPerRecord,
+                        (copyTo - copyFrom) * samplesPerRecord);
+            }
+            channelSignals.add(new ChannelSignal(channel.label(), channel.unit(),
+                    channel.sampleRate(layout.getDurationOfRecords()), channel.scale(), channel.offset(), samples));
+        }
+        return new SignalWindow(filePath.getFileName().toString(), fromRecord, toRecord,
+                fromRecord * layout.getDurationOfRecords(), channelSignals);
+    }
+
+    private float[] block(Path filePath, FileFingerprint fingerprint, SignalLayout layout, int blockStart, ChannelLayout channel) {
+        int recordCount = Math.min(blockRecords, layout.getNumberOfRecords() - blockStart);
+        return blocks.get(new BlockKey(filePath, fingerprint, blockStart, recordCount, channel.index()),
+                key -> edfSignalSource.readChannel(filePath, layout, blockStart, blockStart + recordCount, channel));
+    }
+
+    /**
+     * Drops all blocks and the layout of a modified or removed file.
+     *
+     * @param event change detected by the repository
+     */
+    @EventListener
+    public void onFileChanged(EdfFileChangedEvent event) {
+        int removed = blocks.invalidateIf(key -> key.filePath().equals(event.filePath()));
+        layouts.keySet().removeIf(key -> key.filePath().equals(event.filePath()));
+        log.debug("Invalidated {} cached blocks of {}", removed, event.filePath().getFileName());
+    }
+
+    /**
+     * Returns a snapshot of the block cache counters.
+     *
+     * @return hit, miss, load and eviction counters and the current size
+     */
+    public CacheStats stats() {
+        return blocks.stats();
+    }
+
+    /**
+     * Returns the accounted memory of the decoded blocks and of the layouts, one per file version.
+     */
+    @Override
+    public List<MemoryUsage> memoryUsage() {
+        long layoutBytes = 0;
+        for (SignalLayout layout : layouts.values()) {
+            layoutBytes += HeapSize.MAP_ENTRY + HeapSize.object(2, 0) + HeapSize.FINGERPRINT + layout.sizeInBytes();
+        }
+        return List.of(blocks.memoryUsage(),
+                new MemoryUsage("signal-layouts", MemoryUsage.Kind.INDEX, layouts.size(), layoutBytes, 0));
+    }
+
+    /**
+     * Evicts the least recently used half of the blocks; layouts are kept, they are small and read often.
+     */
+    @Override
+    public long releaseMemory() {
+        return blocks.releaseHalf();
+    }
+
+    @Override
+    public void bindTo(@NotNull MeterRegistry registry) {
+        blocks.bindTo(registry);
+    }
+}
@@ -0,0 +1,66 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.dsp.WelchPsd;
+import com.zeto.edf_processor.model.HeapSize;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Welch plans shared by the band power spectrum and the epoch features.
+ *
+ * <p>A {@link WelchPsd} holds the FFT tables and the window of a segment size, and it is
+ * immutable, so one plan per segment size and sample rate serves every request and thread.
+ * The plans are accounted as rebuildable memory and dropped under memory pressure.</p>
+ *
+ * @author Peter Kormos
+ * @version 1.0
+ */
+@Component
+public class WelchPlans implements MemoryAccounted {
+
+    private record PlanKey(int segmentSize, double sampleRate) {
+    }
+
+    private final Map<PlanKey, WelchPsd> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the plan of a sample rate, the segment is the largest power of two not longer
+     * than the segment length and the epoch.
+     *
+     * @param sampleRate     sample rate of the channel in Hz
+     * @param epochSamples   samples of the channel in one epoch
+     * @param segmentSeconds configured length of a Welch segment
+     */
+    public WelchPsd plan(double sampleRate, int epochSamples, double segmentSeconds) {
+        int segmentSamples = (int) Math.min(epochSamples, Math.round(sampleRate * segmentSeconds));
+        int segmentSize = Math.max(2, Integer.highestOneBit(Math.max(2, segmentSamples)));
+        return plans.computeIfAbsent(new PlanKey(segmentSize, sampleRate),
+                key -> new WelchPsd(key.segmentSize(), key.sampleRate()));
+    }
+
+    @Override
+    public List<MemoryUsage> memoryUsage() {
+        long bytes = 0;
+        int entries = 0;
+        for (WelchPsd plan : plans.values()) {
+            bytes += HeapSize.MAP_ENTRY + HeapSize.object(0, Integer.BYTES + Double.BYTES) + plan.sizeInBytes();
+            entries++;
+        }
+        return List.of(new MemoryUsage("welch-plans", MemoryUsage.Kind.DECODED, entries, bytes, 0));
+    }
+
+    /**
+     * Drops every plan, the next request builds its plan again.
+     */
+    @Override
+    public long releaseMemory() {
+        long released = memoryUsage().get(0).bytes();
+        plans.clear();
+        return released;
+    }
+}
@@ -18,7 +18,7 @@ class EdfProcessorApplicationTests {
 	@Test
 	void getAllEdfsSortedByRecordingDate_shouldReturnListSortedDescending() {
 
-        List<EdfDto> edfDtos = edfController.getAllEdfsSortedByRecordingDate();
+        List<EdfDto> edfDtos = edfController.getAllEdfsSortedByRecordingDate().getBody();
         var recordingDateList = edfDtos.stream().map(EdfDto::getRecordingDate).toList();
 
     }
@@ -0,0 +1,117 @@
+package com.zeto.edf_processor.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ByteBudgetCacheTest {
+
+    private final ByteBudgetCache<String, byte[]> cache = new ByteBudgetCache<>("test", 100, value -> value.length);
+
+    @Test
+    void put_whenBudgetExceeded_thenLeastRecentlyUsedEvicted() {
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        cache.getIfPresent("a");
+        cache.put("c", new byte[40]);
+
+        assertThat(cache.getIfPresent("a"), notNullValue());
+        assertThat(cache.getIfPresent("b"), nullValue());
+        assertThat(cache.getIfPresent("c"), notNullValue());
+        assertThat(cache.stats().bytes(), equalTo(80L));
+        assertThat(cache.stats().evictions(), equalTo(1L));
+    }
+
+    @Test
+    void put_whenValueLargerThanBudget_thenNotCached() {
+        cache.put("big", new byte[101]);
+
+        assertThat(cache.getIfPresent("big"), nullValue());
+        assertThat(cache.stats().bytes(), equalTo(0L));
+    }
+
+    @Test
+    void put_whenLoadsRejected_thenValueNotCached() {
+        MemoryPressure pressure = new MemoryPressure();
+        ByteBudgetCache<String, byte[]> guarded = new ByteBudgetCache<>("guarded", 100, value -> value.length, pressure);
+        guarded.put("a", new byte[10]);
+
+        pressure.update(MemoryPressure.Level.REJECT);
+        byte[] loaded = guarded.get("b", key -> new byte[10]);
+
+        assertThat(loaded.length, equalTo(10));
+        assertThat(guarded.getIfPresent("b"), nullValue());
+        assertThat(guarded.getIfPresent("a"), notNullValue());
+    }
+
+    @Test
+    void releaseHalf_thenLeastRecentlyUsedHalfEvictedAndAccounted() {
+        cache.put("a", new byte[30]);
+        cache.put("b", new byte[30]);
+        cache.put("c", new byte[30]);
+
+        assertThat(cache.memoryUsage(), equalTo(new MemoryUsage("test", MemoryUsage.Kind.DECODED, 3,
+                90 + 3 * ByteBudgetCache.ENTRY_OVERHEAD_BYTES, 100)));
+        assertThat(cache.releaseHalf(), equalTo(60L));
+        assertThat(cache.getIfPresent("c"), notNullValue());
+        assertThat(cache.memoryUsage().bytes(), equalTo(30 + ByteBudgetCache.ENTRY_OVERHEAD_BYTES));
+    }
+
+    @Test
+    void get_whenConcurrentMisses_thenLoaderRunsOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> results = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> {
+                        start.await();
+                        return cache.get("key", key -> {
+                            loads.incrementAndGet();
+                            sleep();
+                            return new byte[10];
+                        });
+                    }))
+                    .toList();
+            start.countDown();
+            byte[] first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<byte[]> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS), sameInstance(first));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads.get(), equalTo(1));
+    }
+
+    @Test
+    void invalidateIf_thenMatchingEntriesRemovedAndSizeReleased() {
+        cache.put("file1#0", new byte[10]);
+        cache.put("file1#1", new byte[10]);
+        cache.put("file2#0", new byte[10]);
+
+        int removed = cache.invalidateIf(key -> key.startsWith("file1"));
+
+        assertThat(removed, equalTo(2));
+        assertThat(cache.stats().entries(), equalTo(1L));
+        assertThat(cache.stats().bytes(), equalTo(10L));
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.zeto.edf_processor.config;
+
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.ScanProgress;
+import com.zeto.edf_processor.service.EdfListVersion;
+import com.zeto.edf_processor.service.EdfRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ListETagInterceptorTest {
+
+    /** Repository reporting a settable scan progress */
+    private static class ProgressRepository implements EdfRepository {
+        volatile ScanProgress progress = new ScanProgress(true, false, 0, 0, 0, null);
+
+        @Override
+        public void loadEdfs() {
+        }
+
+        @Override
+        public List<EdfData> listEdfs() {
+            return List.of();
+        }
+
+        @Override
+        public Optional<EdfData> findByFileName(String fileName) {
+            return Optional.empty();
+        }
+
+        @Override
+        public int forgetInvalidEdfs(String fileName) {
+            return 0;
+        }
+
+        @Override
+        public ScanProgress scanProgress() {
+            return progress;
+        }
+    }
+
+    private final ProgressRepository repository = new ProgressRepository();
+    private final EdfListVersion listVersion = new EdfListVersion(repository);
+    private final ListETagInterceptor interceptor = new ListETagInterceptor(listVersion);
+
+    @Test
+    void preHandle_whenNoTag_thenTagAndNoCacheAreSet() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        boolean proceed = interceptor.preHandle(new MockHttpServletRequest("GET", "/api/edfs"), response, null);
+
+        assertThat(proceed, is(true));
+        assertThat(response.getHeader("ETag"), equalTo(listVersion.etag()));
+        assertThat(response.getHeader("Cache-Control"), equalTo("no-cache"));
+        assertThat(response.getHeader("Vary"), equalTo("Accept"));
+    }
+
+    @Test
+    void preHandle_whenCurrentTag_thenNotModified() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/edfs/page");
+        request.addHeader("If-None-Match", listVersion.etag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        assertThat(proceed, is(false));
+        assertThat(response.getStatus(), equalTo(304));
+        assertThat(response.getHeader("Vary"), equalTo("Accept"));
+    }
+
+    @Test
+    void preHandle_whenListChanged_thenFullResponse() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/edfs/page");
+        request.addHeader("If-None-Match", listVersion.etag());
+        listVersion.increment();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        assertThat(proceed, is(true));
+        assertThat(response.getStatus(), equalTo(200));
+        assertThat(response.getHeader("ETag"), not(equalTo(request.getHeader("If-None-Match"))));
+    }
+
+    @Test
+    void preHandle_whenFirstScanParsedMoreFiles_thenFullResponse() {
+        repository.progress = new ScanProgress(false, true, 100, 10, 0, null);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/edfs/summary");
+        request.addHeader("If-None-Match", listVersion.etag());
+        repository.progress = new ScanProgress(false, true, 100, 20, 0, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        assertThat(proceed, is(true));
+        assertThat(response.getStatus(), equalTo(200));
+    }
+}
@@ -0,0 +1,37 @@
+package com.zeto.edf_processor.config;
+
+import com.zeto.edf_processor.dto.SignalChannelDto;
+import com.zeto.edf_processor.dto.SignalDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class PackedSignalHttpMessageConverterTest {
+
+    @Test
+    void quantize_thenPhysicalValueBackToDigital() {
+        assertThat(PackedSignalHttpMessageConverter.quantize(12.5f, 0.0625, 0.0), equalTo((short) 200));
+        assertThat(PackedSignalHttpMessageConverter.quantize(1e9f, 0.0625, 0.0), equalTo(Short.MAX_VALUE));
+    }
+
+    @Test
+    void write_whenScaleZero_thenZerosWithScaleOne() throws Exception {
+        SignalChannelDto flat = new SignalChannelDto("EEG Fp1", "uV", 2.0, 0.0, 5.0, new float[]{5f, 5f});
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+
+        PackedSignalHttpMessageConverter.int16().write(new SignalDto("test.edf", 0, 1, 0.0, List.of(flat)), null, message);
+
+        ByteBuffer body = ByteBuffer.wrap(message.getBodyAsBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(body.getDouble(24 + Double.BYTES), equalTo(1.0));
+        assertThat(body.getDouble(24 + 2 * Double.BYTES), equalTo(5.0));
+        int samples = body.limit() - 2 * Short.BYTES;
+        assertThat(body.getShort(samples), equalTo((short) 0));
+        assertThat(body.getShort(samples + Short.BYTES), equalTo((short) 0));
+    }
+}
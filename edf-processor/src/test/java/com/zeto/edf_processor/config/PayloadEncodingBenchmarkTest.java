@@ -0,0 +1,106 @@
+package com.zeto.edf_processor.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.zeto.edf_processor.dto.ChannelDto;
+import com.zeto.edf_processor.dto.EdfDto;
+import com.zeto.edf_processor.dto.SignalChannelDto;
+import com.zeto.edf_processor.dto.SignalDto;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Compares payload size and serialization time of the negotiated encodings against JSON.
+ */
+@Slf4j
+class PayloadEncodingBenchmarkTest {
+
+    private static final int ITERATIONS = 20;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+
+    @Test
+    void edfList_binaryEncodingsAreSmallerThanJson() throws Exception {
+        List<EdfDto> edfs = IntStream.range(0, 2000).mapToObj(PayloadEncodingBenchmarkTest::edfDto).toList();
+
+        int jsonSize = measure("JSON", json, edfs);
+        int cborSize = measure("CBOR", cbor, edfs);
+        int smileSize = measure("Smile", smile, edfs);
+
+        assertThat(cborSize, lessThan(jsonSize));
+        assertThat(smileSize, lessThan(jsonSize));
+    }
+
+    @Test
+    void signal_packedEncodingsAreSmallerThanJson() throws Exception {
+        SignalDto signal = signalDto(19, 500 * 60);
+
+        int jsonSize = measure("JSON signal", json, signal);
+        int float32Size = measurePacked("float32 signal", PackedSignalHttpMessageConverter.float32(), signal);
+        int int16Size = measurePacked("int16 signal", PackedSignalHttpMessageConverter.int16(), signal);
+
+        assertThat(float32Size, lessThan(jsonSize));
+        assertThat(int16Size, lessThan(float32Size));
+    }
+
+    private int measure(String name, ObjectMapper mapper, Object payload) throws Exception {
+        byte[] bytes = mapper.writeValueAsBytes(payload);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            bytes = mapper.writeValueAsBytes(payload);
+        }
+        log.info("{}: {} bytes, {} us/op", name, bytes.length, (System.nanoTime() - start) / ITERATIONS / 1000);
+        return bytes.length;
+    }
+
+    private int measurePacked(String name, PackedSignalHttpMessageConverter converter, SignalDto signal) throws Exception {
+        int size = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            MockHttpOutputMessage message = new MockHttpOutputMessage();
+            converter.write(signal, null, message);
+            size = message.getBodyAsBytes().length;
+        }
+        log.info("{}: {} bytes, {} us/op", name, size, (System.nanoTime() - start) / ITERATIONS / 1000);
+        return size;
+    }
+
+    private static EdfDto edfDto(int i) {
+        List<ChannelDto> channels = IntStream.range(0, 19)
+                .mapToObj(c -> new ChannelDto("EEG Ch" + c, "AgAgCl electrode"))
+                .toList();
+        String fileName = "ZE-970-%06d.edf".formatted(i);
+        return new EdfDto(fileName, fileName, true, null, null, null,
+                "Startdate 03-MAR-2022 ZHI27402 Mrs._John_Doe Zeto_WR-08",
+                LocalDateTime.of(2024, 1, 15, 10, 30).plusMinutes(i), "John Doe",
+                channels, channels.size(), 3600.0, 5, "/mnt/archive1", null,
+                "/api/edfs/ZE-970-%06d.edf/preview?v=70d10-192f1a3b6e8".formatted(i),
+                "9f2c4e01b7d3a655", List.of());
+    }
+
+    private static SignalDto signalDto(int channelCount, int sampleCount) {
+        double scale = 0.0625;
+        List<SignalChannelDto> channels = IntStream.range(0, channelCount)
+                .mapToObj(c -> {
+                    float[] samples = new float[sampleCount];
+                    for (int s = 0; s < sampleCount; s++) {
+                        samples[s] = (float) (Math.round(400 * Math.sin(s * 0.05 + c)) * scale);
+                    }
+                    return new SignalChannelDto("EEG Ch" + c, "uV", 500.0, scale, 0.0, samples);
+                })
+                .toList();
+        return new SignalDto("test.edf", 0, 60, 0.0, channels);
+    }
+}
@@ -1,14 +1,21 @@
 package com.zeto.edf_processor.controller;
 
 import com.zeto.edf_processor.dto.EdfDto;
+import com.zeto.edf_processor.dto.EdfPageDto;
+import com.zeto.edf_processor.dto.EdfSummaryDto;
+import com.zeto.edf_processor.exceptions.InvalidRequestException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.IntStream;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
@@ -21,7 +28,7 @@ public class EdfControllerIT {
     @Test
     void getAllEdfsSortedByRecordingDate_shouldReturnListSortedByRecordingDateDescending() {
 
-        List<EdfDto> edfDtos = edfController.getAllEdfsSortedByRecordingDate();
+        List<EdfDto> edfDtos = edfController.getAllEdfsSortedByRecordingDate().getBody();
         var recordingDateList = edfDtos.stream()
                                         .map(EdfDto::getRecordingDate)
                                         .toList();
@@ -32,4 +39,36 @@ public class EdfControllerIT {
 
         assertTrue(isEdfDtoListDescending);
     }
+
+    @Test
+    void getPage_whenPagesConcatenated_thenSortedListIsReturned() {
+        List<EdfDto> sorted = edfController.getAllEdfsSortedByRecordingDate().getBody();
+
+        List<String> paged = new ArrayList<>();
+        for (int offset = 0; offset < sorted.size(); offset += 2) {
+            EdfPageDto page = edfController.getPage(offset, 2, true);
+            assertThat(page.getTotal(), equalTo(sorted.size()));
+            page.getItems().forEach(edf -> paged.add(edf.getFileName()));
+        }
+
+        assertThat(paged, equalTo(sorted.stream().map(EdfDto::getFileName).toList()));
+        assertThat(edfController.getPage(sorted.size(), 2, true).getItems(), empty());
+        assertThrows(InvalidRequestException.class, () -> edfController.getPage(0, 0, false));
+        assertThrows(InvalidRequestException.class, () -> edfController.getPage(-1, 10, false));
+    }
+
+    @Test
+    void getSummary_thenCountsMatchTheList() {
+        List<EdfDto> edfDtos = edfController.getAllEdfs().getBody();
+
+        EdfSummaryDto summary = edfController.getSummary();
+
+        assertThat(summary.getTotal(), equalTo(edfDtos.size()));
+        assertThat(summary.getValid(), equalTo((int) edfDtos.stream().filter(edf -> Boolean.TRUE.equals(edf.getValidEdf())).count()));
+        assertThat(summary.getValid() + summary.getInvalid(), equalTo(summary.getTotal()));
+        // test.properties scans before the context is ready
+        assertThat(summary.isScanComplete(), is(true));
+        assertThat(summary.getScanParsed(), equalTo(summary.getTotal()));
+        assertThat(edfController.getAllEdfs().getHeaders().getFirst(EdfController.SCAN_COMPLETE_HEADER), equalTo("true"));
+    }
 }
@@ -0,0 +1,37 @@
+package com.zeto.edf_processor.controller;
+
+import com.zeto.edf_processor.exceptions.GlobalExceptionHandler;
+import com.zeto.edf_processor.service.EdfPreviewService;
+import com.zeto.edf_processor.service.EdfService;
+import com.zeto.edf_processor.service.EdfSignalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class EdfControllerTest {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        EdfController edfController = new EdfController(mock(EdfService.class), mock(EdfSignalService.class),
+                mock(EdfPreviewService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(edfController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void getPage_whenParameterNotNumeric_thenBadRequestProblemIsReturned() throws Exception {
+        mockMvc.perform(get("/api/edfs/page").param("offset", "abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.title").value("Bad Request"));
+    }
+}
@@ -0,0 +1,27 @@
+package com.zeto.edf_processor.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpRange;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+class EdfRawControllerTest {
+
+    @Test
+    void singleRange_whenOneRange_thenItIsReturned() {
+        HttpRange range = EdfRawController.singleRange("bytes=100-199");
+
+        assertThat(range.getRangeStart(1000), equalTo(100L));
+        assertThat(range.getRangeEnd(1000), equalTo(199L));
+    }
+
+    @Test
+    void singleRange_whenMalformedOrSeveral_thenHeaderIsIgnored() {
+        assertThat(EdfRawController.singleRange("bytes=abc"), nullValue());
+        assertThat(EdfRawController.singleRange("bytes=200-100"), nullValue());
+        assertThat(EdfRawController.singleRange("items=0-10"), nullValue());
+        assertThat(EdfRawController.singleRange("bytes=0-10,20-30"), nullValue());
+    }
+}
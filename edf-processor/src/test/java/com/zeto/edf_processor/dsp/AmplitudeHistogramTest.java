@@ -0,0 +1,77 @@
+package com.zeto.edf_processor.dsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class AmplitudeHistogramTest {
+
+    @Test
+    void quantile_whenGaussian_thenWithinOneBucketOfExact() {
+        Random random = new Random(5);
+        int[] values = new int[200_000];
+        AmplitudeHistogram.Builder builder = new AmplitudeHistogram.Builder(1, 0);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (int) Math.round(random.nextGaussian() * 800);
+            builder.add(values[i]);
+        }
+        AmplitudeHistogram histogram = builder.build();
+        Arrays.sort(values);
+
+        assertThat(histogram.count(), equalTo(200_000L));
+        for (double q : new double[]{0.01, 0.5, 0.99}) {
+            double exact = values[(int) (q * values.length)];
+            assertThat(histogram.quantile(q), closeTo(exact, AmplitudeHistogram.BUCKET_WIDTH));
+        }
+        // +-5 sigma of 800 steps spans a few hundred buckets, not the whole 16-bit range
+        assertThat(histogram.sizeInBytes(), lessThan(4096L));
+    }
+
+    @Test
+    void merge_thenSameAsOneHistogramOfAllSamples() {
+        AmplitudeHistogram.Builder low = new AmplitudeHistogram.Builder(1, 0);
+        AmplitudeHistogram.Builder high = new AmplitudeHistogram.Builder(1, 0);
+        AmplitudeHistogram.Builder all = new AmplitudeHistogram.Builder(1, 0);
+        for (int value = -3000; value < 0; value++) {
+            low.add(value);
+            all.add(value);
+        }
+        for (int value = 1000; value < 5000; value++) {
+            high.add(value);
+            all.add(value);
+        }
+
+        AmplitudeHistogram merged = low.build().merge(high.build());
+        AmplitudeHistogram expected = all.build();
+
+        assertThat(merged.count(), equalTo(7000L));
+        assertThat(merged.firstValue(), equalTo(expected.firstValue()));
+        assertThat(merged.counts(), equalTo(expected.counts()));
+        assertThat(AmplitudeHistogram.EMPTY.merge(merged), sameInstance(merged));
+    }
+
+    @Test
+    void addPhysical_thenQuantizedToDigitalValues() {
+        // 0.1 uV per step, digital 0 at 10 uV
+        AmplitudeHistogram.Builder builder = new AmplitudeHistogram.Builder(0.1, 10);
+        float[] samples = {10f, 13.2f, 6.8f, 40000f};
+
+        builder.addPhysical(samples, 0, 3);
+        builder.addPhysical(samples, 3, 4);
+        AmplitudeHistogram histogram = builder.build();
+
+        assertThat(histogram.count(), equalTo(4L));
+        assertThat(histogram.firstValue(), equalTo(-32));
+        // out of range value counted in the last bucket
+        assertThat(histogram.quantile(1), equalTo((double) Short.MAX_VALUE + 1));
+    }
+
+    @Test
+    void quantile_whenEmpty_thenNaN() {
+        assertThat(new AmplitudeHistogram.Builder(1, 0).build().quantile(0.5), is(Double.NaN));
+    }
+}
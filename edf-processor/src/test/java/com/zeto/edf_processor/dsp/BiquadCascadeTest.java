@@ -0,0 +1,92 @@
+package com.zeto.edf_processor.dsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BiquadCascadeTest {
+
+    private static final double SAMPLE_RATE = 500;
+
+    @Test
+    void process_whenChunked_thenSameAsOnePass() {
+        float[] onePass = signal(5000);
+        float[] chunked = onePass.clone();
+        List<FilterSpec> chain = List.of(FilterSpec.parse("bandpass:0.5-70"), FilterSpec.parse("notch:50"));
+
+        FilterSpec.design(chain, SAMPLE_RATE).process(onePass, 0, onePass.length);
+        BiquadCascade cascade = FilterSpec.design(chain, SAMPLE_RATE);
+        for (int record = 0; record < 10; record++) {
+            cascade.process(chunked, record * 500, (record + 1) * 500);
+        }
+
+        assertThat(chunked, equalTo(onePass));
+    }
+
+    @Test
+    void process_whenNotch_thenMainsRemovedAndAlphaKept() {
+        float[] mains = sine(50, 5000);
+        float[] alpha = sine(10, 5000);
+        BiquadCascade notch = FilterSpec.design(List.of(FilterSpec.parse("notch:50")), SAMPLE_RATE);
+
+        notch.process(mains, 0, mains.length);
+        notch.reset();
+        notch.process(alpha, 0, alpha.length);
+
+        assertThat(rms(mains, 2500), lessThan(0.05));
+        assertThat(rms(alpha, 2500), closeTo(Math.sqrt(0.5), 0.02));
+    }
+
+    @Test
+    void processReverse_whenZeroPhase_thenNoLag() {
+        float[] samples = sine(10, 5000);
+        float[] expected = samples.clone();
+        BiquadCascade lowpass = FilterSpec.design(List.of(FilterSpec.parse("lowpass:40")), SAMPLE_RATE);
+
+        lowpass.process(samples, 0, samples.length);
+        lowpass.reset();
+        lowpass.processReverse(samples, 0, samples.length);
+
+        for (int i = 1000; i < 4000; i++) {
+            assertThat((double) samples[i], closeTo(expected[i], 0.01));
+        }
+    }
+
+    @Test
+    void parse_whenMalformed_thenRejected() {
+        assertThrows(IllegalArgumentException.class, () -> FilterSpec.parse("bandpass:70-0.5"));
+        assertThrows(IllegalArgumentException.class, () -> FilterSpec.parse("notch:50-60"));
+        assertThrows(IllegalArgumentException.class, () -> FilterSpec.parse("comb:50"));
+        assertThrows(IllegalArgumentException.class,
+                () -> FilterSpec.design(List.of(FilterSpec.parse("lowpass:300")), SAMPLE_RATE));
+    }
+
+    private static float[] signal(int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) (30 + 10 * Math.sin(2 * Math.PI * 10 * i / SAMPLE_RATE)
+                    + 5 * Math.sin(2 * Math.PI * 50 * i / SAMPLE_RATE));
+        }
+        return samples;
+    }
+
+    private static float[] sine(double frequency, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE);
+        }
+        return samples;
+    }
+
+    private static double rms(float[] samples, int from) {
+        double sum = 0;
+        for (int i = from; i < samples.length; i++) {
+            sum += samples[i] * samples[i];
+        }
+        return Math.sqrt(sum / (samples.length - from));
+    }
+}
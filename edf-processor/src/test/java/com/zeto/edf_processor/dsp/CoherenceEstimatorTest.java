@@ -0,0 +1,64 @@
+package com.zeto.edf_processor.dsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CoherenceEstimatorTest {
+
+    private static final double RATE = 256;
+    private static final FrequencyBand ALPHA = new FrequencyBand("alpha", 8, 13);
+
+    @Test
+    void coherence_whenSharedAlphaWithPhaseShift_thenHighInAlphaOnly() {
+        int n = 60 * (int) RATE;
+        Random random = new Random(11);
+        float[] x = new float[n];
+        float[] y = new float[n];
+        for (int i = 0; i < n; i++) {
+            double alpha = 20 * Math.sin(2 * Math.PI * 10 * i / RATE);
+            double shifted = 20 * Math.sin(2 * Math.PI * 10 * i / RATE + 1.2);
+            x[i] = (float) (alpha + random.nextGaussian());
+            y[i] = (float) (shifted + random.nextGaussian());
+        }
+        CoherenceEstimator alpha = new CoherenceEstimator(512, RATE, ALPHA);
+        CoherenceEstimator beta = new CoherenceEstimator(512, RATE, new FrequencyBand("beta", 13, 30));
+
+        double alphaCoherence = alpha.coherence(alpha.transform(x, 0, n), alpha.transform(y, 0, n), alpha.newWorkspace());
+        double betaCoherence = beta.coherence(beta.transform(x, 0, n), beta.transform(y, 0, n), beta.newWorkspace());
+
+        assertThat(alpha.bins(), equalTo(10));
+        assertThat(alphaCoherence, greaterThan(0.3));
+        assertThat(betaCoherence, lessThan(0.1));
+    }
+
+    @Test
+    void coherence_whenIndependentNoise_thenLow() {
+        int n = 120 * (int) RATE;
+        Random random = new Random(3);
+        float[] x = new float[n];
+        float[] y = new float[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = (float) random.nextGaussian();
+            y[i] = (float) random.nextGaussian();
+        }
+        CoherenceEstimator estimator = new CoherenceEstimator(512, RATE, ALPHA);
+
+        CoherenceEstimator.Spectra spectra = estimator.transform(x, 0, n);
+        double coherence = estimator.coherence(spectra, estimator.transform(y, 0, n), estimator.newWorkspace());
+
+        assertThat(spectra.segments(), equalTo(119));
+        assertThat(coherence, lessThan(0.05));
+        assertThat(estimator.coherence(spectra, spectra, estimator.newWorkspace()), closeTo(1, 1e-4));
+    }
+
+    @Test
+    void constructor_whenNoBinInBand_thenException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CoherenceEstimator(16, RATE, new FrequencyBand("narrow", 8, 9)));
+    }
+}
@@ -0,0 +1,50 @@
+package com.zeto.edf_processor.dsp;
+
+import com.zeto.edf_processor.model.EpochFeature;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class EpochFeatureExtractorTest {
+
+    private static final int RATE = 256;
+
+    @Test
+    void extract_whenAlphaSine_thenFeaturesOfTheSine() {
+        // 30 s of a 10 Hz sine of amplitude 20 on an offset of 5
+        float[] samples = new float[30 * RATE];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (5 + 20 * Math.sin(2 * Math.PI * 10 * i / RATE));
+        }
+        List<EpochFeature> features = List.of(EpochFeature.values());
+        EpochFeatureExtractor extractor = new EpochFeatureExtractor(new WelchPsd(512, RATE), RATE, features);
+        float[] values = new float[features.size()];
+
+        extractor.extract(samples, 0, samples.length, extractor.newWorkspace(), values);
+
+        // a sine of amplitude A has power and variance A^2 / 2
+        assertThat((double) values[features.indexOf(EpochFeature.ALPHA)], closeTo(200, 10));
+        assertThat((double) values[features.indexOf(EpochFeature.DELTA)], lessThan(1.0));
+        assertThat((double) values[features.indexOf(EpochFeature.BETA)], lessThan(1.0));
+        assertThat((double) values[features.indexOf(EpochFeature.VARIANCE)], closeTo(200, 0.5));
+        // two crossings of the mean per cycle
+        assertThat((double) values[features.indexOf(EpochFeature.ZERO_CROSSING_RATE)], closeTo(20, 0.2));
+        // four times the amplitude per cycle
+        assertThat((double) values[features.indexOf(EpochFeature.LINE_LENGTH)], closeTo(30 * 10 * 80, 30 * 10 * 80 * 0.01));
+    }
+
+    @Test
+    void extract_whenSubsetOfFeatures_thenInRequestedOrder() {
+        float[] samples = {0, 2, 0, 2};
+        List<EpochFeature> features = List.of(EpochFeature.LINE_LENGTH, EpochFeature.VARIANCE);
+        EpochFeatureExtractor extractor = new EpochFeatureExtractor(new WelchPsd(4, 4), 4, features);
+        float[] values = new float[2];
+
+        extractor.extract(samples, 0, samples.length, extractor.newWorkspace(), values);
+
+        assertThat(values, equalTo(new float[]{6, 1}));
+    }
+}
@@ -0,0 +1,64 @@
+package com.zeto.edf_processor.dsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class PearsonCorrelationTest {
+
+    @Test
+    void tile_whenRelatedChannels_thenSymmetricCoefficients() {
+        int n = 5000;
+        Random random = new Random(7);
+        float[] a = new float[n];
+        float[] b = new float[n];
+        float[] c = new float[n];
+        float[] d = new float[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (float) random.nextGaussian();
+            b[i] = -3 * a[i] + 10;
+            c[i] = (float) random.nextGaussian();
+            d[i] = a[i] + c[i];
+        }
+        float[][] channels = {normalize(a), normalize(b), normalize(c), normalize(d)};
+        double[][] matrix = new double[4][4];
+
+        // a diagonal tile of the first two channels and the rest as separate tiles
+        PearsonCorrelation.tile(channels, 0, 2, 0, 2, matrix);
+        PearsonCorrelation.tile(channels, 0, 2, 2, 4, matrix);
+        PearsonCorrelation.tile(channels, 2, 4, 2, 4, matrix);
+
+        assertThat(matrix[0][0], closeTo(1, 1e-5));
+        assertThat(matrix[0][1], closeTo(-1, 1e-5));
+        assertThat(matrix[1][0], equalTo(matrix[0][1]));
+        assertThat(matrix[0][2], closeTo(0, 0.05));
+        assertThat(matrix[0][3], closeTo(Math.sqrt(0.5), 0.03));
+        assertThat(matrix[3][2], equalTo(matrix[2][3]));
+    }
+
+    @Test
+    void normalize_whenFlat_thenZeroCorrelation() {
+        float[][] channels = {normalize(new float[100]), normalize(new float[100])};
+        double[][] matrix = new double[2][2];
+
+        PearsonCorrelation.tile(channels, 0, 2, 0, 2, matrix);
+
+        assertThat(matrix[0][0], equalTo(0.0));
+        assertThat(matrix[0][1], equalTo(0.0));
+    }
+
+    @Test
+    void dot_whenLengthNotMultipleOfFour_thenTailIncluded() {
+        float[] a = {1, 2, 3, 4, 5, 6, 7};
+        float[] b = {1, 1, 1, 1, 1, 1, 2};
+
+        assertThat(PearsonCorrelation.dot(a, b, 1, 7), equalTo(34.0));
+    }
+
+    private static float[] normalize(float[] samples) {
+        return PearsonCorrelation.normalize(samples, 0, samples.length);
+    }
+}
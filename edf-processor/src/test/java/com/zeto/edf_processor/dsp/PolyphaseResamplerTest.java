@@ -0,0 +1,79 @@
+package com.zeto.edf_processor.dsp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PolyphaseResamplerTest {
+
+    @Test
+    void of_whenRatesShareFactors_thenRatioReduced() {
+        PolyphaseResampler resampler = PolyphaseResampler.of(256, 250);
+
+        assertThat(resampler.interpolation(), equalTo(125));
+        assertThat(resampler.decimation(), equalTo(128));
+        assertThat(resampler.outputLength(2560), equalTo(2500));
+        assertThrows(IllegalArgumentException.class, () -> PolyphaseResampler.of(0, 250));
+    }
+
+    @Test
+    void process_whenUpsampled_thenSineAlignedWithInput() {
+        PolyphaseResampler resampler = PolyphaseResampler.of(256, 500);
+        float[] input = sine(10, 256, 2560);
+        float[] output = new float[resampler.outputLength(input.length)];
+
+        resampler.process(input, output);
+
+        assertThat(output.length, equalTo(5000));
+        float[] expected = sine(10, 500, output.length);
+        for (int i = 500; i < 4500; i++) {
+            assertThat((double) output[i], closeTo(expected[i], 1e-3));
+        }
+    }
+
+    @Test
+    void process_whenDecimated_thenToneAboveNewNyquistRemoved() {
+        PolyphaseResampler resampler = PolyphaseResampler.of(500, 200);
+        float[] alpha = sine(10, 500, 5000);
+        float[] high = sine(180, 500, 5000);
+        float[] alphaOut = new float[resampler.outputLength(alpha.length)];
+        float[] highOut = new float[resampler.outputLength(high.length)];
+
+        resampler.process(alpha, alphaOut);
+        resampler.process(high, highOut);
+
+        assertThat(rms(alphaOut, 200, 1800), closeTo(Math.sqrt(0.5), 0.01));
+        assertThat(rms(highOut, 200, 1800), lessThan(1e-3));
+    }
+
+    @Test
+    void process_whenConstant_thenConstantIncludingEdges() {
+        PolyphaseResampler resampler = PolyphaseResampler.of(1, 256);
+        float[] input = {42, 42, 42, 42};
+        float[] output = new float[resampler.outputLength(input.length)];
+
+        resampler.process(input, output);
+
+        for (float sample : output) {
+            assertThat((double) sample, closeTo(42, 1e-3));
+        }
+    }
+
+    private static float[] sine(double frequency, double rate, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) Math.sin(2 * Math.PI * frequency * i / rate);
+        }
+        return samples;
+    }
+
+    private static double rms(float[] samples, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += samples[i] * samples[i];
+        }
+        return Math.sqrt(sum / (to - from));
+    }
+}
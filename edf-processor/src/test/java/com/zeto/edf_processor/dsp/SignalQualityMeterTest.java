@@ -0,0 +1,90 @@
+package com.zeto.edf_processor.dsp;
+
+import com.zeto.edf_processor.model.RecordingQuality.ChannelQuality;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class SignalQualityMeterTest {
+
+    private static final int RATE = 250;
+
+    /** 16-bit channel of +-3276.8 uV, 0.1 uV per digital step */
+    private static SignalQualityMeter meter(String unit) {
+        return new SignalQualityMeter("EEG Fp1", unit, RATE, 0.1, 0.0, -32768, 32767, 500);
+    }
+
+    @Test
+    void result_whenCleanAlpha_thenFullScore() {
+        SignalQualityMeter meter = meter("uV");
+        for (int record = 0; record < 10; record++) {
+            float[] samples = sine(10, 40, 0);
+            meter.accept(samples, 0, samples.length);
+        }
+
+        ChannelQuality quality = meter.result();
+
+        assertThat(quality.flatlineFraction(), equalTo(0.0));
+        assertThat(quality.clippingFraction(), equalTo(0.0));
+        assertThat(quality.artifactFraction(), equalTo(0.0));
+        assertThat(quality.lineNoiseFraction(), lessThan(0.01));
+        assertThat(quality.score(), greaterThan(99.0));
+    }
+
+    @Test
+    void result_whenFlatAndClippedRecords_thenCounted() {
+        SignalQualityMeter meter = meter("uV");
+        float[] flat = new float[RATE];
+        float[] clipped = sine(10, 40, 0);
+        clipped[0] = 3276.7f;
+        clipped[1] = -3276.8f;
+        meter.accept(flat, 0, RATE);
+        meter.accept(clipped, 0, RATE);
+        meter.accept(sine(10, 40, 0), 0, RATE);
+        meter.accept(sine(10, 40, 0), 0, RATE);
+
+        ChannelQuality quality = meter.result();
+
+        assertThat(quality.flatlineFraction(), closeTo(0.25, 1e-9));
+        assertThat(quality.clippingFraction(), closeTo(2.0 / (4 * RATE), 1e-9));
+        // the clipped record spans more than 500 uV peak to peak
+        assertThat(quality.artifactFraction(), closeTo(0.25, 1e-9));
+    }
+
+    @Test
+    void result_whenMainsNoise_thenLineNoiseFraction() {
+        SignalQualityMeter meter = meter("uV");
+        for (int record = 0; record < 10; record++) {
+            float[] samples = sine(10, 10, 0);
+            float[] mains = sine(60, 30, 0);
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] += mains[i];
+            }
+            meter.accept(samples, 0, samples.length);
+        }
+
+        // power 30^2/2 of 60 Hz against 10^2/2 + 30^2/2 in total
+        assertThat(meter.result().lineNoiseFraction(), closeTo(0.9, 0.01));
+    }
+
+    @Test
+    void result_whenUnknownUnitOrLowRate_thenUndetermined() {
+        SignalQualityMeter unknownUnit = meter("%");
+        unknownUnit.accept(sine(1, 40, 50), 0, RATE);
+        SignalQualityMeter slow = new SignalQualityMeter("SpO2", "%", 1, 0.1, 0.0, -32768, 32767, 500);
+        slow.accept(new float[]{97}, 0, 1);
+
+        assertThat(unknownUnit.result().artifactFraction(), nullValue());
+        assertThat(unknownUnit.result().lineNoiseFraction(), notNullValue());
+        assertThat(slow.result().lineNoiseFraction(), nullValue());
+    }
+
+    private static float[] sine(double frequency, double amplitude, double mean) {
+        float[] samples = new float[RATE];
+        for (int i = 0; i < RATE; i++) {
+            samples[i] = (float) (mean + amplitude * Math.sin(2 * Math.PI * frequency * i / RATE));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,98 @@
+package com.zeto.edf_processor.dsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ThresholdDetectorTest {
+
+    @Test
+    void detect_whenAmplitude_thenOnePeakPerExcursionAndRefractory() {
+        float[] samples = new float[1000];
+        samples[100] = 50;
+        samples[101] = 80;
+        samples[102] = 40;
+        samples[110] = -90;
+        samples[600] = -70;
+        List<Integer> peaks = new ArrayList<>();
+
+        int count = new ThresholdDetector(ThresholdDetector.Mode.AMPLITUDE, 30, 50)
+                .detect(samples, 0, samples.length, (index, value) -> peaks.add(index));
+
+        assertThat(count, equalTo(2));
+        assertThat(peaks, contains(101, 600));
+    }
+
+    @Test
+    void detect_whenZScore_thenThresholdScalesWithDeviation() {
+        float[] samples = new float[2000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (10 * Math.sin(2 * Math.PI * i / 50.0));
+        }
+        samples[1000] = 100;
+        List<Float> values = new ArrayList<>();
+
+        int count = new ThresholdDetector(ThresholdDetector.Mode.ZSCORE, 5, 0)
+                .detect(samples, 0, samples.length, (index, value) -> values.add(value));
+
+        assertThat(count, equalTo(1));
+        assertThat(values, contains(100f));
+    }
+
+    @Test
+    void detect_whenFlat_thenNothing() {
+        float[] samples = new float[100];
+
+        int count = new ThresholdDetector(ThresholdDetector.Mode.ZSCORE, 3, 0)
+                .detect(samples, 0, samples.length, (index, value) -> { });
+
+        assertThat(count, equalTo(0));
+    }
+
+    @Test
+    void scan_whenChunked_thenSameDetectionsAsWholeRange() {
+        float[] samples = new float[3000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (10 * Math.sin(2 * Math.PI * i / 50.0));
+        }
+        // an excursion over the chunk boundary at 1000, one within the refractory period after it
+        for (int i = 995; i < 1005; i++) {
+            samples[i] = 100 + i % 7;
+        }
+        samples[1040] = -120;
+        samples[2500] = 90;
+        ThresholdDetector detector = new ThresholdDetector(ThresholdDetector.Mode.ZSCORE, 4, 100);
+        List<Integer> whole = new ArrayList<>();
+        detector.detect(samples, 0, samples.length, (index, value) -> whole.add(index));
+
+        ThresholdDetector.Statistics statistics = new ThresholdDetector.Statistics();
+        for (int from = 0; from < samples.length; from += 1000) {
+            statistics.add(samples, from, from + 1000);
+        }
+        ThresholdDetector.Scan scan = detector.scan(statistics);
+        List<Integer> chunked = new ArrayList<>();
+        int count = 0;
+        for (int from = 0; from < samples.length; from += 1000) {
+            float[] chunk = Arrays.copyOfRange(samples, from, from + 1000);
+            int offset = from;
+            count += scan.accept(chunk, 0, chunk.length, (index, value) -> chunked.add(offset + index));
+        }
+        count += scan.finish((index, value) -> chunked.add(2000 + index));
+
+        assertThat(whole, contains(1000, 2500));
+        assertThat(chunked, equalTo(whole));
+        assertThat(count, equalTo(2));
+    }
+
+    @Test
+    void constructor_whenThresholdNotPositive_thenException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ThresholdDetector(ThresholdDetector.Mode.AMPLITUDE, 0, 0));
+    }
+}
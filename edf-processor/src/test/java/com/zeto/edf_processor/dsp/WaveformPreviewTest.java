@@ -0,0 +1,66 @@
+package com.zeto.edf_processor.dsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class WaveformPreviewTest {
+
+    @Test
+    void build_whenFedInChunks_thenEveryPointCoversItsSpan() {
+        // 1000 samples, 10 points of 100 samples, the value rises with the sample index
+        WaveformPreview.Builder builder = new WaveformPreview.Builder("EEG Fp1", 1000, 10);
+        float[] samples = new float[1000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = i;
+        }
+        for (int from = 0; from < samples.length; from += 333) {
+            builder.add(samples, from, Math.min(samples.length, from + 333));
+        }
+
+        WaveformPreview.Channel channel = builder.build();
+
+        for (int point = 0; point < 10; point++) {
+            assertThat(channel.min()[point], equalTo(point * 100f));
+            assertThat(channel.max()[point], equalTo(point * 100f + 99));
+        }
+    }
+
+    @Test
+    void build_whenFewerSamplesThanPoints_thenEmptyPointsRepeatThePreviousOne() {
+        WaveformPreview.Channel channel = new WaveformPreview.Builder("SpO2", 3, 6)
+                .add(new float[]{97, 98, 99}, 0, 3)
+                .build();
+
+        assertThat(channel.min()[0], equalTo(97f));
+        assertThat(channel.max()[1], equalTo(97f));
+        assertThat(channel.max()[5], equalTo(99f));
+    }
+
+    @Test
+    void encode_thenPointsAreQuantizedBetweenTheChannelExtremes() {
+        WaveformPreview.Channel channel = new WaveformPreview.Channel("EEG Cz",
+                new float[]{-100, 0}, new float[]{0, 100});
+
+        ByteBuffer blob = ByteBuffer.wrap(WaveformPreview.encode(84, List.of(channel))).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertThat(new String(blob.array(), 0, 4, StandardCharsets.US_ASCII), equalTo("ZPRV"));
+        assertThat(blob.getShort(6), equalTo((short) 1));
+        assertThat(blob.getShort(8), equalTo((short) 2));
+        assertThat(blob.getFloat(12), equalTo(84f));
+        assertThat(blob.getFloat(16), equalTo(-100f));
+        assertThat(blob.getFloat(20), equalTo(100f));
+        assertThat(blob.get(24), equalTo((byte) 6));
+        int points = 25 + 6;
+        assertThat(blob.get(points) & 0xff, equalTo(0));
+        assertThat(blob.get(points + 1) & 0xff, equalTo(128));
+        assertThat(blob.get(points + 3) & 0xff, equalTo(255));
+        assertThat(blob.capacity(), equalTo(points + 4));
+    }
+}
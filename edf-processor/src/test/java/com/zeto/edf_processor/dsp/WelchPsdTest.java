@@ -0,0 +1,54 @@
+package com.zeto.edf_processor.dsp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThan;
+
+class WelchPsdTest {
+
+    @Test
+    void transform_thenMatchesDiscreteFourierTransform() {
+        int n = 64;
+        double[] re = new double[n];
+        double[] im = new double[n];
+        double[] signal = new double[n];
+        for (int i = 0; i < n; i++) {
+            signal[i] = Math.sin(i * 0.3) + 0.5 * Math.cos(i * 1.7) + (i % 5);
+            re[i] = signal[i];
+        }
+
+        new Fft(n).transform(re, im);
+
+        for (int k = 0; k < n; k++) {
+            double expectedRe = 0;
+            double expectedIm = 0;
+            for (int i = 0; i < n; i++) {
+                expectedRe += signal[i] * Math.cos(-2 * Math.PI * k * i / n);
+                expectedIm += signal[i] * Math.sin(-2 * Math.PI * k * i / n);
+            }
+            assertThat(re[k], closeTo(expectedRe, 1e-9));
+            assertThat(im[k], closeTo(expectedIm, 1e-9));
+        }
+    }
+
+    @Test
+    void bandPower_whenSine_thenPowerInItsBand() {
+        double sampleRate = 256;
+        float amplitude = 20;
+        float[] samples = new float[30 * 256];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (amplitude * Math.sin(2 * Math.PI * 10 * i / sampleRate));
+        }
+        WelchPsd welch = new WelchPsd(512, sampleRate);
+        WelchPsd.Workspace workspace = welch.newWorkspace();
+
+        welch.estimate(samples, 0, samples.length, workspace);
+
+        // mean power of a sine is amplitude² / 2
+        assertThat(welch.bandPower(workspace, 8, 13), closeTo(amplitude * amplitude / 2.0, 1.0));
+        assertThat(welch.bandPower(workspace, 0.5, 4), lessThan(0.01));
+        assertThat(welch.bandPower(workspace, 13, 30), lessThan(0.01));
+    }
+}
@@ -0,0 +1,96 @@
+package com.zeto.edf_processor.repository;
+
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.config.EdfProcessorProperties.Source;
+import com.zeto.edf_processor.repository.EdfFileCrawler.DiscoveredFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class EdfFileCrawlerTest {
+
+    @TempDir
+    Path root;
+
+    private EdfFileCrawler crawler;
+    private Source source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        crawler = new EdfFileCrawler(new EdfProcessorProperties());
+        source = new Source();
+        source.setPath(root.toString());
+
+        write("top.EDF");
+        write("notes.txt");
+        write("site-a/2024/01/a1.edf");
+        write("site-a/2024/01/tmp/partial.edf");
+        write("site-b/2023/12/b1.edf");
+    }
+
+    @AfterEach
+    void tearDown() {
+        crawler.shutdown();
+    }
+
+    @Test
+    void crawl_whenNoPatterns_thenAllEdfFilesWithinDepth() {
+        assertThat(relativePaths(crawler.crawl(root, 1, source)), contains(
+                "site-a/2024/01/a1.edf", "site-a/2024/01/tmp/partial.edf", "site-b/2023/12/b1.edf", "top.EDF"));
+    }
+
+    @Test
+    void crawl_whenDepthLimited_thenDeeperFilesSkipped() {
+        source.setMaxDepth(1);
+
+        assertThat(relativePaths(crawler.crawl(root, 1, source)), contains("top.EDF"));
+    }
+
+    @Test
+    void crawl_whenIncludeAndExcludeGlobs_thenOnlyMatchingFiles() {
+        source.setInclude(List.of("site-?/2024/**.edf"));
+        source.setExclude(List.of("**/tmp"));
+
+        assertThat(relativePaths(crawler.crawl(root, 1, source)), contains("site-a/2024/01/a1.edf"));
+    }
+
+    @Test
+    void crawl_thenFingerprintFromDirectoryListing() throws IOException {
+        DiscoveredFile file = crawler.crawl(root, 1, source).get(0);
+
+        assertThat(file.sourceRoot(), equalTo(root));
+        assertThat(file.fingerprint().size(), equalTo(Files.size(file.filePath())));
+        assertThat(file.fingerprint().lastModified(), equalTo(Files.getLastModifiedTime(file.filePath()).toMillis()));
+    }
+
+    @Test
+    void crawl_whenLaterRoot_thenIdentifiersQualifiedByRootAndDirectories() {
+        source.setInclude(List.of("site-a/2024/**.edf"));
+        source.setExclude(List.of("**/tmp"));
+
+        List<String> ids = crawler.crawl(root, 2, source).stream().map(DiscoveredFile::fileId).toList();
+
+        assertThat(ids, contains("@2:site-a:2024:01:a1.edf"));
+    }
+
+    private List<String> relativePaths(List<DiscoveredFile> files) {
+        return files.stream()
+                .map(file -> root.relativize(file.filePath()).toString().replace('\\', '/'))
+                .toList();
+    }
+
+    private void write(String relativePath) throws IOException {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, relativePath);
+    }
+}
@@ -0,0 +1,52 @@
+package com.zeto.edf_processor.repository;
+
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+import org.junit.jupiter.api.Test;
+import ru.mipt.edf.EDFParser;
+import ru.mipt.edf.EDFParserResult;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EdfFileSignalSourceTest {
+
+    private static final Path EDF_FILE = Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf");
+
+    private final EdfFileSignalSource signalSource = new EdfFileSignalSource();
+
+    @Test
+    void readLayout_thenRecordSizeMatchesFileSize() throws Exception {
+        SignalLayout layout = signalSource.readLayout(EDF_FILE);
+
+        assertThat(layout.recordPosition(layout.getNumberOfRecords()), equalTo(Files.size(EDF_FILE)));
+        assertThat(layout.signalChannels().size(), equalTo(19));
+    }
+
+    @Test
+    void readWindow_thenSamplesMatchCalibratedDigitalValues() throws Exception {
+        SignalLayout layout = signalSource.readLayout(EDF_FILE);
+        SignalLayout.ChannelLayout channel = layout.channel("EEG Cz").orElseThrow();
+
+        SignalWindow window = signalSource.readWindow(EDF_FILE, layout, 2, 5, List.of(channel));
+
+        EDFParserResult full;
+        try (InputStream is = Files.newInputStream(EDF_FILE)) {
+            full = EDFParser.parseEDF(is);
+        }
+        // EDFParser scales without the calibration offset, so compare against its digital values
+        short[] expected = full.getSignal().getDigitalValues()[channel.index()];
+        float[] samples = window.channels().get(0).samples();
+        int firstSample = 2 * channel.samplesPerRecord();
+        assertThat(samples.length, equalTo(3 * channel.samplesPerRecord()));
+        for (int s = 0; s < samples.length; s++) {
+            assertEquals(expected[firstSample + s] * channel.scale() + channel.offset(), samples[s], 1e-3);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.zeto.edf_processor.repository;
+
+import com.zeto.edf_processor.model.EdfErrorCode;
+import com.zeto.edf_processor.model.EdfValidationError;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EdfHeaderValidatorTest {
+
+    @Test
+    void validate_whenParseExceedsBudget_thenParseBudgetExceededAtRecordCount() throws IOException {
+        // 120 bytes of records are parsed into about 600 bytes
+        EdfHeaderValidator budgeted = new EdfHeaderValidator(500);
+        Path file = tempDir.resolve("budget.edf");
+        Files.write(file, edf());
+
+        EdfValidationError error = budgeted.validate(file, FILE_SIZE).orElseThrow();
+
+        assertThat(error.code(), equalTo(EdfErrorCode.PARSE_BUDGET_EXCEEDED));
+        assertThat(error.offset(), equalTo(236L));
+        assertTrue(new EdfHeaderValidator(600).validate(file, FILE_SIZE).isEmpty());
+    }
+
+    private static final int SIGNALS = 2;
+    private static final int RECORDS = 3;
+    private static final int SAMPLES = 10;
+    private static final int FILE_SIZE = 256 * (SIGNALS + 1) + RECORDS * SIGNALS * SAMPLES * 2;
+
+    private final EdfHeaderValidator validator = new EdfHeaderValidator();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void validate_whenWellFormed_thenNoError() throws IOException {
+        assertTrue(validate(edf(), FILE_SIZE).isEmpty());
+    }
+
+    @Test
+    void validate_whenTruncated_thenFileSizeMismatchAtEndOfData() throws IOException {
+        byte[] edf = Arrays.copyOf(edf(), FILE_SIZE - 7);
+
+        EdfValidationError error = validate(edf, edf.length).orElseThrow();
+
+        assertThat(error.code(), equalTo(EdfErrorCode.FILE_SIZE_MISMATCH));
+        assertThat(error.offset(), equalTo((long) FILE_SIZE - 7));
+    }
+
+    @Test
+    void validate_whenHeaderBytesDoNotMatchChannels_thenHeaderSizeMismatch() throws IOException {
+        byte[] edf = edf();
+        put(edf, 184, 8, "512");
+
+        EdfValidationError error = validate(edf, edf.length).orElseThrow();
+
+        assertThat(error.code(), equalTo(EdfErrorCode.HEADER_SIZE_MISMATCH));
+        assertThat(error.offset(), equalTo(184L));
+    }
+
+    @Test
+    void validate_whenNumericFieldMalformed_thenInvalidNumberAtField() throws IOException {
+        byte[] edf = edf();
+        // digital minimum of the second signal
+        int offset = 256 + SIGNALS * (16 + 80 + 8 + 8 + 8) + 8;
+        put(edf, offset, 8, "-32x68");
+
+        EdfValidationError error = validate(edf, edf.length).orElseThrow();
+
+        assertThat(error.code(), equalTo(EdfErrorCode.INVALID_NUMBER));
+        assertThat(error.offset(), equalTo((long) offset));
+    }
+
+    @Test
+    void validate_whenUnknownEdfPlusType_thenInvalidEdfPlusType() throws IOException {
+        byte[] edf = edf();
+        put(edf, 192, 44, "EDF+X");
+
+        EdfValidationError error = validate(edf, edf.length).orElseThrow();
+
+        assertThat(error.code(), equalTo(EdfErrorCode.INVALID_EDF_PLUS_TYPE));
+        assertThat(error.offset(), equalTo(192L));
+    }
+
+    @Test
+    void validate_whenShorterThanFixedHeader_thenTruncatedHeader() throws IOException {
+        byte[] edf = Arrays.copyOf(edf(), 100);
+
+        EdfValidationError error = validate(edf, edf.length).orElseThrow();
+
+        assertThat(error.code(), equalTo(EdfErrorCode.TRUNCATED_HEADER));
+        assertThat(error.offset(), equalTo(100L));
+    }
+
+    private Optional<EdfValidationError> validate(byte[] content, long size) throws IOException {
+        Path file = tempDir.resolve("test.edf");
+        Files.write(file, content);
+        return validator.validate(file, size);
+    }
+
+    /**
+     * Builds a minimal EDF+C file with {@link #SIGNALS} signals and {@link #RECORDS} records.
+     */
+    private static byte[] edf() {
+        byte[] edf = new byte[FILE_SIZE];
+        Arrays.fill(edf, 0, 256 * (SIGNALS + 1), (byte) ' ');
+        put(edf, 0, 8, "0");
+        put(edf, 168, 8, "01.01.24");
+        put(edf, 176, 8, "10.00.00");
+        put(edf, 184, 8, String.valueOf(256 * (SIGNALS + 1)));
+        put(edf, 192, 44, "EDF+C");
+        put(edf, 236, 8, String.valueOf(RECORDS));
+        put(edf, 244, 8, "1");
+        put(edf, 252, 4, String.valueOf(SIGNALS));
+        int offset = 256;
+        offset = fields(edf, offset, 16, "EEG Fp1", "EDF Annotations");
+        offset = fields(edf, offset, 80, "AgAgCl electrode", "");
+        offset = fields(edf, offset, 8, "uV", "");
+        offset = fields(edf, offset, 8, "-3200", "-1");
+        offset = fields(edf, offset, 8, "3200", "1");
+        offset = fields(edf, offset, 8, "-32768", "-32768");
+        offset = fields(edf, offset, 8, "32767", "32767");
+        offset = fields(edf, offset, 80, "", "");
+        fields(edf, offset, 8, String.valueOf(SAMPLES), String.valueOf(SAMPLES));
+        return edf;
+    }
+
+    private static int fields(byte[] edf, int offset, int width, String... values) {
+        for (String value : values) {
+            put(edf, offset, width, value);
+            offset += width;
+        }
+        return offset;
+    }
+
+    private static void put(byte[] edf, int offset, int width, String value) {
+        Arrays.fill(edf, offset, offset + width, (byte) ' ');
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, edf, offset, bytes.length);
+    }
+}
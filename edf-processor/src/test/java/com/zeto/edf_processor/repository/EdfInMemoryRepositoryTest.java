@@ -1,13 +1,30 @@
 package com.zeto.edf_processor.repository;
 
+import com.zeto.edf_processor.cache.MemoryPressure;
+import com.zeto.edf_processor.cache.MemoryUsage;
 import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.config.EdfProcessorProperties.Source;
+import com.zeto.edf_processor.dto.EdfMapper;
 import com.zeto.edf_processor.exceptions.EdfSourceNotFoundException;
 import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.EdfErrorCode;
+import com.zeto.edf_processor.model.EdfFileProperties;
+import com.zeto.edf_processor.model.HeapSize;
+import com.zeto.edf_processor.model.ScanProgress;
+import com.zeto.edf_processor.service.EdfFileListedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mapstruct.factory.Mappers;
+import org.springframework.util.unit.DataSize;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -31,9 +48,9 @@ class EdfInMemoryRepositoryTest {
     void loadEdfs_whenSourceDirectoryNotExist_thenThrowException() {
         properties.setEdfAppDir("/tmp");
         properties.setEdfSource("non_existent_path/edf");
-        edfInMemoryRepository = new EdfInMemoryRepository(properties);
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
 
-        // EdfInMemoryRepository::loadEdfs is PostConstruct, call it explicitly
+        // EdfInMemoryRepository::loadEdfs is started by EdfService once the application is ready, call it explicitly
         assertThrows(EdfSourceNotFoundException.class, edfInMemoryRepository::loadEdfs);
     }
 
@@ -42,7 +59,7 @@ class EdfInMemoryRepositoryTest {
     void loadEdfs_whenSourceDirectoryEmpty_thenEdfListIsEmptyNoError() {
         properties.setEdfAppDir("");
         properties.setEdfSource(tempDir.toString());
-        edfInMemoryRepository = new EdfInMemoryRepository(properties);
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
 
         edfInMemoryRepository.loadEdfs();
 
@@ -50,7 +67,353 @@ class EdfInMemoryRepositoryTest {
         assertThat(edfs.size(), equalTo(0));
     }
 
+    @Test
+    void loadEdfs_whenInvalidFileUnchanged_thenRememberedResultReused() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        Path broken = tempDir.toPath().resolve("broken.edf");
+        Files.writeString(broken, "not an edf file");
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+
+        edfInMemoryRepository.loadEdfs();
+        EdfData first = edfInMemoryRepository.listEdfs().get(0);
+        edfInMemoryRepository.loadEdfs();
+
+        assertFalse(first.isValidEdf());
+        assertSame(first, edfInMemoryRepository.listEdfs().get(0));
+
+        // a changed file is parsed again
+        Files.writeString(broken, "still not an edf file");
+        edfInMemoryRepository.loadEdfs();
+        assertNotSame(first, edfInMemoryRepository.listEdfs().get(0));
+    }
+
+    @Test
+    void forgetInvalidEdfs_thenFileParsedAgain() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        Files.writeString(tempDir.toPath().resolve("broken.edf"), "not an edf file");
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+        edfInMemoryRepository.loadEdfs();
+        EdfData first = edfInMemoryRepository.listEdfs().get(0);
+
+        assertThat(edfInMemoryRepository.forgetInvalidEdfs("other.edf"), equalTo(0));
+        assertThat(edfInMemoryRepository.forgetInvalidEdfs("broken.edf"), equalTo(1));
+        edfInMemoryRepository.loadEdfs();
+
+        assertNotSame(first, edfInMemoryRepository.listEdfs().get(0));
+    }
+
+    @Test
+    void loadEdfs_thenNewestFilesFirstAndScanComplete() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        for (String name : List.of("old.edf", "newest.edf", "middle.edf")) {
+            // distinct content, copies would be listed as aliases
+            Files.writeString(tempDir.toPath().resolve(name), "not an edf file: " + name);
+        }
+        Files.setLastModifiedTime(tempDir.toPath().resolve("old.edf"), FileTime.fromMillis(1_000_000));
+        Files.setLastModifiedTime(tempDir.toPath().resolve("middle.edf"), FileTime.fromMillis(2_000_000));
+        Files.setLastModifiedTime(tempDir.toPath().resolve("newest.edf"), FileTime.fromMillis(3_000_000));
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+        assertThat(edfInMemoryRepository.scanProgress(), equalTo(ScanProgress.NOT_STARTED));
+
+        edfInMemoryRepository.loadEdfs();
+
+        assertThat(edfInMemoryRepository.listEdfs().stream().map(e -> e.getEdfFileProperties().getFileName()).toList(),
+                equalTo(List.of("newest.edf", "middle.edf", "old.edf")));
+        assertThat(edfInMemoryRepository.scanProgress(), equalTo(new ScanProgress(true, false, 3, 3, 0, null)));
+    }
+
+    @Test
+    void loadEdfs_whenFirstLoad_thenListedFilesInSnapshotBeforeTheirEvent() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(tempDir.toPath().resolve("file" + i + ".edf"), "not an edf file: " + i);
+        }
+        List<Boolean> listedBeforeEvent = new ArrayList<>();
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {
+            if (event instanceof EdfFileListedEvent listed) {
+                listedBeforeEvent.add(edfInMemoryRepository.listEdfs().contains(listed.edfData()));
+            }
+        }, new EdfFileCrawler(properties), new MemoryPressure());
+
+        edfInMemoryRepository.loadEdfs();
+
+        assertThat(listedBeforeEvent, equalTo(List.of(true, true, true, true, true)));
+    }
+
+    @Test
+    void loadEdfs_whenFirstLoadFails_thenNotCompleteAndFailureReported() {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toPath().resolve("missing").toString());
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+
+        assertThrows(EdfSourceNotFoundException.class, edfInMemoryRepository::loadEdfs);
+
+        ScanProgress progress = edfInMemoryRepository.scanProgress();
+        assertFalse(progress.complete());
+        assertFalse(progress.scanning());
+        assertNotNull(progress.failure());
+    }
+
+    @Test
+    void loadEdfs_whenRescanFails_thenListedFilesKept() throws IOException {
+        Path source = Files.createDirectory(tempDir.toPath().resolve("source"));
+        properties.setEdfAppDir("");
+        properties.setEdfSource(source.toString());
+        Files.writeString(source.resolve("broken.edf"), "not an edf file");
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+        edfInMemoryRepository.loadEdfs();
+
+        Files.delete(source.resolve("broken.edf"));
+        Files.delete(source);
+        assertThrows(EdfSourceNotFoundException.class, edfInMemoryRepository::loadEdfs);
+
+        assertThat(edfInMemoryRepository.listEdfs().size(), equalTo(1));
+        assertTrue(edfInMemoryRepository.scanProgress().complete());
+        assertNotNull(edfInMemoryRepository.scanProgress().failure());
+
+        Files.createDirectory(source);
+        edfInMemoryRepository.loadEdfs();
+        assertNull(edfInMemoryRepository.scanProgress().failure());
+    }
+
+    @Test
+    void loadEdfs_whenParseExceedsTimeout_thenInvalidWithTimeoutReason() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        properties.getScan().setParseTimeout(Duration.ZERO);
+        Files.copy(Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf"), tempDir.toPath().resolve("slow.edf"));
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+
+        edfInMemoryRepository.loadEdfs();
+
+        EdfData edf = edfInMemoryRepository.listEdfs().get(0);
+        assertFalse(edf.isValidEdf());
+        assertThat(edf.getEdfFileProperties().getErrorCode(), equalTo(EdfErrorCode.PARSE_TIMEOUT));
+
+        // a timeout is not remembered, the next scan parses the unchanged file again
+        properties.getScan().setParseTimeout(Duration.ofSeconds(30));
+        edfInMemoryRepository.loadEdfs();
+        assertTrue(edfInMemoryRepository.listEdfs().get(0).isValidEdf());
+    }
+
+    @Test
+    void loadEdfs_whenParseExceedsBudget_thenListedFromHeaderLikeParsed() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        Files.copy(Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf"), tempDir.toPath().resolve("large.edf"));
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+        edfInMemoryRepository.loadEdfs();
+        EdfData parsed = edfInMemoryRepository.listEdfs().get(0);
+
+        properties.getScan().setMaxParseBytes(DataSize.ofBytes(1));
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+        edfInMemoryRepository.loadEdfs();
+        EdfData listed = edfInMemoryRepository.listEdfs().get(0);
+
+        assertTrue(listed.isValidEdf());
+        assertThat(listed.getChannels().getSignalChannels(), equalTo(parsed.getChannels().getSignalChannels()));
+        assertThat(listed.getNumberOfAnnotations(), equalTo(parsed.getNumberOfAnnotations()));
+        assertThat(listed.getRecordingLengthInSeconds(), equalTo(parsed.getRecordingLengthInSeconds()));
+        assertThat(listed.getPatientName(), equalTo(parsed.getPatientName()));
+    }
+
+    @Test
+    void loadEdfs_whenCopiesOfRecording_thenParsedOnceAndListedAsAliases() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        Path original = Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf");
+        Files.copy(original, tempDir.toPath().resolve("recording.edf"));
+        Files.copy(original, tempDir.toPath().resolve("recording-copy.edf"));
+        Files.setLastModifiedTime(tempDir.toPath().resolve("recording.edf"), FileTime.fromMillis(2_000_000));
+        Files.setLastModifiedTime(tempDir.toPath().resolve("recording-copy.edf"), FileTime.fromMillis(1_000_000));
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+
+        edfInMemoryRepository.loadEdfs();
+
+        List<EdfData> edfs = edfInMemoryRepository.listEdfs();
+        assertThat(edfs.size(), equalTo(1));
+        EdfData edf = edfs.get(0);
+        assertThat(edf.getEdfFileProperties().getFileName(), equalTo("recording.edf"));
+        assertThat(edf.getAliases().stream().map(EdfFileProperties::getFilePath).toList(),
+                equalTo(List.of(tempDir.toPath().resolve("recording-copy.edf"))));
+        assertThat(edf.getContentHash().length(), equalTo(16));
+        assertSame(edf, edfInMemoryRepository.findByFileName("recording-copy.edf").orElseThrow());
+        assertThat(edfInMemoryRepository.scanProgress(), equalTo(new ScanProgress(true, false, 2, 2, 0, null)));
+    }
 
+    @Test
+    void loadEdfs_whenCopiesOfTimedOutFile_thenEachParsedItself() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        properties.getScan().setParseTimeout(Duration.ZERO);
+        Path original = Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf");
+        Files.copy(original, tempDir.toPath().resolve("slow.edf"));
+        Files.copy(original, tempDir.toPath().resolve("slow-copy.edf"));
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
 
+        edfInMemoryRepository.loadEdfs();
+
+        List<EdfData> edfs = edfInMemoryRepository.listEdfs();
+        assertThat(edfs.size(), equalTo(2));
+        for (EdfData edf : edfs) {
+            assertThat(edf.getEdfFileProperties().getErrorCode(), equalTo(EdfErrorCode.PARSE_TIMEOUT));
+            assertThat(edf.getAliases(), equalTo(List.of()));
+        }
+    }
+
+    @Test
+    void loadEdfs_whenRememberedInvalidFileRescanned_thenListedInstanceUnchanged() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        properties.getDedup().setEnabled(false);
+        Files.writeString(tempDir.toPath().resolve("broken.edf"), "not an edf file");
+        Files.writeString(tempDir.toPath().resolve("broken-copy.edf"), "not an edf file");
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+        edfInMemoryRepository.loadEdfs();
+        List<EdfData> listed = edfInMemoryRepository.listEdfs();
 
+        properties.getDedup().setEnabled(true);
+        edfInMemoryRepository.loadEdfs();
+
+        // the first list is not changed by the rescan, the copies of an invalid file are not aliases
+        for (EdfData edf : listed) {
+            assertNull(edf.getContentHash());
+        }
+        List<EdfData> rescanned = edfInMemoryRepository.listEdfs();
+        assertThat(rescanned.size(), equalTo(2));
+        for (EdfData edf : rescanned) {
+            assertThat(edf.getContentHash().length(), equalTo(16));
+            assertThat(edf.getAliases(), equalTo(List.of()));
+        }
+    }
+
+    @Test
+    void loadEdfs_whenCopyInSubdirectory_thenAliasListedByItsIdentifier() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        Path original = Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf");
+        Files.copy(original, tempDir.toPath().resolve("recording.edf"));
+        Files.copy(original, Files.createDirectory(tempDir.toPath().resolve("2024")).resolve("recording.edf"));
+        Files.setLastModifiedTime(tempDir.toPath().resolve("recording.edf"), FileTime.fromMillis(2_000_000));
+        Files.setLastModifiedTime(tempDir.toPath().resolve("2024/recording.edf"), FileTime.fromMillis(1_000_000));
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+
+        edfInMemoryRepository.loadEdfs();
+
+        EdfData edf = edfInMemoryRepository.listEdfs().get(0);
+        List<String> aliases = Mappers.getMapper(EdfMapper.class).aliasNames(edf);
+        assertThat(aliases, equalTo(List.of("2024:recording.edf")));
+        assertSame(edf, edfInMemoryRepository.findByFileName(aliases.get(0)).orElseThrow());
+    }
+
+    @Test
+    void loadEdfs_whenSameNameUnderTwoRoots_thenIdentifiersQualifiedByRoot() throws IOException {
+        properties.setEdfAppDir("");
+        for (String rootName : List.of("first", "second")) {
+            Path root = Files.createDirectories(tempDir.toPath().resolve(rootName));
+            Files.writeString(root.resolve("rec.edf"), "not an edf file: " + rootName);
+            Source source = new Source();
+            source.setPath(root.toString());
+            properties.getSources().add(source);
+        }
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+
+        edfInMemoryRepository.loadEdfs();
+
+        assertThat(edfInMemoryRepository.findByFileName("rec.edf").orElseThrow().getEdfFileProperties().getSourceRoot(),
+                equalTo(tempDir.toPath().resolve("first")));
+        assertThat(edfInMemoryRepository.findByFileName("@2:rec.edf").orElseThrow().getEdfFileProperties().getSourceRoot(),
+                equalTo(tempDir.toPath().resolve("second")));
+    }
+
+    @Test
+    void loadEdfs_whenDedupDisabled_thenCopiesListedSeparately() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        properties.getDedup().setEnabled(false);
+        Files.writeString(tempDir.toPath().resolve("a.edf"), "not an edf file");
+        Files.writeString(tempDir.toPath().resolve("b.edf"), "not an edf file");
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+
+        edfInMemoryRepository.loadEdfs();
+
+        assertThat(edfInMemoryRepository.listEdfs().size(), equalTo(2));
+        assertNull(edfInMemoryRepository.listEdfs().get(0).getContentHash());
+    }
+
+    @Test
+    void loadEdfs_whenLoadsRejected_thenOnlyListedFilesLoadedAgain() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        Files.copy(Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf"), tempDir.toPath().resolve("listed.edf"));
+        MemoryPressure memoryPressure = new MemoryPressure();
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), memoryPressure);
+        edfInMemoryRepository.loadEdfs();
+        Files.writeString(tempDir.toPath().resolve("new.edf"), "not an edf file");
+
+        memoryPressure.update(MemoryPressure.Level.REJECT);
+        edfInMemoryRepository.loadEdfs();
+        assertThat(edfInMemoryRepository.listEdfs().stream().map(e -> e.getEdfFileProperties().getFileName()).toList(),
+                equalTo(List.of("listed.edf")));
+        assertThat(edfInMemoryRepository.scanProgress(), equalTo(new ScanProgress(true, false, 2, 2, 1, null)));
+
+        memoryPressure.update(MemoryPressure.Level.NORMAL);
+        edfInMemoryRepository.loadEdfs();
+        assertThat(edfInMemoryRepository.listEdfs().size(), equalTo(2));
+        assertThat(edfInMemoryRepository.scanProgress().rejected(), equalTo(0));
+    }
+
+    @Test
+    void memoryUsage_thenMetadataAndIndexesOfListedFilesAccounted() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        Files.copy(Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf"), tempDir.toPath().resolve("recording.edf"));
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), new MemoryPressure());
+
+        edfInMemoryRepository.loadEdfs();
+
+        List<EdfData> edfs = edfInMemoryRepository.listEdfs();
+        List<MemoryUsage> usage = edfInMemoryRepository.memoryUsage();
+        assertThat(usage.stream().map(MemoryUsage::name).toList(),
+                equalTo(List.of("edf-metadata", "edf-enrichment", "invalid-files", "content-hashes", "file-ids")));
+        assertThat(usage.get(0).entries(), equalTo(1L));
+        assertThat(usage.get(0).bytes(), equalTo(HeapSize.list(edfs) + HeapSize.list(List.of()) + edfs.get(0).metadataSizeInBytes()));
+        assertThat(usage.get(1).bytes(), equalTo(0L));
+        assertThat(usage.get(3).entries(), equalTo(1L));
+        assertThat(usage.get(4).entries(), equalTo(1L));
+    }
+
+    @Test
+    void memoryUsage_whenRescanListsRememberedInvalidFile_thenCountedOnce() throws IOException {
+        properties.setEdfAppDir("");
+        properties.setEdfSource(tempDir.toString());
+        Path broken = tempDir.toPath().resolve("broken.edf");
+        Files.writeString(broken, "not an edf file");
+        List<MemoryUsage> duringRescan = new ArrayList<>();
+        // asked for every file not listed before, here after the remembered invalid file was parsed again
+        MemoryPressure memoryPressure = new MemoryPressure() {
+            @Override
+            public boolean rejectsLoads() {
+                duringRescan.add(edfInMemoryRepository.memoryUsage().get(0));
+                return false;
+            }
+        };
+        edfInMemoryRepository = new EdfInMemoryRepository(properties, event -> {}, new EdfFileCrawler(properties), memoryPressure);
+        edfInMemoryRepository.loadEdfs();
+        EdfData invalid = edfInMemoryRepository.listEdfs().get(0);
+        Path added = tempDir.toPath().resolve("added.edf");
+        Files.writeString(added, "not an edf file either");
+        Files.setLastModifiedTime(added, FileTime.fromMillis(Files.getLastModifiedTime(broken).toMillis() - 60_000));
+        duringRescan.clear();
+
+        edfInMemoryRepository.loadEdfs();
+
+        assertThat(duringRescan.size(), equalTo(1));
+        assertThat(duringRescan.get(0).entries(), equalTo(1L));
+        assertThat(duringRescan.get(0).bytes(), equalTo(2 * HeapSize.list(List.of(invalid)) + invalid.metadataSizeInBytes()));
+    }
 }
@@ -0,0 +1,101 @@
+package com.zeto.edf_processor.repository;
+
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.model.EpochFeature;
+import com.zeto.edf_processor.model.FeatureTable;
+import com.zeto.edf_processor.model.FileFingerprint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class EpochFeatureFileStoreTest {
+
+    private static final Path EDF = Path.of("/data/edf/patient001.edf");
+    private static final FileFingerprint VERSION = new FileFingerprint(1024, 42);
+    private static final List<EpochFeature> FEATURES = List.of(EpochFeature.ALPHA, EpochFeature.LINE_LENGTH);
+
+    @TempDir
+    Path appDir;
+
+    private EdfProcessorProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new EdfProcessorProperties();
+        properties.setEdfAppDir(appDir.toString());
+    }
+
+    @Test
+    void open_whenWrittenByAnotherInstance_thenColumnsFromMappedFile() {
+        new EpochFeatureFileStore(properties).write(EDF, VERSION, 30, List.of("EEG Fp1", "EEG Fp2"), FEATURES,
+                new float[][]{{1, 2, 3}, {10, 20, 30}, {4, 5, 6}, {40, 50, 60}});
+
+        FeatureTable table = new EpochFeatureFileStore(properties).open(EDF, VERSION).orElseThrow();
+
+        assertThat(table.epochSeconds(), equalTo(30.0));
+        assertThat(table.epochCount(), equalTo(3));
+        assertThat(table.channels(), contains("EEG Fp1", "EEG Fp2"));
+        assertThat(table.features(), equalTo(FEATURES));
+        assertThat(table.column(0, 1, 0, 3), equalTo(new float[]{10, 20, 30}));
+        assertThat(table.column(1, 0, 1, 3), equalTo(new float[]{5, 6}));
+        assertThat(table.column(1, 1, 2, 2), equalTo(new float[0]));
+    }
+
+    @Test
+    void open_whenOtherVersionStored_thenEmpty() {
+        EpochFeatureFileStore store = new EpochFeatureFileStore(properties);
+        store.write(EDF, VERSION, 30, List.of("EEG Fp1"), FEATURES, new float[][]{{1}, {2}});
+
+        assertThat(store.open(EDF, new FileFingerprint(1024, 43)), equalTo(Optional.empty()));
+        assertThat(new EpochFeatureFileStore(properties).open(EDF, new FileFingerprint(2048, 42)),
+                equalTo(Optional.empty()));
+        assertThat(store.open(Path.of("/data/edf/patient002.edf"), VERSION), equalTo(Optional.empty()));
+    }
+
+    @Test
+    void open_whenMoreTablesThanOpenLimit_thenLeastRecentlyUsedUnmappedAndMappedAgain() {
+        properties.getFeatures().setMaxOpenTables(2);
+        EpochFeatureFileStore store = new EpochFeatureFileStore(properties);
+        for (int i = 1; i <= 3; i++) {
+            store.write(Path.of("/data/edf/patient00%d.edf".formatted(i)), VERSION, 30, List.of("EEG Fp1"), FEATURES,
+                    new float[][]{{i}, {i}});
+        }
+
+        assertThat(store.memoryUsage().get(0).entries(), equalTo(2L));
+        FeatureTable first = store.open(Path.of("/data/edf/patient001.edf"), VERSION).orElseThrow();
+        assertThat(first.column(0, 0, 0, 1), equalTo(new float[]{1}));
+        assertThat(store.memoryUsage().get(0).entries(), equalTo(2L));
+    }
+
+    @Test
+    void open_whenFileCorrupt_thenEmpty() throws Exception {
+        EpochFeatureFileStore store = new EpochFeatureFileStore(properties);
+        store.write(EDF, VERSION, 30, List.of("EEG Fp1"), FEATURES, new float[][]{{1}, {2}});
+        try (var files = Files.list(properties.getFeaturesPath())) {
+            Files.write(files.findFirst().orElseThrow(), new byte[]{1, 2, 3});
+        }
+
+        assertThat(new EpochFeatureFileStore(properties).open(EDF, VERSION), equalTo(Optional.empty()));
+    }
+
+    @Test
+    void delete_thenTableAndFileGone() throws Exception {
+        EpochFeatureFileStore store = new EpochFeatureFileStore(properties);
+        store.write(EDF, VERSION, 30, List.of("EEG Fp1"), FEATURES, new float[][]{{1}, {2}});
+
+        store.delete(EDF);
+
+        assertThat(store.open(EDF, VERSION), equalTo(Optional.empty()));
+        try (var files = Files.list(properties.getFeaturesPath())) {
+            assertThat(files.count(), equalTo(0L));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.zeto.edf_processor.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+class XxHash64Test {
+
+    @Test
+    void digest_thenMatchesReferenceVectors() {
+        assertThat(hash(new byte[0]), equalTo(0xEF46DB3751D8E999L));
+        assertThat(hash("abc".getBytes(StandardCharsets.US_ASCII)), equalTo(0x44BC2CF5AD770999L));
+    }
+
+    @Test
+    void update_whenInputSplit_thenSameDigest() {
+        byte[] input = new byte[1000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i * 31 + 7);
+        }
+        XxHash64 split = new XxHash64(0);
+        split.update(ByteBuffer.wrap(input, 0, 5));
+        split.update(ByteBuffer.wrap(input, 5, 40));
+        split.update(ByteBuffer.wrap(input, 45, input.length - 45));
+
+        assertThat(split.digest(), equalTo(hash(input)));
+        input[999]++;
+        assertThat(split.digest(), not(equalTo(hash(input))));
+    }
+
+    private static long hash(byte[] input) {
+        XxHash64 hash = new XxHash64(0);
+        hash.update(ByteBuffer.wrap(input));
+        return hash.digest();
+    }
+}
@@ -0,0 +1,60 @@
+package com.zeto.edf_processor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class AnnotationTalRewriterTest {
+
+    private static final int CHANNEL_BYTES = 60;
+
+    @Test
+    void rewrite_thenOnsetsShiftedAndDurationsAndTextsKept() {
+        String record = "+605.5\u0014\u0014\u0000+606.25\u00152\u0014Spike\u0014\u0000";
+
+        assertThat(rewrite(record, 600, true), equalTo("+5.5\u0014\u0014\u0000+6.25\u00152\u0014Spike\u0014\u0000"));
+    }
+
+    @Test
+    void rewrite_whenAnnotationsDropped_thenOnlyTimekeepingKept() {
+        String record = "+605\u0014\u0014\u0000+606\u0014Spike\u0014\u0000";
+
+        assertThat(rewrite(record, 600, false), equalTo("+5\u0014\u0014\u0000"));
+    }
+
+    @Test
+    void rewrite_whenAnnotationsDropped_thenTimekeepingTalStrippedToItsEntry() {
+        String record = "+605\u0014\u0014Recording starts\u0014\u0000+606\u0014Spike\u0014\u0000";
+
+        assertThat(rewrite(record, 600, false), equalTo("+5\u0014\u0014\u0000"));
+        assertThat(rewrite(record, 600, true), equalTo("+5\u0014\u0014Recording starts\u0014\u0000+6\u0014Spike\u0014\u0000"));
+    }
+
+    @Test
+    void rewrite_whenOnsetBeforeNewStart_thenNegativeOnset() {
+        String record = "+600\u0014\u0014\u0000+599.5\u0014Eyes closed\u0014\u0000";
+
+        assertThat(rewrite(record, 600, true), equalTo("+0\u0014\u0014\u0000-0.5\u0014Eyes closed\u0014\u0000"));
+    }
+
+    private static String rewrite(String record, long shiftSeconds, boolean keepAnnotations) {
+        ByteBuffer channel = ByteBuffer.wrap(Arrays.copyOf(record.getBytes(StandardCharsets.US_ASCII), CHANNEL_BYTES));
+        ByteBuffer output = ByteBuffer.allocate(CHANNEL_BYTES);
+
+        new AnnotationTalRewriter(shiftSeconds, keepAnnotations, CHANNEL_BYTES).rewrite(channel, output);
+
+        assertThat(output.position(), equalTo(CHANNEL_BYTES));
+        byte[] bytes = output.array();
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] == 0) {
+            end--;
+        }
+        // keep the terminator of the last TAL
+        return new String(bytes, 0, Math.min(bytes.length, end + 1), StandardCharsets.US_ASCII);
+    }
+}
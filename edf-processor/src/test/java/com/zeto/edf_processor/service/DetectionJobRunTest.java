@@ -0,0 +1,101 @@
+package com.zeto.edf_processor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeto.edf_processor.model.DetectionJob;
+import com.zeto.edf_processor.model.DetectionJob.State;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.service.DetectionJobRun.Unit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class DetectionJobRunTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path jobsDir;
+
+    @Test
+    void load_whenCrashedBetweenDetectionsAndCheckpoint_thenUnitRunsAgainWithoutDuplicates() throws Exception {
+        Path directory = jobsDir.resolve("job-1");
+        DetectionJobRun run = DetectionJobRun.create(job(), directory, objectMapper);
+        run.setState(State.RUNNING, null);
+        run.open();
+        run.commit(new Unit(0, 0, 60), csv("a.edf,EEG Fp1,1.0000,250.000\n"), 1000, 1);
+        run.commit(new Unit(0, 60, 120), new byte[0], 1000, 0);
+        run.close();
+        // crash: detections of the third unit written, its checkpoint line torn
+        Files.writeString(directory.resolve(DetectionJobRun.DETECTIONS_FILE), "a.edf,EEG Fp1,130.0000,300.000\n",
+                StandardOpenOption.APPEND);
+        Files.writeString(directory.resolve(DetectionJobRun.CHECKPOINT_FILE), "0\t120\t9", StandardOpenOption.APPEND);
+
+        DetectionJobRun resumed = DetectionJobRun.load(directory, objectMapper);
+
+        assertThat(resumed.getState(), equalTo(State.RUNNING));
+        assertThat(resumed.getJob(), equalTo(job()));
+        assertThat(resumed.isCompleted(new Unit(0, 0, 60)), is(true));
+        assertThat(resumed.isCompleted(new Unit(0, 60, 120)), is(true));
+        assertThat(resumed.isCompleted(new Unit(0, 120, 180)), is(false));
+        assertThat(resumed.samplesProcessed(), equalTo(2000L));
+        assertThat(resumed.detections(), equalTo(1L));
+        assertThat(Files.readAllLines(directory.resolve(DetectionJobRun.DETECTIONS_FILE)),
+                contains("file,channel,seconds,value", "a.edf,EEG Fp1,1.0000,250.000"));
+        assertThat(Files.readAllLines(directory.resolve(DetectionJobRun.CHECKPOINT_FILE)), hasSize(2));
+
+        resumed.open();
+        resumed.commit(new Unit(0, 120, 180), csv("a.edf,EEG Fp1,130.0000,300.000\n"), 1000, 1);
+        resumed.close();
+
+        assertThat(Files.readAllLines(directory.resolve(DetectionJobRun.DETECTIONS_FILE)), hasSize(3));
+        assertThat(DetectionJobRun.load(directory, objectMapper).detections(), equalTo(2L));
+    }
+
+    @Test
+    void setState_whenFinished_thenCompletedUnitsReleased() throws Exception {
+        DetectionJobRun run = DetectionJobRun.create(job(), jobsDir.resolve("job-1"), objectMapper);
+        run.setState(State.RUNNING, null);
+        run.open();
+        run.commit(new Unit(0, 0, 60), new byte[0], 1000, 0);
+        run.commit(new Unit(0, 60, 120), new byte[0], 1000, 0);
+        run.close();
+        long running = run.sizeInBytes();
+
+        run.setState(State.COMPLETED, null);
+
+        assertThat(run.isCompleted(new Unit(0, 0, 60)), is(false));
+        assertThat(run.sizeInBytes(), lessThan(running));
+        assertThat(run.samplesProcessed(), equalTo(2000L));
+        assertThat(DetectionJobRun.load(jobsDir.resolve("job-1"), objectMapper).sizeInBytes(), equalTo(run.sizeInBytes()));
+    }
+
+    @Test
+    void load_whenFailed_thenStateAndError() throws Exception {
+        Path directory = jobsDir.resolve("job-1");
+        DetectionJobRun.create(job(), directory, objectMapper).setState(State.FAILED, "Disk full");
+
+        DetectionJobRun loaded = DetectionJobRun.load(directory, objectMapper);
+
+        assertThat(loaded.getState(), equalTo(State.FAILED));
+        assertThat(loaded.getError(), equalTo("Disk full"));
+    }
+
+    private static byte[] csv(String lines) {
+        return lines.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static DetectionJob job() {
+        return new DetectionJob("job-1", Instant.parse("2025-11-20T09:15:00Z"),
+                new DetectionJob.Parameters("amplitude", 200, 0.2, List.of("EEG Fp1")),
+                List.of(new DetectionJob.JobFile("a.edf", "/data/a.edf", new FileFingerprint(1024, 42))));
+    }
+}
@@ -0,0 +1,117 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.model.ArchiveSummary;
+import com.zeto.edf_processor.model.ArchiveSummary.Group;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.EdfErrorCode;
+import com.zeto.edf_processor.model.EdfValidationError;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.HeapSize;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+class EdfArchiveStatisticsTest {
+
+    private static final Path ROOT = Path.of("/data");
+
+    private static EdfData valid(String name, String subjectId, String startDate, int records, String... labels) {
+        return EdfData.createValidEdfData(ROOT.resolve(name), name, ROOT, new FileFingerprint(1024, 42), "rec",
+                startDate, "10.30.00", subjectId, labels, null, records, 0.5, 0);
+    }
+
+    private static EdfData invalid(String name) {
+        return EdfData.createInvalidEdfData(ROOT.resolve(name), name, ROOT, new FileFingerprint(16, 42),
+                new EdfValidationError(EdfErrorCode.PARSE_FAILED, null, "Invalid EDF File"));
+    }
+
+    @Test
+    void put_thenGroupedByPatientMonthAndChannelSet() {
+        EdfArchiveStatistics statistics = new EdfArchiveStatistics();
+
+        statistics.put(valid("a.edf", "P1 F 01-JAN-1980 Jane_Doe", "15.01.24", 7200, "Fp2", "Fp1"));
+        statistics.put(valid("b.edf", "P1 F 01-JAN-1980 Jane_Doe", "20.02.24", 3600, "Fp1", "Fp2"));
+        statistics.put(valid("c.edf", "P2 M 01-JAN-1970 John_Doe", null, 1800, "Cz"));
+        statistics.put(invalid("d.edf"));
+
+        ArchiveSummary summary = statistics.summary();
+        assertThat(summary.total(), equalTo(4));
+        assertThat(summary.valid(), equalTo(3));
+        assertThat(summary.invalid(), equalTo(1));
+        assertThat(summary.recordingSeconds(), equalTo(6300.0));
+        assertThat(summary.byPatient(), equalTo(List.of(new Group("P1", 2, 5400.0), new Group("P2", 1, 900.0))));
+        assertThat(summary.byMonth(), equalTo(List.of(new Group("2024-01", 1, 3600.0), new Group("2024-02", 1, 1800.0),
+                new Group(EdfArchiveStatistics.UNKNOWN_MONTH, 1, 900.0))));
+        assertThat(summary.byChannelSet(), equalTo(List.of(new Group("Cz", 1, 900.0), new Group("Fp1,Fp2", 2, 5400.0))));
+    }
+
+    @Test
+    void put_whenNameNotExtracted_thenPatientsStillApart() {
+        EdfArchiveStatistics statistics = new EdfArchiveStatistics();
+
+        // names without a family name are not extracted, both read "Not Avaliable"
+        statistics.put(valid("a.edf", "P1 F 01-JAN-1980 Jane", "15.01.24", 7200, "Fp1"));
+        statistics.put(valid("b.edf", "P2 M 01-JAN-1970 John", "15.01.24", 3600, "Fp1"));
+        statistics.put(valid("c.edf", "X X X X", "15.01.24", 1800, "Fp1"));
+        statistics.put(valid("d.edf", null, "15.01.24", 1800, "Fp1"));
+
+        assertThat(statistics.summary().byPatient(), equalTo(List.of(new Group("P1", 1, 3600.0), new Group("P2", 1, 1800.0),
+                new Group("X X X X", 1, 900.0), new Group(EdfArchiveStatistics.UNKNOWN_PATIENT, 1, 900.0))));
+    }
+
+    @Test
+    void put_whenSamePath_thenReplacesPreviousVersion() {
+        EdfArchiveStatistics statistics = new EdfArchiveStatistics();
+        statistics.put(valid("a.edf", "P1 F 01-JAN-1980 Jane_Doe", "15.01.24", 7200, "Fp1"));
+
+        statistics.put(invalid("a.edf"));
+
+        ArchiveSummary summary = statistics.summary();
+        assertThat(summary.total(), equalTo(1));
+        assertThat(summary.invalid(), equalTo(1));
+        assertThat(summary.recordingSeconds(), equalTo(0.0));
+        assertThat(summary.byPatient(), equalTo(List.of()));
+    }
+
+    @Test
+    void memoryUsage_thenContributionsAndGroupsAccountedWithSharedKeys() {
+        EdfArchiveStatistics statistics = new EdfArchiveStatistics();
+        statistics.put(valid("a.edf", "P1 F 01-JAN-1980 Jane_Doe", "15.01.24", 7200, "Fp2", "Fp1"));
+        statistics.put(valid("b.edf", "P1 F 01-JAN-1980 Jane_Doe", "15.01.24", 3600, "Fp1", "Fp2"));
+        statistics.put(invalid("c.edf"));
+
+        List<MemoryUsage> usage = statistics.memoryUsage();
+
+        assertThat(usage.stream().map(MemoryUsage::name).toList(), equalTo(List.of("archive-contributions", "archive-groups")));
+        assertThat(usage.get(0).entries(), equalTo(3L));
+        assertThat(usage.get(1).entries(), equalTo(3L));
+        long groupEntry = HeapSize.MAP_ENTRY + HeapSize.object(1, Integer.BYTES + Long.BYTES);
+        assertThat(usage.get(1).bytes(), equalTo(3 * groupEntry + HeapSize.string("P1") + HeapSize.string("2024-01")
+                + HeapSize.string("Fp1,Fp2")));
+        // later files of a group share the key of the group instead of keeping their own
+        ArchiveSummary summary = statistics.summary();
+        statistics.put(valid("d.edf", "P2 M 01-JAN-1970 John_Doe", "15.01.24", 3600, "Fp1", "Fp2"));
+        assertThat(statistics.summary().byChannelSet().get(0).key(), sameInstance(summary.byChannelSet().get(0).key()));
+    }
+
+    @Test
+    void replaceAll_thenFilesMissingFromTheListRemoved() {
+        EdfArchiveStatistics statistics = new EdfArchiveStatistics();
+        EdfData kept = valid("a.edf", "P1 F 01-JAN-1980 Jane_Doe", "15.01.24", 7200, "Fp1");
+        statistics.put(kept);
+        statistics.put(valid("b.edf", "P2 M 01-JAN-1970 John_Doe", "15.03.24", 3600, "Fp1"));
+
+        statistics.replaceAll(List.of(kept));
+
+        ArchiveSummary summary = statistics.summary();
+        assertThat(summary.total(), equalTo(1));
+        assertThat(summary.byPatient(), equalTo(List.of(new Group("P1", 1, 3600.0))));
+        assertThat(summary.byMonth(), equalTo(List.of(new Group("2024-01", 1, 3600.0))));
+    }
+}
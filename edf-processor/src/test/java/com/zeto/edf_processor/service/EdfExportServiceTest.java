@@ -0,0 +1,174 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.ScanProgress;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.repository.EdfFileSignalSource;
+import com.zeto.edf_processor.repository.EdfHeaderValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EdfExportServiceTest {
+
+    private static final Path SOURCE = Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf");
+
+    @TempDir
+    Path tempDir;
+
+    private final EdfFileSignalSource signalSource = new EdfFileSignalSource();
+
+    private EdfExportService service(int bufferBytes) {
+        EdfData edfData = EdfData.createValidEdfData(SOURCE, SOURCE.getFileName().toString(), SOURCE.getParent(), new FileFingerprint(1, 1), "rec",
+                "14.10.24", "15.01.43", "X", new String[0], new String[0], 24, 1.0, 0);
+        EdfRepository repository = new EdfRepository() {
+            @Override
+            public void loadEdfs() {
+            }
+
+            @Override
+            public List<EdfData> listEdfs() {
+                return List.of(edfData);
+            }
+
+            @Override
+            public Optional<EdfData> findByFileName(String fileName) {
+                return Optional.of(edfData).filter(e -> e.isListedAs(fileName));
+            }
+
+            @Override
+            public int forgetInvalidEdfs(String fileName) {
+                return 0;
+            }
+
+            @Override
+            public ScanProgress scanProgress() {
+                return ScanProgress.NOT_STARTED;
+            }
+        };
+        EdfProcessorProperties properties = new EdfProcessorProperties();
+        properties.getExport().setBufferBytes(DataSize.ofBytes(bufferBytes));
+        return new EdfExportService(repository, signalSource, properties);
+    }
+
+    private Path export(EdfExportService service, EdfExport export) throws IOException {
+        Path target = tempDir.resolve(export.fileName());
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            service.write(export, channel);
+        }
+        return target;
+    }
+
+    @Test
+    void write_thenValidEdfWithTheWindowOfTheSelectedChannels() throws IOException {
+        // a small buffer forces several blocks
+        EdfExportService service = service(10_000);
+
+        EdfExport export = service.prepare(SOURCE.getFileName().toString(), 5.5, 12.0, List.of("EEG Cz", "EEG Fp1"), true);
+        Path exported = export(service, export);
+
+        assertThat(export.fileName(), equalTo("ZE-970-003-287_5-12s.edf"));
+        assertThat(Files.size(exported), equalTo(export.contentLength()));
+        assertThat(new EdfHeaderValidator().validate(exported, Files.size(exported)), equalTo(Optional.empty()));
+
+        SignalLayout source = signalSource.readLayout(SOURCE);
+        SignalLayout layout = signalSource.readLayout(exported);
+        assertThat(layout.getNumberOfRecords(), equalTo(7));
+        assertThat(layout.getChannels().stream().map(SignalLayout.ChannelLayout::label).toList(),
+                equalTo(List.of("EEG Cz", "EEG Fp1", "EDF Annotations")));
+        for (String label : List.of("EEG Cz", "EEG Fp1")) {
+            assertArrayEquals(signalSource.readChannel(SOURCE, source, 5, 12, source.channel(label).orElseThrow()),
+                    signalSource.readChannel(exported, layout, 0, 7, layout.channel(label).orElseThrow()));
+        }
+
+        // the start moved by 5 s and the first record starts at the new start
+        byte[] header = signalSource.readHeader(exported, layout);
+        assertThat(new String(header, 168, 16, StandardCharsets.US_ASCII), equalTo("14.10.2415.01.48"));
+        assertThat(firstTal(exported, layout), equalTo("+0\u0014\u0014"));
+    }
+
+    @Test
+    void write_thenBuffersAccountedWhileRunning() throws IOException {
+        EdfExportService service = service(1 << 20);
+        EdfExport export = service.prepare(SOURCE.getFileName().toString(), 0, 10.0, null, true);
+        List<MemoryUsage> whileWriting = new ArrayList<>();
+        WritableByteChannel target = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) {
+                if (whileWriting.isEmpty()) {
+                    whileWriting.add(service.memoryUsage().get(0));
+                }
+                int written = source.remaining();
+                source.position(source.limit());
+                return written;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        service.write(export, target);
+
+        assertThat(whileWriting.get(0).entries(), equalTo(1L));
+        // a source and an output buffer, each within the buffer size
+        assertThat(whileWriting.get(0).bytes(), greaterThan(0L));
+        assertThat(whileWriting.get(0).bytes(), lessThanOrEqualTo(2 * ((1L << 20) + 24)));
+        assertThat(service.memoryUsage().get(0), equalTo(new MemoryUsage("export-buffers", MemoryUsage.Kind.DECODED, 0, 0, 0)));
+    }
+
+    @Test
+    void prepare_whenUnknownChannelOrEmptyWindow_thenThrowException() {
+        EdfExportService service = service(1 << 20);
+        String fileName = SOURCE.getFileName().toString();
+
+        assertThrows(InvalidSignalRequestException.class, () -> service.prepare(fileName, 0, 10.0, List.of("EEG X9"), true));
+        assertThrows(InvalidSignalRequestException.class, () -> service.prepare(fileName, 10, 10.0, null, true));
+        assertThrows(InvalidSignalRequestException.class, () -> service.prepare(fileName, 100, null, null, true));
+        assertThrows(InvalidSignalRequestException.class, () -> service.prepare(fileName, Double.NaN, 10.0, null, true));
+        assertThrows(InvalidSignalRequestException.class, () -> service.prepare(fileName, 0, Double.POSITIVE_INFINITY, null, true));
+    }
+
+    private static String firstTal(Path file, SignalLayout layout) throws IOException {
+        SignalLayout.ChannelLayout annotations = layout.getChannels().get(layout.getChannels().size() - 1);
+        ByteBuffer channel = ByteBuffer.allocate(annotations.samplesPerRecord() * Short.BYTES);
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            fileChannel.read(channel, layout.recordPosition(0) + annotations.byteOffset());
+        }
+        byte[] bytes = channel.array();
+        int end = 0;
+        while (bytes[end] != 0) {
+            end++;
+        }
+        return new String(Arrays.copyOf(bytes, end), StandardCharsets.US_ASCII);
+    }
+}
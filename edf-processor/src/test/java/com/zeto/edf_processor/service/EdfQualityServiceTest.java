@@ -0,0 +1,160 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.RecordingAmplitudes;
+import com.zeto.edf_processor.model.ScanProgress;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+import com.zeto.edf_processor.repository.EdfFileSignalSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EdfQualityServiceTest {
+
+    private static final Path SOURCE = Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf");
+    private static final String FILE_ID = SOURCE.getFileName().toString();
+
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final EdfFileSignalSource signalSource = new EdfFileSignalSource() {
+        @Override
+        public SignalLayout readLayout(Path filePath) {
+            passes.incrementAndGet();
+            try {
+                released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.readLayout(filePath);
+        }
+
+        @Override
+        public SignalWindow readWindow(Path filePath, SignalLayout layout, int fromRecord, int toRecord,
+                                       List<ChannelLayout> channels) {
+            SignalWindow window = super.readWindow(filePath, layout, fromRecord, toRecord, channels);
+            if (interruptAfterRead) {
+                Thread.currentThread().interrupt();
+            }
+            return window;
+        }
+    };
+
+    private final AtomicInteger passes = new AtomicInteger();
+    private volatile boolean interruptAfterRead;
+
+    private volatile List<EdfData> listed = List.of();
+
+    private final EdfRepository repository = new EdfRepository() {
+        @Override
+        public void loadEdfs() {
+        }
+
+        @Override
+        public List<EdfData> listEdfs() {
+            return listed;
+        }
+
+        @Override
+        public Optional<EdfData> findByFileName(String fileName) {
+            return listed.stream().filter(e -> e.isListedAs(fileName)).findFirst();
+        }
+
+        @Override
+        public int forgetInvalidEdfs(String fileName) {
+            return 0;
+        }
+
+        @Override
+        public ScanProgress scanProgress() {
+            return ScanProgress.NOT_STARTED;
+        }
+    };
+
+    private final EdfQualityService service = new EdfQualityService(repository, signalSource,
+            new EdfListVersion(repository), new EdfProcessorProperties());
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void onFilesLoaded_whenRescanWhileAnalysed_thenResultAttachedToListedFile() throws InterruptedException {
+        EdfData analysed = edfData();
+        listed = List.of(analysed);
+        service.onFilesLoaded(new EdfFilesLoadedEvent(listed));
+
+        // the rescan lists a new object for the unchanged file while its analysis runs
+        EdfData rescanned = edfData();
+        listed = List.of(rescanned);
+        service.onFilesLoaded(new EdfFilesLoadedEvent(listed));
+        released.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (rescanned.getQuality() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(rescanned.getQuality(), notNullValue());
+        assertThat(rescanned.getPreview(), notNullValue());
+        assertThat(rescanned.getAmplitudes(), sameInstance(analysed.getAmplitudes()));
+    }
+
+    @Test
+    void amplitudes_whenConcurrentRequests_thenOnePass() throws Exception {
+        EdfData edfData = edfData();
+        listed = List.of(edfData);
+
+        CompletableFuture<RecordingAmplitudes> first = CompletableFuture.supplyAsync(() -> service.amplitudes(edfData));
+        CompletableFuture<RecordingAmplitudes> second = CompletableFuture.supplyAsync(() -> service.amplitudes(edfData));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (passes.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        released.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS), sameInstance(second.get(10, TimeUnit.SECONDS)));
+        assertThat(passes.get(), equalTo(1));
+    }
+
+    @Test
+    void amplitudes_whenInterrupted_thenNoResultKept() {
+        released.countDown();
+        EdfData edfData = edfData();
+        listed = List.of(edfData);
+
+        interruptAfterRead = true;
+        try {
+            assertThrows(CancellationException.class, () -> service.amplitudes(edfData));
+        } finally {
+            interruptAfterRead = false;
+            Thread.interrupted();
+        }
+        assertThat(edfData.getAmplitudes(), nullValue());
+
+        assertThat(service.amplitudes(edfData), notNullValue());
+        assertThat(edfData.getAmplitudes(), notNullValue());
+    }
+
+    private static EdfData edfData() {
+        return EdfData.createValidEdfData(SOURCE, FILE_ID, SOURCE.getParent(), new FileFingerprint(1, 1), "rec",
+                "14.10.24", "15.01.43", "X", new String[0], new String[0], 24, 1.0, 0);
+    }
+}
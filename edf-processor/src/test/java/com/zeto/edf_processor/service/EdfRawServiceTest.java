@@ -0,0 +1,73 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.SignalLayout;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EdfRawServiceTest {
+
+    @Test
+    void trimHeader_whenPlainEdf_thenStartAndRecordCountAreRewritten() {
+        SignalLayout layout = layout(2.0, "EEG Fp1");
+        byte[] header = header("31.12.23", "23.59.50", "100");
+
+        byte[] trimmed = EdfRawService.trimHeader(header, layout, 10, 25);
+
+        assertThat(field(trimmed, 168), equalTo("01.01.24"));
+        assertThat(field(trimmed, 176), equalTo("00.00.10"));
+        assertThat(field(trimmed, 236), equalTo("15"));
+    }
+
+    @Test
+    void trimHeader_whenEdfPlus_thenStartIsKept() {
+        SignalLayout layout = layout(1.0, "EEG Fp1", "EDF Annotations");
+        byte[] header = header("14.10.24", "15.01.43", "24");
+
+        byte[] trimmed = EdfRawService.trimHeader(header, layout, 5, 10);
+
+        assertThat(field(trimmed, 168), equalTo("14.10.24"));
+        assertThat(field(trimmed, 176), equalTo("15.01.43"));
+        assertThat(field(trimmed, 236), equalTo("5"));
+    }
+
+    @Test
+    void trimHeader_whenPlainEdfSliceStartsInsideASecond_thenThrowException() {
+        SignalLayout layout = layout(0.5, "EEG Fp1");
+        byte[] header = header("14.10.24", "15.01.43", "24");
+
+        assertThrows(InvalidSignalRequestException.class, () -> EdfRawService.trimHeader(header, layout, 3, 10));
+    }
+
+    private static SignalLayout layout(double duration, String... labels) {
+        Integer[] ints = new Integer[labels.length];
+        Double[] doubles = new Double[labels.length];
+        Arrays.fill(ints, 10);
+        Arrays.fill(doubles, 1.0);
+        return SignalLayout.from(256 * (labels.length + 1), 100, duration, labels, null, ints, ints, ints, doubles, doubles);
+    }
+
+    private static byte[] header(String date, String time, String records) {
+        byte[] header = new byte[256];
+        Arrays.fill(header, (byte) ' ');
+        put(header, 168, date);
+        put(header, 176, time);
+        put(header, 236, records);
+        return header;
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+    private static String field(byte[] header, int offset) {
+        return new String(header, offset, 8, StandardCharsets.US_ASCII).trim();
+    }
+}
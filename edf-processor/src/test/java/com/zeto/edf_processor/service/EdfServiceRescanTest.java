@@ -0,0 +1,183 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.dto.EdfDto;
+import com.zeto.edf_processor.dto.EdfMapper;
+import com.zeto.edf_processor.dto.SummaryMapper;
+import com.zeto.edf_processor.exceptions.EdfSourceNotFoundException;
+import com.zeto.edf_processor.exceptions.RescanRateLimitedException;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.ScanProgress;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EdfServiceRescanTest {
+
+    /** Repository whose scans block until released */
+    private static class BlockingRepository implements EdfRepository {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile RuntimeException failure;
+        volatile String loadingThread;
+
+        @Override
+        public void loadEdfs() {
+            loads.incrementAndGet();
+            loadingThread = Thread.currentThread().getName();
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public List<EdfData> listEdfs() {
+            return List.of();
+        }
+
+        @Override
+        public Optional<EdfData> findByFileName(String fileName) {
+            return Optional.empty();
+        }
+
+        @Override
+        public int forgetInvalidEdfs(String fileName) {
+            return 0;
+        }
+
+        @Override
+        public ScanProgress scanProgress() {
+            return ScanProgress.NOT_STARTED;
+        }
+    }
+
+    private static EdfService service(EdfRepository repository, Duration minInterval) {
+        EdfProcessorProperties properties = new EdfProcessorProperties();
+        properties.getScan().setMinInterval(minInterval);
+        return new EdfService(repository, Mappers.getMapper(EdfMapper.class), properties,
+                new EdfArchiveStatistics(), Mappers.getMapper(SummaryMapper.class));
+    }
+
+    @Test
+    void scanOnStartup_whenBackground_thenReturnsWhileTheScanRuns() throws Exception {
+        BlockingRepository repository = new BlockingRepository();
+        EdfService service = service(repository, Duration.ofMinutes(1));
+
+        service.scanOnStartup();
+
+        assertThat(repository.started.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(repository.loadingThread, equalTo("edf-startup-scan"));
+        repository.release.countDown();
+    }
+
+    @Test
+    void rescan_whenScanRunning_thenCallersJoinIt() throws Exception {
+        BlockingRepository repository = new BlockingRepository();
+        EdfService service = service(repository, Duration.ofHours(1));
+
+        CompletableFuture<List<EdfDto>> first = CompletableFuture.supplyAsync(() -> service.rescan(false));
+        repository.started.await(10, TimeUnit.SECONDS);
+        CompletableFuture<List<EdfDto>> second = CompletableFuture.supplyAsync(() -> service.rescan(true));
+        CompletableFuture<Void> third = CompletableFuture.runAsync(service::reload);
+        Thread.sleep(100);
+        repository.release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS), empty());
+        assertThat(second.get(10, TimeUnit.SECONDS), empty());
+        third.get(10, TimeUnit.SECONDS);
+        assertThat(repository.loads.get(), equalTo(1));
+    }
+
+    @Test
+    void rescan_whenWithinMinimumInterval_thenRejectedWithRetryAfter() {
+        BlockingRepository repository = new BlockingRepository();
+        repository.release.countDown();
+        EdfService service = service(repository, Duration.ofHours(1));
+        service.rescan(false);
+
+        RescanRateLimitedException e = assertThrows(RescanRateLimitedException.class, () -> service.rescan(false));
+
+        assertThat(e.getRetryAfter(), greaterThan(Duration.ofMinutes(59)));
+        assertThat(repository.loads.get(), equalTo(1));
+    }
+
+    @Test
+    void retryInvalid_whenWithinMinimumInterval_thenRejectedLikeRescan() {
+        BlockingRepository repository = new BlockingRepository();
+        repository.release.countDown();
+        EdfService service = service(repository, Duration.ofHours(1));
+        service.rescan(false);
+
+        assertThrows(RescanRateLimitedException.class, () -> service.retryInvalid(null));
+
+        assertThat(repository.loads.get(), equalTo(1));
+    }
+
+    @Test
+    void retryInvalid_whenScanRunning_thenOneScanAfterIt() throws Exception {
+        BlockingRepository repository = new BlockingRepository();
+        EdfService service = service(repository, Duration.ofHours(1));
+
+        CompletableFuture<List<EdfDto>> rescan = CompletableFuture.supplyAsync(() -> service.rescan(false));
+        repository.started.await(10, TimeUnit.SECONDS);
+        CompletableFuture<List<EdfDto>> first = CompletableFuture.supplyAsync(() -> service.retryInvalid(null));
+        CompletableFuture<List<EdfDto>> second = CompletableFuture.supplyAsync(() -> service.retryInvalid(null));
+        Thread.sleep(100);
+        repository.release.countDown();
+
+        rescan.get(10, TimeUnit.SECONDS);
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        assertThat(repository.loads.get(), lessThanOrEqualTo(3));
+        assertThrows(RescanRateLimitedException.class, () -> service.retryInvalid(null));
+    }
+
+    @Test
+    void rescan_whenNoMinimumInterval_thenEveryRescanScans() {
+        BlockingRepository repository = new BlockingRepository();
+        repository.release.countDown();
+        EdfService service = service(repository, Duration.ZERO);
+
+        service.rescan(false);
+        service.rescan(false);
+
+        assertThat(repository.loads.get(), equalTo(2));
+    }
+
+    @Test
+    void rescan_whenScanFails_thenJoinedCallersGetTheFailure() throws Exception {
+        BlockingRepository repository = new BlockingRepository();
+        repository.failure = new EdfSourceNotFoundException("No source root exists");
+        EdfService service = service(repository, Duration.ZERO);
+
+        CompletableFuture<List<EdfDto>> first = CompletableFuture.supplyAsync(() -> service.rescan(false));
+        repository.started.await(10, TimeUnit.SECONDS);
+        CompletableFuture<List<EdfDto>> second = CompletableFuture.supplyAsync(() -> service.rescan(false));
+        Thread.sleep(100);
+        repository.release.countDown();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> second.get(10, TimeUnit.SECONDS));
+        assertThat(e.getCause(), instanceOf(EdfSourceNotFoundException.class));
+        assertThrows(ExecutionException.class, () -> first.get(10, TimeUnit.SECONDS));
+        assertThat(repository.loads.get(), equalTo(1));
+    }
+}
@@ -0,0 +1,80 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryPressure;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.dto.SignalDto;
+import com.zeto.edf_processor.dto.SignalMapperImpl;
+import com.zeto.edf_processor.model.EdfData;
+import com.zeto.edf_processor.model.FileFingerprint;
+import com.zeto.edf_processor.model.ScanProgress;
+import com.zeto.edf_processor.repository.EdfFileSignalSource;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+
+class EdfSignalServiceTest {
+
+    private static final Path SOURCE = Path.of("src/test/resources/test_edf_files/ZE-970-003-287.edf");
+    private static final String FILE_ID = SOURCE.getFileName().toString();
+
+    private final EdfFileSignalSource signalSource = new EdfFileSignalSource();
+    private final EdfProcessorProperties properties = new EdfProcessorProperties();
+
+    private EdfSignalService service() {
+        EdfData edfData = EdfData.createValidEdfData(SOURCE, FILE_ID, SOURCE.getParent(), new FileFingerprint(1, 1), "rec",
+                "14.10.24", "15.01.43", "X", new String[0], new String[0], 24, 1.0, 0);
+        EdfRepository repository = new EdfRepository() {
+            @Override
+            public void loadEdfs() {
+            }
+
+            @Override
+            public List<EdfData> listEdfs() {
+                return List.of(edfData);
+            }
+
+            @Override
+            public Optional<EdfData> findByFileName(String fileName) {
+                return Optional.of(edfData).filter(e -> e.isListedAs(fileName));
+            }
+
+            @Override
+            public int forgetInvalidEdfs(String fileName) {
+                return 0;
+            }
+
+            @Override
+            public ScanProgress scanProgress() {
+                return ScanProgress.NOT_STARTED;
+            }
+        };
+        return new EdfSignalService(repository, signalSource,
+                new SignalBlockCache(signalSource, properties, new MemoryPressure()), new SignalMapperImpl(),
+                new MontageRegistry(properties), properties);
+    }
+
+    @Test
+    void readSignals_whenFiltered_thenWindowEqualsSliceOfFilteredFile() {
+        EdfSignalService service = service();
+        int records = signalSource.readLayout(SOURCE).getNumberOfRecords();
+        int fromRecord = records - 4;
+        List<String> filters = List.of("highpass:0.1", "notch:50");
+
+        SignalDto file = service.readSignals(FILE_ID, 0, records, List.of(), filters, false, null, null);
+        SignalDto window = service.readSignals(FILE_ID, fromRecord, records, List.of(), filters, false, null, null);
+
+        for (int c = 0; c < file.getChannels().size(); c++) {
+            float[] fileSamples = file.getChannels().get(c).getSamples();
+            float[] windowSamples = window.getChannels().get(c).getSamples();
+            int offset = fileSamples.length - windowSamples.length;
+            for (int i = 0; i < windowSamples.length; i++) {
+                assertThat((double) windowSamples[i], closeTo(fileSamples[offset + i], 1e-3));
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EdfSpectrumServiceTest {
+
+    @Test
+    void epochRecords_whenWholeMultiple_thenRecordCount() {
+        assertThat(EdfSpectrumService.epochRecords(30, 0.5), equalTo(60));
+    }
+
+    @Test
+    void epochRecords_whenNotFiniteOrNotAMultiple_thenThrowException() {
+        assertThrows(InvalidSignalRequestException.class, () -> EdfSpectrumService.epochRecords(Double.NaN, 1));
+        assertThrows(InvalidSignalRequestException.class, () -> EdfSpectrumService.epochRecords(Double.POSITIVE_INFINITY, 1));
+        assertThrows(InvalidSignalRequestException.class, () -> EdfSpectrumService.epochRecords(2.5, 1));
+        assertThrows(InvalidSignalRequestException.class, () -> EdfSpectrumService.epochRecords(0.5, 1));
+    }
+}
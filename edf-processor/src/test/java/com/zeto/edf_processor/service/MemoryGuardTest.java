@@ -0,0 +1,129 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryAccounted;
+import com.zeto.edf_processor.cache.MemoryFootprint;
+import com.zeto.edf_processor.cache.MemoryPressure;
+import com.zeto.edf_processor.cache.MemoryPressure.Level;
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.cache.MemoryUsage.Kind;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class MemoryGuardTest {
+
+    private static final long BUDGET = 1000;
+
+    private final MemoryPressure pressure = new MemoryPressure();
+
+    /** A cache releasing half of its bytes, and a fixed heap seen by the collector */
+    private static final class Cache implements MemoryAccounted {
+        long bytes;
+
+        Cache(long bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public List<MemoryUsage> memoryUsage() {
+            return List.of(new MemoryUsage("cache", Kind.DECODED, 1, bytes, 0));
+        }
+
+        @Override
+        public long releaseMemory() {
+            long released = bytes / 2;
+            bytes -= released;
+            return released;
+        }
+    }
+
+    private static final class Heap implements MemoryGuard.HeapProbe {
+        long live;
+        long collections;
+
+        @Override
+        public long liveBytes() {
+            return live;
+        }
+
+        @Override
+        public long collections() {
+            return collections;
+        }
+    }
+
+    private MemoryGuard guard(Heap heap, MemoryAccounted... components) {
+        EdfProcessorProperties.Memory settings = new EdfProcessorProperties.Memory();
+        settings.setEvictAbove(0.5);
+        settings.setRejectAbove(0.8);
+        return new MemoryGuard(List.of(components), pressure, settings, heap, BUDGET);
+    }
+
+    @Test
+    void measure_thenHeapAndMappedStructuresSummedSeparately() {
+        MemoryAccounted store = () -> List.of(new MemoryUsage("tables", Kind.MAPPED, 2, 4096, 0));
+
+        MemoryFootprint footprint = guard(new Heap(), new Cache(300), store).measure();
+
+        assertThat(footprint.accountedHeapBytes(), equalTo(300L));
+        assertThat(footprint.mappedBytes(), equalTo(4096L));
+        assertThat(footprint.heapUsedBytes(), equalTo(300L));
+        assertThat(footprint.evictAboveBytes(), equalTo(500L));
+        assertThat(footprint.level(), equalTo(Level.NORMAL));
+    }
+
+    @Test
+    void check_whenAboveEvictionMark_thenCachesReleasedBelowIt() {
+        Cache cache = new Cache(600);
+
+        MemoryFootprint footprint = guard(new Heap(), cache).check();
+
+        assertThat(cache.bytes, equalTo(300L));
+        assertThat(footprint.level(), equalTo(Level.NORMAL));
+        assertThat(pressure.level(), equalTo(Level.NORMAL));
+    }
+
+    @Test
+    void check_whenLiveHeapAboveRejectionMark_thenLoadsRejectedUntilCollected() {
+        Heap heap = new Heap();
+        heap.live = 900;
+        Cache cache = new Cache(100);
+        MemoryGuard guard = guard(heap, cache);
+
+        assertThat(guard.check().level(), equalTo(Level.REJECT));
+        assertThat(pressure.rejectsLoads(), equalTo(true));
+        // released bytes count as freed until the next collection
+        assertThat(guard.measure().heapUsedBytes(), equalTo(850L));
+
+        heap.live = 400;
+        heap.collections++;
+        assertThat(guard.check().level(), equalTo(Level.NORMAL));
+        assertThat(pressure.rejectsLoads(), equalTo(false));
+    }
+
+    @Test
+    void settings_whenMarksNotOrdered_thenInvalid() {
+        EdfProcessorProperties.Memory settings = new EdfProcessorProperties.Memory();
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            assertThat(factory.getValidator().validate(settings).size(), equalTo(0));
+
+            settings.setEvictAbove(0.9);
+            settings.setRejectAbove(0.75);
+            Set<ConstraintViolation<EdfProcessorProperties.Memory>> violations = factory.getValidator().validate(settings);
+            assertThat(violations.size(), equalTo(1));
+            assertThat(violations.iterator().next().getPropertyPath().toString(), equalTo("marksOrdered"));
+
+            settings.setEvictAbove(0.9);
+            settings.setRejectAbove(1.2);
+            assertThat(factory.getValidator().validate(settings).size(), equalTo(1));
+        }
+    }
+}
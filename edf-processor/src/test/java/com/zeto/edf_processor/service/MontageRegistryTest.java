@@ -0,0 +1,185 @@
+package com.zeto.edf_processor.service;
+
+import com.zeto.edf_processor.cache.MemoryUsage;
+import com.zeto.edf_processor.config.EdfProcessorProperties;
+import com.zeto.edf_processor.exceptions.InvalidSignalRequestException;
+import com.zeto.edf_processor.model.MontageDefinition;
+import com.zeto.edf_processor.model.ResolvedMontage;
+import com.zeto.edf_processor.model.SignalLayout;
+import com.zeto.edf_processor.model.SignalLayout.ChannelLayout;
+import com.zeto.edf_processor.model.SignalWindow;
+import com.zeto.edf_processor.model.SignalWindow.ChannelSignal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MontageRegistryTest {
+
+    private static final String[] LABELS = {"EEG Fp1", "EEG F7", "EEG Cz-REF", "EEG C3", "EDF Annotations"};
+
+    private MontageRegistry montageRegistry;
+
+    private SignalLayout layout;
+
+    @BeforeEach
+    void setUp() {
+        EdfProcessorProperties properties = new EdfProcessorProperties();
+        properties.getMontages().put("bipolar", montage(false, "Fp1-F7", "F7-T3", "Cz-C3"));
+        properties.getMontages().put("laplacian", montage(false, "Cz-Lap=Cz-0.5*C3-0.5*F7"));
+        properties.getMontages().put("average", montage(true));
+        montageRegistry = new MontageRegistry(properties);
+
+        int n = LABELS.length;
+        layout = SignalLayout.from(256 * (n + 1), 10, 1.0, LABELS, new String[]{"uV", "uV", "uV", "uV", ""},
+                new Integer[]{4, 4, 4, 4, 2}, fill(n, -32768), fill(n, 32767),
+                new Double[]{-100.0, -100.0, -100.0, -100.0, -1.0}, new Double[]{100.0, 100.0, 100.0, 100.0, 1.0});
+    }
+
+    @Test
+    void parse_whenWeightedExpression_thenTermsAndLabel() {
+        MontageDefinition.Derivation derivation = parse("Cz-Lap = Cz - 0.25*C3 + 2*Pz");
+
+        assertThat(derivation.label(), equalTo("Cz-Lap"));
+        assertThat(derivation.terms(), contains(new MontageDefinition.Term("Cz", 1.0),
+                new MontageDefinition.Term("C3", -0.25), new MontageDefinition.Term("Pz", 2.0)));
+        assertThrows(IllegalArgumentException.class, () -> parse("Fp1 F7"));
+        assertThrows(IllegalArgumentException.class, () -> parse("Fp1-*F7"));
+    }
+
+    @Test
+    void normalizeLabel_whenPrefixAndReferenceSuffix_thenStripped() {
+        assertThat(MontageDefinition.normalizeLabel("EEG Fp1-REF"), equalTo("fp1"));
+        assertThat(MontageDefinition.normalizeLabel(" FP1 "), equalTo("fp1"));
+        assertThat(MontageDefinition.normalizeLabel("EEG Cz-LE"), equalTo("cz"));
+    }
+
+    @Test
+    void resolve_whenDerivationMissesChannel_thenSkippedAndInputsShared() {
+        ResolvedMontage resolved = montageRegistry.resolve("bipolar", layout);
+
+        assertThat(resolved.rows().stream().map(ResolvedMontage.Row::label).toList(), contains("Fp1-F7", "Cz-C3"));
+        assertThat(resolved.inputs().stream().map(ChannelLayout::label).toList(),
+                contains("EEG Fp1", "EEG F7", "EEG Cz-REF", "EEG C3"));
+        assertThat(montageRegistry.resolve("bipolar", layout), sameInstance(resolved));
+    }
+
+    @Test
+    void releaseMemory_thenResolutionsAccountedAndDropped() {
+        ResolvedMontage resolved = montageRegistry.resolve("bipolar", layout);
+
+        MemoryUsage usage = montageRegistry.memoryUsage().get(0);
+        assertThat(usage.name(), equalTo("montage-resolutions"));
+        assertThat(usage.entries(), equalTo(1L));
+        assertThat(usage.bytes(), greaterThan(resolved.sizeInBytes()));
+
+        assertThat(montageRegistry.releaseMemory(), equalTo(usage.bytes()));
+        assertThat(montageRegistry.memoryUsage().get(0).entries(), equalTo(0L));
+        assertThat(montageRegistry.resolve("bipolar", layout), not(sameInstance(resolved)));
+    }
+
+    @Test
+    void resolve_whenSameLabelsOtherRateAndRange_thenBoundToTheRecording() {
+        montageRegistry.resolve("bipolar", layout);
+        int n = LABELS.length;
+        SignalLayout other = SignalLayout.from(256 * (n + 1), 10, 1.0, LABELS, new String[]{"mV", "mV", "mV", "mV", ""},
+                new Integer[]{500, 500, 500, 500, 60}, fill(n, -32768), fill(n, 32767),
+                new Double[]{-3000.0, -3000.0, -3000.0, -3000.0, -1.0}, new Double[]{3000.0, 3000.0, 3000.0, 3000.0, 1.0});
+
+        ResolvedMontage resolved = montageRegistry.resolve("bipolar", other);
+
+        assertThat(resolved.inputs(), equalTo(List.of(other.getChannels().get(0), other.getChannels().get(1),
+                other.getChannels().get(2), other.getChannels().get(3))));
+        assertThat(resolved.inputs().get(1).byteOffset(), equalTo(1000));
+        assertThat(resolved.inputs().get(1).samplesPerRecord(), equalTo(500));
+        assertThat(resolved.inputs().get(1).scale(), closeTo(6000.0 / 65535, 1e-12));
+        assertThat(resolved.rows().get(0).unit(), equalTo("mV"));
+        assertThat(montageRegistry.resolve("bipolar", layout).inputs().get(1).byteOffset(), equalTo(8));
+    }
+
+    @Test
+    void resolve_whenUnknownOrUnmatched_thenInvalidRequest() {
+        assertThrows(InvalidSignalRequestException.class, () -> montageRegistry.resolve("unknown", layout));
+
+        SignalLayout other = SignalLayout.from(512, 10, 1.0, new String[]{"EEG O1"}, new String[]{"uV"},
+                new Integer[]{4}, fill(1, -32768), fill(1, 32767), new Double[]{-100.0}, new Double[]{100.0});
+        assertThrows(InvalidSignalRequestException.class, () -> montageRegistry.resolve("bipolar", other));
+    }
+
+    @Test
+    void apply_whenLaplacianAndAverage_thenWeightedSums() {
+        // inputs in order of use: Cz, C3, F7
+        float[] cz = {1, 2, 3, 4};
+        float[] c3 = {1, 1, 1, 1};
+        float[] f7 = {3, 3, 3, 3};
+        SignalWindow window = new SignalWindow("test.edf", 0, 1, 0.0, List.of(
+                channel("EEG Cz-REF", cz), channel("EEG C3", c3), channel("EEG F7", f7)));
+
+        SignalWindow laplacian = montageRegistry.resolve("laplacian", layout).apply(window, List.of());
+
+        assertThat(laplacian.channels(), hasSize(1));
+        assertThat(laplacian.channels().get(0).label(), equalTo("Cz-Lap"));
+        assertThat(laplacian.channels().get(0).samples(), equalTo(new float[]{-1, 0, 1, 2}));
+        assertThat(laplacian.channels().get(0).offset(), equalTo(0.0));
+
+        ResolvedMontage average = montageRegistry.resolve("average", layout);
+        assertThat(average.rows(), hasSize(4));
+        SignalWindow constant = new SignalWindow("test.edf", 0, 1, 0.0, average.inputs().stream()
+                .map(input -> channel(input.label(), new float[]{5, 5, 5, 5})).toList());
+        for (ChannelSignal derived : average.apply(constant, null).channels()) {
+            for (float sample : derived.samples()) {
+                assertThat((double) sample, closeTo(0.0, 1e-6));
+            }
+        }
+    }
+
+    @Test
+    void resolve_whenAverageOverMixedRates_thenEegChannelsAtDominantRateOnly() {
+        String[] labels = {"EEG Fp1", "EEG F7", "C3", "ECG", "EMG chin", "EEG Pz", "Resp"};
+        int n = labels.length;
+        SignalLayout mixed = SignalLayout.from(256 * (n + 1), 10, 1.0, labels, null,
+                new Integer[]{256, 256, 256, 256, 512, 128, 32}, fill(n, -32768), fill(n, 32767),
+                new Double[]{-100.0, -100.0, -100.0, -5000.0, -500.0, -100.0, -1.0},
+                new Double[]{100.0, 100.0, 100.0, 5000.0, 500.0, 100.0, 1.0});
+
+        ResolvedMontage average = montageRegistry.resolve("average", mixed);
+
+        assertThat(average.rows().stream().map(ResolvedMontage.Row::label).toList(),
+                contains("EEG Fp1-AVG", "EEG F7-AVG", "C3-AVG"));
+        assertThat(average.inputs().stream().map(ChannelLayout::label).toList(), contains("EEG Fp1", "EEG F7", "C3"));
+    }
+
+    @Test
+    void isEeg_whenElectrodeOrEegPrefix_thenTrue() {
+        assertThat(MontageRegistry.isEeg("EEG Fp1-REF"), equalTo(true));
+        assertThat(MontageRegistry.isEeg("T10"), equalTo(true));
+        assertThat(MontageRegistry.isEeg("ECG"), equalTo(false));
+        assertThat(MontageRegistry.isEeg("EMG chin"), equalTo(false));
+    }
+
+    private static MontageDefinition.Derivation parse(String expression) {
+        return MontageDefinition.parse("test", List.of(expression), false).derivations().get(0);
+    }
+
+    private static ChannelSignal channel(String label, float[] samples) {
+        return new ChannelSignal(label, "uV", 4.0, 0.003, 0.0, samples);
+    }
+
+    private static EdfProcessorProperties.Montage montage(boolean averageReference, String... derivations) {
+        EdfProcessorProperties.Montage montage = new EdfProcessorProperties.Montage();
+        montage.setDerivations(List.of(derivations));
+        montage.setAverageReference(averageReference);
+        return montage;
+    }
+
+    private static Integer[] fill(int n, int value) {
+        Integer[] values = new Integer[n];
+        Arrays.fill(values, value);
+        return values;
+    }
+}